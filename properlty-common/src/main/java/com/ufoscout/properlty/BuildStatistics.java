@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty;
+
+/**
+ * Statistics collected while building a Properlty instance
+ *
+ * @author Francesco Cina
+ *
+ */
+public class BuildStatistics {
+
+	private int literalValues;
+	private int templatedValues;
+	private int resolverCalls;
+	private int deduplicatedStrings;
+	private long deduplicatedBytes;
+
+	/**
+	 * The number of values that did not contain placeholders when loaded
+	 *
+	 * @return the literal values count
+	 */
+	public int getLiteralValues() {
+		return literalValues;
+	}
+
+	/**
+	 * Set the number of values that did not contain placeholders when loaded
+	 *
+	 * @param literalValues
+	 */
+	public BuildStatistics literalValues(int literalValues) {
+		this.literalValues = literalValues;
+		return this;
+	}
+
+	/**
+	 * The number of values that contained placeholders when loaded
+	 *
+	 * @return the templated values count
+	 */
+	public int getTemplatedValues() {
+		return templatedValues;
+	}
+
+	/**
+	 * Set the number of values that contained placeholders when loaded
+	 *
+	 * @param templatedValues
+	 */
+	public BuildStatistics templatedValues(int templatedValues) {
+		this.templatedValues = templatedValues;
+		return this;
+	}
+
+	/**
+	 * The number of batched calls to the {@link com.ufoscout.properlty.reader.PlaceholderResolver}
+	 *
+	 * @return the resolver calls count
+	 */
+	public int getResolverCalls() {
+		return resolverCalls;
+	}
+
+	/**
+	 * Set the number of batched calls to the {@link com.ufoscout.properlty.reader.PlaceholderResolver}
+	 *
+	 * @param resolverCalls
+	 */
+	public BuildStatistics resolverCalls(int resolverCalls) {
+		this.resolverCalls = resolverCalls;
+		return this;
+	}
+
+	/**
+	 * The number of key and value instances of the final properties replaced by an equal shared instance
+	 *
+	 * @return the deduplicated Strings count
+	 */
+	public int getDeduplicatedStrings() {
+		return deduplicatedStrings;
+	}
+
+	/**
+	 * Set the number of key and value instances of the final properties replaced by an equal shared instance
+	 *
+	 * @param deduplicatedStrings
+	 */
+	public BuildStatistics deduplicatedStrings(int deduplicatedStrings) {
+		this.deduplicatedStrings = deduplicatedStrings;
+		return this;
+	}
+
+	/**
+	 * The estimated heap bytes saved by sharing equal keys and values of the final properties
+	 *
+	 * @return the saved bytes
+	 */
+	public long getDeduplicatedBytes() {
+		return deduplicatedBytes;
+	}
+
+	/**
+	 * Set the estimated heap bytes saved by sharing equal keys and values of the final properties
+	 *
+	 * @param deduplicatedBytes
+	 */
+	public BuildStatistics deduplicatedBytes(long deduplicatedBytes) {
+		this.deduplicatedBytes = deduplicatedBytes;
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "BuildStatistics [literalValues=" + literalValues + ", templatedValues=" + templatedValues
+				+ ", resolverCalls=" + resolverCalls + ", deduplicatedStrings=" + deduplicatedStrings
+				+ ", deduplicatedBytes=" + deduplicatedBytes + "]";
+	}
+
+}
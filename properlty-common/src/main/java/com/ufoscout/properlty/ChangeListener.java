@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty;
+
+/**
+ * Receives the changes of the properties published by a reloadable Properlty.
+ *
+ * @author Francesco Cina
+ *
+ */
+@FunctionalInterface
+public interface ChangeListener {
+
+	/**
+	 * Called after a new snapshot of the properties is published, in publication order.
+	 * Reads made while this method runs can already return a newer snapshot.
+	 *
+	 * @param diff the keys added, removed and changed by the new snapshot
+	 */
+	void onChange(PropertiesDiff diff);
+
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+
+/**
+ * A property value backed by a {@link MutableCallSite}.
+ *
+ * The JIT compiler treats the target of a call site as a constant when the MethodHandle that invokes it
+ * is a constant, so the value returned by a {@link #handle()} kept in a static final field can be inlined,
+ * and reading it costs as much as reading a static final field:
+ *
+ * <pre>
+ * static final MethodHandle FLAG = properlty.constant("flag.x", Boolean.class).handle();
+ * ...
+ * if ((boolean) FLAG.invokeExact()) { ... }
+ * </pre>
+ *
+ * When the value changes, the call site is updated and the compiled code that depends on it is invalidated.
+ * {@link #get()} is simpler to use but, as the JIT does not trust the final instance fields, it is not inlined.
+ *
+ * @author Francesco Cina
+ *
+ */
+public final class Constant<T> {
+
+	private final String key;
+	private final MutableCallSite callSite;
+	private final Class<?> type;
+	private final MethodHandle invoker;
+
+	Constant(String key, Class<?> type, T value) {
+		this.key = key;
+		this.type = MethodType.methodType(type).unwrap().returnType();
+		callSite = new MutableCallSite(target(this.type, value));
+		invoker = callSite.dynamicInvoker().asType(MethodType.methodType(Object.class));
+	}
+
+	/**
+	 * Return the current value.
+	 *
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public T get() {
+		try {
+			return (T) invoker.invokeExact();
+		} catch (final Throwable e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Return a MethodHandle without arguments that returns the current value.
+	 * The return type of the MethodHandle is the type of the Constant, unboxed if it is a primitive wrapper,
+	 * e.g. a Constant&lt;Boolean&gt; returns a ()boolean MethodHandle.
+	 *
+	 * @return
+	 */
+	public MethodHandle handle() {
+		return callSite.dynamicInvoker();
+	}
+
+	/**
+	 * Return the key of the property.
+	 *
+	 * @return
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * Set a new value and make it visible to all threads.
+	 *
+	 * @param value
+	 */
+	void set(T value) {
+		callSite.setTarget(target(type, value));
+		MutableCallSite.syncAll(new MutableCallSite[] {callSite});
+	}
+
+	private static MethodHandle target(Class<?> type, Object value) {
+		return MethodHandles.constant(type, value);
+	}
+
+	@Override
+	public String toString() {
+		return "Constant [" + key + "=" + get() + "]";
+	}
+
+}
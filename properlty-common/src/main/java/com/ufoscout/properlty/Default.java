@@ -12,4 +12,6 @@ public interface Default {
     String LIST_SEPARATOR = ",";
 
     String DEFAULT_DEFAULT_VALUE_SEPARATOR = ":";
+
+    int TEMPLATE_CACHE_SIZE = 256;
 }
@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.ufoscout.properlty.store.BloomFilterStore;
+import com.ufoscout.properlty.store.HamtStore;
+import com.ufoscout.properlty.store.OverlayStore;
+import com.ufoscout.properlty.store.Store;
+
+/**
+ * The keys added, removed and changed between two snapshots of the properties.
+ * The keys of each group are in lexicographic order.
+ *
+ * @author Francesco Cina
+ *
+ */
+public final class PropertiesDiff {
+
+	private final Map<String, String> added;
+	private final Map<String, String> removed;
+	private final Map<String, Change> changed;
+
+	/**
+	 * Compare the entries of the two stores.
+	 * When the stores share their structure, because one is derived from the other or both are derived
+	 * from the same store through {@link HamtStore#with(String, String)} or {@link OverlayStore}, only the
+	 * entries that are not shared are compared, so the cost is proportional to the number of changes.
+	 * Unrelated stores are compared entry by entry.
+	 *
+	 * @param previous
+	 * @param next
+	 * @return
+	 */
+	public static PropertiesDiff of(Store previous, Store next) {
+		final Map<String, String> added = new TreeMap<>();
+		final Map<String, String> removed = new TreeMap<>();
+		final Map<String, Change> changed = new TreeMap<>();
+		final Set<String> changedKeys = changedKeys(previous, next);
+		if (changedKeys != null) {
+			for (final String key : changedKeys) {
+				compare(key, previous.get(key), next.get(key), added, removed, changed);
+			}
+		} else {
+			next.forEach((key, value) -> compare(key, previous.get(key), value, added, removed, changed));
+			previous.forEach((key, value) -> {
+				if (next.get(key) == null) {
+					removed.put(key, value);
+				}
+			});
+		}
+		return new PropertiesDiff(added, removed, changed);
+	}
+
+	/**
+	 * Return the keys whose entries can differ between the two stores
+	 * or null if the stores do not share their structure.
+	 */
+	private static Set<String> changedKeys(Store previous, Store next) {
+		if (previous == next) {
+			return new HashSet<>();
+		}
+		if (previous instanceof BloomFilterStore) {
+			return changedKeys(((BloomFilterStore) previous).getStore(), next);
+		}
+		if (next instanceof BloomFilterStore) {
+			return changedKeys(previous, ((BloomFilterStore) next).getStore());
+		}
+		if (previous instanceof HamtStore && next instanceof HamtStore) {
+			final Set<String> keys = new HashSet<>();
+			((HamtStore) previous).forEachChangedKey((HamtStore) next, keys::add);
+			return keys;
+		}
+		if (previous instanceof OverlayStore || next instanceof OverlayStore) {
+			// the entries of the two stores can differ only for the keys of the deltas or for the keys that differ in the bases
+			final Set<String> keys = changedKeys(base(previous), base(next));
+			if (keys != null) {
+				addDeltaKeys(previous, keys);
+				addDeltaKeys(next, keys);
+			}
+			return keys;
+		}
+		return null;
+	}
+
+	private static Store base(Store store) {
+		return store instanceof OverlayStore ? ((OverlayStore) store).getBase() : store;
+	}
+
+	private static void addDeltaKeys(Store store, Set<String> keys) {
+		if (store instanceof OverlayStore) {
+			((OverlayStore) store).getDelta().forEach((key, value) -> keys.add(key));
+		}
+	}
+
+	private static void compare(String key, String previousValue, String value,
+			Map<String, String> added, Map<String, String> removed, Map<String, Change> changed) {
+		if (previousValue == null) {
+			if (value != null) {
+				added.put(key, value);
+			}
+		} else if (value == null) {
+			removed.put(key, previousValue);
+		} else if (!previousValue.equals(value)) {
+			changed.put(key, new Change(previousValue, value));
+		}
+	}
+
+	private PropertiesDiff(Map<String, String> added, Map<String, String> removed, Map<String, Change> changed) {
+		this.added = Collections.unmodifiableMap(added);
+		this.removed = Collections.unmodifiableMap(removed);
+		this.changed = Collections.unmodifiableMap(changed);
+	}
+
+	/**
+	 * The added keys with their values
+	 *
+	 * @return
+	 */
+	public Map<String, String> getAdded() {
+		return added;
+	}
+
+	/**
+	 * The removed keys with their previous values
+	 *
+	 * @return
+	 */
+	public Map<String, String> getRemoved() {
+		return removed;
+	}
+
+	/**
+	 * The keys whose value changed with their previous and new values
+	 *
+	 * @return
+	 */
+	public Map<String, Change> getChanged() {
+		return changed;
+	}
+
+	/**
+	 * Return the changes of the keys that start with the given prefix; the prefix is removed from the keys.
+	 *
+	 * @param prefix
+	 * @return
+	 */
+	public PropertiesDiff subset(String prefix) {
+		if (prefix.isEmpty()) {
+			return this;
+		}
+		return new PropertiesDiff(subset(added, prefix), subset(removed, prefix), subset(changed, prefix));
+	}
+
+	private static <V> Map<String, V> subset(Map<String, V> entries, String prefix) {
+		final Map<String, V> subset = new TreeMap<>();
+		entries.forEach((key, value) -> {
+			if (key.startsWith(prefix)) {
+				subset.put(key.substring(prefix.length()), value);
+			}
+		});
+		return subset;
+	}
+
+	/**
+	 * Whether the key was added, removed or changed
+	 *
+	 * @param key
+	 * @return
+	 */
+	public boolean contains(String key) {
+		return added.containsKey(key) || removed.containsKey(key) || changed.containsKey(key);
+	}
+
+	/**
+	 * Whether the two snapshots have the same properties
+	 *
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "PropertiesDiff [added=" + added + ", removed=" + removed + ", changed=" + changed + "]";
+	}
+
+	/**
+	 * The previous and the new value of a changed key
+	 */
+	public static final class Change {
+
+		private final String previousValue;
+		private final String value;
+
+		Change(String previousValue, String value) {
+			this.previousValue = previousValue;
+			this.value = value;
+		}
+
+		/**
+		 * The value in the previous snapshot
+		 *
+		 * @return
+		 */
+		public String getPreviousValue() {
+			return previousValue;
+		}
+
+		/**
+		 * The value in the new snapshot
+		 *
+		 * @return
+		 */
+		public String getValue() {
+			return value;
+		}
+
+		@Override
+		public String toString() {
+			return previousValue + " -> " + value;
+		}
+
+	}
+
+}
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an interface whose methods return configuration values.
+ *
+ * When the properlty-processor is on the annotation processor path, a class named
+ * Properlty_&lt;InterfaceName&gt; that implements the interface is generated at compile time.
+ * Its constructor takes a Properlty instance and reads each key once into a final field.
+ *
+ * Each method without parameters is bound to a key; see {@link Key} for the key naming rules.
+ * The same annotations are used by Properlty.bind(Class) to bind interfaces, POJOs and records at runtime.
+ *
+ * @author Francesco Cina
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Config {
+
+	/**
+	 * A prefix prepended to the key of every method of the interface, e.g. "server."
+	 *
+	 * @return
+	 */
+	String prefix() default "";
+
+}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sets the key, and optionally the default value, of a method of a {@link Config} interface.
+ *
+ * Without this annotation, the key is the method name without the "get" or "is" prefix,
+ * e.g. both getPort() and port() are bound to the "port" key.
+ *
+ * @author Francesco Cina
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Key {
+
+	/**
+	 * The value of {@link #defaultValue()} when no default value is set.
+	 */
+	String NO_DEFAULT_VALUE = "\u0000";
+
+	/**
+	 * The key of the property. If empty, the key is derived from the method name.
+	 *
+	 * @return
+	 */
+	String value() default "";
+
+	/**
+	 * The value used when the key is not present.
+	 *
+	 * @return
+	 */
+	String defaultValue() default NO_DEFAULT_VALUE;
+
+}
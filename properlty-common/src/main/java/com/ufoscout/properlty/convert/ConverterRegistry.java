@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.convert;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The converters from property values to typed values.
+ *
+ * Besides the types supported by {@link Converters#forType(Class)}, it converts
+ * {@link Duration}, {@link InetSocketAddress}, {@link URI}, {@link Path} and {@link DataSize};
+ * custom converters can be registered for any type and override the built-in ones.
+ *
+ * @author Francesco Cina
+ *
+ */
+public class ConverterRegistry {
+
+	private final Map<Class<?>, Function<String, ?>> converters = new HashMap<>();
+
+	public ConverterRegistry() {
+		register(Duration.class, ConverterRegistry::toDuration);
+		register(InetSocketAddress.class, ConverterRegistry::toInetSocketAddress);
+		register(URI.class, URI::create);
+		register(Path.class, value -> Paths.get(value));
+		register(DataSize.class, DataSize::parse);
+	}
+
+	private ConverterRegistry(ConverterRegistry registry) {
+		converters.putAll(registry.converters);
+	}
+
+	/**
+	 * Register the converter of a type.
+	 *
+	 * @param type
+	 * @param converter
+	 * @return
+	 */
+	public <T> ConverterRegistry register(Class<T> type, Function<String, ? extends T> converter) {
+		converters.put(type, converter);
+		return this;
+	}
+
+	/**
+	 * Return the converter of a type or null if the type is not supported.
+	 *
+	 * @param type
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Function<String, T> get(Class<T> type) {
+		final Function<String, ?> converter = converters.get(type);
+		return (Function<String, T>) (converter != null ? converter : Converters.forType(type));
+	}
+
+	/**
+	 * Return a copy of this registry.
+	 *
+	 * @return
+	 */
+	public ConverterRegistry copy() {
+		return new ConverterRegistry(this);
+	}
+
+	/**
+	 * Parse an ISO-8601 duration, like "PT30S", or a number followed by one of the units
+	 * ms, s, m, h and d, like "100ms" or "30s". A number without unit is in milliseconds.
+	 */
+	static Duration toDuration(String value) {
+		final String duration = value.trim();
+		if (duration.startsWith("P") || duration.startsWith("p") || duration.startsWith("-P")) {
+			return Duration.parse(duration);
+		}
+		int unitStart = duration.length();
+		while (unitStart > 0 && Character.isLetter(duration.charAt(unitStart - 1))) {
+			unitStart--;
+		}
+		final long amount;
+		try {
+			amount = Long.parseLong(duration.substring(0, unitStart).trim());
+		} catch (final NumberFormatException e) {
+			throw new IllegalArgumentException("Cannot parse duration value: [" + value + "]", e);
+		}
+		switch (duration.substring(unitStart).toLowerCase()) {
+		case "":
+		case "ms":
+			return Duration.ofMillis(amount);
+		case "s":
+			return Duration.ofSeconds(amount);
+		case "m":
+			return Duration.ofMinutes(amount);
+		case "h":
+			return Duration.ofHours(amount);
+		case "d":
+			return Duration.ofDays(amount);
+		default:
+			throw new IllegalArgumentException("Cannot parse duration value: [" + value + "]");
+		}
+	}
+
+	/**
+	 * Parse a "host:port" or "[ipv6]:port" address without resolving the host name.
+	 */
+	static InetSocketAddress toInetSocketAddress(String value) {
+		final String address = value.trim();
+		final int separator = address.lastIndexOf(':');
+		if (separator <= 0) {
+			throw new IllegalArgumentException("Cannot parse socket address value: [" + value + "]");
+		}
+		String host = address.substring(0, separator);
+		if (host.startsWith("[") && host.endsWith("]")) {
+			host = host.substring(1, host.length() - 1);
+		}
+		try {
+			return InetSocketAddress.createUnresolved(host, Integer.parseInt(address.substring(separator + 1)));
+		} catch (final NumberFormatException e) {
+			throw new IllegalArgumentException("Cannot parse socket address value: [" + value + "]", e);
+		}
+	}
+
+}
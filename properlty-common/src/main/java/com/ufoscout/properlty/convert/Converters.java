@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.convert;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.function.Function;
+
+/**
+ * Conversions of property values shared by the Properlty getters and the generated config classes.
+ *
+ * @author Francesco Cina
+ *
+ */
+public class Converters {
+
+	private Converters() {}
+
+	/**
+	 * Return the function that converts a property value to the given type
+	 * or null if the type is not supported.
+	 * Supported types are String, the primitive types and their wrappers, BigDecimal, BigInteger and enums.
+	 *
+	 * @param type
+	 * @return
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static Function<String, ?> forType(Class<?> type) {
+		if (type == String.class) {
+			return Function.identity();
+		}
+		if (type == int.class || type == Integer.class) {
+			return Integer::valueOf;
+		}
+		if (type == long.class || type == Long.class) {
+			return Long::valueOf;
+		}
+		if (type == double.class || type == Double.class) {
+			return Double::valueOf;
+		}
+		if (type == float.class || type == Float.class) {
+			return Float::valueOf;
+		}
+		if (type == boolean.class || type == Boolean.class) {
+			return Converters::toBoolean;
+		}
+		if (type == BigDecimal.class) {
+			return BigDecimal::new;
+		}
+		if (type == BigInteger.class) {
+			return BigInteger::new;
+		}
+		if (type.isEnum()) {
+			return value -> Enum.valueOf((Class<Enum>) type, value);
+		}
+		return null;
+	}
+
+	/**
+	 * Convert "true" and "false", ignoring case, to a boolean.
+	 *
+	 * @param value
+	 * @return
+	 * @throws RuntimeException if the value is neither "true" nor "false"
+	 */
+	public static boolean toBoolean(String value) {
+		if ( "true".equalsIgnoreCase(value) )
+			return true;
+		else if ( "false".equalsIgnoreCase(value) )
+			return false;
+		else
+			throw new RuntimeException("Cannot parse boolean value: [" + value+ "]");
+	}
+
+}
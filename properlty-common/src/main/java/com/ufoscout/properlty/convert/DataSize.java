@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.convert;
+
+/**
+ * A size in bytes, parsed from values like "512", "64KB", "10MB" or "2GB".
+ * Units are case insensitive and use powers of 1024; a value without unit is in bytes.
+ *
+ * @author Francesco Cina
+ *
+ */
+public final class DataSize implements Comparable<DataSize> {
+
+	private static final String[] UNITS = {"TB", "GB", "MB", "KB", "B", "T", "G", "M", "K"};
+	private static final int[] SHIFTS = {40, 30, 20, 10, 0, 40, 30, 20, 10};
+
+	private final long bytes;
+
+	private DataSize(long bytes) {
+		this.bytes = bytes;
+	}
+
+	/**
+	 * Return a {@link DataSize} of the given number of bytes.
+	 *
+	 * @param bytes
+	 * @return
+	 */
+	public static DataSize ofBytes(long bytes) {
+		return new DataSize(bytes);
+	}
+
+	/**
+	 * Parse a size like "512", "64KB", "10MB" or "2GB".
+	 *
+	 * @param value
+	 * @return
+	 * @throws IllegalArgumentException if the value cannot be parsed
+	 */
+	public static DataSize parse(String value) {
+		final String size = value.trim().toUpperCase();
+		for (int i = 0; i < UNITS.length; i++) {
+			if (size.endsWith(UNITS[i])) {
+				return new DataSize(number(size.substring(0, size.length() - UNITS[i].length()), value) << SHIFTS[i]);
+			}
+		}
+		return new DataSize(number(size, value));
+	}
+
+	private static long number(String number, String value) {
+		try {
+			return Long.parseLong(number.trim());
+		} catch (final NumberFormatException e) {
+			throw new IllegalArgumentException("Cannot parse data size value: [" + value + "]", e);
+		}
+	}
+
+	/**
+	 * @return the size in bytes
+	 */
+	public long toBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return the size in kilobytes, rounded down
+	 */
+	public long toKilobytes() {
+		return bytes >> 10;
+	}
+
+	/**
+	 * @return the size in megabytes, rounded down
+	 */
+	public long toMegabytes() {
+		return bytes >> 20;
+	}
+
+	@Override
+	public int compareTo(DataSize other) {
+		return Long.compare(bytes, other.bytes);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof DataSize && ((DataSize) obj).bytes == bytes;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(bytes);
+	}
+
+	@Override
+	public String toString() {
+		return bytes + "B";
+	}
+
+}
@@ -20,6 +20,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import com.ufoscout.properlty.util.StringTable;
+
 /**
  * Return a {@link Map} with all values from OS environment variables.
  *
@@ -41,10 +43,15 @@ public class EnvironmentVariablesReader implements Reader {
 
 	@Override
 	public Map<String, PropertyValue> read() {
+		return read(StringTable.NONE);
+	}
+
+	@Override
+	public Map<String, PropertyValue> read(StringTable table) {
 		return envSupplier.get().entrySet().stream()
 		        .collect(Collectors.toMap(
-		                e -> getKey(e.getKey()),
-		                e -> PropertyValue.of(e.getValue()).resolvable(false)
+		                e -> table.canonical(getKey(e.getKey())),
+		                e -> PropertyValue.shared(table.canonical(e.getValue()), false)
 		            ));
 	}
 
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.reader;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Provides the values of placeholders that are not defined by any {@link Reader},
+ * for example fetching them from a remote secrets store.
+ *
+ * It is called at most once per resolution round with all the keys missing in that round,
+ * so that N missing keys cost a single batched lookup.
+ *
+ * @author Francesco Cina
+ *
+ */
+@FunctionalInterface
+public interface PlaceholderResolver {
+
+	/**
+	 * Return the values of the requested keys.
+	 * Keys that cannot be resolved should be omitted from the returned {@link Map}.
+	 * Keys that were not requested are ignored.
+	 * The returned values are used as they are, their placeholders are not resolved.
+	 *
+	 * @param keys the keys missing in the current resolution round
+	 * @return
+	 */
+	Map<String, String> resolve(Set<String> keys);
+
+}
@@ -43,7 +43,7 @@ public class ProgrammaticPropertiesReader implements Reader {
 	 * @return
 	 */
 	public ProgrammaticPropertiesReader add(String key, String value) {
-		properties.put(key, PropertyValue.of(value));
+		properties.put(key, PropertyValue.shared(value, true));
 		return this;
 	}
 
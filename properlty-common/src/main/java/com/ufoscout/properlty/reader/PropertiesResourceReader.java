@@ -17,6 +17,7 @@ package com.ufoscout.properlty.reader;
 
 import com.ufoscout.properlty.exception.ResourceNotFoundException;
 import com.ufoscout.properlty.util.FileUtils;
+import com.ufoscout.properlty.util.StringTable;
 
 import java.io.FileNotFoundException;
 import java.io.InputStream;
@@ -61,13 +62,18 @@ public class PropertiesResourceReader implements Reader {
 
 	@Override
 	public Map<String, PropertyValue> read() {
+		return read(StringTable.NONE);
+	}
+
+	@Override
+	public Map<String, PropertyValue> read(StringTable table) {
         try(InputStream inputStream = FileUtils.getStream(resourcePath))
         {
         	final Properties prop = new Properties();
         	final Map<String, PropertyValue> map = new HashMap<>();
             prop.load(new InputStreamReader(inputStream, charset));
             for (final Entry<Object, Object> entry : prop.entrySet()) {
-            	map.put((String) entry.getKey(), PropertyValue.of((String) entry.getValue()));
+            	map.put(table.canonical((String) entry.getKey()), PropertyValue.shared(table.canonical((String) entry.getValue()), true));
             }
             return map;
         }
@@ -15,6 +15,12 @@
  ******************************************************************************/
 package com.ufoscout.properlty.reader;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * The value and attributes of a property
  *
@@ -23,6 +29,18 @@ package com.ufoscout.properlty.reader;
  */
 public class PropertyValue {
 
+	private static final Map<String, PropertyValue[]> SHARED = new HashMap<>();
+
+	static {
+		final List<String> literals = new ArrayList<>(Arrays.asList("", "true", "false", "yes", "no", "on", "off", "-1"));
+		for (int i = 0; i < 128; i++) {
+			literals.add(Integer.toString(i));
+		}
+		for (final String literal : literals) {
+			SHARED.put(literal, new PropertyValue[] {new Shared(literal, false), new Shared(literal, true)});
+		}
+	}
+
 	private String value = "";
 	private boolean resolvable = true;
 
@@ -30,6 +48,24 @@ public class PropertyValue {
 		return new PropertyValue().value(value);
 	}
 
+	/**
+	 * Return an immutable {@link PropertyValue}.
+	 * The most common literals, like booleans, small integers and the empty String, are cached
+	 * and the same instance is returned each time; any other value gets a new instance.
+	 * Calling a setter of the returned instance throws an {@link UnsupportedOperationException}.
+	 *
+	 * @param value
+	 * @param resolvable
+	 * @return
+	 */
+	public static PropertyValue shared(String value, boolean resolvable) {
+		final PropertyValue[] cached = SHARED.get(value);
+		if (cached != null) {
+			return cached[resolvable ? 1 : 0];
+		}
+		return new Shared(value, resolvable);
+	}
+
 	/**
 	 * The property value
 	 *
@@ -64,6 +100,23 @@ public class PropertyValue {
 		return this;
 	}
 
+	private static final class Shared extends PropertyValue {
+
+		Shared(String value, boolean resolvable) {
+			super.value(value);
+			super.resolvable(resolvable);
+		}
 
+		@Override
+		public PropertyValue value(String value) {
+			throw new UnsupportedOperationException("A shared PropertyValue cannot be modified");
+		}
+
+		@Override
+		public PropertyValue resolvable(boolean resolvable) {
+			throw new UnsupportedOperationException("A shared PropertyValue cannot be modified");
+		}
+
+	}
 
 }
@@ -17,9 +17,23 @@ package com.ufoscout.properlty.reader;
 
 import java.util.Map;
 
+import com.ufoscout.properlty.util.StringTable;
+
 @FunctionalInterface
 public interface Reader {
 
 	Map<String, PropertyValue> read();
 
+	/**
+	 * Read the properties passing the keys and values through the given {@link StringTable},
+	 * so that equal Strings read by different readers share one instance.
+	 * By default the table is not used.
+	 *
+	 * @param table
+	 * @return
+	 */
+	default Map<String, PropertyValue> read(StringTable table) {
+		return read();
+	}
+
 }
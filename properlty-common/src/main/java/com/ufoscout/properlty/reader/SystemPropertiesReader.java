@@ -20,6 +20,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 
+import com.ufoscout.properlty.util.StringTable;
+
 /**
  * Return a {@link Map} with all existing system properties.
  * A system property can be set dynamically or statically.
@@ -37,10 +39,15 @@ public class SystemPropertiesReader implements Reader {
 
 	@Override
 	public Map<String, PropertyValue> read() {
+		return read(StringTable.NONE);
+	}
+
+	@Override
+	public Map<String, PropertyValue> read(StringTable table) {
 		final Map<String, PropertyValue> properties = new HashMap<>();
 		final Properties systemProperties = System.getProperties();
 		for(final Entry<Object, Object> x : systemProperties.entrySet()) {
-		    properties.put((String)x.getKey(), PropertyValue.of((String)x.getValue()));
+		    properties.put(table.canonical((String)x.getKey()), PropertyValue.shared(table.canonical((String)x.getValue()), true));
 		}
 		return properties;
 	}
@@ -19,6 +19,7 @@ import java.util.Map;
 
 import com.ufoscout.properlty.reader.PropertyValue;
 import com.ufoscout.properlty.reader.Reader;
+import com.ufoscout.properlty.util.StringTable;
 
 /**
  * A {@link Reader} decorator that applies a transformation other readers
@@ -39,6 +40,11 @@ public abstract class DecoratorReader implements Reader {
 		return apply(reader.read());
 	}
 
+	@Override
+	public Map<String, PropertyValue> read(StringTable table) {
+		return apply(reader.read(table));
+	}
+
 	protected abstract Map<String, PropertyValue> apply(Map<String, PropertyValue> input);
 
 }
@@ -17,6 +17,7 @@ package com.ufoscout.properlty.reader.decorator;
 
 import com.ufoscout.properlty.reader.PropertyValue;
 import com.ufoscout.properlty.reader.Reader;
+import com.ufoscout.properlty.util.StringTable;
 
 import java.util.*;
 
@@ -35,10 +36,15 @@ public class PriorityQueueDecoratorReader implements Reader {
 
 	@Override
 	public Map<String, PropertyValue> read() {
+		return read(StringTable.NONE);
+	}
+
+	@Override
+	public Map<String, PropertyValue> read(StringTable table) {
 		final Map<String, PropertyValue> result =  new LinkedHashMap<>();
 		readersMap.forEach((priority, readers) -> {
 			readers.forEach(reader -> {
-				final Map<String, PropertyValue> entries = reader.read();
+				final Map<String, PropertyValue> entries = reader.read(table);
 				result.putAll(entries);
 			});
 		}) ;
@@ -15,15 +15,23 @@
  ******************************************************************************/
 package com.ufoscout.properlty.reader.decorator;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
+import com.ufoscout.properlty.BuildStatistics;
 import com.ufoscout.properlty.exception.UnresolvablePlaceholdersException;
+import com.ufoscout.properlty.reader.PlaceholderResolver;
 import com.ufoscout.properlty.reader.PropertyValue;
 import com.ufoscout.properlty.reader.Reader;
-import com.ufoscout.properlty.util.StringUtils;
+import com.ufoscout.properlty.util.TokenScanner;
 
 /**
  *
@@ -35,11 +43,13 @@ import com.ufoscout.properlty.util.StringUtils;
  */
 public class ReplacerDecoratorReader extends DecoratorReader {
 
-	private final String startDelimiter;
-	private final String endDelimiter;
+	private final TokenScanner tokenScanner;
 	private final String defaultValueSeparator;
 	private final boolean ignoreUnresolvablePlaceholders;
 	private final boolean caseSensitiveKeys;
+	private BuildStatistics statistics = new BuildStatistics();
+	private PlaceholderResolver resolver;
+	private Map<String, String> templates = new HashMap<>();
 
 	public ReplacerDecoratorReader(Reader reader,
 								   String startDelimiter,
@@ -47,61 +57,152 @@ public class ReplacerDecoratorReader extends DecoratorReader {
 								   String defaultValueSeparator,
 								   boolean ignoreUnresolvablePlaceholders,
 								   boolean caseSensitive) {
+		this(reader, TokenScanner.of(startDelimiter, endDelimiter), defaultValueSeparator, ignoreUnresolvablePlaceholders, caseSensitive);
+	}
+
+	public ReplacerDecoratorReader(Reader reader,
+								   TokenScanner tokenScanner,
+								   String defaultValueSeparator,
+								   boolean ignoreUnresolvablePlaceholders,
+								   boolean caseSensitive) {
 		super(reader);
-		this.startDelimiter = startDelimiter;
-		this.endDelimiter = endDelimiter;
+		this.tokenScanner = tokenScanner;
 		this.defaultValueSeparator = defaultValueSeparator;
 		this.ignoreUnresolvablePlaceholders = ignoreUnresolvablePlaceholders;
 		this.caseSensitiveKeys = caseSensitive;
 	}
 
+	/**
+	 * Set the {@link BuildStatistics} updated when the properties are read.
+	 *
+	 * @param statistics
+	 * @return
+	 */
+	public ReplacerDecoratorReader statistics(BuildStatistics statistics) {
+		this.statistics = statistics;
+		return this;
+	}
+
+	/**
+	 * Set the {@link PlaceholderResolver} called once per resolution round
+	 * with all the placeholder keys not defined by the decorated reader.
+	 * The resolved values replace the placeholders but are not added to the read properties.
+	 *
+	 * @param resolver
+	 * @return
+	 */
+	public ReplacerDecoratorReader resolver(PlaceholderResolver resolver) {
+		this.resolver = resolver;
+		return this;
+	}
+
+	/**
+	 * Set the {@link Map} filled, when the properties are read, with the raw value of each property that contains placeholders.
+	 *
+	 * @param templates
+	 * @return
+	 */
+	public ReplacerDecoratorReader templates(Map<String, String> templates) {
+		this.templates = templates;
+		return this;
+	}
+
 	@Override
 	protected Map<String, PropertyValue> apply(Map<String, PropertyValue> input) {
 		final Map<String, PropertyValue> output = new LinkedHashMap<>();
+		final Map<String, PropertyValue> templated = new LinkedHashMap<>();
 		input.forEach((key, value) -> {
-			output.put(getKey(key), value);
+			final String outputKey = getKey(key);
+			output.put(outputKey, value);
+			if (isTemplate(value)) {
+				templated.put(outputKey, value);
+				templates.put(outputKey, value.getValue());
+			} else {
+				templated.remove(outputKey);
+				templates.remove(outputKey);
+			}
 		});
 
+		statistics.literalValues(output.size() - templated.size());
+		statistics.templatedValues(templated.size());
+
 		final Map<String, PropertyValue> valuesToBeReplacedMap = new LinkedHashMap<>();
-		boolean valuesToBeReplaced = true;
+		boolean valuesToBeReplaced = !templated.isEmpty();
 		boolean valuesReplacedOnLastLoop = true;
+		final Set<String> requestedKeys = new HashSet<>();
+		final Set<String> missingKeys = new LinkedHashSet<>();
+		// the resolved values are only substituted, they are not added to the properties
+		final Map<String, PropertyValue> resolvedValues = new HashMap<>();
+		int resolverCalls = 0;
 
 		while (valuesReplacedOnLastLoop && valuesToBeReplaced) {
 			valuesToBeReplaced = false;
 			valuesToBeReplacedMap.clear();
 			valuesReplacedOnLastLoop = false;
+			missingKeys.clear();
 
-			for (final Entry<String, PropertyValue> entry : output.entrySet()) {
+			final Iterator<Entry<String, PropertyValue>> iterator = templated.entrySet().iterator();
+			while (iterator.hasNext()) {
+				final Entry<String, PropertyValue> entry = iterator.next();
 				final String key = entry.getKey();
-				final PropertyValue value = entry.getValue();
+				final String value = entry.getValue().getValue();
 
-				if (value.isResolvable()) {
+				final List<String> tokens = tokenScanner.allTokens(value, true);
 
-					final List<String> tokens = StringUtils.allTokens(value.getValue(), startDelimiter, endDelimiter, true);
+				if (tokens.isEmpty()) {
+					iterator.remove();
+					continue;
+				}
 
-					if (!tokens.isEmpty()) {
-						valuesToBeReplaced = true;
-						valuesToBeReplacedMap.put(key, value);
-					}
+				valuesToBeReplaced = true;
+				valuesToBeReplacedMap.put(key, entry.getValue());
 
-					for (final String token : tokens) {
-						final PropertyValue tokenValue = output.get(getBaseValue(token, defaultValueSeparator));
-						if (tokenValue!=null) {
-							if (!StringUtils.hasTokens(tokenValue.getValue(), startDelimiter, endDelimiter)) {
-								value.value( value.getValue().replace(startDelimiter + token + endDelimiter, tokenValue.getValue()) );
-								valuesReplacedOnLastLoop = true;
-							}
-						} else if (hasDefaultValue(token, defaultValueSeparator)) {
-							value.value( getDefaultValue(token, defaultValueSeparator) );
-							output.put(key, value);
+				// the read values can be shared instances, so a replaced value is stored in a new PropertyValue
+				String replaced = value;
+				for (final String token : tokens) {
+					final String tokenKey = getBaseValue(token, defaultValueSeparator);
+					final PropertyValue outputValue = output.get(tokenKey);
+					final PropertyValue tokenValue = outputValue != null ? outputValue : resolvedValues.get(tokenKey);
+					if (tokenValue!=null) {
+						if (!tokenScanner.hasTokens(tokenValue.getValue())) {
+							replaced = replaced.replace(tokenScanner.getStartDelimiter() + token + tokenScanner.getEndDelimiter(), tokenValue.getValue());
 							valuesReplacedOnLastLoop = true;
 						}
-					};
+					} else if (resolver != null && !requestedKeys.contains(tokenKey)) {
+						// the default value is used only if the resolver does not provide the key
+						missingKeys.add(tokenKey);
+					} else if (hasDefaultValue(token, defaultValueSeparator)) {
+						replaced = getDefaultValue(token, defaultValueSeparator);
+						valuesReplacedOnLastLoop = true;
+					}
+				};
 
+				if (!replaced.equals(value)) {
+					final PropertyValue replacedValue = PropertyValue.of(replaced);
+					entry.setValue(replacedValue);
+					output.put(key, replacedValue);
+					valuesToBeReplacedMap.put(key, replacedValue);
 				}
 			};
+
+			if (!missingKeys.isEmpty()) {
+				requestedKeys.addAll(missingKeys);
+				resolverCalls++;
+				final Map<String, String> resolved = resolver.resolve(Collections.unmodifiableSet(new LinkedHashSet<>(missingKeys)));
+				if (resolved != null) {
+					// only the requested keys are accepted, so a resolver cannot override a property defined by a Reader
+					resolved.forEach((key, resolvedValue) -> {
+						if (resolvedValue != null && missingKeys.contains(key)) {
+							resolvedValues.putIfAbsent(getKey(key), PropertyValue.shared(resolvedValue, false));
+						}
+					});
+				}
+				valuesReplacedOnLastLoop = true;
+			}
 		}
 
+		statistics.resolverCalls(resolverCalls);
+
 		if (!valuesToBeReplacedMap.isEmpty() && !ignoreUnresolvablePlaceholders) {
 
 			final StringBuilder message = new StringBuilder("Unresolvable placeholders: \n");
@@ -119,6 +220,15 @@ public class ReplacerDecoratorReader extends DecoratorReader {
 		return output;
 	}
 
+	/**
+	 * A value is a template if it is resolvable and contains at least one token.
+	 * The {@link TokenScanner} looks for the first character of the start delimiter first,
+	 * so most literal values are ruled out by a single scan.
+	 */
+	private boolean isTemplate(PropertyValue value) {
+		return value.isResolvable() && tokenScanner.hasTokens(value.getValue());
+	}
+
 	private boolean hasDefaultValue(String token, String defaultValueSeparator) {
 		return token.indexOf(defaultValueSeparator) >= 0;
 	}
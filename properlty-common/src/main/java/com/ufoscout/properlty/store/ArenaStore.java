@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * A {@link Store} that packs all keys and values in a single UTF-8 encoded byte array.
+ *
+ * Entry i has its key between offsets[2i] and offsets[2i + 1] and its value between offsets[2i + 1] and offsets[2i + 2];
+ * the entries are found with an open addressing table of entry indexes and the hashes of the keys.
+ * A null value is written as an empty value whose start offset is stored as its bitwise complement, -1 - offset,
+ * and it is read back as null, as {@link OffHeapStore} and {@link OpenAddressingStore} do.
+ * The whole store is made of four arrays, whatever the number of entries, so it costs about 20 bytes
+ * per entry plus the encoded text and it leaves almost nothing for the garbage collector to scan.
+ *
+ * Keys are compared against the encoded bytes without creating Strings; values are decoded on every access,
+ * so this store fits very large property sets whose values are read once, or that are read through
+ * the memoized getters of Properlty.
+ *
+ * @author Francesco Cina
+ *
+ */
+public class ArenaStore implements Store {
+
+	private final byte[] data;
+	private final int[] offsets;
+	private final int[] hashes;
+	private final int[] table;
+	private final int mask;
+
+	/**
+	 * Build an {@link ArenaStore} that contains the given properties.
+	 *
+	 * @param properties
+	 * @return
+	 * @throws IllegalArgumentException if a key is null, or if the encoded keys and values do not fit in a single array
+	 */
+	public static ArenaStore build(Map<String, String> properties) {
+		return new ArenaStore(properties);
+	}
+
+	private ArenaStore(Map<String, String> properties) {
+		final int size = properties.size();
+		long length = 0;
+		for (final Map.Entry<String, String> entry : properties.entrySet()) {
+			if (entry.getKey() == null) {
+				throw new IllegalArgumentException("Cannot store a null key");
+			}
+			length += encodedLength(entry.getKey());
+			if (entry.getValue() != null) {
+				length += encodedLength(entry.getValue());
+			}
+		}
+		if (length > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("The properties need " + length + " bytes, more than the maximum array size");
+		}
+
+		data = new byte[(int) length];
+		offsets = new int[size * 2 + 1];
+		hashes = new int[size];
+		table = new int[OpenAddressingStore.capacity(size)];
+		mask = table.length - 1;
+
+		int entry = 0;
+		int position = 0;
+		for (final Map.Entry<String, String> property : properties.entrySet()) {
+			offsets[2 * entry] = position;
+			position = encode(property.getKey(), position);
+			if (property.getValue() == null) {
+				offsets[2 * entry + 1] = -1 - position;
+			} else {
+				offsets[2 * entry + 1] = position;
+				position = encode(property.getValue(), position);
+			}
+
+			final int hash = OpenAddressingStore.hash(property.getKey());
+			hashes[entry] = hash;
+			int index = hash & mask;
+			while (table[index] != 0) {
+				index = (index + 1) & mask;
+			}
+			// zero marks an empty slot, so the table holds the entry index plus one
+			table[index] = entry + 1;
+			entry++;
+		}
+		offsets[2 * size] = position;
+	}
+
+	@Override
+	public String get(String key) {
+		final int hash = OpenAddressingStore.hash(key);
+		int index = hash & mask;
+		int entry;
+		while ((entry = table[index] - 1) >= 0) {
+			if (hashes[entry] == hash && keyEquals(entry, key)) {
+				return value(entry);
+			}
+			index = (index + 1) & mask;
+		}
+		return null;
+	}
+
+	@Override
+	public String get(CharSequence key) {
+		final int hash = OpenAddressingStore.hash(key);
+		int index = hash & mask;
+		int entry;
+		while ((entry = table[index] - 1) >= 0) {
+			if (hashes[entry] == hash && keyEquals(entry, key)) {
+				return value(entry);
+			}
+			index = (index + 1) & mask;
+		}
+		return null;
+	}
+
+	@Override
+	public int size() {
+		return hashes.length;
+	}
+
+	@Override
+	public void forEach(BiConsumer<String, String> action) {
+		for (int entry = 0; entry < hashes.length; entry++) {
+			action.accept(decode(offsets[2 * entry], keyEnd(entry)), value(entry));
+		}
+	}
+
+	private int keyEnd(int entry) {
+		final int end = offsets[2 * entry + 1];
+		return end < 0 ? -1 - end : end;
+	}
+
+	private String value(int entry) {
+		final int start = offsets[2 * entry + 1];
+		return start < 0 ? null : decode(start, offsets[2 * entry + 2]);
+	}
+
+	/**
+	 * Compare the given key with the encoded key of the entry.
+	 * ASCII chars are compared one by one with the bytes, the other chars are encoded one at a time
+	 * as {@link String#getBytes(java.nio.charset.Charset)} does, so the key is never copied.
+	 */
+	private boolean keyEquals(int entry, CharSequence key) {
+		int position = offsets[2 * entry];
+		final int end = keyEnd(entry);
+		final int length = key.length();
+		for (int i = 0; i < length; i++) {
+			final char c = key.charAt(i);
+			if (c < 0x80) {
+				if (position == end || data[position++] != c) {
+					return false;
+				}
+				continue;
+			}
+			int codePoint = c;
+			if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(key.charAt(i + 1))) {
+				codePoint = Character.toCodePoint(c, key.charAt(++i));
+			} else if (Character.isSurrogate(c)) {
+				// unpaired surrogates are encoded as '?'
+				codePoint = '?';
+			}
+			position = matchCodePoint(codePoint, position, end);
+			if (position < 0) {
+				return false;
+			}
+		}
+		return position == end;
+	}
+
+	/**
+	 * Return the position after the UTF-8 bytes of the code point if they are found at the given position, -1 otherwise.
+	 */
+	private int matchCodePoint(int codePoint, int position, int end) {
+		final int continuations = codePoint < 0x80 ? 0 : codePoint < 0x800 ? 1 : codePoint < 0x10000 ? 2 : 3;
+		if (end - position < continuations + 1) {
+			return -1;
+		}
+		final int firstByte = continuations == 0 ? codePoint : (0xFF00 >>> (continuations + 1)) | (codePoint >>> (6 * continuations));
+		if (data[position++] != (byte) firstByte) {
+			return -1;
+		}
+		for (int shift = 6 * (continuations - 1); shift >= 0; shift -= 6) {
+			if (data[position++] != (byte) (0x80 | ((codePoint >>> shift) & 0x3F))) {
+				return -1;
+			}
+		}
+		return position;
+	}
+
+	private String decode(int start, int end) {
+		return new String(data, start, end - start, StandardCharsets.UTF_8);
+	}
+
+	private int encode(String text, int position) {
+		if (isAscii(text)) {
+			for (int i = 0; i < text.length(); i++) {
+				data[position++] = (byte) text.charAt(i);
+			}
+			return position;
+		}
+		final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		System.arraycopy(bytes, 0, data, position, bytes.length);
+		return position + bytes.length;
+	}
+
+	static int encodedLength(String text) {
+		return isAscii(text) ? text.length() : text.getBytes(StandardCharsets.UTF_8).length;
+	}
+
+	static boolean isAscii(String text) {
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) >= 0x80) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import com.ufoscout.properlty.util.StringUtils;
+
+/**
+ * A {@link Store} that checks a Bloom filter of its keys before reading the wrapped store.
+ *
+ * The filter is blocked: all the bits of a key are in a single 512 bit block, which is one cache line,
+ * so a key that is not present is usually rejected after one memory access without touching the wrapped store.
+ * This fits code that reads many optional keys that are almost never set.
+ *
+ * The rejected lookups and the false positives, i.e. the lookups of missing keys that pass the filter,
+ * are counted, so the measured false positive rate can be compared to the expected one.
+ *
+ * @author Francesco Cina
+ *
+ */
+public class BloomFilterStore implements Store {
+
+	/**
+	 * The default expected false positive rate
+	 */
+	public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+	private static final int BLOCK_BITS = 512;
+	private static final int BLOCK_WORDS = BLOCK_BITS / Long.SIZE;
+	private static final int BITS_PER_PROBE = 9;
+	private static final int MAX_PROBES = Long.SIZE / BITS_PER_PROBE;
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	private final Store store;
+	private final long[] bits;
+	private final int blockMask;
+	private final int probes;
+	private final double expectedFalsePositiveRate;
+	private final LongAdder rejectedLookups = new LongAdder();
+	private final LongAdder falsePositives = new LongAdder();
+
+	/**
+	 * Wrap the given store with a Bloom filter of its keys sized for the {@link #DEFAULT_FALSE_POSITIVE_RATE}.
+	 *
+	 * @param store
+	 * @return
+	 */
+	public static BloomFilterStore of(Store store) {
+		return of(store, DEFAULT_FALSE_POSITIVE_RATE);
+	}
+
+	/**
+	 * Wrap the given store with a Bloom filter of its keys sized for the given expected false positive rate.
+	 *
+	 * @param store
+	 * @param falsePositiveRate a value between 0 and 1, exclusive
+	 * @return
+	 */
+	public static BloomFilterStore of(Store store, double falsePositiveRate) {
+		if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+			throw new IllegalArgumentException("The false positive rate must be between 0 and 1, found " + falsePositiveRate);
+		}
+		return new BloomFilterStore(store, falsePositiveRate);
+	}
+
+	/**
+	 * Return a {@link StoreFactory} that wraps the stores built by the given factory with a Bloom filter of their keys.
+	 *
+	 * @param storeFactory
+	 * @param falsePositiveRate a value between 0 and 1, exclusive
+	 * @return
+	 */
+	public static StoreFactory factory(StoreFactory storeFactory, double falsePositiveRate) {
+		return properties -> of(storeFactory.build(properties), falsePositiveRate);
+	}
+
+	private BloomFilterStore(Store store, double falsePositiveRate) {
+		this.store = store;
+		final int keys = Math.max(1, store.size());
+		// the optimal size is -n ln(p) / ln(2)^2 bits, rounded up to a power of two number of blocks
+		final double optimalBits = -keys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+		int blocks = 1;
+		while ((long) blocks * BLOCK_BITS < optimalBits && blocks < (1 << 24)) {
+			blocks <<= 1;
+		}
+		bits = new long[blocks * BLOCK_WORDS];
+		blockMask = blocks - 1;
+		final double bitsPerKey = (double) blocks * BLOCK_BITS / keys;
+		probes = (int) Math.max(1, Math.min(MAX_PROBES, Math.round(bitsPerKey * Math.log(2))));
+		expectedFalsePositiveRate = Math.pow(1 - Math.exp(-probes / bitsPerKey), probes);
+		store.forEach((key, value) -> add(key));
+	}
+
+	@Override
+	public String get(String key) {
+		if (!mightContain(key)) {
+			rejectedLookups.increment();
+			return null;
+		}
+		final String value = store.get(key);
+		if (value == null) {
+			falsePositives.increment();
+		}
+		return value;
+	}
+
+	@Override
+	public String get(CharSequence key) {
+		if (!mightContain(StringUtils.hashCode(key))) {
+			rejectedLookups.increment();
+			return null;
+		}
+		final String value = store.get(key);
+		if (value == null) {
+			falsePositives.increment();
+		}
+		return value;
+	}
+
+	@Override
+	public int size() {
+		return store.size();
+	}
+
+	@Override
+	public void forEach(BiConsumer<String, String> action) {
+		store.forEach(action);
+	}
+
+	/**
+	 * Return false if the key is certainly not present in the store.
+	 *
+	 * @param key
+	 * @return
+	 */
+	public boolean mightContain(String key) {
+		return mightContain(key.hashCode());
+	}
+
+	private boolean mightContain(int hashCode) {
+		final long hash = mix(hashCode);
+		final int block = ((int) (hash >>> 32) & blockMask) * BLOCK_WORDS;
+		long probeBits = mix(hash + GOLDEN_GAMMA);
+		for (int i = 0; i < probes; i++) {
+			final int bit = (int) probeBits & (BLOCK_BITS - 1);
+			if ((bits[block + (bit >>> 6)] & (1L << bit)) == 0) {
+				return false;
+			}
+			probeBits >>>= BITS_PER_PROBE;
+		}
+		return true;
+	}
+
+	private void add(String key) {
+		final long hash = mix(key.hashCode());
+		final int block = ((int) (hash >>> 32) & blockMask) * BLOCK_WORDS;
+		long probeBits = mix(hash + GOLDEN_GAMMA);
+		for (int i = 0; i < probes; i++) {
+			final int bit = (int) probeBits & (BLOCK_BITS - 1);
+			bits[block + (bit >>> 6)] |= 1L << bit;
+			probeBits >>>= BITS_PER_PROBE;
+		}
+	}
+
+	/**
+	 * The wrapped store
+	 *
+	 * @return
+	 */
+	public Store getStore() {
+		return store;
+	}
+
+	/**
+	 * The number of bits of the filter
+	 *
+	 * @return
+	 */
+	public long getBitCount() {
+		return (long) bits.length * Long.SIZE;
+	}
+
+	/**
+	 * The false positive rate expected from the size of the filter and the number of keys.
+	 * Blocks are not filled evenly, so the measured rate is usually a bit higher.
+	 *
+	 * @return
+	 */
+	public double getExpectedFalsePositiveRate() {
+		return expectedFalsePositiveRate;
+	}
+
+	/**
+	 * The number of lookups of missing keys rejected by the filter
+	 *
+	 * @return
+	 */
+	public long getRejectedLookups() {
+		return rejectedLookups.sum();
+	}
+
+	/**
+	 * The number of lookups of missing keys that passed the filter
+	 *
+	 * @return
+	 */
+	public long getFalsePositives() {
+		return falsePositives.sum();
+	}
+
+	/**
+	 * The measured false positive rate: the fraction of the lookups of missing keys that passed the filter
+	 *
+	 * @return the rate or 0 if no missing key was looked up
+	 */
+	public double getFalsePositiveRate() {
+		final long falsePositives = getFalsePositives();
+		final long misses = falsePositives + getRejectedLookups();
+		return misses == 0 ? 0 : (double) falsePositives / misses;
+	}
+
+	@Override
+	public String toString() {
+		return "BloomFilterStore [bits=" + getBitCount() + ", probes=" + probes + ", expectedFalsePositiveRate=" + expectedFalsePositiveRate
+				+ ", rejectedLookups=" + getRejectedLookups() + ", falsePositives=" + getFalsePositives() + "]";
+	}
+
+	/**
+	 * The MurmurHash3 64 bit finalizer
+	 */
+	private static long mix(long hash) {
+		hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+		hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return hash ^ (hash >>> 33);
+	}
+
+}
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import com.ufoscout.properlty.exception.UnresolvablePlaceholdersException;
+import com.ufoscout.properlty.template.TemplateCache;
+
+/**
+ * The changes that derive a store from a base store when some values are overridden.
+ *
+ * Besides the overridden values, the changes contain the properties whose raw value contains placeholders
+ * that read, directly or not, an overridden key; they are rendered again with the rules used when the properties are read,
+ * see {@link com.ufoscout.properlty.template.Template#renderValue(Function, boolean)}, so a derived store has the values
+ * of a store read with the same overrides.
+ * The keys read by each template of the base are computed once by {@link #dependents(Store, HamtStore, TemplateCache, UnaryOperator, boolean)},
+ * so a derivation renders only the affected templates. Overridden values can contain placeholders too.
+ *
+ * @author Francesco Cina
+ *
+ */
+public final class Derivation {
+
+	private final Map<String, String> changes;
+	private final HamtStore templates;
+
+	/**
+	 * Compute the changes that derive a store from the base store.
+	 *
+	 * @param base the base store
+	 * @param templates the raw values of the base properties that contain placeholders
+	 * @param dependents the keys of the templates that read each key of the base, see {@link #dependents(Store, HamtStore, TemplateCache, UnaryOperator, boolean)}
+	 * @param overrides the overridden values, by store key
+	 * @param templateCache the cache of the compiled templates
+	 * @param normalizer the function that turns a placeholder key in a store key
+	 * @param ignoreUnresolvablePlaceholders whether to keep unresolvable placeholders instead of throwing an exception
+	 * @return
+	 * @throws UnresolvablePlaceholdersException if a placeholder cannot be resolved or the overrides create a placeholders cycle
+	 */
+	public static Derivation derive(Store base, HamtStore templates, Map<String, Set<String>> dependents, Map<String, String> overrides,
+			TemplateCache templateCache, UnaryOperator<String> normalizer, boolean ignoreUnresolvablePlaceholders) {
+		final Map<String, String> changes = new LinkedHashMap<>();
+		final Map<String, String> templateChanges = new HashMap<>();
+		overrides.forEach((key, value) -> {
+			// a literal that overrides a template is kept as a template, so it is not rendered again by later derivations
+			// the value is scanned without being compiled, so the overrides do not evict the cached templates
+			if (templates.get(key) != null || templateCache.getTokenScanner().hasTokens(value)) {
+				templateChanges.put(key, value);
+			} else {
+				changes.put(key, value);
+			}
+		});
+		final HamtStore derivedTemplates = templates.withAll(templateChanges);
+		final Function<String, String> lookup = key -> changes.containsKey(key) ? changes.get(key) : base.get(key);
+
+		// the keys read by the templates rendered here, which can differ from the ones read in the base
+		final Map<String, Set<String>> localDependents = new HashMap<>();
+		Set<String> toRender = new HashSet<>(templateChanges.keySet());
+		addDependents(overrides.keySet(), dependents, localDependents, toRender);
+
+		// without cycles, no chain of dependencies is longer than the number of templates
+		for (int round = 0; !toRender.isEmpty(); round++) {
+			if (round > derivedTemplates.size()) {
+				throw new UnresolvablePlaceholdersException("Circular placeholders in the overridden keys " + overrides.keySet());
+			}
+			final Map<String, String> rendered = new HashMap<>();
+			for (final String key : toRender) {
+				final String template = derivedTemplates.get(key);
+				if (template == null) {
+					continue;
+				}
+				final String value = templateCache.get(template).renderValue(placeholder -> {
+					final String storeKey = normalizer.apply(placeholder);
+					localDependents.computeIfAbsent(storeKey, k -> new HashSet<>()).add(key);
+					return lookup.apply(storeKey);
+				}, ignoreUnresolvablePlaceholders);
+				if (!value.equals(lookup.apply(key))) {
+					rendered.put(key, value);
+				}
+			}
+			changes.putAll(rendered);
+			toRender = new HashSet<>();
+			addDependents(rendered.keySet(), dependents, localDependents, toRender);
+		}
+		return new Derivation(changes, derivedTemplates);
+	}
+
+	/**
+	 * Return the keys of the templates that read each key when they are rendered against the given store.
+	 *
+	 * @param store
+	 * @param templates the raw values of the properties that contain placeholders
+	 * @param templateCache the cache of the compiled templates
+	 * @param normalizer the function that turns a placeholder key in a store key
+	 * @param ignoreUnresolvablePlaceholders whether to keep unresolvable placeholders instead of throwing an exception
+	 * @return
+	 */
+	public static Map<String, Set<String>> dependents(Store store, HamtStore templates, TemplateCache templateCache,
+			UnaryOperator<String> normalizer, boolean ignoreUnresolvablePlaceholders) {
+		final Map<String, Set<String>> dependents = new HashMap<>();
+		templates.forEach((key, template) -> templateCache.get(template).renderValue(placeholder -> {
+			final String storeKey = normalizer.apply(placeholder);
+			dependents.computeIfAbsent(storeKey, k -> new HashSet<>()).add(key);
+			return store.get(storeKey);
+		}, ignoreUnresolvablePlaceholders));
+		return dependents;
+	}
+
+	private static void addDependents(Set<String> keys, Map<String, Set<String>> dependents, Map<String, Set<String>> localDependents, Set<String> target) {
+		for (final String key : keys) {
+			target.addAll(dependents.getOrDefault(key, Collections.emptySet()));
+			target.addAll(localDependents.getOrDefault(key, Collections.emptySet()));
+		}
+	}
+
+	private Derivation(Map<String, String> changes, HamtStore templates) {
+		this.changes = changes;
+		this.templates = templates;
+	}
+
+	/**
+	 * The overridden and rendered again values, by store key
+	 *
+	 * @return
+	 */
+	public Map<String, String> getChanges() {
+		return changes;
+	}
+
+	/**
+	 * The raw values of the derived properties that contain placeholders
+	 *
+	 * @return
+	 */
+	public HamtStore getTemplates() {
+		return templates;
+	}
+
+}
@@ -0,0 +1,378 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * A persistent {@link Store} backed by a hash array mapped trie.
+ *
+ * Each node maps five bits of the key hash to its children through a 32 bit bitmap and a compact array,
+ * so a lookup visits at most seven nodes. {@link #with(String, String)} never modifies a store:
+ * it copies only the nodes on the path of the key and returns a new store that shares all the other nodes
+ * with the original one. Deriving a store with k changed keys costs O(k log n) time and memory,
+ * so many variants of a large configuration can coexist at the price of a few nodes each.
+ *
+ * @author Francesco Cina
+ *
+ */
+public class HamtStore implements Store {
+
+	private static final int BITS = 5;
+	private static final int MASK = (1 << BITS) - 1;
+	private static final HamtStore EMPTY = new HamtStore(new BitmapNode(0, new Object[0]), 0);
+
+	private final BitmapNode root;
+	private final int size;
+
+	/**
+	 * Build a {@link HamtStore} that contains the given properties.
+	 *
+	 * @param properties
+	 * @return
+	 */
+	public static HamtStore build(Map<String, String> properties) {
+		final Leaf[] leaves = new Leaf[properties.size()];
+		int index = 0;
+		for (final Map.Entry<String, String> entry : properties.entrySet()) {
+			leaves[index++] = new Leaf(OpenAddressingStore.hash(entry.getKey()), entry.getKey(), entry.getValue());
+		}
+		return build(leaves);
+	}
+
+	/**
+	 * Build a {@link HamtStore} that contains the entries of the given store.
+	 *
+	 * @param other
+	 * @return
+	 */
+	public static HamtStore of(Store other) {
+		if (other instanceof HamtStore) {
+			return (HamtStore) other;
+		}
+		final Leaf[] leaves = new Leaf[other.size()];
+		final int[] index = {0};
+		other.forEach((key, value) -> leaves[index[0]++] = new Leaf(OpenAddressingStore.hash(key), key, value));
+		return build(leaves);
+	}
+
+	/**
+	 * Build the trie bottom up from all its leaves, so each node is created once instead of being copied at each insertion.
+	 * The leaves are sorted by the groups of hash bits in the order the levels consume them,
+	 * then the leaves of each child are a contiguous range.
+	 */
+	private static HamtStore build(Leaf[] leaves) {
+		final long[] order = new long[leaves.length];
+		for (int i = 0; i < leaves.length; i++) {
+			// the sign bit is flipped, so the signed comparison of the longs is the unsigned comparison of the levels order
+			order[i] = ((long) (levelsOrder(leaves[i].hash) ^ Integer.MIN_VALUE) << 32) | i;
+		}
+		Arrays.sort(order);
+		final Leaf[] sorted = new Leaf[leaves.length];
+		for (int i = 0; i < order.length; i++) {
+			sorted[i] = leaves[(int) order[i]];
+		}
+		return new HamtStore(bitmapNode(sorted, 0, sorted.length, 0), sorted.length);
+	}
+
+	/**
+	 * Return the hash with the group of bits of the first level in the highest bits, then the group of the second level and so on.
+	 */
+	private static int levelsOrder(int hash) {
+		int order = 0;
+		for (int shift = 0; shift < Integer.SIZE; shift += BITS) {
+			final int width = Math.min(BITS, Integer.SIZE - shift);
+			order = (order << width) | ((hash >>> shift) & ((1 << width) - 1));
+		}
+		return order;
+	}
+
+	/**
+	 * Return the node at the given shift of the sorted leaves from start (inclusive) to end (exclusive).
+	 */
+	private static BitmapNode bitmapNode(Leaf[] leaves, int start, int end, int shift) {
+		int bitmap = 0;
+		for (int i = start; i < end; i++) {
+			bitmap |= 1 << ((leaves[i].hash >>> shift) & MASK);
+		}
+		final Object[] children = new Object[Integer.bitCount(bitmap)];
+		int child = 0;
+		int current = start;
+		while (current < end) {
+			final int index = (leaves[current].hash >>> shift) & MASK;
+			int childEnd = current + 1;
+			while (childEnd < end && ((leaves[childEnd].hash >>> shift) & MASK) == index) {
+				childEnd++;
+			}
+			children[child++] = node(leaves, current, childEnd, shift + BITS);
+			current = childEnd;
+		}
+		return new BitmapNode(bitmap, children);
+	}
+
+	private static Object node(Leaf[] leaves, int start, int end, int shift) {
+		if (end - start == 1) {
+			return leaves[start];
+		}
+		// the leaves are sorted, so they all share the hash if the first and the last one do
+		if (leaves[start].hash == leaves[end - 1].hash) {
+			return new CollisionNode(Arrays.copyOfRange(leaves, start, end));
+		}
+		return bitmapNode(leaves, start, end, shift);
+	}
+
+	private HamtStore(BitmapNode root, int size) {
+		this.root = root;
+		this.size = size;
+	}
+
+	@Override
+	public String get(String key) {
+		return get(key, OpenAddressingStore.hash(key));
+	}
+
+	@Override
+	public String get(CharSequence key) {
+		return get(key, OpenAddressingStore.hash(key));
+	}
+
+	private String get(CharSequence key, int hash) {
+		Object node = root;
+		int shift = 0;
+		while (true) {
+			if (node instanceof BitmapNode) {
+				final BitmapNode bitmapNode = (BitmapNode) node;
+				final int bit = 1 << ((hash >>> shift) & MASK);
+				if ((bitmapNode.bitmap & bit) == 0) {
+					return null;
+				}
+				node = bitmapNode.children[Integer.bitCount(bitmapNode.bitmap & (bit - 1))];
+				shift += BITS;
+			} else if (node instanceof Leaf) {
+				final Leaf leaf = (Leaf) node;
+				return leaf.hash == hash && (leaf.key == key || leaf.key.contentEquals(key)) ? leaf.value : null;
+			} else {
+				return ((CollisionNode) node).get(key);
+			}
+		}
+	}
+
+	/**
+	 * Return a new store that contains the entries of this store and the given entry.
+	 * This store is not modified.
+	 *
+	 * @param key
+	 * @param value
+	 * @return
+	 */
+	public HamtStore with(String key, String value) {
+		final boolean[] added = {false};
+		final BitmapNode newRoot = (BitmapNode) with(root, new Leaf(OpenAddressingStore.hash(key), key, value), 0, added);
+		return new HamtStore(newRoot, added[0] ? size + 1 : size);
+	}
+
+	/**
+	 * Return a new store that contains the entries of this store and the given entries.
+	 * This store is not modified.
+	 *
+	 * @param entries
+	 * @return
+	 */
+	public HamtStore withAll(Map<String, String> entries) {
+		HamtStore store = this;
+		for (final Map.Entry<String, String> entry : entries.entrySet()) {
+			store = store.with(entry.getKey(), entry.getValue());
+		}
+		return store;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void forEach(BiConsumer<String, String> action) {
+		forEach(root, action);
+	}
+
+	private static void forEach(Object node, BiConsumer<String, String> action) {
+		if (node instanceof BitmapNode) {
+			for (final Object child : ((BitmapNode) node).children) {
+				forEach(child, action);
+			}
+		} else if (node instanceof Leaf) {
+			action.accept(((Leaf) node).key, ((Leaf) node).value);
+		} else {
+			final CollisionNode collision = (CollisionNode) node;
+			for (final Leaf leaf : collision.leaves) {
+				action.accept(leaf.key, leaf.value);
+			}
+		}
+	}
+
+	/**
+	 * Call the action with the keys whose entries are not shared by this store and the other one,
+	 * including the keys that are in only one of them. The subtrees shared by the two stores are skipped,
+	 * so comparing a store with one derived from it costs O(k log n) for k changed keys;
+	 * stores built independently are compared entirely.
+	 * The action can receive a key more than once and a key whose value is equal in the two stores.
+	 *
+	 * @param other
+	 * @param action
+	 */
+	public void forEachChangedKey(HamtStore other, Consumer<String> action) {
+		forEachChangedKey(root, other.root, action);
+	}
+
+	private static void forEachChangedKey(Object node, Object other, Consumer<String> action) {
+		if (node == other) {
+			return;
+		}
+		if (node instanceof BitmapNode && other instanceof BitmapNode) {
+			final BitmapNode bitmapNode = (BitmapNode) node;
+			final BitmapNode otherBitmapNode = (BitmapNode) other;
+			int bits = bitmapNode.bitmap | otherBitmapNode.bitmap;
+			while (bits != 0) {
+				final int bit = Integer.lowestOneBit(bits);
+				bits ^= bit;
+				forEachChangedKey(child(bitmapNode, bit), child(otherBitmapNode, bit), action);
+			}
+			return;
+		}
+		final BiConsumer<String, String> keyAction = (key, value) -> action.accept(key);
+		if (node != null) {
+			forEach(node, keyAction);
+		}
+		if (other != null) {
+			forEach(other, keyAction);
+		}
+	}
+
+	private static Object child(BitmapNode node, int bit) {
+		return (node.bitmap & bit) == 0 ? null : node.children[Integer.bitCount(node.bitmap & (bit - 1))];
+	}
+
+	/**
+	 * Return a copy of the node at the given shift with the leaf added or replaced.
+	 */
+	private static Object with(Object node, Leaf leaf, int shift, boolean[] added) {
+		if (node instanceof BitmapNode) {
+			final BitmapNode bitmapNode = (BitmapNode) node;
+			final int bit = 1 << ((leaf.hash >>> shift) & MASK);
+			final int index = Integer.bitCount(bitmapNode.bitmap & (bit - 1));
+			if ((bitmapNode.bitmap & bit) == 0) {
+				added[0] = true;
+				final Object[] children = new Object[bitmapNode.children.length + 1];
+				System.arraycopy(bitmapNode.children, 0, children, 0, index);
+				children[index] = leaf;
+				System.arraycopy(bitmapNode.children, index, children, index + 1, bitmapNode.children.length - index);
+				return new BitmapNode(bitmapNode.bitmap | bit, children);
+			}
+			final Object[] children = bitmapNode.children.clone();
+			children[index] = with(children[index], leaf, shift + BITS, added);
+			return new BitmapNode(bitmapNode.bitmap, children);
+		}
+		if (node instanceof Leaf) {
+			final Leaf existing = (Leaf) node;
+			if (existing.key.equals(leaf.key)) {
+				return leaf;
+			}
+			added[0] = true;
+			if (existing.hash == leaf.hash) {
+				return new CollisionNode(new Leaf[] {existing, leaf});
+			}
+			return split(existing, leaf, shift);
+		}
+		final CollisionNode collision = (CollisionNode) node;
+		if (collision.leaves[0].hash != leaf.hash) {
+			added[0] = true;
+			return split(collision, leaf, shift);
+		}
+		for (int i = 0; i < collision.leaves.length; i++) {
+			if (collision.leaves[i].key.equals(leaf.key)) {
+				final Leaf[] leaves = collision.leaves.clone();
+				leaves[i] = leaf;
+				return new CollisionNode(leaves);
+			}
+		}
+		added[0] = true;
+		final Leaf[] leaves = Arrays.copyOf(collision.leaves, collision.leaves.length + 1);
+		leaves[collision.leaves.length] = leaf;
+		return new CollisionNode(leaves);
+	}
+
+	/**
+	 * Return a node at the given shift that contains the existing node, whose hash differs from the hash of the leaf,
+	 * and the leaf.
+	 */
+	private static Object split(Object existing, Leaf leaf, int shift) {
+		final int existingHash = existing instanceof Leaf ? ((Leaf) existing).hash : ((CollisionNode) existing).leaves[0].hash;
+		final int existingIndex = (existingHash >>> shift) & MASK;
+		final int leafIndex = (leaf.hash >>> shift) & MASK;
+		if (existingIndex == leafIndex) {
+			return new BitmapNode(1 << leafIndex, new Object[] {split(existing, leaf, shift + BITS)});
+		}
+		final Object[] children = existingIndex < leafIndex ? new Object[] {existing, leaf} : new Object[] {leaf, existing};
+		return new BitmapNode((1 << existingIndex) | (1 << leafIndex), children);
+	}
+
+	private static final class BitmapNode {
+		private final int bitmap;
+		private final Object[] children;
+
+		BitmapNode(int bitmap, Object[] children) {
+			this.bitmap = bitmap;
+			this.children = children;
+		}
+	}
+
+	private static final class Leaf {
+		private final int hash;
+		private final String key;
+		private final String value;
+
+		Leaf(int hash, String key, String value) {
+			this.hash = hash;
+			this.key = key;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * The leaves of the keys that share the whole hash
+	 */
+	private static final class CollisionNode {
+		private final Leaf[] leaves;
+
+		CollisionNode(Leaf[] leaves) {
+			this.leaves = leaves;
+		}
+
+		String get(CharSequence key) {
+			for (final Leaf leaf : leaves) {
+				if (leaf.key.contentEquals(key)) {
+					return leaf.value;
+				}
+			}
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import java.util.List;
+
+/**
+ * The indexed and map-style families of the keys of a {@link Store}.
+ *
+ * For a key like servers[1].host, the family servers has the index 1 and the family servers[1] has the child host;
+ * for a key like routes.a.target, the family routes has the child a and the family routes.a has the child target.
+ * The families are read from the trie of a {@link PrefixIndex}: a family is found by walking its name and its members
+ * are collected by visiting the nodes below it only down to the end of each member, so no key is copied
+ * and the keys that do not belong to the family are never visited.
+ * The members are computed again on each call, callers that read a family many times should keep it.
+ *
+ * @author Francesco Cina
+ *
+ */
+public final class KeyFamilies {
+
+	private final PrefixIndex index;
+
+	/**
+	 * Return the families of the keys of the given store.
+	 *
+	 * @param store
+	 * @return
+	 */
+	public static KeyFamilies of(Store store) {
+		return new PrefixIndex(store).families();
+	}
+
+	KeyFamilies(PrefixIndex index) {
+		this.index = index;
+	}
+
+	/**
+	 * Return the indexes that follow the family in keys like family[index], in ascending order.
+	 *
+	 * @param family
+	 * @return
+	 */
+	public int[] indexes(String family) {
+		return index.familyIndexes(family);
+	}
+
+	/**
+	 * Return a read-only list of the segments that follow the family in keys like family.child, in lexicographic order.
+	 *
+	 * @param family
+	 * @return
+	 */
+	public List<String> children(String family) {
+		return index.familyChildren(family);
+	}
+
+}
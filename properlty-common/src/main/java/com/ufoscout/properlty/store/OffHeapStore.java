@@ -0,0 +1,284 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * A {@link Store} that keeps keys, values and the hash table outside the Java heap,
+ * in direct {@link ByteBuffer}s or in a memory-mapped file.
+ *
+ * Each entry is written as [key length][value length][UTF-8 key][UTF-8 value] and never spans two chunks;
+ * a null value is written with length -1 and read back as null, as {@link OpenAddressingStore} does.
+ * the hash table is an open addressing table whose slots hold the key hash and the entry position.
+ * The heap only holds the chunk buffers, so the size of the store does not change the work of the garbage collector.
+ * Lookups, also with a {@link CharSequence} key, compare the keys in native memory without copying them and decode the values on every access.
+ *
+ * Native memory is released when the store becomes unreachable and its buffers are collected.
+ *
+ * @author Francesco Cina
+ *
+ */
+public class OffHeapStore implements Store {
+
+	private static final int DEFAULT_CHUNK_SIZE = 1 << 30;
+	private static final int ENTRY_HEADER = 8;
+	private static final int SLOT_SIZE = 16;
+
+	private final int size;
+	private final int chunkBits;
+	private final int chunkMask;
+	private final long mask;
+	private final ByteBuffer[] data;
+	private final ByteBuffer[] slots;
+
+	/**
+	 * Build an {@link OffHeapStore} in direct memory that contains the given properties.
+	 *
+	 * @param properties
+	 * @return
+	 * @throws IllegalArgumentException if a key is null
+	 */
+	public static OffHeapStore build(Map<String, String> properties) {
+		return new OffHeapStore(properties, null, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Build an {@link OffHeapStore} that contains the given properties in a memory-mapped file.
+	 * The file is created or overwritten.
+	 *
+	 * @param file
+	 * @return
+	 */
+	public static StoreFactory mapped(Path file) {
+		return properties -> new OffHeapStore(properties, file, DEFAULT_CHUNK_SIZE);
+	}
+
+	static OffHeapStore build(Map<String, String> properties, Path file, int chunkSize) {
+		return new OffHeapStore(properties, file, chunkSize);
+	}
+
+	private OffHeapStore(Map<String, String> properties, Path file, int chunkSize) {
+		size = properties.size();
+		chunkBits = Integer.numberOfTrailingZeros(Integer.highestOneBit(chunkSize));
+		final int chunk = 1 << chunkBits;
+		chunkMask = chunk - 1;
+
+		// compute the data size leaving the end of a chunk empty when the next entry does not fit in it
+		long dataSize = 0;
+		for (final Map.Entry<String, String> entry : properties.entrySet()) {
+			if (entry.getKey() == null) {
+				throw new IllegalArgumentException("Cannot store a null key");
+			}
+			final long entrySize = entrySize(entry.getKey(), entry.getValue());
+			if (entrySize > chunk) {
+				throw new IllegalArgumentException("The property [" + entry.getKey() + "] needs " + entrySize + " bytes, more than the chunk size");
+			}
+			if ((dataSize & chunkMask) + entrySize > chunk) {
+				dataSize = ((dataSize >> chunkBits) + 1) << chunkBits;
+			}
+			dataSize += entrySize;
+		}
+		final long capacity = Math.max(2, Long.highestOneBit(Math.max(1, size) * 2L - 1) << 1);
+		mask = capacity - 1;
+
+		try (FileChannel channel = file == null ? null : FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			data = allocate(channel, 0, dataSize, chunk);
+			slots = allocate(channel, dataSize, capacity * SLOT_SIZE, chunk);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		long position = 0;
+		for (final Map.Entry<String, String> entry : properties.entrySet()) {
+			final String key = entry.getKey();
+			final long entrySize = entrySize(key, entry.getValue());
+			if ((position & chunkMask) + entrySize > chunk) {
+				position = ((position >> chunkBits) + 1) << chunkBits;
+			}
+			write(position, key, entry.getValue());
+
+			final int hash = OpenAddressingStore.hash(key);
+			long index = hash & mask;
+			while (slotPosition(index) != 0) {
+				index = (index + 1) & mask;
+			}
+			// zero marks an empty slot, so the slot holds the entry position plus one
+			final ByteBuffer slotChunk = slots[(int) ((index * SLOT_SIZE) >> chunkBits)];
+			final int slotOffset = (int) ((index * SLOT_SIZE) & chunkMask);
+			slotChunk.putLong(slotOffset, position + 1);
+			slotChunk.putInt(slotOffset + 8, hash);
+			position += entrySize;
+		}
+	}
+
+	@Override
+	public String get(String key) {
+		return get(key, OpenAddressingStore.hash(key));
+	}
+
+	@Override
+	public String get(CharSequence key) {
+		return get(key, OpenAddressingStore.hash(key));
+	}
+
+	private String get(CharSequence key, int hash) {
+		long index = hash & mask;
+		long position;
+		while ((position = slotPosition(index)) != 0) {
+			final long slot = index * SLOT_SIZE;
+			if (slots[(int) (slot >> chunkBits)].getInt((int) (slot & chunkMask) + 8) == hash) {
+				final ByteBuffer chunk = data[(int) ((position - 1) >> chunkBits)];
+				final int offset = (int) ((position - 1) & chunkMask);
+				if (keyEquals(chunk, offset, key)) {
+					return decode(chunk, offset + ENTRY_HEADER + chunk.getInt(offset), chunk.getInt(offset + 4));
+				}
+			}
+			index = (index + 1) & mask;
+		}
+		return null;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void forEach(BiConsumer<String, String> action) {
+		for (long index = 0; index <= mask; index++) {
+			final long position = slotPosition(index);
+			if (position != 0) {
+				final ByteBuffer chunk = data[(int) ((position - 1) >> chunkBits)];
+				final int offset = (int) ((position - 1) & chunkMask);
+				final int keyLength = chunk.getInt(offset);
+				action.accept(decode(chunk, offset + ENTRY_HEADER, keyLength),
+						decode(chunk, offset + ENTRY_HEADER + keyLength, chunk.getInt(offset + 4)));
+			}
+		}
+	}
+
+	private long slotPosition(long index) {
+		final long slot = index * SLOT_SIZE;
+		return slots[(int) (slot >> chunkBits)].getLong((int) (slot & chunkMask));
+	}
+
+	/**
+	 * Compare the given key with the encoded key of the entry at the given offset of the chunk.
+	 * ASCII chars are compared one by one with the bytes, the other chars are encoded one at a time
+	 * as {@link String#getBytes(java.nio.charset.Charset)} does, so the key is never copied.
+	 */
+	private static boolean keyEquals(ByteBuffer chunk, int offset, CharSequence key) {
+		int position = offset + ENTRY_HEADER;
+		final int end = position + chunk.getInt(offset);
+		final int length = key.length();
+		for (int i = 0; i < length; i++) {
+			final char c = key.charAt(i);
+			if (c < 0x80) {
+				if (position == end || chunk.get(position++) != c) {
+					return false;
+				}
+				continue;
+			}
+			int codePoint = c;
+			if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(key.charAt(i + 1))) {
+				codePoint = Character.toCodePoint(c, key.charAt(++i));
+			} else if (Character.isSurrogate(c)) {
+				// unpaired surrogates are encoded as '?'
+				codePoint = '?';
+			}
+			position = matchCodePoint(chunk, codePoint, position, end);
+			if (position < 0) {
+				return false;
+			}
+		}
+		return position == end;
+	}
+
+	/**
+	 * Return the position after the UTF-8 bytes of the code point if they are found at the given position of the chunk, -1 otherwise.
+	 */
+	private static int matchCodePoint(ByteBuffer chunk, int codePoint, int position, int end) {
+		final int continuations = codePoint < 0x80 ? 0 : codePoint < 0x800 ? 1 : codePoint < 0x10000 ? 2 : 3;
+		if (end - position < continuations + 1) {
+			return -1;
+		}
+		final int firstByte = continuations == 0 ? codePoint : (0xFF00 >>> (continuations + 1)) | (codePoint >>> (6 * continuations));
+		if (chunk.get(position++) != (byte) firstByte) {
+			return -1;
+		}
+		for (int shift = 6 * (continuations - 1); shift >= 0; shift -= 6) {
+			if (chunk.get(position++) != (byte) (0x80 | ((codePoint >>> shift) & 0x3F))) {
+				return -1;
+			}
+		}
+		return position;
+	}
+
+	private static String decode(ByteBuffer chunk, int offset, int length) {
+		if (length < 0) {
+			return null;
+		}
+		final byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = chunk.get(offset + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private void write(long position, String key, String value) {
+		final ByteBuffer chunk = data[(int) (position >> chunkBits)];
+		final int offset = (int) (position & chunkMask);
+		final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		final byte[] valueBytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+		chunk.putInt(offset, keyBytes.length);
+		chunk.putInt(offset + 4, value == null ? -1 : valueBytes.length);
+		for (int i = 0; i < keyBytes.length; i++) {
+			chunk.put(offset + ENTRY_HEADER + i, keyBytes[i]);
+		}
+		for (int i = 0; i < valueBytes.length; i++) {
+			chunk.put(offset + ENTRY_HEADER + keyBytes.length + i, valueBytes[i]);
+		}
+	}
+
+	private static long entrySize(String key, String value) {
+		return ENTRY_HEADER + (long) ArenaStore.encodedLength(key) + (value == null ? 0 : ArenaStore.encodedLength(value));
+	}
+
+	/**
+	 * Allocate the given number of bytes in chunks of the given size,
+	 * in direct memory or in the file region that starts at the given offset.
+	 */
+	private static ByteBuffer[] allocate(FileChannel channel, long offset, long bytes, int chunk) throws IOException {
+		final ByteBuffer[] chunks = new ByteBuffer[(int) ((bytes + chunk - 1) / chunk)];
+		for (int i = 0; i < chunks.length; i++) {
+			final int chunkSize = (int) Math.min(chunk, bytes - (long) i * chunk);
+			chunks[i] = channel == null ? ByteBuffer.allocateDirect(chunkSize)
+					: channel.map(FileChannel.MapMode.READ_WRITE, offset + (long) i * chunk, chunkSize);
+		}
+		return chunks;
+	}
+
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import com.ufoscout.properlty.util.StringUtils;
+
+/**
+ * A {@link Store} backed by an open addressing hash table with linear probing.
+ *
+ * Keys, values and key hashes are kept in parallel arrays, so there are no per-entry objects
+ * and a lookup compares cached hashes before comparing keys.
+ * The table is sized once, at build time, with a load factor not greater than 0.5.
+ *
+ * @author Francesco Cina
+ *
+ */
+public class OpenAddressingStore implements Store {
+
+	private final String[] keys;
+	private final String[] values;
+	private final int[] hashes;
+	private final int mask;
+	private final int size;
+
+	/**
+	 * Build an {@link OpenAddressingStore} that contains the given properties.
+	 *
+	 * @param properties
+	 * @return
+	 */
+	public static OpenAddressingStore build(Map<String, String> properties) {
+		return new OpenAddressingStore(properties);
+	}
+
+	private OpenAddressingStore(Map<String, String> properties) {
+		final int capacity = capacity(properties.size());
+		keys = new String[capacity];
+		values = new String[capacity];
+		hashes = new int[capacity];
+		mask = capacity - 1;
+		size = properties.size();
+
+		properties.forEach((key, value) -> {
+			final int hash = hash(key);
+			int index = hash & mask;
+			while (keys[index] != null) {
+				index = (index + 1) & mask;
+			}
+			keys[index] = key;
+			values[index] = value;
+			hashes[index] = hash;
+		});
+	}
+
+	@Override
+	public String get(String key) {
+		final int hash = hash(key);
+		int index = hash & mask;
+		String current;
+		while ((current = keys[index]) != null) {
+			if (current == key || (hashes[index] == hash && current.equals(key))) {
+				return values[index];
+			}
+			index = (index + 1) & mask;
+		}
+		return null;
+	}
+
+	@Override
+	public String get(CharSequence key) {
+		final int hash = hash(key);
+		int index = hash & mask;
+		String current;
+		while ((current = keys[index]) != null) {
+			if (hashes[index] == hash && current.contentEquals(key)) {
+				return values[index];
+			}
+			index = (index + 1) & mask;
+		}
+		return null;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void forEach(BiConsumer<String, String> action) {
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != null) {
+				action.accept(keys[i], values[i]);
+			}
+		}
+	}
+
+	/**
+	 * Return the smallest power of two that keeps the load factor not greater than 0.5
+	 */
+	static int capacity(int size) {
+		int capacity = 2;
+		while (capacity < size * 2) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	static int hash(String key) {
+		return spread(key.hashCode());
+	}
+
+	static int hash(CharSequence key) {
+		return spread(StringUtils.hashCode(key));
+	}
+
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+}
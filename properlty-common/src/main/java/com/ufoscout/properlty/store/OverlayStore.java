@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * A {@link Store} made of a small delta over a shared base store.
+ * A lookup checks the delta first and then falls through to the base,
+ * so thousands of overlays can share a single copy of a large base.
+ *
+ * @author Francesco Cina
+ *
+ */
+public class OverlayStore implements Store {
+
+	private final Store base;
+	private final Store delta;
+	private final int size;
+
+	/**
+	 * Build an {@link OverlayStore} with the given delta over the base store.
+	 * If the base is an {@link OverlayStore}, the new overlay merges the two deltas over the shared base,
+	 * so a lookup never visits more than two stores.
+	 *
+	 * @param base
+	 * @param delta
+	 * @return
+	 */
+	public static OverlayStore of(Store base, Map<String, String> delta) {
+		if (base instanceof OverlayStore) {
+			final OverlayStore overlay = (OverlayStore) base;
+			final Map<String, String> merged = new HashMap<>();
+			overlay.delta.forEach(merged::put);
+			merged.putAll(delta);
+			return new OverlayStore(overlay.base, OpenAddressingStore.build(merged));
+		}
+		return new OverlayStore(base, OpenAddressingStore.build(delta));
+	}
+
+	private OverlayStore(Store base, Store delta) {
+		this.base = base;
+		this.delta = delta;
+		final int[] added = {0};
+		delta.forEach((key, value) -> {
+			if (base.get(key) == null) {
+				added[0]++;
+			}
+		});
+		size = base.size() + added[0];
+	}
+
+	@Override
+	public String get(String key) {
+		final String value = delta.get(key);
+		return value != null ? value : base.get(key);
+	}
+
+	@Override
+	public String get(CharSequence key) {
+		final String value = delta.get(key);
+		return value != null ? value : base.get(key);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void forEach(BiConsumer<String, String> action) {
+		delta.forEach(action);
+		base.forEach((key, value) -> {
+			if (delta.get(key) == null) {
+				action.accept(key, value);
+			}
+		});
+	}
+
+	/**
+	 * The shared base store
+	 *
+	 * @return
+	 */
+	public Store getBase() {
+		return base;
+	}
+
+	/**
+	 * The entries that override or extend the base
+	 *
+	 * @return
+	 */
+	public Store getDelta() {
+		return delta;
+	}
+
+	/**
+	 * Whether all the keys of the delta are keys of the base too
+	 *
+	 * @return
+	 */
+	public boolean hasBaseKeys() {
+		return size == base.size();
+	}
+
+}
@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import com.ufoscout.properlty.util.StringUtils;
+
+/**
+ * A {@link Store} backed by a minimal perfect hash function built with the hash and displace algorithm.
+ *
+ * Keys are spread in buckets of about three keys; each bucket gets a displacement seed that sends
+ * all its keys to distinct free slots of a table that has exactly one slot per key.
+ * A lookup is one hash, one bucket seed read, one slot index and one key verification.
+ *
+ * The function is computed on the cached {@link String#hashCode()}, so keys whose hashCode is
+ * shared with another key cannot be separated; they are kept in a small {@link OpenAddressingStore}.
+ *
+ * This store fits very large property sets that never change after the build;
+ * building it is slower than building an {@link OpenAddressingStore}.
+ *
+ * @author Francesco Cina
+ *
+ */
+public class PerfectHashStore implements Store {
+
+	private static final int KEYS_PER_BUCKET = 3;
+	private static final int MAX_DISPLACEMENTS = 1 << 16;
+	private static final int MAX_SEEDS = 32;
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	private final long seed;
+	private final int[] displacements;
+	private final String[] keys;
+	private final String[] values;
+	private final Store collisions;
+
+	/**
+	 * Build a {@link PerfectHashStore} that contains the given properties.
+	 *
+	 * @param properties
+	 * @return
+	 */
+	public static PerfectHashStore build(Map<String, String> properties) {
+		final Map<Integer, String> firstKeyByHash = new HashMap<>();
+		final Map<String, String> collisions = new HashMap<>();
+		for (final String key : properties.keySet()) {
+			final String previous = firstKeyByHash.putIfAbsent(key.hashCode(), key);
+			if (previous != null) {
+				collisions.put(previous, properties.get(previous));
+				collisions.put(key, properties.get(key));
+			}
+		}
+
+		final String[] keys = new String[properties.size() - collisions.size()];
+		final String[] values = new String[keys.length];
+		int index = 0;
+		for (final Map.Entry<String, String> entry : properties.entrySet()) {
+			if (!collisions.containsKey(entry.getKey())) {
+				keys[index] = entry.getKey();
+				values[index] = entry.getValue();
+				index++;
+			}
+		}
+
+		for (long seed = 1; seed <= MAX_SEEDS; seed++) {
+			final int[] displacements = displacements(keys, seed * GOLDEN_GAMMA);
+			if (displacements != null) {
+				return new PerfectHashStore(seed * GOLDEN_GAMMA, displacements, keys, values, OpenAddressingStore.build(collisions));
+			}
+		}
+		throw new IllegalStateException("Cannot build a perfect hash function for " + properties.size() + " keys");
+	}
+
+	private PerfectHashStore(long seed, int[] displacements, String[] keys, String[] values, Store collisions) {
+		this.seed = seed;
+		this.displacements = displacements;
+		this.collisions = collisions;
+
+		// move each key and value to its slot
+		this.keys = new String[keys.length];
+		this.values = new String[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			final int slot = slot(keys[i]);
+			this.keys[slot] = keys[i];
+			this.values[slot] = values[i];
+		}
+	}
+
+	@Override
+	public String get(String key) {
+		if (keys.length > 0) {
+			final int slot = slot(key);
+			final String current = keys[slot];
+			if (current == key || current.equals(key)) {
+				return values[slot];
+			}
+		}
+		return collisions.size() > 0 ? collisions.get(key) : null;
+	}
+
+	@Override
+	public String get(CharSequence key) {
+		if (keys.length > 0) {
+			final int slot = slot(StringUtils.hashCode(key));
+			if (keys[slot].contentEquals(key)) {
+				return values[slot];
+			}
+		}
+		return collisions.size() > 0 ? collisions.get(key) : null;
+	}
+
+	@Override
+	public int size() {
+		return keys.length + collisions.size();
+	}
+
+	@Override
+	public void forEach(BiConsumer<String, String> action) {
+		for (int i = 0; i < keys.length; i++) {
+			action.accept(keys[i], values[i]);
+		}
+		collisions.forEach(action);
+	}
+
+	private int slot(String key) {
+		return slot(key.hashCode());
+	}
+
+	private int slot(int hashCode) {
+		final long hash = mix(hashCode ^ seed);
+		final int displacement = displacements[bucket(hash, displacements.length)];
+		return displacement < 0 ? -displacement - 1 : slot(hash, displacement, keys.length);
+	}
+
+	/**
+	 * Compute the displacement of each bucket or return null if a bucket cannot be placed with the given seed.
+	 * A positive displacement is the seed of the slot hash of the bucket keys,
+	 * a negative one directly encodes the slot of a bucket with a single key.
+	 */
+	private static int[] displacements(String[] keys, long seed) {
+		final int size = keys.length;
+		final int buckets = Math.max(1, (size + KEYS_PER_BUCKET - 1) / KEYS_PER_BUCKET);
+
+		// group the keys by bucket
+		final long[] hashes = new long[size];
+		final int[] bucketStart = new int[buckets + 1];
+		for (int i = 0; i < size; i++) {
+			hashes[i] = mix(keys[i].hashCode() ^ seed);
+			bucketStart[bucket(hashes[i], buckets) + 1]++;
+		}
+		int maxBucketSize = 0;
+		for (int bucket = 0; bucket < buckets; bucket++) {
+			maxBucketSize = Math.max(maxBucketSize, bucketStart[bucket + 1]);
+			bucketStart[bucket + 1] += bucketStart[bucket];
+		}
+		final long[] bucketHashes = new long[size];
+		final int[] position = new int[buckets];
+		for (int i = 0; i < size; i++) {
+			final int bucket = bucket(hashes[i], buckets);
+			bucketHashes[bucketStart[bucket] + position[bucket]++] = hashes[i];
+		}
+
+		// sort the buckets by decreasing size
+		final int[] sizeStart = new int[maxBucketSize + 2];
+		for (int bucket = 0; bucket < buckets; bucket++) {
+			sizeStart[maxBucketSize - bucketSize(bucketStart, bucket) + 1]++;
+		}
+		for (int i = 0; i <= maxBucketSize; i++) {
+			sizeStart[i + 1] += sizeStart[i];
+		}
+		final int[] sortedBuckets = new int[buckets];
+		for (int bucket = 0; bucket < buckets; bucket++) {
+			sortedBuckets[sizeStart[maxBucketSize - bucketSize(bucketStart, bucket)]++] = bucket;
+		}
+
+		// place the buckets with more than one key searching for a displacement,
+		// then fill the remaining free slots with the single key buckets
+		final int[] displacements = new int[buckets];
+		final boolean[] occupied = new boolean[size];
+		final int[] slots = new int[maxBucketSize];
+		int nextFree = 0;
+		for (final int bucket : sortedBuckets) {
+			final int bucketSize = bucketSize(bucketStart, bucket);
+			if (bucketSize == 0) {
+				break;
+			}
+			if (bucketSize == 1) {
+				while (occupied[nextFree]) {
+					nextFree++;
+				}
+				occupied[nextFree] = true;
+				displacements[bucket] = -nextFree - 1;
+				continue;
+			}
+			int displacement = 1;
+			while (!place(bucketHashes, bucketStart[bucket], bucketSize, displacement, occupied, slots)) {
+				if (++displacement > MAX_DISPLACEMENTS) {
+					return null;
+				}
+			}
+			displacements[bucket] = displacement;
+		}
+		return displacements;
+	}
+
+	private static boolean place(long[] bucketHashes, int start, int bucketSize, int displacement, boolean[] occupied, int[] slots) {
+		for (int i = 0; i < bucketSize; i++) {
+			final int slot = slot(bucketHashes[start + i], displacement, occupied.length);
+			if (occupied[slot]) {
+				return false;
+			}
+			for (int j = 0; j < i; j++) {
+				if (slots[j] == slot) {
+					return false;
+				}
+			}
+			slots[i] = slot;
+		}
+		for (int i = 0; i < bucketSize; i++) {
+			occupied[slots[i]] = true;
+		}
+		return true;
+	}
+
+	private static int bucketSize(int[] bucketStart, int bucket) {
+		return bucketStart[bucket + 1] - bucketStart[bucket];
+	}
+
+	private static int bucket(long hash, int buckets) {
+		return (int) ((hash >>> 33) % buckets);
+	}
+
+	private static int slot(long hash, int displacement, int size) {
+		return (int) ((mix(hash + displacement * GOLDEN_GAMMA) >>> 33) % size);
+	}
+
+	/**
+	 * The MurmurHash3 64 bit finalizer
+	 */
+	private static long mix(long hash) {
+		hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+		hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return hash ^ (hash >>> 33);
+	}
+
+}
@@ -0,0 +1,501 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A compressed trie (radix tree) of the keys of a {@link Store}.
+ *
+ * Each node knows the number of keys in its subtree, so prefix queries return read-only views
+ * that are created after walking the prefix only and that are iterated in time proportional to the result size.
+ * The edge labels are not copied: each node points to one of the keys below it and to the offset where its label ends,
+ * so the shared prefixes are stored once, in the keys themselves.
+ * The tree is built on the first query, so stores that are never queried by prefix do not pay for it;
+ * the {@link KeyFamilies} of the keys are read from the same tree.
+ * The tree is persistent: the index of a store derived by adding some keys shares all the nodes
+ * that are not on the paths of the added keys, see {@link #withKeys(Store, Collection)}.
+ *
+ * @author Francesco Cina
+ *
+ */
+public class PrefixIndex {
+
+	private static final char[] NO_CHARS = new char[0];
+	private static final Node[] NO_NODES = new Node[0];
+
+	private static final Node EMPTY = new Node("", 0, null, 0, NO_CHARS, NO_NODES);
+
+	private final Store store;
+	private final PrefixIndex source;
+	private final PrefixIndex parent;
+	private final Collection<String> addedKeys;
+	private volatile Node root;
+	private final KeyFamilies families = new KeyFamilies(this);
+
+	public PrefixIndex(Store store) {
+		this(store, null, null, Collections.emptyList());
+	}
+
+	private PrefixIndex(Store store, PrefixIndex source, PrefixIndex parent, Collection<String> addedKeys) {
+		this.store = store;
+		this.source = source;
+		this.parent = parent;
+		this.addedKeys = addedKeys;
+	}
+
+	/**
+	 * Return an index that shares the tree of this one and reads the values from the given store.
+	 * The store must contain the same keys of the store of this index.
+	 *
+	 * @param store
+	 * @return
+	 */
+	public PrefixIndex withStore(Store store) {
+		return new PrefixIndex(store, source != null ? source : this, null, Collections.emptyList());
+	}
+
+	/**
+	 * Return an index that reads the values from the given store, which must contain the keys of the store of this index
+	 * and the added ones. Its tree is derived from the tree of this index on the first query, copying only the nodes
+	 * on the paths of the added keys, so it costs O(k) nodes for k added keys instead of a rebuild of the whole tree.
+	 *
+	 * @param store
+	 * @param addedKeys the keys of the given store that are not in the store of this index
+	 * @return
+	 */
+	public PrefixIndex withKeys(Store store, Collection<String> addedKeys) {
+		if (addedKeys.isEmpty()) {
+			return withStore(store);
+		}
+		return new PrefixIndex(store, null, this, addedKeys);
+	}
+
+	/**
+	 * Return a read-only view of the keys that start with the given prefix, in lexicographic order.
+	 *
+	 * @param prefix
+	 * @return
+	 */
+	public Set<String> keysWithPrefix(String prefix) {
+		return keysWithPrefix("", prefix);
+	}
+
+	/**
+	 * Return a read-only view of the keys that start with base + prefix, in lexicographic order.
+	 * The keys in the view do not contain the base.
+	 *
+	 * @param base
+	 * @param prefix
+	 * @return
+	 */
+	public Set<String> keysWithPrefix(String base, String prefix) {
+		final String fullPrefix = base + prefix;
+		final Node node = find(fullPrefix);
+		if (node == null) {
+			return Collections.emptySet();
+		}
+		return new AbstractSet<String>() {
+			@Override
+			public Iterator<String> iterator() {
+				return new KeyIterator(node, base.length());
+			}
+			@Override
+			public int size() {
+				return node.size;
+			}
+			@Override
+			public boolean contains(Object o) {
+				return o instanceof String && ((String) o).startsWith(prefix) && store.get(base + o) != null;
+			}
+		};
+	}
+
+	/**
+	 * Return a read-only view of the entries whose keys start with the given prefix, in lexicographic order of the keys.
+	 *
+	 * @param prefix
+	 * @return
+	 */
+	public Map<String, String> entriesWithPrefix(String prefix) {
+		return entriesWithPrefix("", prefix);
+	}
+
+	/**
+	 * Return a read-only view of the entries whose keys start with base + prefix, in lexicographic order of the keys.
+	 * The keys in the view do not contain the base.
+	 *
+	 * @param base
+	 * @param prefix
+	 * @return
+	 */
+	public Map<String, String> entriesWithPrefix(String base, String prefix) {
+		final Set<String> keys = keysWithPrefix(base, prefix);
+		return new AbstractMap<String, String>() {
+			@Override
+			public Set<Entry<String, String>> entrySet() {
+				return new AbstractSet<Entry<String, String>>() {
+					@Override
+					public Iterator<Entry<String, String>> iterator() {
+						final Iterator<String> iterator = keys.iterator();
+						return new Iterator<Entry<String, String>>() {
+							@Override
+							public boolean hasNext() {
+								return iterator.hasNext();
+							}
+							@Override
+							public Entry<String, String> next() {
+								final String key = iterator.next();
+								return new SimpleImmutableEntry<>(key, store.get(base + key));
+							}
+						};
+					}
+					@Override
+					public int size() {
+						return keys.size();
+					}
+				};
+			}
+			@Override
+			public String get(Object key) {
+				return keys.contains(key) ? store.get(base + key) : null;
+			}
+			@Override
+			public boolean containsKey(Object key) {
+				return keys.contains(key);
+			}
+			@Override
+			public Set<String> keySet() {
+				return keys;
+			}
+		};
+	}
+
+	/**
+	 * Return the indexed and map-style families of the keys.
+	 * Indexes created by {@link #withStore(Store)} share them with this index.
+	 *
+	 * @return
+	 */
+	public KeyFamilies families() {
+		return source != null ? source.families() : families;
+	}
+
+	/**
+	 * Return the indexes that follow the family in keys like family[index], in ascending order.
+	 */
+	int[] familyIndexes(String family) {
+		final String prefix = family + "[";
+		final Node node = family.isEmpty() ? null : find(prefix);
+		if (node == null) {
+			return new int[0];
+		}
+		final Set<Integer> indexes = new TreeSet<>();
+		collectIndexes(node, prefix.length(), prefix.length(), 0, indexes);
+		return indexes.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * Return a read-only list of the segments that follow the family in keys like family.child, in lexicographic order.
+	 */
+	List<String> familyChildren(String family) {
+		final String prefix = family + ".";
+		final Node node = family.isEmpty() ? null : find(prefix);
+		if (node == null) {
+			return Collections.emptyList();
+		}
+		final Set<String> children = new TreeSet<>();
+		collectChildren(node, prefix.length(), prefix.length(), children);
+		return Collections.unmodifiableList(new ArrayList<>(children));
+	}
+
+	/**
+	 * Add the segments that start at the given offset of the keys below the node and end at the next '.' or '[' or at the end of the key.
+	 * The label of the node is scanned from the given offset; the children are visited only while the segment goes on.
+	 */
+	private static void collectChildren(Node node, int start, int from, Set<String> children) {
+		for (int i = from; i < node.depth; i++) {
+			final char c = node.path.charAt(i);
+			if (c == '.' || c == '[') {
+				if (i > start) {
+					children.add(node.path.substring(start, i));
+				}
+				return;
+			}
+		}
+		if (node.key != null && node.depth > start) {
+			children.add(node.path.substring(start, node.depth));
+		}
+		for (final Node child : node.children) {
+			collectChildren(child, start, node.depth, children);
+		}
+	}
+
+	/**
+	 * Add the non negative int indexes that start at the given offset of the keys below the node, followed by ']'
+	 * and then by the end of the key, a '.' or a '['. The digits of the labels already scanned are in value.
+	 */
+	private static void collectIndexes(Node node, int start, int from, long value, Set<Integer> indexes) {
+		for (int i = from; i < node.depth; i++) {
+			final char c = node.path.charAt(i);
+			if (c == ']') {
+				if (i > start && (i + 1 < node.depth ? isFamilySeparator(node.path.charAt(i + 1))
+						: node.key != null || hasChild(node, '.') || hasChild(node, '['))) {
+					indexes.add((int) value);
+				}
+				return;
+			}
+			if (c < '0' || c > '9') {
+				return;
+			}
+			value = value * 10 + c - '0';
+			if (value > Integer.MAX_VALUE) {
+				return;
+			}
+		}
+		for (final Node child : node.children) {
+			collectIndexes(child, start, node.depth, value, indexes);
+		}
+	}
+
+	private static boolean isFamilySeparator(char c) {
+		return c == '.' || c == '[';
+	}
+
+	private static boolean hasChild(Node node, char firstChar) {
+		return Arrays.binarySearch(node.firstChars, firstChar) >= 0;
+	}
+
+	/**
+	 * Return the topmost node whose keys all start with the given prefix or null if no key starts with it.
+	 */
+	private Node find(String prefix) {
+		Node node = root();
+		int position = 0;
+		while (node != null && position < prefix.length()) {
+			final int child = Arrays.binarySearch(node.firstChars, prefix.charAt(position));
+			if (child < 0) {
+				return null;
+			}
+			node = node.children[child];
+			final int end = Math.min(node.depth, prefix.length());
+			if (!node.path.regionMatches(position, prefix, position, end - position)) {
+				return null;
+			}
+			position = end;
+		}
+		return node;
+	}
+
+	private Node root() {
+		if (source != null) {
+			return source.root();
+		}
+		Node current = root;
+		if (current == null) {
+			synchronized (this) {
+				current = root;
+				if (current == null) {
+					if (parent != null) {
+						current = parent.root();
+						for (final String key : addedKeys) {
+							current = insert(current, key);
+						}
+					} else {
+						final String[] keys = new String[store.size()];
+						final int[] index = {0};
+						store.forEach((key, value) -> keys[index[0]++] = key);
+						Arrays.sort(keys);
+						current = keys.length == 0 ? EMPTY : build(keys, 0, keys.length, 0);
+					}
+					root = current;
+				}
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Return a copy of the node with the key added; the key starts with the first depth characters of the node.
+	 * Only the nodes on the path of the key are copied, all the other nodes are shared.
+	 */
+	private static Node insert(Node node, String key) {
+		if (key.length() == node.depth) {
+			return node.key != null ? node : new Node(node.path, node.depth, key, node.size + 1, node.firstChars, node.children);
+		}
+		final char firstChar = key.charAt(node.depth);
+		final int index = Arrays.binarySearch(node.firstChars, firstChar);
+		if (index < 0) {
+			final int position = -index - 1;
+			final char[] firstChars = new char[node.firstChars.length + 1];
+			final Node[] children = new Node[node.children.length + 1];
+			System.arraycopy(node.firstChars, 0, firstChars, 0, position);
+			System.arraycopy(node.children, 0, children, 0, position);
+			firstChars[position] = firstChar;
+			children[position] = new Node(key, key.length(), key, 1, NO_CHARS, NO_NODES);
+			System.arraycopy(node.firstChars, position, firstChars, position + 1, node.firstChars.length - position);
+			System.arraycopy(node.children, position, children, position + 1, node.children.length - position);
+			return new Node(node.path, node.depth, node.key, node.size + 1, firstChars, children);
+		}
+		final Node child = node.children[index];
+		final int common = Math.min(child.depth, commonPrefixLength(child.path, key, node.depth + 1));
+		final Node newChild = common == child.depth ? insert(child, key) : split(child, key, common);
+		if (newChild == child) {
+			return node;
+		}
+		final Node[] children = node.children.clone();
+		children[index] = newChild;
+		return new Node(node.path, node.depth, node.key, node.size + newChild.size - child.size, node.firstChars, children);
+	}
+
+	/**
+	 * Return a node at the given depth, which is lower than the depth of the child, that contains the child and the key.
+	 */
+	private static Node split(Node child, String key, int depth) {
+		final Node leaf = key.length() == depth ? null : new Node(key, key.length(), key, 1, NO_CHARS, NO_NODES);
+		if (leaf == null) {
+			return new Node(child.path, depth, key, child.size + 1, new char[] {child.path.charAt(depth)}, new Node[] {child});
+		}
+		final char childChar = child.path.charAt(depth);
+		final char keyChar = key.charAt(depth);
+		final boolean childFirst = childChar < keyChar;
+		return new Node(child.path, depth, null, child.size + 1,
+				childFirst ? new char[] {childChar, keyChar} : new char[] {keyChar, childChar},
+				childFirst ? new Node[] {child, leaf} : new Node[] {leaf, child});
+	}
+
+	/**
+	 * Build the node of the sorted keys from start (inclusive) to end (exclusive).
+	 * All these keys share the first depth characters.
+	 */
+	private static Node build(String[] keys, int start, int end, int depth) {
+		String key = null;
+		int current = start;
+		if (keys[current].length() == depth) {
+			key = keys[current++];
+		}
+
+		final char[] firstChars = new char[countChildren(keys, current, end, depth)];
+		final Node[] children = firstChars.length == 0 ? NO_NODES : new Node[firstChars.length];
+		for (int child = 0; child < firstChars.length; child++) {
+			final char firstChar = keys[current].charAt(depth);
+			int childEnd = current + 1;
+			while (childEnd < end && keys[childEnd].charAt(depth) == firstChar) {
+				childEnd++;
+			}
+			// the keys are sorted, so the common prefix of the first and last key is common to all of them
+			final int childDepth = commonPrefixLength(keys[current], keys[childEnd - 1], depth + 1);
+			firstChars[child] = firstChar;
+			children[child] = build(keys, current, childEnd, childDepth);
+			current = childEnd;
+		}
+		return new Node(keys[start], depth, key, end - start, firstChars.length == 0 ? NO_CHARS : firstChars, children);
+	}
+
+	private static int countChildren(String[] keys, int start, int end, int depth) {
+		int count = 0;
+		for (int i = start; i < end; i++) {
+			if (i == start || keys[i].charAt(depth) != keys[i - 1].charAt(depth)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static int commonPrefixLength(String first, String last, int from) {
+		final int max = Math.min(first.length(), last.length());
+		int length = from;
+		while (length < max && first.charAt(length) == last.charAt(length)) {
+			length++;
+		}
+		return length;
+	}
+
+	private static final class Node {
+		private final String path;
+		private final int depth;
+		private final String key;
+		private final int size;
+		private final char[] firstChars;
+		private final Node[] children;
+
+		Node(String path, int depth, String key, int size, char[] firstChars, Node[] children) {
+			this.path = path;
+			this.depth = depth;
+			this.key = key;
+			this.size = size;
+			this.firstChars = firstChars;
+			this.children = children;
+		}
+	}
+
+	private static final class KeyIterator implements Iterator<String> {
+
+		private final Deque<Node> stack = new ArrayDeque<>();
+		private final int skip;
+		private String next;
+
+		KeyIterator(Node node, int skip) {
+			this.skip = skip;
+			stack.push(node);
+			advance();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public String next() {
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+			final String current = next;
+			advance();
+			return current;
+		}
+
+		private void advance() {
+			next = null;
+			while (next == null && !stack.isEmpty()) {
+				final Node node = stack.pop();
+				for (int i = node.children.length - 1; i >= 0; i--) {
+					stack.push(node.children[i]);
+				}
+				next = node.key;
+			}
+			if (next != null && skip > 0) {
+				next = next.substring(skip);
+			}
+		}
+
+	}
+
+}
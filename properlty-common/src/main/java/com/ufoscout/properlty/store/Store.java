@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable key-value store that holds the resolved properties of a Properlty instance.
+ *
+ * @author Francesco Cina
+ *
+ */
+public interface Store {
+
+	/**
+	 * Return the value associated with the given key or null if the key is not present.
+	 *
+	 * @param key
+	 * @return
+	 */
+	String get(String key);
+
+	/**
+	 * Return the value associated with the key made of the given chars or null if the key is not present.
+	 * The default implementation creates a String from the chars, the stores of this package override it
+	 * to hash and compare the chars with the stored keys directly.
+	 *
+	 * @param key
+	 * @return
+	 */
+	default String get(CharSequence key) {
+		return get(key.toString());
+	}
+
+	/**
+	 * Return the number of entries in the store.
+	 *
+	 * @return
+	 */
+	int size();
+
+	/**
+	 * Perform the given action for each entry of the store.
+	 *
+	 * @param action
+	 */
+	void forEach(BiConsumer<String, String> action);
+
+}
@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import java.util.Map;
+
+/**
+ * Builds the {@link Store} of a Properlty instance from the resolved properties.
+ *
+ * @author Francesco Cina
+ *
+ */
+@FunctionalInterface
+public interface StoreFactory {
+
+	/**
+	 * Build a {@link Store} that contains the given properties.
+	 *
+	 * @param properties the resolved properties
+	 * @return
+	 */
+	Store build(Map<String, String> properties);
+
+}
@@ -0,0 +1,257 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.template;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import com.ufoscout.properlty.exception.UnresolvablePlaceholdersException;
+import com.ufoscout.properlty.util.TokenScanner;
+
+/**
+ * A compiled template.
+ * The template text is tokenized once; rendering only walks the precomputed literal and placeholder parts.
+ * Placeholders can be nested and can have a default value, as in "${${environment}.host:localhost}".
+ *
+ * @author Francesco Cina
+ *
+ */
+public class Template {
+
+	private final String text;
+	private final List<Part> parts;
+	private final TokenScanner tokenScanner;
+	private final String defaultValueSeparator;
+
+	/**
+	 * Compile a template.
+	 *
+	 * @param text the template text
+	 * @param tokenScanner the scanner of the placeholders delimiters
+	 * @param defaultValueSeparator the separator of the placeholders default values
+	 * @return
+	 */
+	public static Template compile(String text, TokenScanner tokenScanner, String defaultValueSeparator) {
+		final Parser parser = new Parser(text, tokenScanner);
+		return new Template(text, parser.parse(), tokenScanner, defaultValueSeparator);
+	}
+
+	private Template(String text, List<Part> parts, TokenScanner tokenScanner, String defaultValueSeparator) {
+		this.text = text;
+		this.parts = parts;
+		this.tokenScanner = tokenScanner;
+		this.defaultValueSeparator = defaultValueSeparator;
+	}
+
+	/**
+	 * Return the template text.
+	 *
+	 * @return
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * Whether the template contains at least one placeholder.
+	 *
+	 * @return
+	 */
+	public boolean hasPlaceholders() {
+		for (final Part part : parts) {
+			if (part instanceof Placeholder) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Render the template replacing each placeholder with the value returned by the lookup function.
+	 * If the lookup function returns null, the default value of the placeholder is used, if any.
+	 *
+	 * @param lookup the function that returns the value of a key, or null if the key is not defined
+	 * @param ignoreUnresolvablePlaceholders whether to keep unresolvable placeholders instead of throwing an exception
+	 * @return
+	 * @throws UnresolvablePlaceholdersException if a placeholder cannot be resolved and ignoreUnresolvablePlaceholders is false
+	 */
+	public String render(Function<String, String> lookup, boolean ignoreUnresolvablePlaceholders) {
+		final StringBuilder builder = new StringBuilder(text.length() + 16);
+		render(parts, lookup, ignoreUnresolvablePlaceholders, builder, null);
+		return builder.toString();
+	}
+
+	/**
+	 * Render the template as the value of a property, with the rules used when the properties are read
+	 * by the ReplacerDecoratorReader: a placeholder replaced by its default value replaces the whole value,
+	 * e.g. "http://${host:localhost}" is rendered as "localhost" if host is not defined.
+	 * If more placeholders are replaced by their default values, the last one is used.
+	 *
+	 * @param lookup the function that returns the value of a key, or null if the key is not defined
+	 * @param ignoreUnresolvablePlaceholders whether to keep unresolvable placeholders instead of throwing an exception
+	 * @return
+	 * @throws UnresolvablePlaceholdersException if a placeholder cannot be resolved and ignoreUnresolvablePlaceholders is false
+	 */
+	public String renderValue(Function<String, String> lookup, boolean ignoreUnresolvablePlaceholders) {
+		final StringBuilder builder = new StringBuilder(text.length() + 16);
+		final String[] usedDefault = new String[1];
+		render(parts, lookup, ignoreUnresolvablePlaceholders, builder, usedDefault);
+		return usedDefault[0] != null ? usedDefault[0] : builder.toString();
+	}
+
+	/**
+	 * Render the parts; if usedDefault is not null, the last default value used is stored in it.
+	 */
+	private void render(List<Part> parts, Function<String, String> lookup, boolean ignoreUnresolvablePlaceholders, StringBuilder builder,
+			String[] usedDefault) {
+		for (final Part part : parts) {
+			if (part instanceof Literal) {
+				builder.append(((Literal) part).text);
+			} else {
+				builder.append(resolve((Placeholder) part, lookup, ignoreUnresolvablePlaceholders, usedDefault));
+			}
+		}
+	}
+
+	private String resolve(Placeholder placeholder, Function<String, String> lookup, boolean ignoreUnresolvablePlaceholders, String[] usedDefault) {
+		final StringBuilder expressionBuilder = new StringBuilder();
+		render(placeholder.parts, lookup, ignoreUnresolvablePlaceholders, expressionBuilder, usedDefault);
+		final String expression = expressionBuilder.toString();
+
+		final int separatorIndex = defaultValueSeparator.isEmpty() ? -1 : expression.indexOf(defaultValueSeparator);
+		final String key = separatorIndex >= 0 ? expression.substring(0, separatorIndex) : expression;
+
+		final String value = lookup.apply(key);
+		if (value != null) {
+			return value;
+		}
+		if (separatorIndex >= 0) {
+			final String defaultValue = expression.substring(separatorIndex + defaultValueSeparator.length());
+			if (usedDefault != null) {
+				usedDefault[0] = defaultValue;
+			}
+			return defaultValue;
+		}
+		final String unresolved = tokenScanner.getStartDelimiter() + expression + tokenScanner.getEndDelimiter();
+		if (ignoreUnresolvablePlaceholders) {
+			return unresolved;
+		}
+		throw new UnresolvablePlaceholdersException("Unresolvable placeholder [" + unresolved + "] in template [" + text + "]");
+	}
+
+	@Override
+	public String toString() {
+		return "Template [" + text + "]";
+	}
+
+	private interface Part {}
+
+	private static final class Literal implements Part {
+		private final String text;
+		Literal(String text) {
+			this.text = text;
+		}
+	}
+
+	private static final class Placeholder implements Part {
+		private final List<Part> parts;
+		Placeholder(List<Part> parts) {
+			this.parts = parts;
+		}
+	}
+
+	/**
+	 * Split the template text in literal and placeholder parts.
+	 * A start delimiter without a matching end delimiter is kept as literal text.
+	 */
+	private static final class Parser {
+
+		private final String text;
+		private final TokenScanner tokenScanner;
+		private final int startLength;
+		private final int endLength;
+		private int position = 0;
+
+		Parser(String text, TokenScanner tokenScanner) {
+			this.text = text;
+			this.tokenScanner = tokenScanner;
+			startLength = tokenScanner.getStartDelimiter().length();
+			endLength = tokenScanner.getEndDelimiter().length();
+		}
+
+		List<Part> parse() {
+			if (startLength == 0) {
+				return Collections.singletonList(new Literal(text));
+			}
+			return parse(false);
+		}
+
+		/**
+		 * Parse from the current position.
+		 * If nested is true, it stops after the end delimiter that closes the current placeholder
+		 * and returns null if there is none.
+		 */
+		private List<Part> parse(boolean nested) {
+			final List<Part> parts = new ArrayList<>();
+			final StringBuilder literal = new StringBuilder();
+
+			while (position < text.length()) {
+				final int start = tokenScanner.indexOfStart(text, position);
+				final int end = nested ? tokenScanner.indexOfEnd(text, position) : -1;
+
+				if (end >= 0 && (start < 0 || end < start)) {
+					literal.append(text, position, end);
+					position = end + endLength;
+					addLiteral(parts, literal);
+					return parts;
+				}
+				if (start < 0) {
+					break;
+				}
+
+				literal.append(text, position, start);
+				position = start + startLength;
+				final List<Part> placeholderParts = parse(true);
+				if (placeholderParts == null) {
+					position = start + startLength;
+					literal.append(text, start, position);
+				} else {
+					addLiteral(parts, literal);
+					parts.add(new Placeholder(placeholderParts));
+				}
+			}
+
+			if (nested) {
+				return null;
+			}
+			literal.append(text, position, text.length());
+			position = text.length();
+			addLiteral(parts, literal);
+			return parts;
+		}
+
+		private void addLiteral(List<Part> parts, StringBuilder literal) {
+			if (literal.length() > 0) {
+				parts.add(new Literal(literal.toString()));
+				literal.setLength(0);
+			}
+		}
+
+	}
+
+}
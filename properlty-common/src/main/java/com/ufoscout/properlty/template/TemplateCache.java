@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.template;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.ufoscout.properlty.util.TokenScanner;
+
+/**
+ * A bounded cache of compiled {@link Template}s.
+ * When the cache is full, the least recently used {@link Template} is evicted.
+ *
+ * @author Francesco Cina
+ *
+ */
+public class TemplateCache {
+
+	private final TokenScanner tokenScanner;
+	private final String defaultValueSeparator;
+	private final int maxSize;
+	private final Map<String, Template> templates;
+
+	public TemplateCache(TokenScanner tokenScanner, String defaultValueSeparator, int maxSize) {
+		this.tokenScanner = tokenScanner;
+		this.defaultValueSeparator = defaultValueSeparator;
+		this.maxSize = maxSize;
+		this.templates = new LinkedHashMap<String, Template>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Template> eldest) {
+				return size() > TemplateCache.this.maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Return the compiled {@link Template} of the given text, compiling it if not already in the cache.
+	 *
+	 * @param text
+	 * @return
+	 */
+	public Template get(String text) {
+		synchronized (templates) {
+			final Template cached = templates.get(text);
+			if (cached != null) {
+				return cached;
+			}
+		}
+		final Template template = Template.compile(text, tokenScanner, defaultValueSeparator);
+		if (maxSize > 0) {
+			synchronized (templates) {
+				templates.put(text, template);
+			}
+		}
+		return template;
+	}
+
+	/**
+	 * Return the number of cached templates.
+	 *
+	 * @return
+	 */
+	public int size() {
+		synchronized (templates) {
+			return templates.size();
+		}
+	}
+
+	/**
+	 * @return the scanner of the placeholders delimiters
+	 */
+	public TokenScanner getTokenScanner() {
+		return tokenScanner;
+	}
+
+	/**
+	 * @return the maximum number of cached templates
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+}
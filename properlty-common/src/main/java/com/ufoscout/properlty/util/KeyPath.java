@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.util;
+
+/**
+ * A reusable {@link CharSequence} that joins key segments with dots, so a composite key like tenant.42.db.url
+ * can be looked up without concatenating its segments in a new String.
+ *
+ * The segments are copied in an internal char buffer, which grows only when a longer key is built,
+ * and the hash of the key is updated while they are appended with the same algorithm of {@link String#hashCode()}.
+ *
+ * It is not thread safe.
+ *
+ * @author Francesco Cina
+ *
+ */
+public final class KeyPath implements CharSequence {
+
+	/**
+	 * The char between two segments
+	 */
+	public static final char SEPARATOR = '.';
+
+	private char[] chars = new char[64];
+	private int length;
+	private int hash;
+	private int segments;
+
+	/**
+	 * Remove all the chars of this key.
+	 *
+	 * @return this key
+	 */
+	public KeyPath clear() {
+		length = 0;
+		hash = 0;
+		segments = 0;
+		return this;
+	}
+
+	/**
+	 * Set this key to the given segments joined by {@link #SEPARATOR}.
+	 *
+	 * @param segments
+	 * @return this key
+	 */
+	public KeyPath set(CharSequence... segments) {
+		clear();
+		for (final CharSequence segment : segments) {
+			segment(segment);
+		}
+		return this;
+	}
+
+	/**
+	 * Append the given chars as they are, without a separator and without counting them as a segment.
+	 * It is used to prepend a prefix that already ends with a separator.
+	 *
+	 * @param text
+	 * @return this key
+	 */
+	public KeyPath append(CharSequence text) {
+		final int textLength = text.length();
+		ensureCapacity(length + textLength);
+		int h = hash;
+		for (int i = 0; i < textLength; i++) {
+			final char c = text.charAt(i);
+			chars[length++] = c;
+			h = 31 * h + c;
+		}
+		hash = h;
+		return this;
+	}
+
+	/**
+	 * Append a segment, preceded by {@link #SEPARATOR} if it is not the first one.
+	 *
+	 * @param segment
+	 * @return this key
+	 */
+	public KeyPath segment(CharSequence segment) {
+		separator();
+		return append(segment);
+	}
+
+	/**
+	 * Append the decimal digits of the number as a segment, preceded by {@link #SEPARATOR} if it is not the first one.
+	 *
+	 * @param segment
+	 * @return this key
+	 */
+	public KeyPath segment(long segment) {
+		separator();
+		if (segment == Long.MIN_VALUE) {
+			return append("-9223372036854775808");
+		}
+		ensureCapacity(length + 20);
+		if (segment < 0) {
+			appendChar('-');
+			segment = -segment;
+		}
+		long divisor = 1;
+		while (segment / divisor >= 10) {
+			divisor *= 10;
+		}
+		for (; divisor > 0; divisor /= 10) {
+			appendChar((char) ('0' + segment / divisor % 10));
+		}
+		return this;
+	}
+
+	private void separator() {
+		if (segments++ > 0) {
+			ensureCapacity(length + 1);
+			appendChar(SEPARATOR);
+		}
+	}
+
+	private void appendChar(char c) {
+		chars[length++] = c;
+		hash = 31 * hash + c;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (chars.length < capacity) {
+			final char[] newChars = new char[Math.max(capacity, chars.length * 2)];
+			System.arraycopy(chars, 0, newChars, 0, length);
+			chars = newChars;
+		}
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+		}
+		return chars[index];
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return toString().substring(start, end);
+	}
+
+	/**
+	 * The same hash of the String with the chars of this key
+	 */
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return new String(chars, 0, length);
+	}
+
+}
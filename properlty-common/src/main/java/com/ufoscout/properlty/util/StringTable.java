@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.util;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A canonicalization table that returns one shared instance for all the equal Strings passed to it.
+ * It is used by the readers while a Properlty instance is built, so the same keys and values
+ * read from different sources end up in a single String instance.
+ * The statistics only count the Strings passed to {@link #retain(String)}, that are the keys and values
+ * of the final properties, so the entries shadowed or dropped while the readers are merged are not counted.
+ *
+ * It is not thread safe.
+ *
+ * @author Francesco Cina
+ *
+ */
+public class StringTable {
+
+	/**
+	 * A table that returns the Strings as they are passed to it
+	 */
+	public static final StringTable NONE = new StringTable() {
+		@Override
+		public String canonical(String value) {
+			return value;
+		}
+
+		@Override
+		public String retain(String value) {
+			return value;
+		}
+	};
+
+	private final Map<String, String> strings = new HashMap<>();
+	private final Set<String> retained = new HashSet<>();
+	private int duplicates;
+	private long savedBytes;
+
+	/**
+	 * Return the shared instance of the given String.
+	 *
+	 * @param value
+	 * @return
+	 */
+	public String canonical(String value) {
+		if (value == null) {
+			return null;
+		}
+		final String existing = strings.putIfAbsent(value, value);
+		return existing == null ? value : existing;
+	}
+
+	/**
+	 * Return the shared instance of the given String, that is kept in the final properties.
+	 * Each String retained after the first equal one is counted as a duplicate.
+	 *
+	 * @param value
+	 * @return
+	 */
+	public String retain(String value) {
+		final String canonical = canonical(value);
+		if (canonical != null && !retained.add(canonical)) {
+			duplicates++;
+			savedBytes += footprint(canonical);
+		}
+		return canonical;
+	}
+
+	/**
+	 * The number of retained String instances replaced by a shared one
+	 *
+	 * @return
+	 */
+	public int getDuplicates() {
+		return duplicates;
+	}
+
+	/**
+	 * The estimated heap size of the retained String instances replaced by a shared one
+	 *
+	 * @return
+	 */
+	public long getSavedBytes() {
+		return savedBytes;
+	}
+
+	/**
+	 * Estimate the heap size of a String with compressed oops and compact strings:
+	 * a 24 bytes String object plus a byte array with a 16 bytes header, aligned to 8 bytes.
+	 */
+	private static long footprint(String value) {
+		long bytes = value.length();
+		for (int i = 0; i < value.length(); i++) {
+			if (value.charAt(i) > 0xFF) {
+				bytes = 2L * value.length();
+				break;
+			}
+		}
+		return 24 + ((16 + bytes + 7) & ~7L);
+	}
+
+}
@@ -16,14 +16,123 @@
 package com.ufoscout.properlty.util;
 
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 public final class StringUtils {
 
+	private static final String REGEX_META_CHARS = ".$|()[]{}^?*+\\";
+	private static final Map<String, Pattern> SEPARATOR_PATTERNS = new ConcurrentHashMap<>();
+	private static final Map<String, Map<String, TokenScanner>> TOKEN_SCANNERS = new ConcurrentHashMap<>();
+
 	private StringUtils() {}
 
+	/**
+	 * Split the input around the separator with the same result of {@link String#split(String)}.
+	 * A separator without regex meta characters is matched literally with {@link String#indexOf(String, int)},
+	 * any other separator is compiled once to a {@link Pattern} and then reused.
+	 *
+	 * @param input
+	 * @param separator
+	 * @return
+	 */
+	public static String[] split(String input, String separator) {
+		if (separator.isEmpty() || hasRegexMetaChars(separator)) {
+			return SEPARATOR_PATTERNS.computeIfAbsent(separator, Pattern::compile).split(input);
+		}
+		int next = input.indexOf(separator);
+		if (next < 0) {
+			return new String[] {input};
+		}
+		final List<String> tokens = new ArrayList<>();
+		int start = 0;
+		while (next >= 0) {
+			tokens.add(input.substring(start, next));
+			start = next + separator.length();
+			next = input.indexOf(separator, start);
+		}
+		tokens.add(input.substring(start));
+		// as String.split, drop the trailing empty tokens
+		int size = tokens.size();
+		while (size > 0 && tokens.get(size - 1).isEmpty()) {
+			size--;
+		}
+		return tokens.subList(0, size).toArray(new String[size]);
+	}
+
+	/**
+	 * Return the key bound to an accessor method: its name without the "get" or "is" prefix, with the first char in lower case,
+	 * e.g. getPort -> port, isSecure -> secure. A prefix is removed only if an upper case char follows it,
+	 * so the other names are returned unchanged, e.g. settings -> settings, URL -> URL.
+	 * The {@link com.ufoscout.properlty.annotation.Config} processor and the runtime binding use the same rule.
+	 *
+	 * @param methodName
+	 * @return
+	 */
+	public static String keyName(String methodName) {
+		return keyName(methodName, "get", "is");
+	}
+
+	/**
+	 * Return the key bound to an accessor method as {@link #keyName(String)} does, removing the given prefixes,
+	 * e.g. keyName("setPort", "set") -> port
+	 *
+	 * @param methodName
+	 * @param prefixes
+	 * @return
+	 */
+	public static String keyName(String methodName, String... prefixes) {
+		for (final String prefix : prefixes) {
+			if (methodName.length() > prefix.length() && methodName.startsWith(prefix) && Character.isUpperCase(methodName.charAt(prefix.length()))) {
+				return Character.toLowerCase(methodName.charAt(prefix.length())) + methodName.substring(prefix.length() + 1);
+			}
+		}
+		return methodName;
+	}
+
+	/**
+	 * Return the hash that {@link String#hashCode()} returns for a String with the chars of the given sequence.
+	 * The hashes of Strings, {@link Utf8Key}s and {@link KeyPath}s are already computed, any other sequence is hashed char by char.
+	 *
+	 * @param chars
+	 * @return
+	 */
+	public static int hashCode(CharSequence chars) {
+		if (chars instanceof String || chars instanceof Utf8Key || chars instanceof KeyPath) {
+			return chars.hashCode();
+		}
+		int hash = 0;
+		for (int i = 0; i < chars.length(); i++) {
+			hash = 31 * hash + chars.charAt(i);
+		}
+		return hash;
+	}
+
+	/**
+	 * Return the {@link TokenScanner} of the delimiters, that is created once for each pair and then reused.
+	 * The scanners are looked up by start and then by end delimiter, so a lookup does not allocate.
+	 */
+	static TokenScanner tokenScanner(String startDelimiter, String endDelimiter) {
+		final Map<String, TokenScanner> scanners = TOKEN_SCANNERS.computeIfAbsent(startDelimiter, delimiter -> new ConcurrentHashMap<>());
+		final TokenScanner scanner = scanners.get(endDelimiter);
+		if (scanner != null) {
+			return scanner;
+		}
+		return scanners.computeIfAbsent(endDelimiter, delimiter -> TokenScanner.of(startDelimiter, delimiter));
+	}
+
+	private static boolean hasRegexMetaChars(String separator) {
+		for (int i = 0; i < separator.length(); i++) {
+			if (REGEX_META_CHARS.indexOf(separator.charAt(i)) >= 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Return true if the input {@link String} contains at least one token delimited by startDelimiter and endDelimiter
 	 * @param input
@@ -32,9 +141,7 @@ public final class StringUtils {
 	 * @return
 	 */
 	public static boolean hasTokens(String input, String startDelimiter, String endDelimiter) {
-		final int start = input.indexOf(startDelimiter);
-		final int end = input.lastIndexOf(endDelimiter);
-		return start>=0 && end>= start;
+		return tokenScanner(startDelimiter, endDelimiter).hasTokens(input);
 	}
 
 	/**
@@ -54,19 +161,7 @@ public final class StringUtils {
 	 * @return
 	 */
 	public static Optional<String> firstToken(String input, String startDelimiter, String endDelimiter) {
-		String result = null;
-		if ( hasTokens(input, startDelimiter, endDelimiter)) {
-			while (input.contains(startDelimiter)) {
-				final int start = input.indexOf(startDelimiter);
-				input = input.substring(start + startDelimiter.length());
-			    while (input.contains(endDelimiter)) {
-				    final int end = input.indexOf(endDelimiter);
-				    input = input.substring(0, end);
-			    }
-			}
-			result = input;
-		}
-		return Optional.ofNullable(result);
+		return tokenScanner(startDelimiter, endDelimiter).firstToken(input);
 	}
 
 	/**
@@ -87,17 +182,7 @@ public final class StringUtils {
 	 * @return
 	 */
 	public static List<String> allTokens(String input, String startDelimiter, String endDelimiter) {
-		final List<String> tokens = new ArrayList<>();
-
-		Optional<String> token = firstToken(input, startDelimiter, endDelimiter);
-		while(token.isPresent()) {
-			final String tokenValue = token.get();
-			tokens.add(tokenValue);
-			input = input.substring(input.indexOf(tokenValue) + tokenValue.length() + endDelimiter.length());
-			token = firstToken(input, startDelimiter, endDelimiter);
-		}
-
-		return tokens;
+		return tokenScanner(startDelimiter, endDelimiter).allTokens(input, false);
 	}
 
 	/**
@@ -120,11 +205,7 @@ public final class StringUtils {
 	 * @return
 	 */
 	public static List<String> allTokens(String input, String startDelimiter, String endDelimiter, boolean distinct) {
-		final List<String> tokens = allTokens(input, startDelimiter, endDelimiter);
-		if (distinct) {
-			return new ArrayList<>( new LinkedHashSet<>(tokens) );
-		}
-		return tokens;
+		return tokenScanner(startDelimiter, endDelimiter).allTokens(input, distinct);
 	}
 
 }
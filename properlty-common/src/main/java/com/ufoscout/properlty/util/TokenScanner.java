@@ -0,0 +1,257 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Finds the tokens delimited by a fixed pair of start and end delimiters.
+ *
+ * A {@link TokenScanner} should be created once per delimiters pair with {@link #of(String, String)},
+ * which picks the most efficient implementation for the given delimiters.
+ *
+ * @author Francesco Cina
+ *
+ */
+public abstract class TokenScanner {
+
+	private final String startDelimiter;
+	private final String endDelimiter;
+
+	TokenScanner(String startDelimiter, String endDelimiter) {
+		this.startDelimiter = startDelimiter;
+		this.endDelimiter = endDelimiter;
+	}
+
+	/**
+	 * Return a {@link TokenScanner} for the given delimiters.
+	 * Delimiters of one or two characters are scanned char by char,
+	 * longer delimiters use the generic {@link String} search.
+	 *
+	 * @param startDelimiter
+	 * @param endDelimiter
+	 * @return
+	 */
+	public static TokenScanner of(String startDelimiter, String endDelimiter) {
+		if (isShort(startDelimiter) && isShort(endDelimiter)) {
+			return new CharTokenScanner(startDelimiter, endDelimiter);
+		}
+		return new StringTokenScanner(startDelimiter, endDelimiter);
+	}
+
+	private static boolean isShort(String delimiter) {
+		return delimiter.length() == 1 || delimiter.length() == 2;
+	}
+
+	/**
+	 * @return the start delimiter
+	 */
+	public String getStartDelimiter() {
+		return startDelimiter;
+	}
+
+	/**
+	 * @return the end delimiter
+	 */
+	public String getEndDelimiter() {
+		return endDelimiter;
+	}
+
+	/**
+	 * Return the index of the first start delimiter found from the given index, or -1.
+	 */
+	public abstract int indexOfStart(String input, int fromIndex);
+
+	/**
+	 * Return the index of the first end delimiter found from the given index, or -1.
+	 */
+	public abstract int indexOfEnd(String input, int fromIndex);
+
+	/**
+	 * Return the index of the last end delimiter, or -1.
+	 */
+	abstract int lastIndexOfEnd(String input);
+
+	/**
+	 * Return true if the input {@link String} contains at least one token.
+	 *
+	 * @param input
+	 * @return
+	 */
+	public boolean hasTokens(String input) {
+		return hasTokens(input, 0);
+	}
+
+	/**
+	 * Return the first token.
+	 *
+	 * @see StringUtils#firstToken(String, String, String)
+	 * @param input
+	 * @return
+	 */
+	public Optional<String> firstToken(String input) {
+		return Optional.ofNullable(firstToken(input, 0));
+	}
+
+	/**
+	 * Return all the tokens, removing the duplicated ones if distinct is true.
+	 *
+	 * @see StringUtils#allTokens(String, String, String, boolean)
+	 * @param input
+	 * @param distinct whether to strip duplicated tokens
+	 * @return
+	 */
+	public List<String> allTokens(String input, boolean distinct) {
+		final List<String> tokens = new ArrayList<>();
+		final int endLength = endDelimiter.length();
+
+		int fromIndex = 0;
+		String token = firstToken(input, fromIndex);
+		while (token != null) {
+			tokens.add(token);
+			fromIndex = input.indexOf(token, fromIndex) + token.length() + endLength;
+			token = firstToken(input, fromIndex);
+		}
+
+		if (distinct && tokens.size() > 1) {
+			return new ArrayList<>( new LinkedHashSet<>(tokens) );
+		}
+		return tokens;
+	}
+
+	private boolean hasTokens(String input, int fromIndex) {
+		final int start = indexOfStart(input, fromIndex);
+		return start >= 0 && lastIndexOfEnd(input) >= start;
+	}
+
+	/**
+	 * The token is the text between the innermost start delimiter and the first following end delimiter.
+	 */
+	private String firstToken(String input, int fromIndex) {
+		final int start = indexOfStart(input, fromIndex);
+		if (start < 0 || lastIndexOfEnd(input) < start) {
+			return null;
+		}
+		final int startLength = startDelimiter.length();
+		int tokenStart = start + startLength;
+		int tokenEnd = indexOfEnd(input, tokenStart);
+		if (tokenEnd < 0) {
+			tokenEnd = input.length();
+		}
+		int nested = indexOfStart(input, tokenStart);
+		while (nested >= 0 && nested + startLength <= tokenEnd) {
+			tokenStart = nested + startLength;
+			nested = indexOfStart(input, tokenStart);
+		}
+		return input.substring(tokenStart, tokenEnd);
+	}
+
+	/**
+	 * A {@link TokenScanner} for delimiters of one or two characters.
+	 * It looks for the first character with {@link String#indexOf(int, int)}
+	 * and then compares the second one, if any, without building any intermediate {@link String}.
+	 */
+	static final class CharTokenScanner extends TokenScanner {
+
+		private final char start0;
+		private final char start1;
+		private final boolean singleCharStart;
+		private final char end0;
+		private final char end1;
+		private final boolean singleCharEnd;
+
+		CharTokenScanner(String startDelimiter, String endDelimiter) {
+			super(startDelimiter, endDelimiter);
+			start0 = startDelimiter.charAt(0);
+			singleCharStart = startDelimiter.length() == 1;
+			start1 = singleCharStart ? 0 : startDelimiter.charAt(1);
+			end0 = endDelimiter.charAt(0);
+			singleCharEnd = endDelimiter.length() == 1;
+			end1 = singleCharEnd ? 0 : endDelimiter.charAt(1);
+		}
+
+		@Override
+		public int indexOfStart(String input, int fromIndex) {
+			return indexOf(input, fromIndex, start0, start1, singleCharStart);
+		}
+
+		@Override
+		public int indexOfEnd(String input, int fromIndex) {
+			return indexOf(input, fromIndex, end0, end1, singleCharEnd);
+		}
+
+		@Override
+		int lastIndexOfEnd(String input) {
+			if (singleCharEnd) {
+				return input.lastIndexOf(end0);
+			}
+			int index = input.lastIndexOf(end1);
+			while (index > 0) {
+				if (input.charAt(index - 1) == end0) {
+					return index - 1;
+				}
+				index = input.lastIndexOf(end1, index - 1);
+			}
+			return -1;
+		}
+
+		private static int indexOf(String input, int fromIndex, char first, char second, boolean singleChar) {
+			int index = input.indexOf(first, fromIndex);
+			if (singleChar) {
+				return index;
+			}
+			final int last = input.length() - 1;
+			while (index >= 0 && index < last) {
+				if (input.charAt(index + 1) == second) {
+					return index;
+				}
+				index = input.indexOf(first, index + 1);
+			}
+			return -1;
+		}
+
+	}
+
+	/**
+	 * A {@link TokenScanner} for delimiters of any length.
+	 */
+	static final class StringTokenScanner extends TokenScanner {
+
+		StringTokenScanner(String startDelimiter, String endDelimiter) {
+			super(startDelimiter, endDelimiter);
+		}
+
+		@Override
+		public int indexOfStart(String input, int fromIndex) {
+			return input.indexOf(getStartDelimiter(), fromIndex);
+		}
+
+		@Override
+		public int indexOfEnd(String input, int fromIndex) {
+			return input.indexOf(getEndDelimiter(), fromIndex);
+		}
+
+		@Override
+		int lastIndexOfEnd(String input) {
+			return input.lastIndexOf(getEndDelimiter());
+		}
+
+	}
+
+}
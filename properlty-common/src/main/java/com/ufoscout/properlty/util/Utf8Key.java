@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A reusable {@link CharSequence} that decodes a UTF-8 byte slice, so a key read from a byte[] or a {@link ByteBuffer}
+ * can be looked up without creating a String.
+ *
+ * The slice is decoded into an internal char buffer, which grows only when a longer key is set,
+ * and its hash is computed while decoding with the same algorithm of {@link String#hashCode()}.
+ * Malformed input is decoded as {@link String#String(byte[], int, int, java.nio.charset.Charset)} does,
+ * through a temporary String.
+ *
+ * It is not thread safe.
+ *
+ * @author Francesco Cina
+ *
+ */
+public final class Utf8Key implements CharSequence {
+
+	/**
+	 * The smallest code point encoded with 1, 2 or 3 continuation bytes
+	 */
+	private static final int[] MIN_CODE_POINTS = {0, 0x80, 0x800, 0x10000};
+
+	private char[] chars = new char[64];
+	private int length;
+	private int hash;
+
+	/**
+	 * Set the key to the UTF-8 bytes of the array from offset (inclusive) to offset + length (exclusive).
+	 *
+	 * @param bytes
+	 * @param offset
+	 * @param length
+	 * @return this key
+	 */
+	public Utf8Key set(byte[] bytes, int offset, int length) {
+		if (offset < 0 || length < 0 || offset > bytes.length - length) {
+			throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", array length " + bytes.length);
+		}
+		if (!decode(bytes, null, offset, length)) {
+			set(new String(bytes, offset, length, StandardCharsets.UTF_8));
+		}
+		return this;
+	}
+
+	/**
+	 * Set the key to the UTF-8 bytes of the buffer from its position to its limit.
+	 * The position of the buffer is not changed.
+	 *
+	 * @param buffer
+	 * @return this key
+	 */
+	public Utf8Key set(ByteBuffer buffer) {
+		if (buffer.hasArray()) {
+			return set(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+		}
+		if (!decode(null, buffer, buffer.position(), buffer.remaining())) {
+			final byte[] bytes = new byte[buffer.remaining()];
+			buffer.duplicate().get(bytes);
+			set(new String(bytes, StandardCharsets.UTF_8));
+		}
+		return this;
+	}
+
+	private void set(String key) {
+		ensureCapacity(key.length());
+		key.getChars(0, key.length(), chars, 0);
+		length = key.length();
+		hash = key.hashCode();
+	}
+
+	/**
+	 * Decode the bytes of the array or of the buffer; return false if they are not well formed UTF-8.
+	 */
+	private boolean decode(byte[] bytes, ByteBuffer buffer, int offset, int byteLength) {
+		// a UTF-8 slice never decodes to more chars than its bytes
+		ensureCapacity(byteLength);
+		final int end = offset + byteLength;
+		int position = offset;
+		int count = 0;
+		int h = 0;
+		while (position < end) {
+			final int b = byteAt(bytes, buffer, position++);
+			if (b >= 0) {
+				chars[count++] = (char) b;
+				h = 31 * h + b;
+				continue;
+			}
+			final int continuations;
+			int codePoint;
+			if ((b & 0xE0) == 0xC0) {
+				continuations = 1;
+				codePoint = b & 0x1F;
+			} else if ((b & 0xF0) == 0xE0) {
+				continuations = 2;
+				codePoint = b & 0x0F;
+			} else if ((b & 0xF8) == 0xF0) {
+				continuations = 3;
+				codePoint = b & 0x07;
+			} else {
+				return false;
+			}
+			if (end - position < continuations) {
+				return false;
+			}
+			for (int i = 0; i < continuations; i++) {
+				final int next = byteAt(bytes, buffer, position++);
+				if ((next & 0xC0) != 0x80) {
+					return false;
+				}
+				codePoint = (codePoint << 6) | (next & 0x3F);
+			}
+			// reject overlong encodings, surrogates and code points out of the Unicode range
+			if (codePoint < MIN_CODE_POINTS[continuations] || codePoint > Character.MAX_CODE_POINT
+					|| (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+				return false;
+			}
+			if (codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+				final char high = Character.highSurrogate(codePoint);
+				final char low = Character.lowSurrogate(codePoint);
+				chars[count++] = high;
+				chars[count++] = low;
+				h = 31 * (31 * h + high) + low;
+			} else {
+				chars[count++] = (char) codePoint;
+				h = 31 * h + codePoint;
+			}
+		}
+		length = count;
+		hash = h;
+		return true;
+	}
+
+	private static int byteAt(byte[] bytes, ByteBuffer buffer, int index) {
+		return bytes != null ? bytes[index] : buffer.get(index);
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (chars.length < capacity) {
+			chars = new char[Math.max(capacity, chars.length * 2)];
+		}
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+		}
+		return chars[index];
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return toString().substring(start, end);
+	}
+
+	/**
+	 * The same hash of the String with the chars of this key
+	 */
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return new String(chars, 0, length);
+	}
+
+}
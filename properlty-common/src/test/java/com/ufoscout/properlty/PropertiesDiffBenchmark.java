@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.store.HamtStore;
+import com.ufoscout.properlty.store.OpenAddressingStore;
+import com.ufoscout.properlty.store.Store;
+
+public class PropertiesDiffBenchmark extends ProperltyBaseTest {
+
+	@Test
+	public void diffBenchmark() {
+		final int entries = 200_000;
+		final int iterations = 10;
+		final Map<String, String> properties = properties(entries);
+		final HamtStore base = HamtStore.build(properties);
+		final HamtStore derived = base.with("key.10", "new").with("key.20", "new").with("added", "new");
+		final Store unrelated = OpenAddressingStore.build(properties);
+
+		PropertiesDiff linear = null;
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < iterations; i++) {
+			linear = PropertiesDiff.of(unrelated, derived);
+		}
+		final long linearTime = System.currentTimeMillis() - start;
+
+		PropertiesDiff structural = null;
+		start = System.currentTimeMillis();
+		for (int i = 0; i < iterations; i++) {
+			structural = PropertiesDiff.of(base, derived);
+		}
+		final long structuralTime = System.currentTimeMillis() - start;
+
+		System.out.println("Entries : " + entries + ", changes : 3, iterations : " + iterations);
+		System.out.println("Unrelated stores diff time : " + linearTime + "ms");
+		System.out.println("Derived stores diff time   : " + structuralTime + "ms");
+
+		assertEquals(linear.toString(), structural.toString());
+		assertEquals(2, structural.getChanged().size());
+		assertEquals(1, structural.getAdded().size());
+	}
+
+	private Map<String, String> properties(int entries) {
+		final Map<String, String> properties = new HashMap<>();
+		for (int i = 0; i < entries; i++) {
+			properties.put("key." + i, "value." + i);
+		}
+		return properties;
+	}
+
+}
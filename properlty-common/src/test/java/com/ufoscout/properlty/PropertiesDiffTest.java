@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.store.BloomFilterStore;
+import com.ufoscout.properlty.store.HamtStore;
+import com.ufoscout.properlty.store.OpenAddressingStore;
+import com.ufoscout.properlty.store.OverlayStore;
+import com.ufoscout.properlty.store.Store;
+
+public class PropertiesDiffTest extends ProperltyBaseTest {
+
+	@Test
+	public void shouldCompareUnrelatedStores() {
+		final Map<String, String> previous = new HashMap<>();
+		previous.put("a", "1");
+		previous.put("b", "2");
+		previous.put("c", "3");
+		final Map<String, String> next = new HashMap<>();
+		next.put("a", "1");
+		next.put("b", "20");
+		next.put("d", "4");
+
+		final PropertiesDiff diff = PropertiesDiff.of(OpenAddressingStore.build(previous), OpenAddressingStore.build(next));
+
+		assertEquals(Collections.singletonMap("d", "4"), diff.getAdded());
+		assertEquals(Collections.singletonMap("c", "3"), diff.getRemoved());
+		assertEquals(1, diff.getChanged().size());
+		assertEquals("2", diff.getChanged().get("b").getPreviousValue());
+		assertEquals("20", diff.getChanged().get("b").getValue());
+		assertEquals(diff.toString(), PropertiesDiff.of(HamtStore.build(previous), HamtStore.build(next)).toString());
+	}
+
+	@Test
+	public void shouldCompareDerivedStores() {
+		final HamtStore base = HamtStore.build(properties(1000));
+		final HamtStore first = base.with("key.1", "first").with("key.2", "value.2");
+		final HamtStore second = base.with("key.3", "second").with("new", "added");
+
+		final PropertiesDiff diff = PropertiesDiff.of(first, second);
+
+		assertEquals(Collections.singletonMap("new", "added"), diff.getAdded());
+		assertTrue(diff.getRemoved().isEmpty());
+		assertEquals(2, diff.getChanged().size());
+		assertEquals("first", diff.getChanged().get("key.1").getPreviousValue());
+		assertEquals("value.1", diff.getChanged().get("key.1").getValue());
+		assertEquals("second", diff.getChanged().get("key.3").getValue());
+		assertEquals(Collections.singletonMap("new", "added"), PropertiesDiff.of(second, first).getRemoved());
+		assertTrue(PropertiesDiff.of(BloomFilterStore.of(first), first).isEmpty());
+	}
+
+	@Test
+	public void shouldCompareOverlays() {
+		final Store base = OpenAddressingStore.build(properties(1000));
+		final OverlayStore first = OverlayStore.of(base, Collections.singletonMap("key.1", "first"));
+		final OverlayStore second = OverlayStore.of(base, Collections.singletonMap("new", "added"));
+
+		final PropertiesDiff diff = PropertiesDiff.of(first, second);
+		assertEquals(Collections.singletonMap("new", "added"), diff.getAdded());
+		assertEquals("value.1", diff.getChanged().get("key.1").getValue());
+		assertEquals(1, diff.getChanged().size());
+
+		assertEquals("first", PropertiesDiff.of(base, first).getChanged().get("key.1").getValue());
+		assertEquals(Collections.singletonMap("new", "added"), PropertiesDiff.of(second, base).getRemoved());
+
+		final HamtStore persistentBase = HamtStore.of(base);
+		final PropertiesDiff overDerived = PropertiesDiff.of(OverlayStore.of(persistentBase, Collections.singletonMap("key.1", "first")),
+				OverlayStore.of(persistentBase.with("key.2", "derived"), Collections.singletonMap("key.1", "first")));
+		assertEquals(1, overDerived.getChanged().size());
+		assertEquals("derived", overDerived.getChanged().get("key.2").getValue());
+	}
+
+	@Test
+	public void shouldReturnTheChangesUnderAPrefix() {
+		final Map<String, String> previous = new HashMap<>();
+		previous.put("db.host", "localhost");
+		previous.put("db.user", "admin");
+		previous.put("server.port", "8080");
+		final Map<String, String> next = new HashMap<>();
+		next.put("db.host", "db.example.com");
+		next.put("db.password", "secret");
+		next.put("server.port", "9090");
+
+		final PropertiesDiff diff = PropertiesDiff.of(OpenAddressingStore.build(previous), OpenAddressingStore.build(next)).subset("db.");
+
+		assertEquals(Collections.singletonMap("password", "secret"), diff.getAdded());
+		assertEquals(Collections.singletonMap("user", "admin"), diff.getRemoved());
+		assertEquals(Collections.singleton("host"), diff.getChanged().keySet());
+	}
+
+	private Map<String, String> properties(int entries) {
+		final Map<String, String> properties = new HashMap<>();
+		for (int i = 0; i < entries; i++) {
+			properties.put("key." + i, "value." + i);
+		}
+		return properties;
+	}
+
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.convert;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.ProperltyBaseTest;
+
+public class ConverterRegistryTest extends ProperltyBaseTest {
+
+	private final ConverterRegistry registry = new ConverterRegistry();
+
+	@Test
+	public void shouldConvertBuiltInTypes() {
+		assertEquals(Integer.valueOf(12), registry.get(Integer.class).apply("12"));
+		assertEquals(new BigDecimal("1.5"), registry.get(BigDecimal.class).apply("1.5"));
+		assertEquals(URI.create("http://localhost:8080/path"), registry.get(URI.class).apply("http://localhost:8080/path"));
+		assertEquals(Paths.get("/tmp/file"), registry.get(Path.class).apply("/tmp/file"));
+		assertNull(registry.get(StringBuilder.class));
+	}
+
+	@Test
+	public void shouldConvertDurations() {
+		assertEquals(Duration.ofSeconds(30), registry.get(Duration.class).apply("PT30S"));
+		assertEquals(Duration.ofSeconds(30), registry.get(Duration.class).apply("30s"));
+		assertEquals(Duration.ofMillis(100), registry.get(Duration.class).apply("100ms"));
+		assertEquals(Duration.ofMillis(100), registry.get(Duration.class).apply("100"));
+		assertEquals(Duration.ofMinutes(5), registry.get(Duration.class).apply("5m"));
+		assertEquals(Duration.ofHours(2), registry.get(Duration.class).apply("2H"));
+		assertEquals(Duration.ofDays(1), registry.get(Duration.class).apply("1d"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldFailOnInvalidDurations() {
+		registry.get(Duration.class).apply("5 weeks");
+	}
+
+	@Test
+	public void shouldConvertSocketAddresses() {
+		final InetSocketAddress address = registry.get(InetSocketAddress.class).apply("db.local:5432");
+		assertEquals("db.local", address.getHostString());
+		assertEquals(5432, address.getPort());
+		assertEquals("::1", registry.get(InetSocketAddress.class).apply("[::1]:80").getHostString());
+	}
+
+	@Test
+	public void shouldConvertDataSizes() {
+		assertEquals(512, registry.get(DataSize.class).apply("512").toBytes());
+		assertEquals(64 * 1024, registry.get(DataSize.class).apply("64KB").toBytes());
+		assertEquals(10, registry.get(DataSize.class).apply("10mb").toMegabytes());
+		assertEquals(2L << 30, registry.get(DataSize.class).apply("2 G").toBytes());
+		assertEquals(DataSize.ofBytes(1024), DataSize.parse("1K"));
+	}
+
+	@Test
+	public void shouldOverrideBuiltInConverters() {
+		final ConverterRegistry copy = registry.copy().register(Integer.class, value -> Integer.parseInt(value, 16));
+		assertEquals(Integer.valueOf(255), copy.get(Integer.class).apply("ff"));
+		assertEquals(Integer.valueOf(10), registry.get(Integer.class).apply("10"));
+	}
+
+}
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.ProperltyBaseTest;
+
+public class PropertyValueTest extends ProperltyBaseTest {
+
+	@Test
+	public void shouldShareTheCommonLiterals() {
+		for (final String literal : new String[] {"", "true", "false", "0", "8", "127"}) {
+			assertSame(PropertyValue.shared(literal, true), PropertyValue.shared(new String(literal), true));
+			assertSame(PropertyValue.shared(literal, false), PropertyValue.shared(new String(literal), false));
+			assertNotSame(PropertyValue.shared(literal, true), PropertyValue.shared(literal, false));
+		}
+		assertTrue(PropertyValue.shared("true", true).isResolvable());
+		assertFalse(PropertyValue.shared("true", false).isResolvable());
+		assertEquals("true", PropertyValue.shared("true", false).getValue());
+	}
+
+	@Test
+	public void shouldCreateOtherValues() {
+		final PropertyValue value = PropertyValue.shared("localhost", false);
+		assertEquals("localhost", value.getValue());
+		assertFalse(value.isResolvable());
+		assertNotSame(value, PropertyValue.shared("localhost", false));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void sharedValuesShouldBeImmutable() {
+		PropertyValue.shared("true", true).value("false");
+	}
+
+	@Test
+	public void ofShouldReturnMutableValues() {
+		final PropertyValue value = PropertyValue.of("true").resolvable(false).value("false");
+		assertEquals("false", value.getValue());
+		assertFalse(value.isResolvable());
+	}
+
+}
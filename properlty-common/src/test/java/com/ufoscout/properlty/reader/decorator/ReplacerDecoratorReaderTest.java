@@ -16,16 +16,24 @@
 package com.ufoscout.properlty.reader.decorator;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import com.ufoscout.properlty.BuildStatistics;
 import com.ufoscout.properlty.ProperltyBaseTest;
 import com.ufoscout.properlty.exception.UnresolvablePlaceholdersException;
 import com.ufoscout.properlty.reader.ProgrammaticPropertiesReader;
 import com.ufoscout.properlty.reader.Properties;
 import com.ufoscout.properlty.reader.PropertyValue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.junit.Test;
 
 public class ReplacerDecoratorReaderTest extends ProperltyBaseTest {
@@ -47,6 +55,19 @@ public class ReplacerDecoratorReaderTest extends ProperltyBaseTest {
 
 	}
 
+	@Test
+	public void shouldNotModifyTheReadValues() {
+		final ProgrammaticPropertiesReader properties = Properties.add("key.one", "${key.two}");
+		properties.add("key.two", "value.two");
+		final ReplacerDecoratorReader reader = new ReplacerDecoratorReader(properties, "${", "}", ":", false, true);
+
+		assertEquals("value.two", reader.read().get("key.one").getValue());
+		assertEquals("${key.two}", properties.read().get("key.one").getValue());
+
+		properties.add("key.two", "value.three");
+		assertEquals("value.three", reader.read().get("key.one").getValue());
+	}
+
 	@Test
 	public void shouldNotResolveUnresolvableKeys() {
 		final ProgrammaticPropertiesReader properties = Properties.add("key.unresolvable", PropertyValue.of("${key.two}").resolvable(false));
@@ -264,4 +285,122 @@ public class ReplacerDecoratorReaderTest extends ProperltyBaseTest {
 
 	}
 
+	@Test
+	public void shouldCountLiteralAndTemplatedValues() {
+		final ProgrammaticPropertiesReader properties = Properties
+				.add("key.one", "${key.two}")
+				.add("key.two", "value.two")
+				.add("key.three", "$value.three")
+				.add("key.four", PropertyValue.of("${key.two}").resolvable(false))
+				.add("key.five", "${key.two}__${key.three}");
+
+		final boolean ignoreNotResolvable = false;
+		final boolean caseSensitive = true;
+		final BuildStatistics statistics = new BuildStatistics();
+		final Map<String, PropertyValue> output =
+				new ReplacerDecoratorReader(properties, "${", "}", ":", ignoreNotResolvable, caseSensitive)
+				.statistics(statistics)
+				.read();
+
+		assertEquals(3, statistics.getLiteralValues());
+		assertEquals(2, statistics.getTemplatedValues());
+
+		assertEquals("value.two", output.get("key.one").getValue());
+		assertEquals("${key.two}", output.get("key.four").getValue());
+		assertEquals("value.two__$value.three", output.get("key.five").getValue());
+	}
+
+	@Test
+	public void shouldResolveMissingKeysWithOneBatchedCallPerRound() {
+		final ProgrammaticPropertiesReader properties = Properties
+				.add("db.user", "${secret.user}")
+				.add("db.password", "${secret.password}")
+				.add("db.url", "jdbc:${secret.host}")
+				.add("db.name", "${secret.db.name:app}")
+				.add("api.key", "${secret.api.key}");
+
+		final Map<String, String> secrets = new HashMap<>();
+		secrets.put("secret.user", "admin");
+		secrets.put("secret.password", "s3cr3t");
+		secrets.put("secret.host", "db.local");
+		secrets.put("secret.api.key", "key");
+
+		final List<Set<String>> requests = new ArrayList<>();
+		final boolean ignoreNotResolvable = false;
+		final boolean caseSensitive = true;
+		final BuildStatistics statistics = new BuildStatistics();
+		final Map<String, PropertyValue> output = new ReplacerDecoratorReader(properties, "${", "}", ":", ignoreNotResolvable, caseSensitive)
+				.statistics(statistics)
+				.resolver(keys -> {
+					requests.add(keys);
+					final Map<String, String> result = new HashMap<>();
+					keys.forEach(key -> {
+						if (secrets.containsKey(key)) {
+							result.put(key, secrets.get(key));
+						}
+					});
+					return result;
+				})
+				.read();
+
+		assertEquals(1, requests.size());
+		assertEquals(5, requests.get(0).size());
+		assertEquals(1, statistics.getResolverCalls());
+
+		assertEquals("admin", output.get("db.user").getValue());
+		assertEquals("s3cr3t", output.get("db.password").getValue());
+		assertEquals("jdbc:db.local", output.get("db.url").getValue());
+		assertEquals("app", output.get("db.name").getValue());
+		assertEquals("key", output.get("api.key").getValue());
+		secrets.keySet().forEach(key -> assertFalse(output.containsKey(key)));
+	}
+
+	@Test
+	public void shouldAskTheResolverForKeysDiscoveredInLaterRounds() {
+		final ProgrammaticPropertiesReader properties = Properties
+				.add("key.one", "${${key.two}}")
+				.add("key.two", "${secret.name}");
+
+		final List<Set<String>> requests = new ArrayList<>();
+		final boolean ignoreNotResolvable = false;
+		final boolean caseSensitive = true;
+		final Map<String, PropertyValue> output = new ReplacerDecoratorReader(properties, "${", "}", ":", ignoreNotResolvable, caseSensitive)
+				.resolver(keys -> {
+					requests.add(keys);
+					final Map<String, String> result = new HashMap<>();
+					result.put("secret.name", "secret.value");
+					result.put("secret.value", "Hello world!");
+					return result;
+				})
+				.read();
+
+		assertEquals(2, requests.size());
+		assertEquals(Collections.singleton("secret.name"), requests.get(0));
+		assertEquals(Collections.singleton("secret.value"), requests.get(1));
+		assertEquals("Hello world!", output.get("key.one").getValue());
+		assertEquals("secret.value", output.get("key.two").getValue());
+		assertEquals(2, output.size());
+	}
+
+	@Test
+	public void shouldIgnoreTheKeysNotRequestedToTheResolver() {
+		final ProgrammaticPropertiesReader properties = Properties
+				.add("db.url", "jdbc:${secret.host}")
+				.add("db.user", "admin");
+
+		final Map<String, PropertyValue> output = new ReplacerDecoratorReader(properties, "${", "}", ":", false, true)
+				.resolver(keys -> {
+					final Map<String, String> result = new HashMap<>();
+					result.put("secret.host", "db.local");
+					result.put("db.user", "root");
+					result.put("other.key", "other");
+					return result;
+				})
+				.read();
+
+		assertEquals("jdbc:db.local", output.get("db.url").getValue());
+		assertEquals("admin", output.get("db.user").getValue());
+		assertNull(output.get("other.key"));
+	}
+
 }
@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.ProperltyBaseTest;
+
+public class ArenaStoreBenchmark extends ProperltyBaseTest {
+
+	@Test
+	public void arenaBenchmark() {
+		final int entries = 1_000_000;
+
+		final long beforeHashMap = OpenAddressingStoreBenchmark.usedMemory();
+		final Map<String, String> properties = new HashMap<>();
+		for (int i = 0; i < entries; i++) {
+			properties.put("route.region" + (i % 100) + ".node." + i, "10.0." + (i % 256) + "." + (i % 100));
+		}
+		final long hashMapFootprint = OpenAddressingStoreBenchmark.usedMemory() - beforeHashMap;
+
+		final long beforeArena = OpenAddressingStoreBenchmark.usedMemory();
+		long start = System.currentTimeMillis();
+		final Store store = ArenaStore.build(properties);
+		final long arenaBuildTime = System.currentTimeMillis() - start;
+		final long arenaFootprint = OpenAddressingStoreBenchmark.usedMemory() - beforeArena;
+
+		final String[] keys = properties.keySet().toArray(new String[0]);
+		long hashMapTime = 0;
+		long arenaTime = 0;
+		for (int round = 0; round < 3; round++) {
+			start = System.currentTimeMillis();
+			for (final String key : keys) {
+				if (properties.get(key) == null) {
+					throw new RuntimeException("Missing key " + key);
+				}
+			}
+			hashMapTime = System.currentTimeMillis() - start;
+
+			start = System.currentTimeMillis();
+			for (final String key : keys) {
+				if (store.get(key) == null) {
+					throw new RuntimeException("Missing key " + key);
+				}
+			}
+			arenaTime = System.currentTimeMillis() - start;
+		}
+
+		System.out.println("Entries : " + entries);
+		System.out.println("HashMap<String, String> with its Strings footprint : " + hashMapFootprint / 1024 + "KB, lookup time : " + hashMapTime + "ms");
+		System.out.println("ArenaStore build time : " + arenaBuildTime + "ms, footprint : " + arenaFootprint / 1024 + "KB, lookup time : " + arenaTime + "ms");
+
+		assertEquals(entries, store.size());
+	}
+
+}
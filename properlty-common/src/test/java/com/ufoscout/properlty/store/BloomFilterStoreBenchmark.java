@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.ProperltyBaseTest;
+
+public class BloomFilterStoreBenchmark extends ProperltyBaseTest {
+
+	@Test
+	public void missingKeysBenchmark() {
+		final int entries = 1_000_000;
+		final int lookups = 10_000_000;
+		final Map<String, String> properties = new HashMap<>();
+		for (int i = 0; i < entries; i++) {
+			properties.put("key." + i, "value." + i);
+		}
+		final String[] missing = new String[1000];
+		for (int i = 0; i < missing.length; i++) {
+			missing[i] = "optional.feature." + i + ".enabled";
+		}
+		final Store base = OpenAddressingStore.build(properties);
+		final Map<String, String> delta = new HashMap<>();
+		delta.put("key.0", "tenant");
+		final Store layered = OverlayStore.of(base, delta);
+		final Store filtered = OverlayStore.of(BloomFilterStore.of(base), delta);
+
+		for (int round = 0; round < 3; round++) {
+			System.out.println("Entries : " + entries + ", missing key lookups : " + lookups);
+			System.out.println("Layered store time : " + missingLookupsTime(layered, missing, lookups) + "ms");
+			System.out.println("Layered store with Bloom filter time : " + missingLookupsTime(filtered, missing, lookups) + "ms");
+		}
+	}
+
+	@Test
+	public void falsePositiveRateBenchmark() {
+		final Map<String, String> properties = new HashMap<>();
+		for (int i = 0; i < 100_000; i++) {
+			properties.put("key." + i, "value." + i);
+		}
+		final BloomFilterStore store = BloomFilterStore.of(OpenAddressingStore.build(properties), 0.01);
+
+		final int misses = 1_000_000;
+		for (int i = 0; i < misses; i++) {
+			assertNull(store.get("missing." + i));
+		}
+
+		System.out.println(store + ", measured false positive rate : " + store.getFalsePositiveRate());
+		assertEquals(misses, store.getRejectedLookups() + store.getFalsePositives());
+		assertTrue(store.getExpectedFalsePositiveRate() <= 0.01);
+		assertTrue(store.getFalsePositiveRate() < 0.02);
+	}
+
+	private long missingLookupsTime(Store store, String[] keys, int lookups) {
+		final long start = System.currentTimeMillis();
+		int found = 0;
+		for (int i = 0; i < lookups; i++) {
+			if (store.get(keys[i % keys.length]) != null) {
+				found++;
+			}
+		}
+		assertEquals(0, found);
+		return System.currentTimeMillis() - start;
+	}
+
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.ProperltyBaseTest;
+
+public class BloomFilterStoreTest extends ProperltyBaseTest {
+
+	@Test
+	public void shouldReturnTheStoredValues() {
+		for (final int entries : new int[] {0, 1, 10, 1000, 100_000}) {
+			final Map<String, String> properties = new HashMap<>();
+			for (int i = 0; i < entries; i++) {
+				properties.put("key." + i, "value." + i);
+			}
+
+			final BloomFilterStore store = BloomFilterStore.of(OpenAddressingStore.build(properties));
+
+			assertEquals(entries, store.size());
+			properties.forEach((key, value) -> assertEquals(value, store.get(key)));
+			assertNull(store.get("other"));
+			assertEquals(1, store.getFalsePositives() + store.getRejectedLookups());
+
+			final Map<String, String> content = new HashMap<>();
+			store.forEach(content::put);
+			assertEquals(properties, content);
+		}
+	}
+
+	@Test
+	public void shouldKeepTheFalsePositiveRateBelowTheBound() {
+		final Map<String, String> properties = new HashMap<>();
+		for (int i = 0; i < 1000; i++) {
+			properties.put("key." + i, "value." + i);
+		}
+		final BloomFilterStore store = BloomFilterStore.of(OpenAddressingStore.build(properties), 0.01);
+
+		final int misses = 10_000;
+		for (int i = 0; i < misses; i++) {
+			assertNull(store.get("missing." + i));
+		}
+
+		assertEquals(misses, store.getRejectedLookups() + store.getFalsePositives());
+		assertTrue(store.getExpectedFalsePositiveRate() <= 0.01);
+		assertTrue(store.getFalsePositiveRate() < 0.02);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectInvalidRates() {
+		BloomFilterStore.of(OpenAddressingStore.build(new HashMap<>()), 1);
+	}
+
+}
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.ProperltyBaseTest;
+import com.ufoscout.properlty.template.TemplateCache;
+import com.ufoscout.properlty.util.TokenScanner;
+
+public class DerivationTest extends ProperltyBaseTest {
+
+	private final TemplateCache templateCache = new TemplateCache(TokenScanner.of("${", "}"), ":", 10_000);
+	private final AtomicInteger placeholderReads = new AtomicInteger();
+	private final UnaryOperator<String> normalizer = key -> {
+		placeholderReads.incrementAndGet();
+		return key;
+	};
+
+	@Test
+	public void shouldRenderOnlyTheTemplatesThatDependOnTheOverriddenKeys() {
+		final int size = 1000;
+		final Map<String, String> values = new HashMap<>();
+		final Map<String, String> rawTemplates = new HashMap<>();
+		for (int i = 0; i < size; i++) {
+			values.put("host." + i, "host" + i);
+			values.put("url." + i, "http://host" + i);
+			rawTemplates.put("url." + i, "http://${host." + i + "}");
+		}
+		values.put("a", "x");
+		values.put("b", "x-b");
+		values.put("c", "x-b-c");
+		rawTemplates.put("b", "${a}-b");
+		rawTemplates.put("c", "${b}-c");
+		final Store base = HamtStore.build(values);
+		final HamtStore templates = HamtStore.build(rawTemplates);
+		final Map<String, Set<String>> dependents = Derivation.dependents(base, templates, templateCache, normalizer, false);
+
+		placeholderReads.set(0);
+		final Derivation chain = Derivation.derive(base, templates, dependents, Collections.singletonMap("a", "y"), templateCache, normalizer, false);
+		final Map<String, String> expected = new HashMap<>();
+		expected.put("a", "y");
+		expected.put("b", "y-b");
+		expected.put("c", "y-b-c");
+		assertEquals(expected, chain.getChanges());
+		// b reads a, then c reads b: none of the other templates is rendered
+		assertEquals(2, placeholderReads.get());
+		assertEquals(templates.size(), chain.getTemplates().size());
+
+		placeholderReads.set(0);
+		final Derivation single = Derivation.derive(base, templates, dependents, Collections.singletonMap("host.7", "db"), templateCache, normalizer, false);
+		final Map<String, String> expectedSingle = new HashMap<>();
+		expectedSingle.put("host.7", "db");
+		expectedSingle.put("url.7", "http://db");
+		assertEquals(expectedSingle, single.getChanges());
+		assertEquals(1, placeholderReads.get());
+	}
+
+	@Test
+	public void shouldKeepTheOverriddenTemplates() {
+		final Map<String, String> values = new HashMap<>();
+		values.put("a", "x");
+		values.put("b", "x-b");
+		final Store base = HamtStore.build(values);
+		final HamtStore templates = HamtStore.build(Collections.singletonMap("b", "${a}-b"));
+		final Map<String, Set<String>> dependents = Derivation.dependents(base, templates, templateCache, normalizer, false);
+
+		final Derivation derivation = Derivation.derive(base, templates, dependents, Collections.singletonMap("b", "${a}+b"), templateCache, normalizer, false);
+
+		assertEquals(Collections.singletonMap("b", "x+b"), derivation.getChanges());
+		assertEquals("${a}+b", derivation.getTemplates().get("b"));
+		assertEquals("${a}-b", templates.get("b"));
+	}
+
+	@Test
+	public void shouldNotCacheTheLiteralOverrides() {
+		final Store base = HamtStore.build(Collections.singletonMap("a", "x"));
+		final HamtStore templates = HamtStore.build(Collections.emptyMap());
+		final Map<String, String> overrides = new HashMap<>();
+		for (int i = 0; i < 100; i++) {
+			overrides.put("key." + i, "value." + i);
+		}
+
+		final int cached = templateCache.size();
+		final Derivation derivation = Derivation.derive(base, templates, Collections.emptyMap(), overrides, templateCache, normalizer, false);
+
+		assertEquals(overrides, derivation.getChanges());
+		assertEquals(cached, templateCache.size());
+	}
+
+}
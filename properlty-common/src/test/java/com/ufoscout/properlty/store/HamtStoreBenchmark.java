@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.ProperltyBaseTest;
+
+public class HamtStoreBenchmark extends ProperltyBaseTest {
+
+	@Test
+	public void structuralSharingBenchmark() {
+		final int entries = 100_000;
+		final int variants = 10_000;
+		final Map<String, String> properties = new HashMap<>();
+		for (int i = 0; i < entries; i++) {
+			properties.put("route.region" + (i % 100) + ".node." + i, "10.0." + (i % 256) + "." + (i % 100));
+		}
+
+		final HamtStore base = HamtStore.build(properties);
+
+		final long beforeVariants = OpenAddressingStoreBenchmark.usedMemory();
+		final long start = System.currentTimeMillis();
+		final List<HamtStore> derived = new ArrayList<>();
+		for (int i = 0; i < variants; i++) {
+			derived.add(base.with("route.region" + (i % 100) + ".node." + i, "tenant." + i).with("tenant.id", "" + i));
+		}
+		final long variantsTime = System.currentTimeMillis() - start;
+		final long variantsFootprint = OpenAddressingStoreBenchmark.usedMemory() - beforeVariants;
+
+		System.out.println("Entries : " + entries);
+		System.out.println(variants + " variants with 2 overrides each, time : " + variantsTime + "ms, footprint : "
+				+ variantsFootprint / 1024 + "KB, " + variantsFootprint / variants + " bytes per variant");
+
+		assertEquals("tenant.5", derived.get(5).get("route.region5.node.5"));
+		assertEquals("10.0.5.5", base.get("route.region5.node.5"));
+		assertEquals(entries + 1, derived.get(5).size());
+		assertEquals(entries, properties.size());
+	}
+
+}
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.ProperltyBaseTest;
+
+public class HamtStoreTest extends ProperltyBaseTest {
+
+	@Test
+	public void shouldReturnTheStoredValues() {
+		for (final int entries : new int[] {0, 1, 2, 3, 10, 1000, 50_000}) {
+			final Map<String, String> properties = new LinkedHashMap<>();
+			for (int i = 0; i < entries; i++) {
+				properties.put("key." + i, "value." + i);
+			}
+
+			final Store store = HamtStore.build(properties);
+
+			assertEquals(properties.size(), store.size());
+			properties.forEach((key, value) -> assertEquals(value, store.get(key)));
+			assertNull(store.get("key." + entries));
+			assertNull(store.get("other"));
+
+			final Map<String, String> content = new HashMap<>();
+			store.forEach(content::put);
+			assertEquals(properties, content);
+		}
+	}
+
+	@Test
+	public void shouldNotModifyTheOriginalStore() {
+		final Map<String, String> properties = new HashMap<>();
+		for (int i = 0; i < 1000; i++) {
+			properties.put("key." + i, "value." + i);
+		}
+		final HamtStore base = HamtStore.build(properties);
+
+		final HamtStore derived = base.with("key.10", "new").with("key.1000", "added");
+
+		assertEquals(1000, base.size());
+		assertEquals("value.10", base.get("key.10"));
+		assertNull(base.get("key.1000"));
+		assertEquals(1001, derived.size());
+		assertEquals("new", derived.get("key.10"));
+		assertEquals("added", derived.get("key.1000"));
+		assertEquals("value.11", derived.get("key.11"));
+	}
+
+	@Test
+	public void shouldKeepKeysWithTheSameHashCode() {
+		final Map<String, String> properties = new LinkedHashMap<>();
+		// "Aa", "BB", "AaAa", "AaBB", "BBAa" and "BBBB" share their hashCodes
+		properties.put("Aa", "1");
+		properties.put("BB", "2");
+		properties.put("AaAa", "3");
+		properties.put("AaBB", "4");
+		properties.put("BBAa", "5");
+		properties.put("CC", "6");
+
+		final HamtStore store = HamtStore.build(properties);
+
+		assertEquals(6, store.size());
+		properties.forEach((key, value) -> assertEquals(value, store.get(key)));
+		assertNull(store.get("BBBB"));
+
+		final HamtStore derived = store.with("BB", "22").with("BBBB", "7");
+		assertEquals(7, derived.size());
+		assertEquals("22", derived.get("BB"));
+		assertEquals("1", derived.get("Aa"));
+		assertEquals("7", derived.get("BBBB"));
+		assertEquals("2", store.get("BB"));
+	}
+
+	@Test
+	public void shouldVisitOnlyTheKeysThatAreNotShared() {
+		final Map<String, String> properties = new HashMap<>();
+		for (int i = 0; i < 10_000; i++) {
+			properties.put("key." + i, "value." + i);
+		}
+		properties.put("Aa", "1");
+		final HamtStore store = HamtStore.build(properties);
+		final HamtStore derived = store.with("key.10", "new").with("key.new", "added").with("BB", "colliding");
+
+		final Set<String> changedKeys = new HashSet<>();
+		store.forEachChangedKey(derived, changedKeys::add);
+		assertEquals(new HashSet<>(Arrays.asList("key.10", "key.new", "Aa", "BB")), changedKeys);
+
+		final Set<String> reversedKeys = new HashSet<>();
+		derived.forEachChangedKey(store, reversedKeys::add);
+		assertEquals(changedKeys, reversedKeys);
+
+		final Set<String> unchanged = new HashSet<>();
+		derived.forEachChangedKey(derived, unchanged::add);
+		assertTrue(unchanged.isEmpty());
+
+		final Set<String> unrelated = new HashSet<>();
+		HamtStore.build(properties).forEachChangedKey(store, unrelated::add);
+		assertEquals(properties.keySet(), unrelated);
+	}
+
+	@Test
+	public void variantsShouldShareTheUnchangedEntriesWithTheBase() {
+		final Map<String, String> properties = new HashMap<>();
+		for (int i = 0; i < 1000; i++) {
+			properties.put("route.node." + i, "10.0.0." + (i % 256));
+		}
+		final HamtStore base = HamtStore.build(properties);
+
+		final List<HamtStore> variants = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			variants.add(base.with("route.node." + i, "tenant." + i).with("tenant.id", "" + i));
+		}
+
+		for (int i = 0; i < variants.size(); i++) {
+			final Set<String> changedKeys = new HashSet<>();
+			base.forEachChangedKey(variants.get(i), changedKeys::add);
+			// only the nodes on the paths of the overridden keys are copied, the other entries are shared
+			assertTrue(changedKeys.containsAll(Arrays.asList("route.node." + i, "tenant.id")));
+			assertTrue(changedKeys.size() < 10);
+			assertEquals("tenant." + i, variants.get(i).get("route.node." + i));
+			assertEquals(1001, variants.get(i).size());
+		}
+		assertEquals("10.0.0.5", base.get("route.node.5"));
+		assertEquals(1000, base.size());
+	}
+
+}
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.ProperltyBaseTest;
+
+public class KeyFamiliesTest extends ProperltyBaseTest {
+
+	@Test
+	public void shouldFindIndexedAndMapFamilies() {
+		final Map<String, String> properties = new HashMap<>();
+		properties.put("servers[10].host", "");
+		properties.put("servers[2].host", "");
+		properties.put("servers[2].port", "");
+		properties.put("servers[0]", "");
+		properties.put("servers[0].tags[1]", "");
+		properties.put("routes.b.target", "");
+		properties.put("routes.a.target", "");
+		properties.put("routes.a.weight", "");
+		properties.put("routes", "");
+		properties.put("matrix[1][3]", "");
+		properties.put("broken[a]", "");
+		properties.put("broken[1]x", "");
+		properties.put("broken[", "");
+		properties.put("broken[99999999999]", "");
+		properties.put(".hidden", "");
+
+		final KeyFamilies families = KeyFamilies.of(OpenAddressingStore.build(properties));
+
+		assertArrayEquals(new int[] {0, 2, 10}, families.indexes("servers"));
+		assertArrayEquals(new int[] {1}, families.indexes("servers[0].tags"));
+		assertArrayEquals(new int[] {1}, families.indexes("matrix"));
+		assertArrayEquals(new int[] {3}, families.indexes("matrix[1]"));
+		assertArrayEquals(new int[0], families.indexes("broken"));
+		assertArrayEquals(new int[0], families.indexes("missing"));
+
+		assertEquals(Arrays.asList("a", "b"), families.children("routes"));
+		assertEquals(Arrays.asList("target", "weight"), families.children("routes.a"));
+		assertEquals(Arrays.asList("host", "port"), families.children("servers[2]"));
+		assertEquals(Collections.emptyList(), families.children("servers"));
+		assertEquals(Collections.emptyList(), families.children(""));
+	}
+
+	@Test
+	public void shouldFindTheFamiliesOfRandomKeys() {
+		final Random random = new Random(42);
+		final String alphabet = "ab.[]01";
+		final Map<String, String> properties = new HashMap<>();
+		for (int i = 0; i < 500; i++) {
+			final StringBuilder key = new StringBuilder();
+			final int length = 1 + random.nextInt(8);
+			for (int j = 0; j < length; j++) {
+				key.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			properties.put(key.toString(), "");
+		}
+
+		final KeyFamilies families = KeyFamilies.of(OpenAddressingStore.build(properties));
+
+		for (final String key : properties.keySet()) {
+			for (int i = 0; i <= key.length(); i++) {
+				final String family = key.substring(0, i);
+				assertEquals(family, expectedChildren(properties.keySet(), family), families.children(family));
+				assertArrayEquals(family, expectedIndexes(properties.keySet(), family), families.indexes(family));
+			}
+		}
+	}
+
+	@Test
+	public void shouldShareTheFamiliesOfIndexesWithTheSameKeys() {
+		final Map<String, String> properties = new HashMap<>();
+		properties.put("servers[0].host", "a");
+		final PrefixIndex index = new PrefixIndex(OpenAddressingStore.build(properties));
+		properties.put("servers[0].host", "b");
+
+		assertSame(index.families(), index.withStore(OpenAddressingStore.build(properties)).families());
+		assertArrayEquals(new int[] {0}, index.families().indexes("servers"));
+	}
+
+	private static List<String> expectedChildren(Set<String> keys, String family) {
+		final Set<String> children = new TreeSet<>();
+		for (final String key : keys) {
+			if (!family.isEmpty() && key.startsWith(family + ".")) {
+				int end = family.length() + 1;
+				while (end < key.length() && key.charAt(end) != '.' && key.charAt(end) != '[') {
+					end++;
+				}
+				if (end > family.length() + 1) {
+					children.add(key.substring(family.length() + 1, end));
+				}
+			}
+		}
+		return new ArrayList<>(children);
+	}
+
+	private static int[] expectedIndexes(Set<String> keys, String family) {
+		final Set<Integer> indexes = new TreeSet<>();
+		for (final String key : keys) {
+			if (!family.isEmpty() && key.startsWith(family + "[")) {
+				final int close = key.indexOf(']', family.length() + 1);
+				final String digits = close < 0 ? "" : key.substring(family.length() + 1, close);
+				final boolean validEnd = close >= 0 && (close + 1 == key.length() || key.charAt(close + 1) == '.' || key.charAt(close + 1) == '[');
+				if (!digits.isEmpty() && digits.chars().allMatch(Character::isDigit) && validEnd) {
+					indexes.add(Integer.parseInt(digits));
+				}
+			}
+		}
+		return indexes.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+}
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.ProperltyBaseTest;
+
+public class OffHeapStoreBenchmark extends ProperltyBaseTest {
+
+	@Test
+	public void garbageCollectionBenchmark() {
+		final int entries = 1_000_000;
+
+		Map<String, String> properties = routes(entries);
+		final long hashMapGcTime = fullGcTime();
+
+		Store arenaStore = ArenaStore.build(routes(entries));
+		properties = null;
+		final long arenaGcTime = fullGcTime();
+		arenaStore = null;
+
+		long start = System.currentTimeMillis();
+		final Store store = OffHeapStore.build(routes(entries));
+		final long buildTime = System.currentTimeMillis() - start;
+		final long offHeapGcTime = fullGcTime();
+
+		final String[] keys = routes(entries).keySet().toArray(new String[0]);
+		long lookupTime = 0;
+		for (int round = 0; round < 3; round++) {
+			start = System.currentTimeMillis();
+			for (final String key : keys) {
+				if (store.get(key) == null) {
+					throw new RuntimeException("Missing key " + key);
+				}
+			}
+			lookupTime = System.currentTimeMillis() - start;
+		}
+
+		System.out.println("Entries : " + entries);
+		System.out.println("Full GC time with a HashMap<String, String> : " + hashMapGcTime + "ms");
+		System.out.println("Full GC time with an ArenaStore : " + arenaGcTime + "ms");
+		System.out.println("Full GC time with an OffHeapStore : " + offHeapGcTime + "ms, build time : " + buildTime + "ms, lookup time : " + lookupTime + "ms");
+
+		assertEquals(entries, store.size());
+		assertNull(properties);
+		assertNull(arenaStore);
+	}
+
+	/**
+	 * Return the time spent by the garbage collectors in three full collections
+	 */
+	private static long fullGcTime() {
+		final long before = gcTime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return gcTime() - before;
+	}
+
+	private static Map<String, String> routes(int entries) {
+		final Map<String, String> properties = new HashMap<>();
+		for (int i = 0; i < entries; i++) {
+			properties.put("route.region" + (i % 100) + ".node." + i, "10.0." + (i % 256) + "." + (i % 100));
+		}
+		return properties;
+	}
+
+	private static long gcTime() {
+		long time = 0;
+		for (final GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+			time += Math.max(0, bean.getCollectionTime());
+		}
+		return time;
+	}
+
+}
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.ProperltyBaseTest;
+
+public class OffHeapStoreTest extends ProperltyBaseTest {
+
+	@Test
+	public void shouldReturnTheStoredValues() {
+		for (final int entries : new int[] {1, 2, 3, 10, 1000, 50_000}) {
+			final Map<String, String> properties = properties(entries);
+
+			final Store store = OffHeapStore.build(properties);
+
+			assertEquals(properties.size(), store.size());
+			properties.forEach((key, value) -> assertEquals(value, store.get(key)));
+			assertNull(store.get("key." + entries));
+			assertNull(store.get("key."));
+			assertNull(store.get("other"));
+
+			final Map<String, String> content = new HashMap<>();
+			store.forEach(content::put);
+			assertEquals(properties, content);
+		}
+	}
+
+	@Test
+	public void shouldStoreEntriesInManyChunks() {
+		final Map<String, String> properties = properties(10_000);
+		properties.put("città", "Zürich");
+		properties.put("名前", "日本語");
+		properties.put("empty", "");
+
+		final Store store = OffHeapStore.build(properties, null, 64);
+
+		assertEquals(properties.size(), store.size());
+		properties.forEach((key, value) -> assertEquals(value, store.get(key)));
+		assertNull(store.get("citt"));
+
+		final Map<String, String> content = new HashMap<>();
+		store.forEach(content::put);
+		assertEquals(properties, content);
+	}
+
+	@Test
+	public void shouldStoreEntriesInMappedFile() throws Exception {
+		final Path file = Files.createTempFile("properlty", ".store");
+		file.toFile().deleteOnExit();
+		final Map<String, String> properties = properties(10_000);
+
+		final Store store = OffHeapStore.mapped(file).build(properties);
+
+		assertEquals(properties.size(), store.size());
+		properties.forEach((key, value) -> assertEquals(value, store.get(key)));
+		assertNull(store.get("other"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldFailIfAnEntryDoesNotFitInAChunk() {
+		final Map<String, String> properties = new HashMap<>();
+		properties.put("key", "a value longer than the chunk size of this store");
+		OffHeapStore.build(properties, null, 32);
+	}
+
+	@Test
+	public void shouldBuildEmptyStore() {
+		final Store store = OffHeapStore.build(new HashMap<>());
+		assertEquals(0, store.size());
+		assertNull(store.get("key"));
+		store.forEach((key, value) -> {
+			throw new RuntimeException();
+		});
+	}
+
+	@Test
+	public void shouldStoreNullValues() {
+		final Map<String, String> properties = new LinkedHashMap<>();
+		properties.put("key", null);
+		properties.put("other", "");
+		final Store store = OffHeapStore.build(properties);
+
+		assertNull(store.get("key"));
+		assertEquals("", store.get("other"));
+		final Map<String, String> entries = new HashMap<>();
+		store.forEach(entries::put);
+		assertEquals(properties, entries);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectNullKeys() {
+		OffHeapStore.build(Collections.singletonMap(null, "value"));
+	}
+
+	private static Map<String, String> properties(int entries) {
+		final Map<String, String> properties = new LinkedHashMap<>();
+		for (int i = 0; i < entries; i++) {
+			properties.put("key." + i, "value." + i);
+		}
+		return properties;
+	}
+
+}
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.ProperltyBaseTest;
+import com.ufoscout.properlty.reader.PropertyValue;
+import com.ufoscout.properlty.util.Utf8Key;
+
+public class OpenAddressingStoreBenchmark extends ProperltyBaseTest {
+
+	@Test
+	public void footprintBenchmark() {
+		final int entries = 1_000_000;
+		final Map<String, String> properties = new LinkedHashMap<>();
+		for (int i = 0; i < entries; i++) {
+			properties.put("service.tenant" + (i % 1000) + ".key." + i, "value." + i);
+		}
+
+		final long beforeHashMap = usedMemory();
+		final Map<String, PropertyValue> hashMap = new HashMap<>();
+		for (final Map.Entry<String, String> entry : properties.entrySet()) {
+			hashMap.put(entry.getKey(), PropertyValue.of(entry.getValue()));
+		}
+		final long hashMapFootprint = usedMemory() - beforeHashMap;
+
+		final long beforeStore = usedMemory();
+		final Store store = OpenAddressingStore.build(properties);
+		final long storeFootprint = usedMemory() - beforeStore;
+
+		final String[] keys = properties.keySet().toArray(new String[0]);
+		long hashMapTime = 0;
+		long storeTime = 0;
+		for (int round = 0; round < 3; round++) {
+			hashMapTime = loop(key -> hashMap.get(key).getValue(), keys);
+			storeTime = loop(store::get, keys);
+		}
+
+		System.out.println("Entries : " + entries);
+		System.out.println("HashMap<String, PropertyValue> footprint : " + hashMapFootprint / 1024 + "KB, lookup time : " + hashMapTime + "ms");
+		System.out.println("OpenAddressingStore footprint : " + storeFootprint / 1024 + "KB, lookup time : " + storeTime + "ms");
+
+		assertEquals(hashMap.size(), store.size());
+	}
+
+	private long loop(Function<String, String> lookup, String[] keys) {
+		// warm up
+		for (int i = 0; i < 100_000; i++) {
+			lookup.apply(keys[i]);
+		}
+		final long start = System.currentTimeMillis();
+		for (int loop = 0; loop < 5; loop++) {
+			for (final String key : keys) {
+				if (lookup.apply(key) == null) {
+					throw new RuntimeException("Missing key " + key);
+				}
+			}
+		}
+		return System.currentTimeMillis() - start;
+	}
+
+	static long usedMemory() {
+		final Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	@Test
+	public void byteKeysBenchmark() {
+		final int entries = 100_000;
+		final Map<String, String> properties = new LinkedHashMap<>();
+		for (int i = 0; i < entries; i++) {
+			properties.put("service.tenant" + (i % 1000) + ".key." + i, "value." + i);
+		}
+		final Store store = OpenAddressingStore.build(properties);
+		final byte[][] keys = new byte[entries][];
+		int index = 0;
+		for (final String key : properties.keySet()) {
+			keys[index++] = key.getBytes(StandardCharsets.UTF_8);
+		}
+		final Utf8Key utf8Key = new Utf8Key();
+		final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		final long thread = Thread.currentThread().getId();
+
+		for (int round = 0; round < 3; round++) {
+			long allocated = threads.getThreadAllocatedBytes(thread);
+			long start = System.currentTimeMillis();
+			for (int loop = 0; loop < 20; loop++) {
+				for (final byte[] key : keys) {
+					assertNotNull(store.get(new String(key, 0, key.length, StandardCharsets.UTF_8)));
+				}
+			}
+			final long stringTime = System.currentTimeMillis() - start;
+			final long stringAllocated = threads.getThreadAllocatedBytes(thread) - allocated;
+
+			allocated = threads.getThreadAllocatedBytes(thread);
+			start = System.currentTimeMillis();
+			for (int loop = 0; loop < 20; loop++) {
+				for (final byte[] key : keys) {
+					assertNotNull(store.get(utf8Key.set(key, 0, key.length)));
+				}
+			}
+			final long utf8KeyTime = System.currentTimeMillis() - start;
+			final long utf8KeyAllocated = threads.getThreadAllocatedBytes(thread) - allocated;
+
+			System.out.println("Lookups : " + 20 * entries);
+			System.out.println("new String lookup time : " + stringTime + "ms, allocated : " + stringAllocated / 1024 + "KB");
+			System.out.println("Utf8Key lookup time : " + utf8KeyTime + "ms, allocated : " + utf8KeyAllocated / 1024 + "KB");
+		}
+	}
+
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.ProperltyBaseTest;
+import com.ufoscout.properlty.util.Utf8Key;
+
+public class OpenAddressingStoreTest extends ProperltyBaseTest {
+
+	@Test
+	public void shouldReturnTheStoredValues() {
+		final Map<String, String> properties = new LinkedHashMap<>();
+		for (int i = 0; i < 1000; i++) {
+			properties.put("key." + i, "value." + i);
+		}
+		// "Aa" and "BB" have the same hashCode
+		properties.put("Aa", "Aa");
+		properties.put("BB", "BB");
+
+		final Store store = OpenAddressingStore.build(properties);
+
+		assertEquals(properties.size(), store.size());
+		properties.forEach((key, value) -> assertEquals(value, store.get(key)));
+		assertNull(store.get("key.1000"));
+		assertNull(store.get("AaBB"));
+
+		final Map<String, String> entries = new HashMap<>();
+		store.forEach(entries::put);
+		assertEquals(properties, entries);
+	}
+
+	@Test
+	public void shouldBuildEmptyStore() {
+		final Store store = OpenAddressingStore.build(new HashMap<>());
+		assertEquals(0, store.size());
+		assertNull(store.get("key"));
+	}
+
+	@Test
+	public void shouldLookUpCharSequenceKeys() {
+		final Map<String, String> properties = new LinkedHashMap<>();
+		for (int i = 0; i < 1000; i++) {
+			properties.put("key." + i, "value." + i);
+		}
+		properties.put("Aa", "Aa");
+		properties.put("BB", "BB");
+		properties.put("città", "Torino");
+		properties.put("emoji.😀", "😁");
+		properties.put("名前", "日本語");
+		final Map<String, String> delta = new HashMap<>();
+		delta.put("key.1", "overlay");
+
+		final Store[] stores = {
+				OpenAddressingStore.build(properties),
+				ArenaStore.build(properties),
+				PerfectHashStore.build(properties),
+				HamtStore.build(properties),
+				BloomFilterStore.of(OpenAddressingStore.build(properties)),
+				OverlayStore.of(ArenaStore.build(properties), delta),
+				OffHeapStore.build(properties)
+		};
+
+		final Utf8Key utf8Key = new Utf8Key();
+		for (final Store store : stores) {
+			for (final String key : new String[] {"key.0", "key.1", "key.999", "Aa", "BB", "città", "emoji.😀", "key.1000", "AaBB", "citt", "cittàà", "名前", "名", "emoji.\uD83D", ""}) {
+				final byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+				assertEquals(store.get(key), store.get(new StringBuilder(key)));
+				assertEquals(store.get(key), store.get(utf8Key.set(bytes, 0, bytes.length)));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.ProperltyBaseTest;
+
+public class OverlayStoreBenchmark extends ProperltyBaseTest {
+
+	@Test
+	public void tenantsBenchmark() {
+		final int entries = 20_000;
+		final int tenants = 5_000;
+		final int overrides = 30;
+		final Map<String, String> properties = new HashMap<>();
+		for (int i = 0; i < entries; i++) {
+			properties.put("service" + (i % 200) + ".endpoint." + i, "https://host" + (i % 50) + ".example.com/" + i);
+		}
+		final Store base = OpenAddressingStore.build(properties);
+
+		final long beforeOverlays = OpenAddressingStoreBenchmark.usedMemory();
+		final long start = System.currentTimeMillis();
+		final List<Store> overlays = new ArrayList<>();
+		for (int tenant = 0; tenant < tenants; tenant++) {
+			final Map<String, String> delta = new HashMap<>();
+			for (int i = 0; i < overrides; i++) {
+				final int key = (tenant * overrides + i) % entries;
+				delta.put("service" + (key % 200) + ".endpoint." + key, "https://tenant" + tenant + ".example.com/" + key);
+			}
+			overlays.add(OverlayStore.of(base, delta));
+		}
+		final long overlaysTime = System.currentTimeMillis() - start;
+		final long overlaysFootprint = OpenAddressingStoreBenchmark.usedMemory() - beforeOverlays;
+
+		final long beforeCopies = OpenAddressingStoreBenchmark.usedMemory();
+		final List<Store> copies = new ArrayList<>();
+		for (int tenant = 0; tenant < 100; tenant++) {
+			final Map<String, String> copy = new HashMap<>(properties);
+			copy.put("service0.endpoint.0", "https://tenant" + tenant + ".example.com/0");
+			copies.add(OpenAddressingStore.build(copy));
+		}
+		final long copiesFootprint = (OpenAddressingStoreBenchmark.usedMemory() - beforeCopies) / copies.size();
+
+		System.out.println("Entries : " + entries);
+		System.out.println(tenants + " overlays with " + overrides + " overrides each, time : " + overlaysTime + "ms, footprint : "
+				+ overlaysFootprint / 1024 + "KB, " + overlaysFootprint / tenants + " bytes per tenant");
+		System.out.println("Full copy footprint : " + copiesFootprint + " bytes per tenant");
+
+		assertEquals("https://tenant0.example.com/0", overlays.get(0).get("service0.endpoint.0"));
+		assertEquals("https://host0.example.com/0", base.get("service0.endpoint.0"));
+		assertEquals(entries, overlays.get(tenants - 1).size());
+		assertEquals(100, copies.size());
+	}
+
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.ProperltyBaseTest;
+
+public class OverlayStoreTest extends ProperltyBaseTest {
+
+	@Test
+	public void shouldReadTheDeltaBeforeTheBase() {
+		final Map<String, String> properties = new HashMap<>();
+		for (int i = 0; i < 100; i++) {
+			properties.put("key." + i, "value." + i);
+		}
+		final Store base = OpenAddressingStore.build(properties);
+		final Map<String, String> delta = new HashMap<>();
+		delta.put("key.10", "new");
+		delta.put("key.100", "added");
+
+		final OverlayStore overlay = OverlayStore.of(base, delta);
+
+		assertEquals(101, overlay.size());
+		assertFalse(overlay.hasBaseKeys());
+		assertEquals("new", overlay.get("key.10"));
+		assertEquals("added", overlay.get("key.100"));
+		assertEquals("value.11", overlay.get("key.11"));
+		assertNull(overlay.get("key.101"));
+		assertEquals("value.10", base.get("key.10"));
+
+		final Map<String, String> content = new HashMap<>();
+		overlay.forEach(content::put);
+		final Map<String, String> expected = new HashMap<>(properties);
+		expected.putAll(delta);
+		assertEquals(expected, content);
+	}
+
+	@Test
+	public void shouldMergeTheDeltasOfNestedOverlays() {
+		final Map<String, String> properties = new HashMap<>();
+		properties.put("a", "1");
+		properties.put("b", "2");
+		final Store base = OpenAddressingStore.build(properties);
+		final Map<String, String> first = new HashMap<>();
+		first.put("a", "10");
+		final Map<String, String> second = new HashMap<>();
+		second.put("b", "20");
+
+		final OverlayStore overlay = OverlayStore.of(OverlayStore.of(base, first), second);
+
+		assertSame(base, overlay.getBase());
+		assertTrue(overlay.hasBaseKeys());
+		assertEquals(2, overlay.size());
+		assertEquals("10", overlay.get("a"));
+		assertEquals("20", overlay.get("b"));
+	}
+
+}
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.ProperltyBaseTest;
+import com.ufoscout.properlty.reader.PropertyValue;
+
+public class PerfectHashStoreBenchmark extends ProperltyBaseTest {
+
+	@Test
+	public void perfectHashBenchmark() {
+		final int entries = 1_000_000;
+		final Map<String, String> properties = new LinkedHashMap<>();
+		for (int i = 0; i < entries; i++) {
+			properties.put("route.region" + (i % 100) + ".node." + i, "10.0." + (i % 256) + "." + (i % 100));
+		}
+		final String[] keys = properties.keySet().toArray(new String[0]);
+
+		final long beforeHashMap = OpenAddressingStoreBenchmark.usedMemory();
+		long start = System.currentTimeMillis();
+		final Map<String, PropertyValue> hashMap = new HashMap<>();
+		for (final Map.Entry<String, String> entry : properties.entrySet()) {
+			hashMap.put(entry.getKey(), PropertyValue.of(entry.getValue()));
+		}
+		final long hashMapBuildTime = System.currentTimeMillis() - start;
+		final long hashMapFootprint = OpenAddressingStoreBenchmark.usedMemory() - beforeHashMap;
+
+		final long beforeOpenAddressing = OpenAddressingStoreBenchmark.usedMemory();
+		start = System.currentTimeMillis();
+		final Store openAddressingStore = OpenAddressingStore.build(properties);
+		final long openAddressingBuildTime = System.currentTimeMillis() - start;
+		final long openAddressingFootprint = OpenAddressingStoreBenchmark.usedMemory() - beforeOpenAddressing;
+
+		final long beforePerfectHash = OpenAddressingStoreBenchmark.usedMemory();
+		start = System.currentTimeMillis();
+		final Store perfectHashStore = PerfectHashStore.build(properties);
+		final long perfectHashBuildTime = System.currentTimeMillis() - start;
+		final long perfectHashFootprint = OpenAddressingStoreBenchmark.usedMemory() - beforePerfectHash;
+
+		long hashMapTime = 0;
+		long openAddressingTime = 0;
+		long perfectHashTime = 0;
+		for (int round = 0; round < 3; round++) {
+			hashMapTime = loop(key -> hashMap.get(key).getValue(), keys);
+			openAddressingTime = loop(openAddressingStore::get, keys);
+			perfectHashTime = loop(perfectHashStore::get, keys);
+		}
+
+		System.out.println("Entries : " + entries);
+		System.out.println("HashMap<String, PropertyValue> build time : " + hashMapBuildTime + "ms, footprint : " + hashMapFootprint / 1024 + "KB, lookup time : " + hashMapTime + "ms");
+		System.out.println("OpenAddressingStore build time : " + openAddressingBuildTime + "ms, footprint : " + openAddressingFootprint / 1024 + "KB, lookup time : " + openAddressingTime + "ms");
+		System.out.println("PerfectHashStore build time : " + perfectHashBuildTime + "ms, footprint : " + perfectHashFootprint / 1024 + "KB, lookup time : " + perfectHashTime + "ms");
+
+		assertEquals(entries, perfectHashStore.size());
+	}
+
+	private long loop(Function<String, String> lookup, String[] keys) {
+		final long start = System.currentTimeMillis();
+		for (int loop = 0; loop < 5; loop++) {
+			for (final String key : keys) {
+				if (lookup.apply(key) == null) {
+					throw new RuntimeException("Missing key " + key);
+				}
+			}
+		}
+		return System.currentTimeMillis() - start;
+	}
+
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.ProperltyBaseTest;
+
+public class PerfectHashStoreTest extends ProperltyBaseTest {
+
+	@Test
+	public void shouldReturnTheStoredValues() {
+		for (final int entries : new int[] {1, 2, 3, 10, 1000, 50_000}) {
+			final Map<String, String> properties = new LinkedHashMap<>();
+			for (int i = 0; i < entries; i++) {
+				properties.put("key." + i, "value." + i);
+			}
+
+			final Store store = PerfectHashStore.build(properties);
+
+			assertEquals(properties.size(), store.size());
+			properties.forEach((key, value) -> assertEquals(value, store.get(key)));
+			assertNull(store.get("key." + entries));
+			assertNull(store.get("other"));
+
+			final Map<String, String> content = new HashMap<>();
+			store.forEach(content::put);
+			assertEquals(properties, content);
+		}
+	}
+
+	@Test
+	public void shouldKeepKeysWithTheSameHashCode() {
+		final Map<String, String> properties = new LinkedHashMap<>();
+		// "Aa", "BB", "AaAa", "AaBB", "BBAa" and "BBBB" share their hashCodes
+		properties.put("Aa", "1");
+		properties.put("BB", "2");
+		properties.put("AaAa", "3");
+		properties.put("AaBB", "4");
+		properties.put("BBAa", "5");
+		properties.put("CC", "6");
+
+		final Store store = PerfectHashStore.build(properties);
+
+		assertEquals(6, store.size());
+		properties.forEach((key, value) -> assertEquals(value, store.get(key)));
+		assertNull(store.get("BBBB"));
+
+		final Map<String, String> content = new HashMap<>();
+		store.forEach(content::put);
+		assertEquals(properties, content);
+	}
+
+	@Test
+	public void shouldBuildEmptyStore() {
+		final Store store = PerfectHashStore.build(new HashMap<>());
+		assertEquals(0, store.size());
+		assertNull(store.get("key"));
+	}
+
+}
@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.store;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.ProperltyBaseTest;
+
+public class PrefixIndexTest extends ProperltyBaseTest {
+
+	@Test
+	public void shouldReturnTheKeysWithPrefix() {
+		final Map<String, String> properties = new HashMap<>();
+		properties.put("service.payments.db.pool.max", "10");
+		properties.put("service.payments.db.pool.min", "1");
+		properties.put("service.payments.db.url", "jdbc");
+		properties.put("service.payments", "enabled");
+		properties.put("service.orders.db.url", "jdbc2");
+		properties.put("other", "value");
+
+		final PrefixIndex index = new PrefixIndex(OpenAddressingStore.build(properties));
+
+		assertEquals(Arrays.asList("service.payments.db.pool.max", "service.payments.db.pool.min", "service.payments.db.url"),
+				new ArrayList<>(index.keysWithPrefix("service.payments.")));
+		assertEquals(Arrays.asList("service.payments.db.pool.max", "service.payments.db.pool.min"),
+				new ArrayList<>(index.keysWithPrefix("service.payments.db.p")));
+		assertEquals(4, index.keysWithPrefix("service.payments").size());
+		assertEquals(5, index.keysWithPrefix("serv").size());
+		assertEquals(6, index.keysWithPrefix("").size());
+		assertTrue(index.keysWithPrefix("service.paymentz").isEmpty());
+		assertTrue(index.keysWithPrefix("service.payments.db.pool.max.value").isEmpty());
+
+		assertTrue(index.keysWithPrefix("service.").contains("service.orders.db.url"));
+		assertFalse(index.keysWithPrefix("service.payments.").contains("service.orders.db.url"));
+		assertFalse(index.keysWithPrefix("service.payments.").contains("service.payments.db"));
+	}
+
+	@Test
+	public void shouldReturnTheEntriesWithPrefix() {
+		final Map<String, String> properties = new HashMap<>();
+		properties.put("db.url", "jdbc");
+		properties.put("db.user", "admin");
+		properties.put("dbx", "other");
+
+		final Map<String, String> subset = new PrefixIndex(OpenAddressingStore.build(properties)).entriesWithPrefix("db.");
+
+		assertEquals(2, subset.size());
+		assertEquals("jdbc", subset.get("db.url"));
+		assertNull(subset.get("dbx"));
+		assertFalse(subset.containsKey("dbx"));
+
+		final Map<String, String> expected = new HashMap<>();
+		expected.put("db.url", "jdbc");
+		expected.put("db.user", "admin");
+		assertEquals(expected, subset);
+	}
+
+	@Test
+	public void shouldMatchAFullScan() {
+		final Random random = new Random(0);
+		final Map<String, String> properties = new TreeMap<>();
+		for (int i = 0; i < 5000; i++) {
+			final StringBuilder key = new StringBuilder();
+			final int segments = 1 + random.nextInt(4);
+			for (int segment = 0; segment < segments; segment++) {
+				key.append(segment == 0 ? "" : ".").append("s").append(random.nextInt(5));
+			}
+			properties.put(key.toString(), "" + i);
+		}
+
+		final PrefixIndex index = new PrefixIndex(OpenAddressingStore.build(properties));
+
+		for (final String prefix : new String[] {"", "s", "s1", "s1.", "s1.s2", "s1.s2.s3.s4", "s9", "x"}) {
+			final List<String> expected = new ArrayList<>();
+			properties.keySet().stream().filter(key -> key.startsWith(prefix)).forEach(expected::add);
+			assertEquals(expected, new ArrayList<>(index.keysWithPrefix(prefix)));
+			assertEquals(expected.size(), index.keysWithPrefix(prefix).size());
+		}
+	}
+
+	@Test
+	public void anIndexWithAddedKeysShouldMatchARebuiltIndex() {
+		final Random random = new Random(0);
+		final Map<String, String> properties = new TreeMap<>();
+		for (int i = 0; i < 2000; i++) {
+			properties.put(randomKey(random), "" + i);
+		}
+		final PrefixIndex index = new PrefixIndex(OpenAddressingStore.build(properties));
+
+		for (int round = 0; round < 20; round++) {
+			final Map<String, String> derived = new TreeMap<>(properties);
+			final List<String> addedKeys = new ArrayList<>();
+			for (int i = 0; i < 10; i++) {
+				final String key = randomKey(random);
+				if (derived.put(key, "added") == null) {
+					addedKeys.add(key);
+				}
+			}
+			final Store store = OpenAddressingStore.build(derived);
+			final PrefixIndex derivedIndex = index.withKeys(store, addedKeys);
+			final PrefixIndex rebuiltIndex = new PrefixIndex(store);
+
+			for (final String prefix : new String[] {"", "s", "s1", "s1.", "s1.s2", "s2[", "s1.s2.s3", "x"}) {
+				assertEquals(new ArrayList<>(rebuiltIndex.keysWithPrefix(prefix)), new ArrayList<>(derivedIndex.keysWithPrefix(prefix)));
+				assertEquals(rebuiltIndex.keysWithPrefix(prefix).size(), derivedIndex.keysWithPrefix(prefix).size());
+			}
+			for (final String family : new String[] {"s1", "s2", "s1.s3"}) {
+				assertArrayEquals(rebuiltIndex.families().indexes(family), derivedIndex.families().indexes(family));
+				assertEquals(rebuiltIndex.families().children(family), derivedIndex.families().children(family));
+			}
+		}
+		assertEquals(properties.size(), index.keysWithPrefix("").size());
+	}
+
+	@Test
+	public void shouldAddKeysToAnEmptyIndex() {
+		final PrefixIndex index = new PrefixIndex(OpenAddressingStore.build(new HashMap<>()));
+		final Map<String, String> properties = new HashMap<>();
+		properties.put("db", "on");
+		properties.put("db.url", "jdbc");
+		final PrefixIndex derivedIndex = index.withKeys(OpenAddressingStore.build(properties), Arrays.asList("db.url", "db"));
+
+		assertEquals(Arrays.asList("db", "db.url"), new ArrayList<>(derivedIndex.keysWithPrefix("d")));
+		assertTrue(index.keysWithPrefix("").isEmpty());
+	}
+
+	@Test
+	public void shouldBuildEmptyIndex() {
+		final PrefixIndex index = new PrefixIndex(OpenAddressingStore.build(new HashMap<>()));
+		assertTrue(index.keysWithPrefix("").isEmpty());
+		assertTrue(index.entriesWithPrefix("a").isEmpty());
+	}
+
+	private static String randomKey(Random random) {
+		final StringBuilder key = new StringBuilder();
+		final int segments = 1 + random.nextInt(4);
+		for (int segment = 0; segment < segments; segment++) {
+			if (segment > 0 && random.nextBoolean()) {
+				key.append("[").append(random.nextInt(5)).append("]");
+			} else {
+				key.append(segment == 0 ? "" : ".").append("s").append(random.nextInt(5));
+			}
+		}
+		return key.toString();
+	}
+
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.template;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.ProperltyBaseTest;
+import com.ufoscout.properlty.exception.UnresolvablePlaceholdersException;
+import com.ufoscout.properlty.util.TokenScanner;
+
+public class TemplateTest extends ProperltyBaseTest {
+
+	private final TokenScanner scanner = TokenScanner.of("${", "}");
+
+	@Test
+	public void shouldRenderPlaceholders() {
+		final Map<String, String> values = new HashMap<>();
+		values.put("db.host", "10.10.10.10");
+		values.put("db.port", "5432");
+		values.put("tenant", "acme");
+
+		final Template template = Template.compile("jdbc:${db.host}:${db.port}/${tenant}", scanner, ":");
+		assertTrue(template.hasPlaceholders());
+		assertEquals("jdbc:10.10.10.10:5432/acme", template.render(values::get, false));
+	}
+
+	@Test
+	public void shouldRenderNestedPlaceholdersAndDefaultValues() {
+		final Map<String, String> values = new HashMap<>();
+		values.put("environment", "PROD");
+		values.put("PROD.host", "10.10.10.10");
+
+		final Template template = Template.compile("http://${${environment}.host}:${port:8080}/${path:}", scanner, ":");
+		assertEquals("http://10.10.10.10:8080/", template.render(values::get, false));
+	}
+
+	@Test
+	public void shouldKeepNotClosedDelimitersAsText() {
+		final Template template = Template.compile("a${b}c${d", scanner, ":");
+		assertEquals("aBc${d", template.render(key -> key.toUpperCase(), false));
+		assertFalse(Template.compile("no placeholders", scanner, ":").hasPlaceholders());
+	}
+
+	@Test
+	public void shouldRenderWithCustomDelimiters() {
+		final Template template = Template.compile("%(one)-%(two::-)", TokenScanner.of("%(", ")"), "::");
+		assertEquals("1--", template.render(key -> "one".equals(key) ? "1" : null, false));
+	}
+
+	@Test(expected=UnresolvablePlaceholdersException.class)
+	public void shouldFailOnUnresolvablePlaceholders() {
+		Template.compile("${one}", scanner, ":").render(key -> null, false);
+	}
+
+	@Test
+	public void shouldIgnoreUnresolvablePlaceholders() {
+		assertEquals("${one}", Template.compile("${one}", scanner, ":").render(key -> null, true));
+	}
+
+	@Test
+	public void shouldEvictLeastRecentlyUsedTemplates() {
+		final TemplateCache cache = new TemplateCache(scanner, ":", 2);
+		final Template one = cache.get("${one}");
+		final Template two = cache.get("${two}");
+
+		assertSame(one, cache.get("${one}"));
+		cache.get("${three}");
+
+		assertEquals(2, cache.size());
+		assertSame(one, cache.get("${one}"));
+		assertNotSame(two, cache.get("${two}"));
+	}
+
+}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.util;
+
+import static org.junit.Assert.assertNotNull;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.ProperltyBaseTest;
+import com.ufoscout.properlty.store.OpenAddressingStore;
+import com.ufoscout.properlty.store.Store;
+
+public class KeyPathBenchmark extends ProperltyBaseTest {
+
+	@Test
+	public void keyPathBenchmark() {
+		final int tenants = 10_000;
+		final Map<String, String> properties = new HashMap<>();
+		for (int i = 0; i < tenants; i++) {
+			properties.put("tenant." + i + ".db.url", "jdbc:tenant" + i);
+		}
+		final Store store = OpenAddressingStore.build(properties);
+		final KeyPath path = new KeyPath();
+		final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		final long thread = Thread.currentThread().getId();
+
+		for (int round = 0; round < 3; round++) {
+			long allocated = threads.getThreadAllocatedBytes(thread);
+			long start = System.currentTimeMillis();
+			for (int loop = 0; loop < 100; loop++) {
+				for (int id = 0; id < tenants; id++) {
+					assertNotNull(store.get("tenant." + id + ".db.url"));
+				}
+			}
+			final long concatTime = System.currentTimeMillis() - start;
+			final long concatAllocated = threads.getThreadAllocatedBytes(thread) - allocated;
+
+			allocated = threads.getThreadAllocatedBytes(thread);
+			start = System.currentTimeMillis();
+			for (int loop = 0; loop < 100; loop++) {
+				for (int id = 0; id < tenants; id++) {
+					assertNotNull(store.get(path.clear().segment("tenant").segment(id).segment("db").segment("url")));
+				}
+			}
+			final long pathTime = System.currentTimeMillis() - start;
+			final long pathAllocated = threads.getThreadAllocatedBytes(thread) - allocated;
+
+			System.out.println("Lookups : " + 100 * tenants);
+			System.out.println("Concatenated key lookup time : " + concatTime + "ms, allocated : " + concatAllocated / 1024 + "KB");
+			System.out.println("KeyPath lookup time : " + pathTime + "ms, allocated : " + pathAllocated / 1024 + "KB");
+		}
+	}
+
+}
@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.ProperltyBaseTest;
+
+public class KeyPathTest extends ProperltyBaseTest {
+
+	@Test
+	public void shouldJoinTheSegmentsWithDots() {
+		final KeyPath path = new KeyPath();
+
+		assertEquals("tenant.42.db.url", path.set("tenant", "42", "db", "url").toString());
+		assertEquals("tenant.42.db.url".hashCode(), path.hashCode());
+		assertEquals("", path.set().toString());
+		assertEquals(0, path.hashCode());
+		assertEquals("single", path.set("single").toString());
+
+		path.clear().append("service.").segment("tenant").segment(-7).segment(0).segment(Long.MIN_VALUE).segment(1234567890123L);
+		final String expected = "service.tenant.-7.0." + Long.MIN_VALUE + ".1234567890123";
+		assertEquals(expected, path.toString());
+		assertEquals(expected.hashCode(), path.hashCode());
+		assertEquals(expected.hashCode(), StringUtils.hashCode(path));
+	}
+
+	@Test
+	public void shouldGrowTheBuffer() {
+		final StringBuilder expected = new StringBuilder();
+		final KeyPath path = new KeyPath();
+		for (int i = 0; i < 100; i++) {
+			path.segment("segment").segment(i);
+			expected.append(i == 0 ? "" : ".").append("segment.").append(i);
+		}
+		assertEquals(expected.toString(), path.toString());
+		assertEquals(expected.toString().hashCode(), path.hashCode());
+	}
+
+}
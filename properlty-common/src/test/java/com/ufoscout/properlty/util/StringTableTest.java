@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.ProperltyBaseTest;
+
+public class StringTableTest extends ProperltyBaseTest {
+
+	@Test
+	public void shouldReturnTheSharedInstance() {
+		final StringTable table = new StringTable();
+		final String first = new String("localhost");
+		final String second = new String("localhost");
+
+		assertSame(first, table.canonical(first));
+		assertSame(first, table.canonical(second));
+		assertSame(first, table.canonical(first));
+		assertNull(table.canonical(null));
+		assertEquals(0, table.getDuplicates());
+
+		assertSame(first, table.retain(second));
+		assertSame(first, table.retain(new String("localhost")));
+		assertNull(table.retain(null));
+
+		assertEquals(1, table.getDuplicates());
+		// 24 bytes of String and 16 + 9 bytes of array aligned to 32
+		assertEquals(56, table.getSavedBytes());
+	}
+
+	@Test
+	public void shouldOnlyCountTheRetainedStrings() {
+		final StringTable table = new StringTable();
+		// the values of shadowed entries are shared but not retained
+		table.canonical(new String("localhost"));
+		table.canonical(new String("localhost"));
+		table.retain(new String("db.host"));
+		table.retain(new String("localhost"));
+
+		assertEquals(0, table.getDuplicates());
+		assertEquals(0, table.getSavedBytes());
+	}
+
+	@Test
+	public void shouldNotShareWithoutTable() {
+		final String first = new String("localhost");
+		final String second = new String("localhost");
+
+		assertSame(first, StringTable.NONE.canonical(first));
+		assertNotSame(first, StringTable.NONE.canonical(second));
+		assertNotSame(first, StringTable.NONE.retain(second));
+		assertEquals(0, StringTable.NONE.getDuplicates());
+	}
+
+}
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.util;
+
+import com.ufoscout.properlty.ProperltyBaseTest;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class StringUtilsBenchmark extends ProperltyBaseTest {
+
+	@Test
+	public void splitBenchmark() {
+		final String value = "alpha, beta, gamma, delta, epsilon, zeta, eta, theta";
+		final int iterations = 1_000_000;
+		for (int round = 0; round < 3; round++) {
+			long start = System.currentTimeMillis();
+			int tokens = 0;
+			for (int i = 0; i < iterations; i++) {
+				tokens += value.split(", ?").length;
+			}
+			System.out.println("String.split(regex): " + (System.currentTimeMillis() - start) + "ms");
+
+			start = System.currentTimeMillis();
+			for (int i = 0; i < iterations; i++) {
+				tokens += StringUtils.split(value, ", ?").length;
+			}
+			System.out.println("StringUtils.split(regex): " + (System.currentTimeMillis() - start) + "ms");
+
+			start = System.currentTimeMillis();
+			for (int i = 0; i < iterations; i++) {
+				tokens += value.split(", ").length;
+			}
+			System.out.println("String.split(\", \"): " + (System.currentTimeMillis() - start) + "ms");
+
+			start = System.currentTimeMillis();
+			for (int i = 0; i < iterations; i++) {
+				tokens += StringUtils.split(value, ", ").length;
+			}
+			System.out.println("StringUtils.split(\", \"): " + (System.currentTimeMillis() - start) + "ms");
+			assertEquals(0, tokens % iterations);
+		}
+	}
+
+}
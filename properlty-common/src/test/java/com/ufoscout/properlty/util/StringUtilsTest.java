@@ -20,7 +20,10 @@ import org.junit.Test;
 
 import java.util.List;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class StringUtilsTest extends ProperltyBaseTest {
@@ -28,6 +31,19 @@ public class StringUtilsTest extends ProperltyBaseTest {
 	private final String startDelimiter = "${";
 	private final String endDelimiter = "}";
 
+	@Test
+	public void shouldReturnTheKeyNamesOfTheAccessors() {
+		assertEquals("port", StringUtils.keyName("getPort"));
+		assertEquals("secure", StringUtils.keyName("isSecure"));
+		assertEquals("host", StringUtils.keyName("host"));
+		assertEquals("URL", StringUtils.keyName("URL"));
+		assertEquals("settings", StringUtils.keyName("settings"));
+		assertEquals("get", StringUtils.keyName("get"));
+		assertEquals("island", StringUtils.keyName("island"));
+		assertEquals("maxSize", StringUtils.keyName("setMaxSize", "set"));
+		assertEquals("getMaxSize", StringUtils.keyName("getMaxSize", "set"));
+	}
+
 	@Test
 	public void shouldReturnEmpty() {
 		final String input = "";
@@ -199,4 +215,28 @@ public class StringUtilsTest extends ProperltyBaseTest {
 		assertEquals("TOKEN_3", tokens.get(2));
 	}
 
+	@Test
+	public void shouldSplitLikeStringSplit() {
+		final String[] inputs = {"", "a", "a,b,c", ",a,,b,", ",,,", "a, b ,c", "a::b::::c::", "a.b|c", "a1b22c"};
+		final String[] separators = {",", "::", " ,", ".", "|", "\\|", "[0-9]+", ""};
+		for (final String input : inputs) {
+			for (final String separator : separators) {
+				assertArrayEquals(input + " / " + separator, input.split(separator), StringUtils.split(input, separator));
+			}
+		}
+	}
+
+	@Test
+	public void shouldReuseTheTokenScannerOfTheDelimiters() {
+		final TokenScanner scanner = StringUtils.tokenScanner(startDelimiter, endDelimiter);
+		assertSame(scanner, StringUtils.tokenScanner(new String(startDelimiter), new String(endDelimiter)));
+		assertEquals(startDelimiter, scanner.getStartDelimiter());
+		assertEquals(endDelimiter, scanner.getEndDelimiter());
+
+		final TokenScanner other = StringUtils.tokenScanner(startDelimiter, "}}");
+		assertNotSame(scanner, other);
+		assertEquals("}}", other.getEndDelimiter());
+		assertEquals("TOKEN", StringUtils.firstToken("${TOKEN}}", startDelimiter, "}}").get());
+	}
+
 }
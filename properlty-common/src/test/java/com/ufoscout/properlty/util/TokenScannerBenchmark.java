@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.ProperltyBaseTest;
+
+public class TokenScannerBenchmark extends ProperltyBaseTest {
+
+	@Test
+	public void scannersBenchmark() {
+		final String[] inputs = {
+				"8080", "true", "http://localhost/path/to/resource", "jdbc:postgresql://db.local:5432/app",
+				"${server.host}:${server.port}", "http://${${environment}.server.host}:${server.port}/"
+		};
+		final String[] customInputs = {
+				"8080", "true", "http://localhost/path/to/resource", "jdbc:postgresql://db.local:5432/app",
+				"%(server.host):%(server.port)", "http://%(%(environment).server.host):%(server.port)/"
+		};
+
+		final int loops = 1_000_000;
+		for (final String[] delimiters : new String[][] {{"${", "}"}, {"%(", ")"}}) {
+			final String[] data = "${".equals(delimiters[0]) ? inputs : customInputs;
+			final TokenScanner charScanner = new TokenScanner.CharTokenScanner(delimiters[0], delimiters[1]);
+			final TokenScanner stringScanner = new TokenScanner.StringTokenScanner(delimiters[0], delimiters[1]);
+
+			// warm up
+			loop(stringScanner, data, 10_000);
+			loop(charScanner, data, 10_000);
+
+			final long stringTime = loop(stringScanner, data, loops);
+			final long charTime = loop(charScanner, data, loops);
+
+			System.out.println("Delimiters " + delimiters[0] + " " + delimiters[1]);
+			System.out.println("String scanner time : " + stringTime + "ms");
+			System.out.println("Char scanner time : " + charTime + "ms");
+		}
+	}
+
+	private long loop(TokenScanner scanner, String[] inputs, int loops) {
+		final long start = System.currentTimeMillis();
+		int tokens = 0;
+		for (int i=0; i<loops; i++) {
+			for (final String input : inputs) {
+				if (scanner.hasTokens(input)) {
+					tokens += scanner.allTokens(input, true).size();
+				}
+			}
+		}
+		final long end = System.currentTimeMillis();
+		assertEquals(loops * 4, tokens);
+		return end - start;
+	}
+
+}
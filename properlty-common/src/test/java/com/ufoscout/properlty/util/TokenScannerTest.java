@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.ProperltyBaseTest;
+
+public class TokenScannerTest extends ProperltyBaseTest {
+
+	@Test
+	public void shouldPickCharScannerForShortDelimiters() {
+		assertTrue(TokenScanner.of("${", "}") instanceof TokenScanner.CharTokenScanner);
+		assertTrue(TokenScanner.of("%(", ")") instanceof TokenScanner.CharTokenScanner);
+		assertTrue(TokenScanner.of("((", "))") instanceof TokenScanner.CharTokenScanner);
+		assertTrue(TokenScanner.of("<<<", ">>>") instanceof TokenScanner.StringTokenScanner);
+	}
+
+	@Test
+	public void charAndStringScannersShouldFindTheSameTokens() {
+		final List<String> inputs = Arrays.asList(
+				"", "abcd", "${abcd}", "${${${abcd}}}", "aaa${abcd}aaa${efgh}", "__${abcd}__${efgh}__${abcd}",
+				"}${abcd", "${abcd", "$${abcd}}", "${}", "abcd${abcd}", "a${b${a}}", "%(a)%(%(b))", "((((key3))))__((key1))",
+				"$", "(", "%", "${a:default}", "}}}}${{{{");
+
+		for (final String[] delimiters : new String[][] {{"${", "}"}, {"%(", ")"}, {"((", "))"}, {"$", "}"}}) {
+			final TokenScanner charScanner = new TokenScanner.CharTokenScanner(delimiters[0], delimiters[1]);
+			final TokenScanner stringScanner = new TokenScanner.StringTokenScanner(delimiters[0], delimiters[1]);
+			for (final String input : inputs) {
+				assertEquals(stringScanner.hasTokens(input), charScanner.hasTokens(input));
+				assertEquals(stringScanner.firstToken(input), charScanner.firstToken(input));
+				assertEquals(stringScanner.allTokens(input, false), charScanner.allTokens(input, false));
+				assertEquals(stringScanner.allTokens(input, true), charScanner.allTokens(input, true));
+			}
+		}
+	}
+
+	@Test
+	public void shouldFindTokensWithCustomDelimiters() {
+		final TokenScanner scanner = TokenScanner.of("%(", ")");
+		assertFalse(scanner.hasTokens("%abc)"));
+		assertEquals("abcd", scanner.firstToken("aaa%(%(abcd))").get());
+		assertEquals(Arrays.asList("abcd", "efgh"), scanner.allTokens("__%(abcd)__%(efgh)__%(abcd)", true));
+	}
+
+}
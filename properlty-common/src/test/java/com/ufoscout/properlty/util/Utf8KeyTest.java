@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.ProperltyBaseTest;
+
+public class Utf8KeyTest extends ProperltyBaseTest {
+
+	@Test
+	public void shouldDecodeLikeString() {
+		final Utf8Key key = new Utf8Key();
+		for (final String text : new String[] {"", "db.url", "città", "名前.日本語", "emoji.😀", "€ and £", "a very long key that is longer than the initial buffer of the key, città"}) {
+			final byte[] bytes = ("__" + text + "__").getBytes(StandardCharsets.UTF_8);
+
+			assertSame(key, key.set(bytes, 2, bytes.length - 4));
+
+			assertEquals(text, key.toString());
+			assertEquals(text.length(), key.length());
+			assertEquals(text.hashCode(), key.hashCode());
+			assertEquals(text.hashCode(), StringUtils.hashCode(key));
+			assertEquals(text.hashCode(), StringUtils.hashCode(new StringBuilder(text)));
+		}
+	}
+
+	@Test
+	public void shouldDecodeMalformedBytesLikeString() {
+		final Utf8Key key = new Utf8Key();
+		final byte[][] malformed = {
+				{(byte) 0xC3},
+				{'a', (byte) 0xC3, 'b'},
+				{(byte) 0xC0, (byte) 0x80},
+				{(byte) 0xED, (byte) 0xA0, (byte) 0x80},
+				{(byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80},
+				{(byte) 0xFF, 'a'},
+				{(byte) 0x80}
+		};
+		for (final byte[] bytes : malformed) {
+			final String expected = new String(bytes, StandardCharsets.UTF_8);
+			key.set(bytes, 0, bytes.length);
+			assertEquals(expected, key.toString());
+			assertEquals(expected.hashCode(), key.hashCode());
+		}
+	}
+
+	@Test
+	public void shouldDecodeBuffersWithoutMovingThePosition() {
+		final byte[] bytes = "__città__".getBytes(StandardCharsets.UTF_8);
+		final ByteBuffer heap = ByteBuffer.wrap(bytes, 2, bytes.length - 4);
+		final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+		direct.put(bytes).position(2).limit(bytes.length - 2);
+
+		for (final ByteBuffer buffer : new ByteBuffer[] {heap, direct, heap.slice()}) {
+			final Utf8Key key = new Utf8Key().set(buffer);
+			assertEquals("città", key.toString());
+			assertEquals("città".hashCode(), key.hashCode());
+			assertEquals(buffer.position(), buffer == direct || buffer == heap ? 2 : 0);
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void shouldRejectSlicesOutOfTheArray() {
+		new Utf8Key().set(new byte[4], 2, 3);
+	}
+
+}
@@ -15,13 +15,48 @@
  */
 package com.ufoscout.properlty
 
-import com.ufoscout.properlty.reader.PropertyValue
+import com.ufoscout.properlty.convert.ConverterRegistry
+import com.ufoscout.properlty.exception.MissingPropertyException
+import com.ufoscout.properlty.store.BloomFilterStore
+import com.ufoscout.properlty.store.Derivation
+import com.ufoscout.properlty.store.HamtStore
+import com.ufoscout.properlty.store.OpenAddressingStore
+import com.ufoscout.properlty.store.OverlayStore
+import com.ufoscout.properlty.store.PrefixIndex
+import com.ufoscout.properlty.store.Store
+import com.ufoscout.properlty.template.TemplateCache
+import com.ufoscout.properlty.util.KeyPath
+import com.ufoscout.properlty.util.StringUtils
+import com.ufoscout.properlty.util.Utf8Key
 import java.math.BigDecimal
 import java.math.BigInteger
+import java.nio.ByteBuffer
 import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicReference
 import java.util.stream.Collectors
 
-class Properlty internal constructor(private val caseSensitive: Boolean, private val properties: Map<String, PropertyValue>) {
+class Properlty internal constructor(private val caseSensitive: Boolean,
+                                     private val ignoreUnresolvablePlaceholders: Boolean,
+                                     private val store: Store,
+                                     private val prefixIndex: PrefixIndex,
+                                     val buildStatistics: BuildStatistics,
+                                     private val templateCache: TemplateCache,
+                                     private val converters: ConverterRegistry,
+                                     private val templates: HamtStore,
+                                     private val prefix: String = "",
+                                     private val constants: MutableMap<Class<*>, MutableMap<String, Constant<*>>> = ConcurrentHashMap(),
+                                     private val memo: Memo = Memo(),
+                                     private val persistentStore: AtomicReference<HamtStore?> = AtomicReference(store as? HamtStore),
+                                     private val dependents: AtomicReference<Map<String, Set<String>>?> = AtomicReference()) {
+
+    /**
+     * The Bloom filter checked before reading the properties, if enabled with [ProperltyBuilder.bloomFilter].
+     * It reports the rejected lookups and the measured false positive rate.
+     * Instances created by [withOverrides] do not use the filter.
+     */
+    val bloomFilter: BloomFilterStore?
+        get() = (if (store is OverlayStore) store.base else store) as? BloomFilterStore
 
     /**
      * Return the property value associated with the given key.
@@ -31,12 +66,7 @@ class Properlty internal constructor(private val caseSensitive: Boolean, private
      * @return
      */
     operator fun get(key: String): String? {
-        var key_ = if (caseSensitive) {
-            key
-        } else {
-            key.toLowerCase()
-        }
-        return properties[key_]?.value
+        return lookup(key)
     }
 
     /**
@@ -52,6 +82,97 @@ class Properlty internal constructor(private val caseSensitive: Boolean, private
         return get(key) ?: defaultValue
     }
 
+    /**
+     * Return the property value associated with the key made of the given chars.
+     * If this instance is case sensitive, the chars are hashed and compared with the stored keys directly, so no String is created.
+     *
+     * @param key
+     * @return
+     */
+    operator fun get(key: CharSequence): String? {
+        return when {
+            !caseSensitive -> lookup(key.toString())
+            prefix.length == 0 -> store.get(key)
+            else -> store.get(KEY_PATHS.get().clear().append(prefix).append(key))
+        }
+    }
+
+    /**
+     * Return the property value associated with the key encoded in UTF-8 in the given slice of the array.
+     * The slice is decoded in a buffer reused by the calling thread, see [get].
+     *
+     * @param key
+     * @param offset
+     * @param length
+     * @return
+     */
+    operator fun get(key: ByteArray, offset: Int, length: Int): String? {
+        return get(UTF8_KEYS.get().set(key, offset, length))
+    }
+
+    /**
+     * Return the property value associated with the key encoded in UTF-8 between the position and the limit of the buffer.
+     * The position of the buffer is not changed. The key is decoded in a buffer reused by the calling thread, see [get].
+     *
+     * @param key
+     * @return
+     */
+    operator fun get(key: ByteBuffer): String? {
+        return get(UTF8_KEYS.get().set(key))
+    }
+
+    /**
+     * Return the property value associated with the key made of the given segments joined by dots,
+     * so getPath("tenant", "42", "db", "url") returns the value of "tenant.42.db.url".
+     * The segments are joined in a [KeyPath] reused by the calling thread and looked up as a [CharSequence] key,
+     * so no String is created for the key.
+     *
+     * @param segments
+     * @return
+     */
+    fun getPath(vararg segments: CharSequence): String? {
+        val path = KEY_PATHS.get().clear().append(prefix)
+        for (segment in segments) {
+            path.segment(segment)
+        }
+        return lookupPath(path)
+    }
+
+    /**
+     * Return the property value associated with the key made of the first segment, the decimal digits of the id
+     * and the other segments joined by dots, so getPath("tenant", 42, "db", "url") returns the value of "tenant.42.db.url".
+     * The id is written in the [KeyPath] reused by the calling thread, so neither the id nor the key become a String.
+     *
+     * @param first
+     * @param id
+     * @param segments
+     * @return
+     */
+    fun getPath(first: CharSequence, id: Long, vararg segments: CharSequence): String? {
+        val path = KEY_PATHS.get().clear().append(prefix).segment(first).segment(id)
+        for (segment in segments) {
+            path.segment(segment)
+        }
+        return lookupPath(path)
+    }
+
+    /**
+     * Return the property value associated with the key built by the caller in a [KeyPath].
+     * A caller that reads many composite keys can keep its own KeyPath and rebuild it for each key,
+     * e.g. path.clear().segment("tenant").segment(id).segment("db").segment("url"), so the lookup allocates nothing.
+     * The key is relative to the prefix of this instance, as the keys of [get].
+     *
+     * @param path
+     * @return
+     */
+    fun getPath(path: KeyPath): String? {
+        return lookupPath(if (prefix.length == 0) path else KEY_PATHS.get().clear().append(prefix).append(path))
+    }
+
+    private fun lookupPath(path: KeyPath): String? {
+        return if (caseSensitive) store.get(path) else store.get(normalize(path.toString()))
+    }
+
     /**
      * Return the property value associated with the given key and apply the map function to it.
 
@@ -117,6 +238,33 @@ class Properlty internal constructor(private val caseSensitive: Boolean, private
         return getBoolean(key) ?: defaultValue
     }
 
+    /**
+     * Return the property value associated with the given key converted to the given type
+     * by the converter registered in the [ProperltyBuilder].
+     * The converted value is computed once per key and type and then reused, except a null value returned by the converter.
+     *
+     * @param key
+     * @param type
+     * @return
+     * @throws IllegalArgumentException if there is no converter for the type
+     */
+    @Suppress("UNCHECKED_CAST")
+    operator fun <T> get(key: String, type: Class<T>): T? {
+        val storeKey = key(key)
+        // the values are grouped by type, so a value already converted is found without building a composite key
+        val typeValues = Memo.group(memo.values, type)
+        val value = typeValues[storeKey]
+        if (value != null) {
+            return value as T
+        }
+        val raw = store.get(storeKey) ?: return null
+        val convertedValue = converter(type).apply(raw)
+        if (convertedValue != null) {
+            typeValues.putIfAbsent(storeKey, convertedValue)
+        }
+        return convertedValue
+    }
+
     /**
      * Return the property value associated with the given key.
 
@@ -288,23 +436,30 @@ class Properlty internal constructor(private val caseSensitive: Boolean, private
      * @return
      */
     fun getArray(key: String, separator: String = Default.LIST_SEPARATOR): Array<String> {
-        val value = get(key)
-        if (value!=null) {
-            return value.split(separator.toRegex()).dropLastWhile { it.isEmpty() }.toTypedArray()
-        }
-        return arrayOf()
+        return getList(key, separator).toTypedArray()
     }
 
     /**
      * Return the property value associated with the given key split with the specific separator.
      * The default separator is [Default.LIST_SEPARATOR]
+     * The separator is a regex only if it contains regex meta characters, otherwise it is matched literally.
+     * The returned list is immutable, it is computed once per key and separator and then reused.
      *
      * @param key
      * @param separator
      * @return
      */
     fun getList(key: String, separator: String = Default.LIST_SEPARATOR): List<String> {
-        return Arrays.asList(*getArray(key, separator))
+        val storeKey = key(key)
+        val lists = Memo.group(memo.lists, separator)
+        val list = lists[storeKey]
+        if (list != null) {
+            return list
+        }
+        val value = store.get(storeKey) ?: return emptyList()
+        val tokens = Collections.unmodifiableList(Arrays.asList(*StringUtils.split(value, separator)))
+        lists.putIfAbsent(storeKey, tokens)
+        return tokens
     }
 
     /**
@@ -331,8 +486,319 @@ class Properlty internal constructor(private val caseSensitive: Boolean, private
         return getList(key, separator).stream().map(map).collect(Collectors.toList())
     }
 
+    /**
+     * Return the property value associated with the given key split with the specific separator
+     * and convert each element to the given type with the converter registered in the [ProperltyBuilder].
+     * The default separator is [Default.LIST_SEPARATOR]
+     * The returned list is immutable, it is computed once per key, separator and type and then reused.
+     *
+     * @param key
+     * @param type
+     * @param separator
+     * @return
+     */
+    @Suppress("UNCHECKED_CAST")
+    fun <T> getList(key: String, type: Class<T>, separator: String = Default.LIST_SEPARATOR): List<T> {
+        val storeKey = key(key)
+        val lists = Memo.group(Memo.group(memo.convertedLists, type), separator)
+        val list = lists[storeKey]
+        if (list != null) {
+            return list as List<T>
+        }
+        val tokens = getList(key, separator)
+        if (tokens.isEmpty()) {
+            return emptyList()
+        }
+        val converter = converter(type)
+        val values = Collections.unmodifiableList(tokens.map { converter.apply(it) })
+        lists.putIfAbsent(storeKey, values)
+        return values
+    }
+
+    /**
+     * Return the values of the keys name[0], name[1] and so on, in the order of their indexes.
+     * Missing indexes are skipped, as well as the indexes that only have sub keys, like name[2].host.
+     * The indexes are read from the prefix index, the returned list is immutable and it is computed once per name.
+     *
+     * @param name
+     * @return
+     */
+    fun getIndexedValues(name: String): List<String> {
+        val storeKey = key(name)
+        val cached = memo.indexedValues[storeKey]
+        if (cached != null) {
+            return cached
+        }
+        val values = Collections.unmodifiableList(prefixIndex.families().indexes(storeKey).map { store.get("$storeKey[$it]") }.filterNotNull())
+        memo.indexedValues.putIfAbsent(storeKey, values)
+        return values
+    }
+
+    /**
+     * Return a view for each index of the keys like name[index].key, in the order of the indexes,
+     * so getIndexedList("servers")[0]["host"] returns the value of "servers[0].host".
+     * The indexes are read from the prefix index, the returned list is immutable and it is computed once per name.
+     *
+     * @param name
+     * @return
+     */
+    fun getIndexedList(name: String): List<Properlty> {
+        val storeKey = key(name)
+        val cached = memo.indexedLists[storeKey]
+        if (cached != null) {
+            return cached
+        }
+        val list = Collections.unmodifiableList(prefixIndex.families().indexes(storeKey).map { subset("$name[$it].") })
+        memo.indexedLists.putIfAbsent(storeKey, list)
+        return list
+    }
+
+    /**
+     * Return a view for each segment that follows name in the keys like name.segment.key, in lexicographic order of the segments,
+     * so getMap("routes")["a"]!!["target"] returns the value of "routes.a.target".
+     * The segments are read from the prefix index, the returned map is immutable and it is computed once per name.
+     *
+     * @param name
+     * @return
+     */
+    fun getMap(name: String): Map<String, Properlty> {
+        val storeKey = key(name)
+        val cached = memo.maps[storeKey]
+        if (cached != null) {
+            return cached
+        }
+        val views = LinkedHashMap<String, Properlty>()
+        for (segment in prefixIndex.families().children(storeKey)) {
+            views[segment] = subset("$name.$segment.")
+        }
+        val map = Collections.unmodifiableMap(views)
+        memo.maps.putIfAbsent(storeKey, map)
+        return map
+    }
+
+    /**
+     * Return a read-only view of the keys that start with the given prefix, in lexicographic order.
+     * The view is created in a time proportional to the prefix length.
+     *
+     * @param prefix
+     * @return
+     */
+    fun keysWithPrefix(prefix: String): Set<String> {
+        return prefixIndex.keysWithPrefix(this.prefix, normalize(prefix))
+    }
+
+    /**
+     * Return a view of the properties whose keys start with the given prefix.
+     * The view shares the properties of this instance and strips the prefix from the keys,
+     * so subset("db.")["url"] returns the value of "db.url". Creating a view does not copy any property.
+     *
+     * @param prefix
+     * @return
+     */
+    fun subset(prefix: String): Properlty {
+        return Properlty(caseSensitive, ignoreUnresolvablePlaceholders, store, prefixIndex, buildStatistics, templateCache, converters, templates,
+                this.prefix + normalize(prefix), constants, memo, persistentStore, dependents)
+    }
+
+    /**
+     * Return a new instance with the given values in place of the values of this instance.
+     * The properties whose placeholders refer to an overridden key are rendered again, and the overridden
+     * values can contain placeholders too. This instance is not modified.
+     *
+     * The new instance is backed by a [HamtStore] that shares all the unchanged properties with this instance,
+     * so deriving it costs O(k log n) for k overridden keys, plus the rendering of the properties that depend on them;
+     * the keys read by each property that contains placeholders are indexed on the first call.
+     * If this instance is not backed by a [HamtStore], one is built in bulk on the first call and reused afterwards.
+     * The prefix index of the new instance shares the tree of this instance and only adds the new keys.
+     *
+     * @param overrides
+     * @return
+     */
+    fun withOverrides(overrides: Map<String, String>): Properlty {
+        var base = persistentStore.get()
+        if (base == null) {
+            persistentStore.compareAndSet(null, HamtStore.of(store))
+            base = persistentStore.get()!!
+        }
+        val derivation = derive(overrides)
+        val derived = base.withAll(derivation.changes)
+        val derivedIndex = prefixIndex.withKeys(derived, addedKeys(derivation))
+        return Properlty(caseSensitive, ignoreUnresolvablePlaceholders, derived, derivedIndex, buildStatistics, templateCache,
+                converters, derivation.templates, prefix)
+    }
+
+    /**
+     * Return a new instance made of a small delta over the properties of this instance.
+     * The delta holds the given values and the properties whose placeholders refer to an overridden key, rendered again.
+     * Lookups check the delta first and then the properties of this instance, which are shared and never copied;
+     * this fits many tenants, each one with a few overrides over the same large base configuration.
+     * This instance is not modified.
+     *
+     * @param overrides
+     * @return
+     */
+    fun overlay(overrides: Map<String, String>): Properlty {
+        val derivation = derive(overrides)
+        val overlay = OverlayStore.of(store, derivation.changes)
+        val overlayIndex = prefixIndex.withKeys(overlay, addedKeys(derivation))
+        return Properlty(caseSensitive, ignoreUnresolvablePlaceholders, overlay, overlayIndex, buildStatistics, templateCache,
+                converters, derivation.templates, prefix)
+    }
+
+    /**
+     * Return the keys added, removed and changed from the properties of this instance to the properties of the given one.
+     * When one instance is derived from the other or both are derived from the same instance through
+     * [withOverrides] or [overlay], only the properties they do not share are compared,
+     * so the cost is proportional to the number of changes; the properties of unrelated instances are all compared.
+     * The keys of views are compared without their prefix.
+     *
+     * @param other
+     * @return
+     */
+    fun diff(other: Properlty): PropertiesDiff {
+        if (prefix != other.prefix) {
+            return PropertiesDiff.of(OpenAddressingStore.build(asMap()), OpenAddressingStore.build(other.asMap()))
+        }
+        return PropertiesDiff.of(lineageStore(other.store), other.lineageStore(store)).subset(prefix)
+    }
+
+    /**
+     * Return the store to compare with the given one: when the given one derives from a [HamtStore]
+     * and this instance is not backed by one, the [HamtStore] built by [withOverrides]
+     * shares its structure with the given one.
+     */
+    private fun lineageStore(other: Store): Store {
+        val persistent = persistentStore.get()
+        return if (persistent != null && root(store) !is HamtStore && root(other) is HamtStore) persistent else store
+    }
+
+    private fun root(store: Store): Store = when (store) {
+        is BloomFilterStore -> root(store.store)
+        is OverlayStore -> root(store.base)
+        else -> store
+    }
+
+    /**
+     * Return the keys of the changes that are not in the store of this instance
+     */
+    private fun addedKeys(derivation: Derivation): List<String> {
+        return derivation.changes.keys.filter { store.get(it) == null }
+    }
+
+    private fun derive(overrides: Map<String, String>): Derivation {
+        var templateDependents = dependents.get()
+        if (templateDependents == null) {
+            dependents.compareAndSet(null, Derivation.dependents(store, templates, templateCache, { normalize(it) }, ignoreUnresolvablePlaceholders))
+            templateDependents = dependents.get()!!
+        }
+        val storeOverrides = LinkedHashMap<String, String>()
+        overrides.forEach { key, value -> storeOverrides[key(key)] = value }
+        return Derivation.derive(store, templates, templateDependents, storeOverrides, templateCache, { normalize(it) }, ignoreUnresolvablePlaceholders)
+    }
+
+    /**
+     * Return a read-only view of the properties of this instance, in lexicographic order of the keys.
+     *
+     * @return
+     */
+    fun asMap(): Map<String, String> {
+        return prefixIndex.entriesWithPrefix(prefix, "")
+    }
+
+    /**
+     * Return a [Constant] that holds the value of the given key converted to the given type.
+     * The same [Constant] is returned for the same key and type.
+     * The value is converted by the converter registered in the [ProperltyBuilder].
+     *
+     * Only the MethodHandle returned by [Constant.handle] is inlined by the JIT compiler, and only if it is kept
+     * in a static final field (e.g. a companion object @JvmField) and invoked with invokeExact and the unboxed return type,
+     * e.g. a boolean for a Constant<Boolean>.
+     * [Constant.get] reads the value through the call site on each call, even if the Constant is kept in a static final field.
+     *
+     * @param key
+     * @param type
+     * @return
+     * @throws MissingPropertyException if the key is not present
+     */
+    @Suppress("UNCHECKED_CAST")
+    fun <T> constant(key: String, type: Class<T>): Constant<T> {
+        val storeKey = key(key)
+        // the constants are grouped by type, so a constant already created is found without building a composite key
+        val typeConstants = Memo.group(constants, type)
+        typeConstants[storeKey]?.let { return it as Constant<T> }
+        return typeConstants.computeIfAbsent(storeKey) {
+            val value = store.get(storeKey) ?: throw MissingPropertyException("Property [$storeKey] not found")
+            Constant(storeKey, type, converter(type).apply(value))
+        } as Constant<T>
+    }
+
+    /**
+     * Render a template replacing its placeholders with the given variables or, if not found there, with the properties values.
+     * The template uses the same placeholders syntax, delimiters and default value separator of the properties.
+     * Compiled templates are cached, so rendering the same template again does not tokenize it again.
+     *
+     * @param template
+     * @param extraVars variables that override the properties values
+     * @return
+     * @throws com.ufoscout.properlty.exception.UnresolvablePlaceholdersException if a placeholder cannot be resolved and unresolvable placeholders are not ignored
+     */
+    fun render(template: String, extraVars: Map<String, String> = emptyMap()): String {
+        return templateCache.get(template).render({ extraVars[it] ?: get(it) }, ignoreUnresolvablePlaceholders)
+    }
+
+    private fun <T> converter(type: Class<T>): java.util.function.Function<String, T> {
+        return converters.get(type) ?: throw IllegalArgumentException("No converter registered for type " + type.name)
+    }
+
+    /**
+     * Return the value of the given key. The key of a view is joined to the prefix in a [KeyPath]
+     * reused by the calling thread, so no String is created for it.
+     */
+    private fun lookup(key: String): String? {
+        val normalized = normalize(key)
+        return if (prefix.length == 0) store.get(normalized) else store.get(KEY_PATHS.get().clear().append(prefix).append(normalized))
+    }
+
+    /**
+     * Return the key of the store that corresponds to the given key of this instance.
+     */
+    internal fun key(key: String): String {
+        val normalized = normalize(key)
+        return if (prefix.length == 0) normalized else prefix + normalized
+    }
+
+    internal fun normalize(key: String): String {
+        return if (caseSensitive) key else key.toLowerCase()
+    }
+
+    /**
+     * The values computed from the properties and reused by the getters, shared by an instance and its views.
+     * Each kind of value has its own maps, keyed by store key, so a memoized value is found without building a composite key.
+     */
+    internal class Memo {
+        val values: MutableMap<Class<*>, MutableMap<String, Any>> = ConcurrentHashMap()
+        val lists: MutableMap<String, MutableMap<String, List<String>>> = ConcurrentHashMap()
+        val convertedLists: MutableMap<Class<*>, MutableMap<String, MutableMap<String, List<*>>>> = ConcurrentHashMap()
+        val indexedValues: MutableMap<String, List<String>> = ConcurrentHashMap()
+        val indexedLists: MutableMap<String, List<Properlty>> = ConcurrentHashMap()
+        val maps: MutableMap<String, Map<String, Properlty>> = ConcurrentHashMap()
+
+        companion object {
+            /**
+             * Return the map of the given group, creating it on the first call
+             */
+            fun <K, V> group(groups: MutableMap<K, MutableMap<String, V>>, group: K): MutableMap<String, V> {
+                return groups[group] ?: groups.computeIfAbsent(group) { ConcurrentHashMap() }
+            }
+        }
+    }
+
     companion object {
 
+        private val UTF8_KEYS = ThreadLocal.withInitial { Utf8Key() }
+
+        private val KEY_PATHS = ThreadLocal.withInitial { KeyPath() }
+
         fun builder(): ProperltyBuilder {
             return ProperltyBuilder()
         }
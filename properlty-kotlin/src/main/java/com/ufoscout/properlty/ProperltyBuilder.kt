@@ -15,12 +15,25 @@
  */
 package com.ufoscout.properlty
 
+import com.ufoscout.properlty.convert.ConverterRegistry
+import com.ufoscout.properlty.reader.PlaceholderResolver
 import com.ufoscout.properlty.reader.PropertiesResourceReader
 import com.ufoscout.properlty.reader.Reader
 import com.ufoscout.properlty.reader.decorator.PriorityQueueDecoratorReader
 import com.ufoscout.properlty.reader.decorator.ReplacerDecoratorReader
+import com.ufoscout.properlty.store.BloomFilterStore
+import com.ufoscout.properlty.store.HamtStore
+import com.ufoscout.properlty.store.OpenAddressingStore
+import com.ufoscout.properlty.store.PrefixIndex
+import com.ufoscout.properlty.store.Store
+import com.ufoscout.properlty.store.StoreFactory
+import com.ufoscout.properlty.template.TemplateCache
+import com.ufoscout.properlty.util.StringTable
+import com.ufoscout.properlty.util.TokenScanner
 import java.nio.charset.Charset
 import java.nio.charset.StandardCharsets
+import java.util.concurrent.Executor
+import java.util.concurrent.ForkJoinPool
 
 class ProperltyBuilder internal constructor() {
 
@@ -51,10 +64,24 @@ class ProperltyBuilder internal constructor() {
     var defaultValueSeparator = Default.DEFAULT_DEFAULT_VALUE_SEPARATOR
         private set
 
+    private var tokenScanner = TokenScanner.of(startDelimiter, endDelimiter)
+
     private var ignoreUnresolvablePlaceholders = false
 
     private var caseSensitive = true
 
+    private var deduplicate = false
+
+    private var bloomFilter = false
+
+    private var templateCacheSize = Default.TEMPLATE_CACHE_SIZE
+
+    private var resolver: PlaceholderResolver? = null
+
+    private var storeFactory: StoreFactory = StoreFactory { OpenAddressingStore.build(it) }
+
+    private val converters = ConverterRegistry()
+
     /*
     init {
         reader.add(EnvironmentVariablesReader(), environmentVariablesPriority)
@@ -103,7 +130,34 @@ class ProperltyBuilder internal constructor() {
      * @return
      */
     fun build(): Properlty {
-        return Properlty(caseSensitive, ReplacerDecoratorReader(reader, startDelimiter, endDelimiter, defaultValueSeparator, ignoreUnresolvablePlaceholders, caseSensitive).read())
+        val statistics = BuildStatistics()
+        val templates = HashMap<String, String>()
+        val replacer = ReplacerDecoratorReader(reader, tokenScanner, defaultValueSeparator, ignoreUnresolvablePlaceholders, caseSensitive)
+                .statistics(statistics)
+                .resolver(resolver)
+                .templates(templates)
+        val templateCache = TemplateCache(tokenScanner, defaultValueSeparator, templateCacheSize)
+        val table = if (deduplicate) StringTable() else StringTable.NONE
+        val properties = LinkedHashMap<String, String>()
+        // resolved values and normalized keys are new Strings, so they pass through the table again
+        replacer.read(table).forEach { key, value -> properties[table.retain(key)] = table.retain(value.value) }
+        statistics.deduplicatedStrings(table.duplicates).deduplicatedBytes(table.savedBytes)
+        val builtStore = storeFactory.build(properties)
+        val store = if (bloomFilter) BloomFilterStore.of(builtStore) else builtStore
+        return Properlty(caseSensitive, ignoreUnresolvablePlaceholders, store, PrefixIndex(store), statistics, templateCache, converters.copy(), HamtStore.build(templates))
+    }
+
+    /**
+     * Build a [ReloadableProperlty] whose snapshots are built by this builder,
+     * so each [ReloadableProperlty.reload] reads all the [Reader]s again.
+     * The change listeners run on the given executor, by default the [ForkJoinPool.commonPool].
+     * The builder should not be modified afterwards.
+     *
+     * @param executor
+     * @return
+     */
+    fun buildReloadable(executor: Executor = ForkJoinPool.commonPool()): ReloadableProperlty {
+        return ReloadableProperlty({ build() }, executor)
     }
 
     /**
@@ -116,6 +170,7 @@ class ProperltyBuilder internal constructor() {
     fun delimiters(startDelimiter: String = Default.START_DELIMITER, endDelimiter: String = Default.END_DELIMITER): ProperltyBuilder {
         this.startDelimiter = startDelimiter
         this.endDelimiter = endDelimiter
+        this.tokenScanner = TokenScanner.of(startDelimiter, endDelimiter)
         return this
     }
 
@@ -144,4 +199,83 @@ class ProperltyBuilder internal constructor() {
         return this
     }
 
+    /**
+     * Whether equal keys and values read from the different readers should share a single String instance.
+     * The number of replaced instances and the saved bytes are reported in the [BuildStatistics].
+     * Default is false.
+     *
+     * @param deduplicate
+     * @return
+     */
+    fun deduplicate(deduplicate: Boolean): ProperltyBuilder {
+        this.deduplicate = deduplicate
+        return this
+    }
+
+    /**
+     * Whether the lookups should check a Bloom filter of the keys before reading the [Store],
+     * so most lookups of missing keys return after a few bit probes.
+     * The filter and its false positive rate are available through [Properlty.bloomFilter].
+     * Default is false.
+     *
+     * @param bloomFilter
+     * @return
+     */
+    fun bloomFilter(bloomFilter: Boolean): ProperltyBuilder {
+        this.bloomFilter = bloomFilter
+        return this
+    }
+
+    /**
+     * The maximum number of compiled templates cached by [Properlty.render].
+     * Default is [Default.TEMPLATE_CACHE_SIZE]
+     *
+     * @param templateCacheSize
+     * @return
+     */
+    fun templateCacheSize(templateCacheSize: Int): ProperltyBuilder {
+        this.templateCacheSize = templateCacheSize
+        return this
+    }
+
+    /**
+     * Register the converter used by [Properlty.get] to convert the values to the given type.
+     * Converters for String, the primitive types, BigDecimal, BigInteger, enums, [java.time.Duration],
+     * [java.net.InetSocketAddress], [java.net.URI], [java.nio.file.Path] and
+     * [com.ufoscout.properlty.convert.DataSize] are already available and can be overridden.
+     *
+     * @param type
+     * @param converter
+     * @return
+     */
+    fun <T> converter(type: Class<T>, converter: (String) -> T): ProperltyBuilder {
+        converters.register(type, java.util.function.Function<String, T> { converter(it) })
+        return this
+    }
+
+    /**
+     * Set a [PlaceholderResolver] that provides the placeholders not defined by any [Reader].
+     * It is called once per resolution round with all the missing keys.
+     * The resolved values replace the placeholders only, they are not added to the properties.
+     *
+     * @param resolver
+     * @return
+     */
+    fun resolver(resolver: PlaceholderResolver): ProperltyBuilder {
+        this.resolver = resolver
+        return this
+    }
+
+    /**
+     * Set the [StoreFactory] that builds the [Store] holding the resolved properties.
+     * Default is [OpenAddressingStore.build]
+     *
+     * @param storeFactory
+     * @return
+     */
+    fun store(storeFactory: StoreFactory): ProperltyBuilder {
+        this.storeFactory = storeFactory
+        return this
+    }
+
 }
@@ -0,0 +1,234 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ufoscout.properlty
+
+import com.ufoscout.properlty.exception.MissingPropertyException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.Executor
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * Holds the current snapshot of a [Properlty] that can be reloaded.
+ *
+ * Each snapshot is an immutable [Properlty]; reading the current one is a single volatile read and never locks,
+ * so readers that keep a snapshot see a consistent set of properties even while a new one is published.
+ * Writers publish a new snapshot with [compareAndSet] or [reload]; then the [Constant]s returned by [constant]
+ * are updated and the registered [ChangeListener]s are notified with the [PropertiesDiff] of the two snapshots.
+ * The new values of the constants are converted before publishing, so a snapshot whose values cannot be converted
+ * is never published.
+ *
+ * The listeners run on the executor, one change at a time and in publication order,
+ * so a slow listener never delays the publication or the reads.
+ *
+ * @author Francesco Cina
+ */
+class ReloadableProperlty(private val loader: () -> Properlty,
+                          private val executor: Executor = ForkJoinPool.commonPool()) {
+
+    private val current = AtomicReference(loader())
+    private val listeners = CopyOnWriteArrayList<ChangeListener>()
+    private val constants = ConcurrentHashMap<Class<*>, MutableMap<String, TypedConstant<*>>>()
+    private val pendingChanges = ConcurrentLinkedQueue<PropertiesDiff>()
+    private val dispatching = AtomicBoolean()
+    private val publishLock = Any()
+
+    /**
+     * Return the current snapshot.
+     *
+     * @return
+     */
+    fun current(): Properlty {
+        return current.get()
+    }
+
+    /**
+     * Load a new snapshot and publish it if no other snapshot was published while it was loaded.
+     *
+     * @return true if the new snapshot was published
+     */
+    fun reload(): Boolean {
+        val expected = current.get()
+        return compareAndSet(expected, loader())
+    }
+
+    /**
+     * Publish the next snapshot if the current one is the expected one.
+     * E.g. compareAndSet(current, current.withOverrides(overrides)) publishes some overridden values.
+     *
+     * @param expected
+     * @param next
+     * @return true if the next snapshot was published
+     * @throws RuntimeException the exception of the converter, if a changed value of a [Constant] cannot be converted,
+     * or an [IllegalStateException] if the converter returns null; the snapshot is not published
+     */
+    fun compareAndSet(expected: Properlty, next: Properlty): Boolean {
+        if (current.get() !== expected) {
+            return false
+        }
+        // the diff is computed before publishing, so the lock is held only to keep the listeners in publication order
+        val diff = expected.diff(next)
+        try {
+            synchronized(publishLock) {
+                if (current.get() !== expected) {
+                    return false
+                }
+                // a conversion failure throws here, before the snapshot is published
+                val constantUpdates = convertConstants(next, diff)
+                current.set(next)
+                if (!diff.isEmpty) {
+                    pendingChanges.add(diff)
+                }
+                constantUpdates.forEach { it() }
+            }
+        } finally {
+            dispatch()
+        }
+        return true
+    }
+
+    /**
+     * Register a listener notified after each published snapshot that changes at least one property.
+     *
+     * @param listener
+     * @return
+     */
+    fun addListener(listener: ChangeListener): ReloadableProperlty {
+        listeners.add(listener)
+        return this
+    }
+
+    /**
+     * Remove a registered listener.
+     *
+     * @param listener
+     * @return
+     */
+    fun removeListener(listener: ChangeListener): ReloadableProperlty {
+        listeners.remove(listener)
+        return this
+    }
+
+    /**
+     * Return a [Constant] that holds the value of the given key in the current snapshot, converted to the given type.
+     * It is updated when a new snapshot changes the value of the key; when a new snapshot removes the key, it keeps its last value.
+     * The same [Constant] is returned for the same key and type.
+     *
+     * @param key
+     * @param type
+     * @return
+     * @throws MissingPropertyException if the key is not present
+     */
+    @Suppress("UNCHECKED_CAST")
+    fun <T> constant(key: String, type: Class<T>): Constant<T> {
+        synchronized(publishLock) {
+            val snapshot = current.get()
+            // the store key identifies the constant, while the snapshot is read with the key of the view
+            val storeKey = snapshot.key(key)
+            val viewKey = snapshot.normalize(key)
+            val typeConstants = constants.getOrPut(type) { ConcurrentHashMap() }
+            return typeConstants.getOrPut(storeKey) {
+                val value = snapshot[viewKey, type] ?: throw MissingPropertyException("Property [$storeKey] not found")
+                TypedConstant(Constant(storeKey, type, value), viewKey, type)
+            }.constant as Constant<T>
+        }
+    }
+
+    /**
+     * Convert the new values of the constants whose keys are changed or added by the diff
+     * and return the updates that set them.
+     */
+    private fun convertConstants(next: Properlty, diff: PropertiesDiff): List<() -> Unit> {
+        if (diff.isEmpty) {
+            return emptyList()
+        }
+        val updates = mutableListOf<() -> Unit>()
+        for (typeConstants in constants.values) {
+            for (typedConstant in typeConstants.values) {
+                // the keys of the diff of two views are the keys of the views
+                val key = typedConstant.key
+                if (diff.changed.containsKey(key) || diff.added.containsKey(key)) {
+                    updates.add(typedConstant.update(next))
+                }
+            }
+        }
+        return updates
+    }
+
+    /**
+     * Run the listeners on the executor with the pending changes, unless they are already running.
+     */
+    private fun dispatch() {
+        if (pendingChanges.isEmpty() || !dispatching.compareAndSet(false, true)) {
+            return
+        }
+        try {
+            executor.execute { notifyListeners() }
+        } catch (e: RejectedExecutionException) {
+            // the changes stay pending and are notified by the next dispatch
+            dispatching.set(false)
+            val thread = Thread.currentThread()
+            thread.uncaughtExceptionHandler.uncaughtException(thread, e)
+        }
+    }
+
+    /**
+     * Notify the listeners of the pending changes, then dispatch the changes added meanwhile.
+     */
+    private fun notifyListeners() {
+        try {
+            while (true) {
+                val diff = pendingChanges.poll() ?: break
+                for (listener in listeners) {
+                    try {
+                        listener.onChange(diff)
+                    } catch (e: RuntimeException) {
+                        // a failing listener does not prevent the others from being notified
+                        val thread = Thread.currentThread()
+                        thread.uncaughtExceptionHandler.uncaughtException(thread, e)
+                    }
+                }
+            }
+        } finally {
+            dispatching.set(false)
+        }
+        // a change added after the last poll and before the flag was reset is not lost
+        dispatch()
+    }
+
+    /**
+     * A [Constant] with the type used to convert its new values
+     */
+    private class TypedConstant<T>(val constant: Constant<T>, val key: String, private val type: Class<T>) {
+
+        /**
+         * Convert the value of the key in the snapshot and return the update that sets it
+         *
+         * @throws IllegalStateException if the converter returns null
+         */
+        fun update(snapshot: Properlty): () -> Unit {
+            val value = snapshot[key, type]
+                    ?: throw IllegalStateException("Property [${constant.key}] cannot be converted to ${type.name}: the converter returned null")
+            return { constant.set(value) }
+        }
+
+    }
+
+}
@@ -25,6 +25,7 @@ import org.junit.Test
 import java.io.FileNotFoundException
 import java.nio.charset.StandardCharsets
 import java.util.*
+import java.util.concurrent.Executor
 
 class ProperltyBuilderTest : ProperltyBaseTest() {
 
@@ -268,6 +269,78 @@ class ProperltyBuilderTest : ProperltyBaseTest() {
 
     }
 
+    @Test
+    fun shouldExposeBuildStatistics() {
+        val prop = Properlty.builder()
+                .add(Properties.add("key1", "value1").add("key2", "\${key1}").add("key3", "8080"))
+                .build()
+
+        assertEquals(2, prop.buildStatistics.literalValues)
+        assertEquals(1, prop.buildStatistics.templatedValues)
+    }
+
+    @Test
+    fun shouldDeduplicateKeysAndValues() {
+        val env = mapOf(String("db.host".toCharArray()) to String("localhost".toCharArray()),
+                String("cache.host".toCharArray()) to String("localhost".toCharArray()))
+        val prop = Properlty.builder()
+                .add(EnvironmentVariablesReader { env })
+                .add(Properties.add("api.host", "\${db.host}"))
+                .deduplicate(true)
+                .build()
+
+        assertSame(prop["db.host"], prop["cache.host"])
+        assertSame(prop["db.host"], prop["api.host"])
+        assertTrue(prop.buildStatistics.deduplicatedStrings > 0)
+        assertTrue(prop.buildStatistics.deduplicatedBytes > 0)
+    }
+
+    @Test
+    fun shouldCheckTheBloomFilterBeforeTheStore() {
+        val prop = Properlty.builder()
+                .add(Properties.add("db.host", "localhost"))
+                .bloomFilter(true)
+                .build()
+
+        assertEquals("localhost", prop["db.host"])
+        assertEquals("default", prop["feature.enabled", "default"])
+        assertEquals(1, prop.bloomFilter!!.rejectedLookups + prop.bloomFilter!!.falsePositives)
+        assertNull(Properlty.builder().build().bloomFilter)
+    }
+
+    @Test
+    fun shouldBuildReloadableProperlty() {
+        var version = 1
+        val changes = ArrayList<PropertiesDiff>()
+        val reloadable = ReloadableProperlty({ Properlty.builder().add(Properties.add("version", "" + version).add("name", "app")).build() }, Executor { it.run() })
+                .addListener(ChangeListener { changes.add(it) })
+        val first = reloadable.current()
+
+        version = 2
+        assertTrue(reloadable.reload())
+
+        assertEquals("1", first["version"])
+        assertEquals("2", reloadable.current()["version"])
+        assertEquals(1, changes.size)
+        assertEquals("1", changes[0].changed["version"]!!.previousValue)
+        assertEquals("2", changes[0].changed["version"]!!.value)
+        assertTrue(changes[0].added.isEmpty())
+
+        val current = reloadable.current()
+        assertTrue(reloadable.compareAndSet(current, current.withOverrides(mapOf("name" to "other"))))
+        assertFalse(reloadable.compareAndSet(current, current.withOverrides(mapOf("name" to "stale"))))
+        assertEquals("other", reloadable.current()["name"])
+        assertEquals(2, changes.size)
+
+        val derived = current.withOverrides(mapOf("version" to "3"))
+        assertEquals(setOf("version"), current.diff(derived).changed.keys)
+        assertEquals(setOf("name", "version"), reloadable.current().diff(derived).changed.keys)
+        assertTrue(derived.diff(derived).isEmpty)
+
+        val built = Properlty.builder().add(Properties.add("key", "value")).buildReloadable(Executor { it.run() })
+        assertEquals("value", built.current()["key"])
+    }
+
     private fun getKeysWithUppercase(map: Map<String, *>, howMany: Int): Array<String> {
         val keys = Array (howMany, { i -> "" })
 
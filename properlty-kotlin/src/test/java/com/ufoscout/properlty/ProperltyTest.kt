@@ -17,11 +17,13 @@ package com.ufoscout.properlty
 
 import com.ufoscout.properlty.reader.Properties
 import com.ufoscout.properlty.reader.PropertyValue
+import com.ufoscout.properlty.util.KeyPath
 import org.junit.Assert.*
 import org.junit.Test
 import java.lang.RuntimeException
 import java.math.BigDecimal
 import java.math.BigInteger
+import java.nio.ByteBuffer
 import java.util.*
 import java.util.stream.Collectors
 
@@ -533,6 +535,173 @@ class ProperltyTest : ProperltyBaseTest() {
 
     }
 
+    @Test
+    fun shouldRenderTemplates() {
+        val properties = HashMap<String, String>()
+        properties["db.host"] = "10.10.10.10"
+        properties["db.port"] = "5432"
+
+        val prop = buildProperlty(properties)
+
+        val extraVars = HashMap<String, String>()
+        extraVars["tenant"] = "acme"
+
+        assertEquals("jdbc:10.10.10.10:5432/acme", prop.render("jdbc:\${db.host}:\${db.port}/\${tenant}", extraVars))
+        assertEquals("jdbc:10.10.10.10:5432/public", prop.render("jdbc:\${db.host}:\${db.port}/\${tenant:public}"))
+
+        extraVars["db.port"] = "6543"
+        assertEquals("jdbc:10.10.10.10:6543/acme", prop.render("jdbc:\${db.host}:\${db.port}/\${tenant}", extraVars))
+    }
+
+    @Test
+    fun shouldReturnKeysWithPrefix() {
+        val properties = HashMap<String, String>()
+        properties["service.payments.db.url"] = "jdbc"
+        properties["service.payments.db.user"] = "admin"
+        properties["service.orders.db.url"] = "jdbc2"
+
+        val prop = buildProperlty(properties, false)
+
+        assertEquals(2, prop.keysWithPrefix("service.payments.").size)
+        assertTrue(prop.keysWithPrefix("SERVICE.PAYMENTS.").contains("service.payments.db.user"))
+        assertEquals(3, prop.asMap().size)
+        assertEquals("jdbc2", prop.asMap()["service.orders.db.url"])
+    }
+
+    @Test
+    fun shouldReturnSubsetViews() {
+        val properties = HashMap<String, String>()
+        properties["service.payments.db.url"] = "jdbc"
+        properties["service.payments.db.port"] = "5432"
+        properties["service.payments.db.pool.max"] = "10"
+        properties["service.orders.db.url"] = "jdbc2"
+
+        val prop = buildProperlty(properties, false)
+        val payments = prop.subset("service.payments.")
+        val db = payments.subset("DB.")
+
+        assertEquals("jdbc", payments["db.url"])
+        assertNull(payments["service.payments.db.url"])
+        assertEquals(5432, db.getInt("port", 0))
+        assertEquals(10, db.subset("pool.").getInt("max"))
+        assertEquals("jdbc:5432", db.render("\${url}:\${port}"))
+
+        assertEquals(listOf("pool.max", "port", "url"), db.keysWithPrefix("").toList())
+        assertEquals(listOf("port"), db.keysWithPrefix("por").toList())
+        assertEquals(3, db.asMap().size)
+        assertEquals("5432", db.asMap()["port"])
+        assertTrue(prop.subset("service.billing.").asMap().isEmpty())
+        assertSame(prop.buildStatistics, db.buildStatistics)
+    }
+
+    @Test
+    fun shouldReturnConstants() {
+        val properties = HashMap<String, String>()
+        properties["flag.x"] = "true"
+        properties["limit"] = "100"
+
+        val prop = buildProperlty(properties)
+        val flag = prop.constant("flag.x", Boolean::class.javaObjectType)
+
+        assertTrue(flag.get())
+        assertSame(flag, prop.subset("flag.").constant("x", Boolean::class.javaObjectType))
+        assertEquals(100, prop.constant("limit", Int::class.javaObjectType).get())
+    }
+
+    @Test
+    fun shouldCacheSplitLists() {
+        val properties = HashMap<String, String>()
+        properties.put("key.one", "111, 222, 333")
+
+        val prop = buildProperlty(properties)
+
+        val values = prop.getList("key.one", ", ")
+        assertEquals(listOf("111", "222", "333"), values)
+        assertSame(values, prop.getList("key.one", ", "))
+
+        val integers = prop.getList("key.one", Int::class.javaObjectType, ", ")
+        assertEquals(listOf(111, 222, 333), integers)
+        assertSame(integers, prop.getList("key.one", Int::class.javaObjectType, ", "))
+        assertTrue(prop.getList("key.three", Int::class.javaObjectType).isEmpty())
+    }
+
+    @Test
+    fun shouldConvertTypedValues() {
+        val prop = Properlty.builder()
+                .add(Properties.add("timeout", "30s").add("point", "1;2"))
+                .converter(IntArray::class.java) { value -> value.split(";").map { it.toInt() }.toIntArray() }
+                .build()
+
+        assertEquals(java.time.Duration.ofSeconds(30), prop["timeout", java.time.Duration::class.java])
+        assertNull(prop["missing", java.time.Duration::class.java])
+        assertArrayEquals(intArrayOf(1, 2), prop["point", IntArray::class.java])
+        assertSame(prop["point", IntArray::class.java], prop["point", IntArray::class.java])
+    }
+
+    @Test
+    fun shouldDeriveInstancesWithOverrides() {
+        val base = Properlty.builder()
+                .add(Properties.add("db.host", "localhost").add("db.port", "5432").add("db.url", "jdbc:\${db.host}:\${db.port}"))
+                .build()
+
+        val derived = base.withOverrides(mapOf("db.host" to "db.tenant1"))
+
+        assertEquals("jdbc:db.tenant1:5432", derived["db.url"])
+        assertEquals("jdbc:localhost:5432", base["db.url"])
+        assertEquals("jdbc:db.tenant1:6432", derived.subset("db.").withOverrides(mapOf("port" to "6432"))["url"])
+    }
+
+    @Test
+    fun shouldCreateTenantOverlays() {
+        val base = Properlty.builder()
+                .add(Properties.add("db.host", "localhost").add("db.port", "5432").add("db.url", "jdbc:\${db.host}:\${db.port}"))
+                .build()
+
+        val tenant = base.overlay(mapOf("db.host" to "db.tenant1"))
+
+        assertEquals("jdbc:db.tenant1:5432", tenant["db.url"])
+        assertEquals("jdbc:localhost:5432", base["db.url"])
+        assertEquals("jdbc:db.tenant1:6432", tenant.subset("db.").overlay(mapOf("port" to "6432"))["url"])
+    }
+
+    @Test
+    fun shouldGetValuesByCharSequenceAndBytes() {
+        val prop = buildProperlty(mapOf("db.url" to "jdbc", "città" to "Torino"))
+        val bytes = "__città__".toByteArray(Charsets.UTF_8)
+
+        assertEquals("jdbc", prop[StringBuilder("db.").append("url")])
+        assertEquals("Torino", prop[bytes, 2, bytes.size - 4])
+        assertEquals("Torino", prop[ByteBuffer.wrap(bytes, 2, bytes.size - 4)])
+        assertNull(prop[bytes, 0, bytes.size])
+        assertEquals("jdbc", prop.subset("db.")[StringBuilder("url")])
+    }
+
+    @Test
+    fun shouldGetValuesBySegments() {
+        val prop = buildProperlty(mapOf("tenant.42.db.url" to "jdbc:tenant42"))
+
+        assertEquals("jdbc:tenant42", prop.getPath("tenant", "42", "db", "url"))
+        assertNull(prop.getPath("tenant", "43", "db", "url"))
+        assertEquals("jdbc:tenant42", prop.subset("tenant.").getPath("42", "db", "url"))
+        assertEquals("jdbc:tenant42", prop.getPath("tenant", 42L, "db", "url"))
+        assertNull(prop.getPath("tenant", 43L, "db", "url"))
+
+        val path = KeyPath()
+        assertEquals("jdbc:tenant42", prop.getPath(path.clear().segment("tenant").segment(42).segment("db").segment("url")))
+        assertEquals("jdbc:tenant42", prop.subset("tenant.").getPath(path.clear().segment(42).segment("db").segment("url")))
+    }
+
+    @Test
+    fun shouldReadIndexedListsAndMaps() {
+        val prop = buildProperlty(mapOf("servers[0].host" to "alpha", "servers[1].host" to "beta",
+                "hosts[1]" to "b", "hosts[0]" to "a", "routes.a.target" to "/a", "routes.b.target" to "/b"))
+
+        assertEquals(listOf("a", "b"), prop.getIndexedValues("hosts"))
+        assertEquals(listOf("alpha", "beta"), prop.getIndexedList("servers").map { it["host"] })
+        assertEquals("/b", prop.getMap("routes")["b"]!!["target"])
+        assertSame(prop.getMap("routes"), prop.getMap("routes"))
+    }
+
     private fun buildProperlty(properties: Map<String, String>, caseSensitive: Boolean = true): Properlty {
         val builder = Properlty.builder().caseSensitive(caseSensitive)
         properties.forEach { key, value -> builder.add(Properties.add(key, value)) }
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ufoscout.properlty
+
+import com.ufoscout.properlty.reader.Properties
+import org.junit.Assert.*
+import org.junit.Test
+import java.util.concurrent.Executor
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+class ReloadableProperltyTest : ProperltyBaseTest() {
+
+    @Test
+    fun shouldUpdateTheConstants() {
+        val version = AtomicInteger(1)
+        val reloadable = ReloadableProperlty({
+            Properlty.builder().add(Properties.add("limit", "" + version.get() * 100).add("other", "" + version.get())).build()
+        }, Executor { it.run() })
+        val limit = reloadable.constant("limit", Int::class.javaObjectType)
+
+        version.set(2)
+        reloadable.reload()
+
+        assertEquals(200, limit.get())
+        assertSame(limit, reloadable.constant("limit", Int::class.javaObjectType))
+    }
+
+    @Test
+    fun shouldUpdateTheConstantsOfAView() {
+        val version = AtomicInteger(1)
+        val reloadable = ReloadableProperlty({
+            Properlty.builder().add(Properties.add("pool.limit", "" + version.get() * 100).add("limit", "0")).build().subset("pool.")
+        }, Executor { it.run() })
+        val limit = reloadable.constant("limit", Int::class.javaObjectType)
+        assertEquals(100, limit.get())
+
+        version.set(2)
+        assertTrue(reloadable.reload())
+
+        assertEquals(200, limit.get())
+        assertSame(limit, reloadable.constant("limit", Int::class.javaObjectType))
+    }
+
+    @Test
+    fun shouldNotPublishASnapshotWhoseConstantsCannotBeConverted() {
+        val changes = mutableListOf<PropertiesDiff>()
+        val reloadable = ReloadableProperlty({ Properlty.builder().add(Properties.add("limit", "100")).build() }, Executor { it.run() })
+                .addListener(ChangeListener { changes.add(it) })
+        val first = reloadable.current()
+        val limit = reloadable.constant("limit", Int::class.javaObjectType)
+
+        try {
+            reloadable.compareAndSet(first, first.withOverrides(mapOf("limit" to "unlimited")))
+            fail("Should throw an exception")
+        } catch (e: RuntimeException) {
+            // expected
+        }
+
+        assertSame(first, reloadable.current())
+        assertEquals(100, limit.get())
+        assertTrue(changes.isEmpty())
+    }
+
+    @Test
+    fun shouldDispatchAgainAfterARejectedExecution() {
+        val reject = AtomicBoolean(true)
+        val reported = mutableListOf<Throwable>()
+        val changes = mutableListOf<PropertiesDiff>()
+        val reloadable = ReloadableProperlty({ Properlty.builder().add(Properties.add("key", "0")).build() }, Executor { command ->
+            if (reject.get()) {
+                throw RejectedExecutionException()
+            }
+            command.run()
+        }).addListener(ChangeListener { changes.add(it) })
+
+        val thread = Thread.currentThread()
+        val handler = thread.uncaughtExceptionHandler
+        thread.setUncaughtExceptionHandler { _, e -> reported.add(e) }
+        try {
+            assertTrue(reloadable.compareAndSet(reloadable.current(), reloadable.current().withOverrides(mapOf("key" to "1"))))
+        } finally {
+            thread.uncaughtExceptionHandler = handler
+        }
+        assertEquals("1", reloadable.current()["key"])
+        assertEquals(1, reported.size)
+        assertTrue(reported[0] is RejectedExecutionException)
+        assertTrue(changes.isEmpty())
+
+        reject.set(false)
+        assertTrue(reloadable.compareAndSet(reloadable.current(), reloadable.current().withOverrides(mapOf("key" to "2"))))
+        assertEquals(2, changes.size)
+        assertEquals("1", changes[0].changed["key"]!!.value)
+        assertEquals("2", changes[1].changed["key"]!!.value)
+    }
+
+}
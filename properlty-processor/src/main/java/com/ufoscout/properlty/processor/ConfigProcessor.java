@@ -0,0 +1,290 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+import com.ufoscout.properlty.annotation.Config;
+import com.ufoscout.properlty.annotation.Key;
+import com.ufoscout.properlty.util.StringUtils;
+
+/**
+ * Generates, for each {@link Config} interface, a Properlty_&lt;InterfaceName&gt; class that implements it.
+ *
+ * The generated constructor reads every key once from a Properlty instance, converts the value
+ * and stores it in a final field; the interface methods only return the fields.
+ * No reflection is used at runtime.
+ *
+ * Supported return types are String, the primitive types int, long, double, float and boolean and their wrappers,
+ * BigDecimal, BigInteger, enums, and Optional or List of any of the non primitive ones; their values are converted
+ * by the generated code.
+ * Any other non generic type, like Duration or a type with a converter registered in the ProperltyBuilder,
+ * is converted by the Properlty instance with {@code properlty.get(key, Type.class)}; its keys cannot have a default value.
+ *
+ * @author Francesco Cina
+ *
+ */
+public class ConfigProcessor extends AbstractProcessor {
+
+	static final String CLASS_PREFIX = "Properlty_";
+
+	private static final String MISSING_PROPERTY_EXCEPTION = "com.ufoscout.properlty.exception.MissingPropertyException";
+
+	@Override
+	public Set<String> getSupportedAnnotationTypes() {
+		return Collections.singleton(Config.class.getName());
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (final Element element : roundEnv.getElementsAnnotatedWith(Config.class)) {
+			if (element.getKind() != ElementKind.INTERFACE) {
+				error("@Config can only be used on interfaces", element);
+				continue;
+			}
+			generate((TypeElement) element);
+		}
+		return true;
+	}
+
+	private void generate(TypeElement type) {
+		final String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+		final String className = CLASS_PREFIX + flatName(type);
+		final String prefix = type.getAnnotation(Config.class).prefix();
+
+		final List<Property> properties = new ArrayList<>();
+		for (final ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+			if (!method.getModifiers().contains(Modifier.ABSTRACT) || method.getEnclosingElement().getKind() != ElementKind.INTERFACE) {
+				continue;
+			}
+			if (!method.getParameters().isEmpty()) {
+				error("@Config methods cannot have parameters", method);
+				return;
+			}
+			final Key key = method.getAnnotation(Key.class);
+			final String name = key == null || key.value().isEmpty() ? StringUtils.keyName(method.getSimpleName().toString()) : key.value();
+			final String defaultValue = key == null || Key.NO_DEFAULT_VALUE.equals(key.defaultValue()) ? null : key.defaultValue();
+			final String value = value(method.getReturnType(), prefix + name, defaultValue);
+			if (value == null) {
+				error("Unsupported @Config return type " + method.getReturnType(), method);
+				return;
+			}
+			properties.add(new Property(method.getSimpleName().toString(), method.getReturnType().toString(), value));
+		}
+
+		try (Writer writer = processingEnv.getFiler().createSourceFile(packageName + "." + className, type).openWriter()) {
+			writer.write(source(packageName, className, type.getQualifiedName().toString(), properties));
+		} catch (final IOException e) {
+			error("Cannot write " + className + ": " + e.getMessage(), type);
+		}
+	}
+
+	private String source(String packageName, String className, String interfaceName, List<Property> properties) {
+		final StringBuilder source = new StringBuilder();
+		if (!packageName.isEmpty()) {
+			source.append("package ").append(packageName).append(";\n\n");
+		}
+		source.append("/**\n * Generated by ").append(ConfigProcessor.class.getName()).append(". Do not edit.\n */\n");
+		source.append("public final class ").append(className).append(" implements ").append(interfaceName).append(" {\n\n");
+		for (final Property property : properties) {
+			source.append("\tprivate final ").append(property.type).append(' ').append(property.method).append(";\n");
+		}
+		source.append("\n\tpublic ").append(className).append("(com.ufoscout.properlty.Properlty properlty) {\n");
+		for (final Property property : properties) {
+			source.append("\t\tthis.").append(property.method).append(" = ").append(property.value).append(";\n");
+		}
+		source.append("\t}\n");
+		for (final Property property : properties) {
+			source.append("\n\t@Override\n\tpublic ").append(property.type).append(' ').append(property.method).append("() {\n");
+			source.append("\t\treturn ").append(property.method).append(";\n\t}\n");
+		}
+		source.append("\n}\n");
+		return source.toString();
+	}
+
+	/**
+	 * Return the expression that reads and converts the value of a key or null if the type is not supported.
+	 */
+	private String value(TypeMirror type, String key, String defaultValue) {
+		final String keyLiteral = literal(key);
+		final String raw = defaultValue == null
+				? "properlty.get(" + keyLiteral + ").orElseThrow(() -> new " + MISSING_PROPERTY_EXCEPTION + "(" + literal("Property [" + key + "] not found") + "))"
+				: "properlty.get(" + keyLiteral + ", " + literal(defaultValue) + ")";
+
+		final String containerName = type.getKind() == TypeKind.DECLARED ? erasure(type) : "";
+		if ("java.util.Optional".equals(containerName) || "java.util.List".equals(containerName)) {
+			final List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+			final String conversion = arguments.size() == 1 ? conversion(arguments.get(0), "value") : null;
+			if (conversion == null) {
+				final String elementType = arguments.size() == 1 ? registryType(arguments.get(0)) : null;
+				if (elementType == null || defaultValue != null) {
+					return null;
+				}
+				return "java.util.Optional".equals(containerName)
+						? "properlty.get(" + keyLiteral + ", " + elementType + ".class)"
+						: "properlty.getList(" + keyLiteral + ", " + elementType + ".class)";
+			}
+			if ("java.util.Optional".equals(containerName)) {
+				return defaultValue == null
+						? "properlty.get(" + keyLiteral + ").map(value -> " + conversion + ")"
+						: "java.util.Optional.of(" + raw + ").map(value -> " + conversion + ")";
+			}
+			return defaultValue == null
+					? "java.util.Collections.unmodifiableList(properlty.getList(" + keyLiteral + ", value -> " + conversion + "))"
+					: "java.util.Collections.unmodifiableList(java.util.Arrays.stream(com.ufoscout.properlty.util.StringUtils.split(" + raw + ", com.ufoscout.properlty.Default.LIST_SEPARATOR))"
+							+ ".map(value -> " + conversion + ").collect(java.util.stream.Collectors.toList()))";
+		}
+		final String conversion = conversion(type, raw);
+		if (conversion == null) {
+			final String valueType = registryType(type);
+			if (valueType == null || defaultValue != null) {
+				return null;
+			}
+			return "properlty.get(" + keyLiteral + ", " + valueType + ".class).orElseThrow(() -> new " + MISSING_PROPERTY_EXCEPTION
+					+ "(" + literal("Property [" + key + "] not found") + "))";
+		}
+		return conversion;
+	}
+
+	/**
+	 * Return the name of a type converted by the Properlty instance or null if the type is generic.
+	 */
+	private String registryType(TypeMirror type) {
+		if (type.getKind() != TypeKind.DECLARED || !((DeclaredType) type).getTypeArguments().isEmpty()) {
+			return null;
+		}
+		return erasure(type);
+	}
+
+	/**
+	 * Return the expression that converts a String to the given type or null if the type is not supported.
+	 */
+	private String conversion(TypeMirror type, String value) {
+		switch (type.getKind()) {
+		case INT:
+			return "Integer.parseInt(" + value + ")";
+		case LONG:
+			return "Long.parseLong(" + value + ")";
+		case DOUBLE:
+			return "Double.parseDouble(" + value + ")";
+		case FLOAT:
+			return "Float.parseFloat(" + value + ")";
+		case BOOLEAN:
+			return "com.ufoscout.properlty.convert.Converters.toBoolean(" + value + ")";
+		case DECLARED:
+			break;
+		default:
+			return null;
+		}
+		final Element element = ((DeclaredType) type).asElement();
+		if (element.getKind() == ElementKind.ENUM) {
+			return ((TypeElement) element).getQualifiedName() + ".valueOf(" + value + ")";
+		}
+		switch (erasure(type)) {
+		case "java.lang.String":
+			return value;
+		case "java.lang.Integer":
+			return "Integer.valueOf(" + value + ")";
+		case "java.lang.Long":
+			return "Long.valueOf(" + value + ")";
+		case "java.lang.Double":
+			return "Double.valueOf(" + value + ")";
+		case "java.lang.Float":
+			return "Float.valueOf(" + value + ")";
+		case "java.lang.Boolean":
+			return "Boolean.valueOf(com.ufoscout.properlty.convert.Converters.toBoolean(" + value + "))";
+		case "java.math.BigDecimal":
+			return "new java.math.BigDecimal(" + value + ")";
+		case "java.math.BigInteger":
+			return "new java.math.BigInteger(" + value + ")";
+		default:
+			return null;
+		}
+	}
+
+	private String erasure(TypeMirror type) {
+		return ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+	}
+
+	/**
+	 * Return the name of the type and of its enclosing types separated by '_', e.g. Outer_Inner
+	 */
+	private static String flatName(TypeElement type) {
+		final StringBuilder name = new StringBuilder(type.getSimpleName());
+		Element enclosing = type.getEnclosingElement();
+		while (enclosing.getKind().isClass() || enclosing.getKind().isInterface()) {
+			name.insert(0, enclosing.getSimpleName() + "_");
+			enclosing = enclosing.getEnclosingElement();
+		}
+		return name.toString();
+	}
+
+	private static String literal(String value) {
+		final StringBuilder literal = new StringBuilder("\"");
+		for (final char c : value.toCharArray()) {
+			switch (c) {
+			case '"': literal.append("\\\""); break;
+			case '\\': literal.append("\\\\"); break;
+			case '\n': literal.append("\\n"); break;
+			case '\r': literal.append("\\r"); break;
+			case '\t': literal.append("\\t"); break;
+			default: literal.append(c);
+			}
+		}
+		return literal.append('"').toString();
+	}
+
+	private void error(String message, Element element) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+	}
+
+	private static final class Property {
+		private final String method;
+		private final String type;
+		private final String value;
+
+		Property(String method, String type, String value) {
+			this.method = method;
+			this.type = type;
+			this.value = value;
+		}
+	}
+
+}
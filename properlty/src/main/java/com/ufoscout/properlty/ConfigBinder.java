@@ -0,0 +1,386 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.ufoscout.properlty.annotation.Config;
+import com.ufoscout.properlty.annotation.Key;
+import com.ufoscout.properlty.exception.MissingPropertyException;
+import com.ufoscout.properlty.util.StringUtils;
+
+/**
+ * Binds the properties of a {@link Properlty} instance to interfaces, POJOs and records.
+ *
+ * The binding plan of a type (keys, value types and MethodHandles) is computed once and cached;
+ * later binds of the same type only read the values and convert them with the converters of the bound instance:
+ * - a POJO is created with its no-arguments constructor and filled through its setters;
+ * - a record is created with its canonical constructor;
+ * - an interface is implemented by a class generated once per type, with a field for each value converted at bind time;
+ *   on Java 8 it is implemented by a proxy instead.
+ *
+ * The keys follow the rules of the {@link Config} and {@link Key} annotations.
+ *
+ * @author Francesco Cina
+ *
+ */
+final class ConfigBinder {
+
+	private static final ClassValue<Plan> PLANS = new ClassValue<Plan>() {
+		@Override
+		protected Plan computeValue(Class<?> type) {
+			return plan(type);
+		}
+	};
+
+	private ConfigBinder() {}
+
+	static <T> T bind(Properlty properlty, Class<T> type) {
+		return type.cast(PLANS.get(type).bind(properlty));
+	}
+
+	private static Plan plan(Class<?> type) {
+		try {
+			final Config config = type.getAnnotation(Config.class);
+			final String prefix = config == null ? "" : config.prefix();
+			if (type.isInterface()) {
+				return new InterfacePlan(type, prefix);
+			}
+			if (isRecord(type)) {
+				return new RecordPlan(type, prefix);
+			}
+			return new PojoPlan(type, prefix);
+		} catch (final ReflectiveOperationException e) {
+			throw new IllegalArgumentException("Cannot bind type " + type.getName(), e);
+		}
+	}
+
+	private interface Plan {
+		Object bind(Properlty properlty);
+	}
+
+	/**
+	 * Creates the instance with the no-arguments constructor and calls a setter for each present key.
+	 */
+	private static final class PojoPlan implements Plan {
+
+		private final MethodHandle constructor;
+		private final List<MethodHandle> setters = new ArrayList<>();
+		private final List<Function<Properlty, Object>> readers = new ArrayList<>();
+
+		PojoPlan(Class<?> type, String prefix) throws ReflectiveOperationException {
+			final Constructor<?> noArgsConstructor = type.getDeclaredConstructor();
+			noArgsConstructor.setAccessible(true);
+			constructor = MethodHandles.lookup().unreflectConstructor(noArgsConstructor).asType(MethodType.methodType(Object.class));
+			for (final Method method : type.getMethods()) {
+				if (method.getName().startsWith("set") && method.getName().length() > 3 && method.getParameterCount() == 1
+						&& !Modifier.isStatic(method.getModifiers())) {
+					method.setAccessible(true);
+					final String key = prefix + key(method, method.getName(), "set");
+					setters.add(MethodHandles.lookup().unreflect(method).asType(MethodType.methodType(void.class, Object.class, Object.class)));
+					readers.add(reader(key, method.getGenericParameterTypes()[0], defaultValue(method), true, method));
+				}
+			}
+		}
+
+		@Override
+		public Object bind(Properlty properlty) {
+			try {
+				final Object instance = constructor.invokeExact();
+				for (int i = 0; i < setters.size(); i++) {
+					final Object value = readers.get(i).apply(properlty);
+					if (value != null) {
+						setters.get(i).invokeExact(instance, value);
+					}
+				}
+				return instance;
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (final Throwable e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	/**
+	 * Creates the instance with the canonical constructor, reading a key for each record component.
+	 */
+	private static final class RecordPlan implements Plan {
+
+		private final MethodHandle constructor;
+		private final List<Function<Properlty, Object>> readers = new ArrayList<>();
+
+		RecordPlan(Class<?> type, String prefix) throws ReflectiveOperationException {
+			final Object[] components = (Object[]) Class.class.getMethod("getRecordComponents").invoke(type);
+			final Class<?>[] componentTypes = new Class<?>[components.length];
+			for (int i = 0; i < components.length; i++) {
+				final Class<?> componentClass = components[i].getClass();
+				final Method accessor = (Method) componentClass.getMethod("getAccessor").invoke(components[i]);
+				componentTypes[i] = (Class<?>) componentClass.getMethod("getType").invoke(components[i]);
+				final String key = prefix + key(accessor, (String) componentClass.getMethod("getName").invoke(components[i]));
+				readers.add(reader(key, (Type) componentClass.getMethod("getGenericType").invoke(components[i]), defaultValue(accessor), false, accessor));
+			}
+			final Constructor<?> canonical = type.getDeclaredConstructor(componentTypes);
+			canonical.setAccessible(true);
+			constructor = MethodHandles.lookup().unreflectConstructor(canonical).asSpreader(Object[].class, components.length)
+					.asType(MethodType.methodType(Object.class, Object[].class));
+		}
+
+		@Override
+		public Object bind(Properlty properlty) {
+			final Object[] arguments = new Object[readers.size()];
+			for (int i = 0; i < arguments.length; i++) {
+				arguments[i] = readers.get(i).apply(properlty);
+			}
+			try {
+				return constructor.invokeExact(arguments);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (final Throwable e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	/**
+	 * Implements the interface with a generated class that returns the values read and converted at bind time from its fields.
+	 * If the class cannot be generated, the interface is implemented by a proxy and its default methods are invoked on the proxy.
+	 */
+	private static final class InterfacePlan implements Plan {
+
+		private static final AtomicInteger CLASS_COUNTER = new AtomicInteger();
+
+		private final Class<?> type;
+		private final Map<Method, Integer> indexes = new HashMap<>();
+		private final List<Function<Properlty, Object>> readers = new ArrayList<>();
+		private final MethodHandle constructor;
+
+		InterfacePlan(Class<?> type, String prefix) {
+			this.type = type;
+			final List<Method> accessors = new ArrayList<>();
+			final Set<String> names = new HashSet<>();
+			boolean overloaded = false;
+			for (final Method method : type.getMethods()) {
+				if (method.isDefault() || Modifier.isStatic(method.getModifiers())) {
+					continue;
+				}
+				if (method.getParameterCount() > 0) {
+					throw new IllegalArgumentException("Cannot bind method " + method + ": it has parameters");
+				}
+				final String key = prefix + key(method, method.getName(), "get", "is");
+				overloaded |= !names.add(method.getName());
+				indexes.put(method, readers.size());
+				accessors.add(method);
+				readers.add(reader(key, method.getGenericReturnType(), defaultValue(method), false, method));
+			}
+			constructor = overloaded ? null : implementation(type, accessors);
+		}
+
+		@Override
+		public Object bind(Properlty properlty) {
+			final Object[] values = new Object[readers.size() + 1];
+			for (int i = 0; i < readers.size(); i++) {
+				values[i] = readers.get(i).apply(properlty);
+			}
+			values[readers.size()] = type.getSimpleName() + Arrays.toString(Arrays.copyOf(values, readers.size()));
+			if (constructor != null) {
+				try {
+					return constructor.invokeExact(values);
+				} catch (RuntimeException | Error e) {
+					throw e;
+				} catch (final Throwable e) {
+					throw new RuntimeException(e);
+				}
+			}
+			final InvocationHandler handler = (proxy, method, args) -> {
+				final Integer index = indexes.get(method);
+				if (index != null) {
+					return values[index];
+				}
+				if (method.isDefault()) {
+					return DefaultMethods.invoke(proxy, method, args);
+				}
+				switch (method.getName()) {
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "toString":
+					return values[readers.size()];
+				default:
+					throw new UnsupportedOperationException(method.toString());
+				}
+			};
+			return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler);
+		}
+
+		/**
+		 * Return the constructor of a class generated in the package of the interface that returns each value from a field,
+		 * or null if the class cannot be defined. Defining the class requires Java 9 or later;
+		 * on Java 8 the interface is implemented by a proxy.
+		 */
+		private static MethodHandle implementation(Class<?> type, List<Method> accessors) {
+			try {
+				final Method privateLookupIn = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+				final Method defineClass = MethodHandles.Lookup.class.getMethod("defineClass", byte[].class);
+				final MethodHandles.Lookup lookup = (MethodHandles.Lookup) privateLookupIn.invoke(null, type, MethodHandles.lookup());
+				final String className = type.getName() + "$$Properlty" + CLASS_COUNTER.incrementAndGet();
+				final Class<?> implementation = (Class<?>) defineClass.invoke(lookup, (Object) ConfigClassWriter.write(className, type, accessors));
+				return lookup.findConstructor(implementation, MethodType.methodType(void.class, Object[].class))
+						.asType(MethodType.methodType(Object.class, Object[].class));
+			} catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Invokes the default methods of the interfaces; it requires Java 9 or later.
+	 */
+	private static final class DefaultMethods {
+
+		private static final ClassValue<Map<Method, MethodHandle>> HANDLES = new ClassValue<Map<Method, MethodHandle>>() {
+			@Override
+			protected Map<Method, MethodHandle> computeValue(Class<?> type) {
+				return new ConcurrentHashMap<>();
+			}
+		};
+
+		static Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			final MethodHandle handle = HANDLES.get(method.getDeclaringClass()).computeIfAbsent(method, key -> {
+				try {
+					final Method privateLookupIn = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+					final MethodHandles.Lookup lookup = (MethodHandles.Lookup) privateLookupIn.invoke(null, key.getDeclaringClass(), MethodHandles.lookup());
+					return lookup.unreflectSpecial(key, key.getDeclaringClass());
+				} catch (final ReflectiveOperationException e) {
+					throw new UnsupportedOperationException("Cannot invoke default method " + key, e);
+				}
+			});
+			final Object[] arguments = new Object[args == null ? 1 : args.length + 1];
+			arguments[0] = proxy;
+			if (args != null) {
+				System.arraycopy(args, 0, arguments, 1, args.length);
+			}
+			return handle.invokeWithArguments(arguments);
+		}
+	}
+
+	/**
+	 * Return the function that reads and converts the value of a key.
+	 * The values are converted by the converters of the bound {@link Properlty} and memoized by it, like {@link Properlty#get(String, Class)}.
+	 * If optional is true, a missing key without default value is read as null instead of throwing a {@link MissingPropertyException}.
+	 */
+	private static Function<Properlty, Object> reader(String key, Type type, String defaultValue, boolean optional, Method method) {
+		final Class<?> rawType = rawType(type);
+		if (rawType == Optional.class || rawType == List.class) {
+			final Class<?> elementType = valueType(((ParameterizedType) type).getActualTypeArguments()[0], method);
+			if (rawType == Optional.class) {
+				return properlty -> {
+					final Optional<?> value = properlty.get(key, elementType);
+					if (value.isPresent() || defaultValue == null) {
+						return value;
+					}
+					return Optional.ofNullable(properlty.converter(elementType).apply(defaultValue));
+				};
+			}
+			return properlty -> {
+				final List<?> values = properlty.getList(key, elementType);
+				if (!values.isEmpty() || defaultValue == null || properlty.get(key).isPresent()) {
+					return values;
+				}
+				return Collections.unmodifiableList(Arrays.stream(StringUtils.split(defaultValue, Default.LIST_SEPARATOR))
+						.map(properlty.converter(elementType)).collect(Collectors.toList()));
+			};
+		}
+		final Class<?> valueType = valueType(type, method);
+		return properlty -> {
+			final Optional<?> value = properlty.get(key, valueType);
+			if (value.isPresent()) {
+				return value.get();
+			}
+			if (defaultValue != null) {
+				return properlty.converter(valueType).apply(defaultValue);
+			}
+			// a present value converted to null is bound as null
+			if (optional || properlty.get(key).isPresent()) {
+				return null;
+			}
+			throw new MissingPropertyException("Property [" + key + "] not found");
+		};
+	}
+
+	/**
+	 * Return the type of a value; its converter is looked up in the {@link Properlty} at bind time.
+	 */
+	private static Class<?> valueType(Type type, Method method) {
+		if (!(type instanceof Class)) {
+			throw new IllegalArgumentException("Unsupported type " + type.getTypeName() + " of " + method);
+		}
+		return (Class<?>) type;
+	}
+
+	private static Class<?> rawType(Type type) {
+		if (type instanceof ParameterizedType) {
+			return (Class<?>) ((ParameterizedType) type).getRawType();
+		}
+		return type instanceof Class ? (Class<?>) type : Object.class;
+	}
+
+	/**
+	 * Return the key set with {@link Key} or the key bound to the name by {@link StringUtils#keyName(String, String...)}
+	 */
+	private static String key(AnnotatedElement element, String name, String... prefixes) {
+		final Key key = element.getAnnotation(Key.class);
+		if (key != null && !key.value().isEmpty()) {
+			return key.value();
+		}
+		return StringUtils.keyName(name, prefixes);
+	}
+
+	private static String defaultValue(AnnotatedElement element) {
+		final Key key = element.getAnnotation(Key.class);
+		return key == null || Key.NO_DEFAULT_VALUE.equals(key.defaultValue()) ? null : key.defaultValue();
+	}
+
+	private static boolean isRecord(Class<?> type) {
+		final Class<?> superclass = type.getSuperclass();
+		return superclass != null && "java.lang.Record".equals(superclass.getName());
+	}
+
+}
@@ -0,0 +1,289 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the class file of a final class that implements an interface with a field for each accessor.
+ *
+ * The class has a constructor that takes an Object[] with the value of each accessor, in the order of the accessors,
+ * followed by the String returned by toString(). The values of primitive accessors are unboxed once in the constructor,
+ * so each accessor is a single field read. Default methods, equals and hashCode are not overridden.
+ * The code has no branches, so the class needs no stack map frames.
+ *
+ * @author Francesco Cina
+ *
+ */
+final class ConfigClassWriter {
+
+	private static final int JAVA_8 = 52;
+	private static final int ACC_PUBLIC = 0x0001;
+	private static final int ACC_PRIVATE = 0x0002;
+	private static final int ACC_FINAL = 0x0010;
+	private static final int ACC_SUPER = 0x0020;
+
+	private static final int ICONST_0 = 0x03;
+	private static final int BIPUSH = 0x10;
+	private static final int SIPUSH = 0x11;
+	private static final int ALOAD_0 = 0x2a;
+	private static final int ALOAD_1 = 0x2b;
+	private static final int AALOAD = 0x32;
+	private static final int IRETURN = 0xac;
+	private static final int LRETURN = 0xad;
+	private static final int FRETURN = 0xae;
+	private static final int DRETURN = 0xaf;
+	private static final int ARETURN = 0xb0;
+	private static final int RETURN = 0xb1;
+	private static final int GETFIELD = 0xb4;
+	private static final int PUTFIELD = 0xb5;
+	private static final int INVOKEVIRTUAL = 0xb6;
+	private static final int INVOKESPECIAL = 0xb7;
+	private static final int CHECKCAST = 0xc0;
+
+	private static final String DESCRIPTION = "description";
+
+	private final ByteArrayOutputStream constantBytes = new ByteArrayOutputStream();
+	private final DataOutputStream constants = new DataOutputStream(constantBytes);
+	private final Map<String, Integer> constantIndexes = new HashMap<>();
+	private int constantCount = 1;
+
+	private ConfigClassWriter() {}
+
+	/**
+	 * Return the class file of the class with the given binary name that implements the interface with the accessors.
+	 *
+	 * @param className
+	 * @param type
+	 * @param accessors
+	 * @return
+	 */
+	static byte[] write(String className, Class<?> type, List<Method> accessors) {
+		try {
+			return new ConfigClassWriter().classFile(className.replace('.', '/'), type, accessors);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private byte[] classFile(String className, Class<?> type, List<Method> accessors) throws IOException {
+		final int thisClass = classConstant(className);
+		final int superClass = classConstant("java/lang/Object");
+		final int interfaceClass = classConstant(type.getName().replace('.', '/'));
+
+		final ByteArrayOutputStream membersBytes = new ByteArrayOutputStream();
+		final DataOutputStream members = new DataOutputStream(membersBytes);
+
+		// fields
+		members.writeShort(accessors.size() + 1);
+		for (int i = 0; i < accessors.size(); i++) {
+			member(members, ACC_PRIVATE | ACC_FINAL, field(i), descriptor(accessors.get(i).getReturnType()));
+			members.writeShort(0);
+		}
+		member(members, ACC_PRIVATE | ACC_FINAL, DESCRIPTION, "Ljava/lang/String;");
+		members.writeShort(0);
+
+		// methods
+		members.writeShort(accessors.size() + 2);
+		member(members, ACC_PUBLIC, "<init>", "([Ljava/lang/Object;)V");
+		code(members, 4, 2, constructor(className, accessors));
+		for (int i = 0; i < accessors.size(); i++) {
+			final Method accessor = accessors.get(i);
+			final String descriptor = descriptor(accessor.getReturnType());
+			member(members, ACC_PUBLIC, accessor.getName(), "()" + descriptor);
+			code(members, 2, 1, getter(className, field(i), descriptor, returnOpcode(accessor.getReturnType())));
+		}
+		member(members, ACC_PUBLIC, "toString", "()Ljava/lang/String;");
+		code(members, 1, 1, getter(className, DESCRIPTION, "Ljava/lang/String;", ARETURN));
+
+		final ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(classBytes);
+		out.writeInt(0xCAFEBABE);
+		out.writeShort(0);
+		out.writeShort(JAVA_8);
+		out.writeShort(constantCount);
+		constantBytes.writeTo(out);
+		out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+		out.writeShort(thisClass);
+		out.writeShort(superClass);
+		out.writeShort(1);
+		out.writeShort(interfaceClass);
+		membersBytes.writeTo(out);
+		out.writeShort(0);
+		return classBytes.toByteArray();
+	}
+
+	private byte[] constructor(String className, List<Method> accessors) throws IOException {
+		final ByteArrayOutputStream codeBytes = new ByteArrayOutputStream();
+		final DataOutputStream code = new DataOutputStream(codeBytes);
+		code.writeByte(ALOAD_0);
+		code.writeByte(INVOKESPECIAL);
+		code.writeShort(memberConstant(10, "java/lang/Object", "<init>", "()V"));
+		for (int i = 0; i <= accessors.size(); i++) {
+			final Class<?> fieldType = i < accessors.size() ? accessors.get(i).getReturnType() : String.class;
+			final Class<?> boxedType = MethodType.methodType(fieldType).wrap().returnType();
+			code.writeByte(ALOAD_0);
+			code.writeByte(ALOAD_1);
+			pushInt(code, i);
+			code.writeByte(AALOAD);
+			code.writeByte(CHECKCAST);
+			code.writeShort(classConstant(boxedType.getName().replace('.', '/')));
+			if (fieldType.isPrimitive()) {
+				code.writeByte(INVOKEVIRTUAL);
+				code.writeShort(memberConstant(10, boxedType.getName().replace('.', '/'), fieldType.getName() + "Value", "()" + descriptor(fieldType)));
+			}
+			code.writeByte(PUTFIELD);
+			code.writeShort(memberConstant(9, className, i < accessors.size() ? field(i) : DESCRIPTION, descriptor(fieldType)));
+		}
+		code.writeByte(RETURN);
+		return codeBytes.toByteArray();
+	}
+
+	private byte[] getter(String className, String field, String descriptor, int returnOpcode) throws IOException {
+		final ByteArrayOutputStream codeBytes = new ByteArrayOutputStream();
+		final DataOutputStream code = new DataOutputStream(codeBytes);
+		code.writeByte(ALOAD_0);
+		code.writeByte(GETFIELD);
+		code.writeShort(memberConstant(9, className, field, descriptor));
+		code.writeByte(returnOpcode);
+		return codeBytes.toByteArray();
+	}
+
+	private void member(DataOutputStream out, int access, String name, String descriptor) throws IOException {
+		out.writeShort(access);
+		out.writeShort(utf8Constant(name));
+		out.writeShort(utf8Constant(descriptor));
+	}
+
+	/**
+	 * Write the attributes of a method with its Code attribute only
+	 */
+	private void code(DataOutputStream out, int maxStack, int maxLocals, byte[] code) throws IOException {
+		out.writeShort(1);
+		out.writeShort(utf8Constant("Code"));
+		out.writeInt(12 + code.length);
+		out.writeShort(maxStack);
+		out.writeShort(maxLocals);
+		out.writeInt(code.length);
+		out.write(code);
+		out.writeShort(0);
+		out.writeShort(0);
+	}
+
+	private static void pushInt(DataOutputStream code, int value) throws IOException {
+		if (value <= 5) {
+			code.writeByte(ICONST_0 + value);
+		} else if (value <= Byte.MAX_VALUE) {
+			code.writeByte(BIPUSH);
+			code.writeByte(value);
+		} else {
+			code.writeByte(SIPUSH);
+			code.writeShort(value);
+		}
+	}
+
+	private int utf8Constant(String value) throws IOException {
+		final Integer index = constantIndexes.get("U" + value);
+		if (index != null) {
+			return index;
+		}
+		constants.writeByte(1);
+		constants.writeUTF(value);
+		return newConstant("U" + value, 1);
+	}
+
+	private int classConstant(String internalName) throws IOException {
+		final Integer index = constantIndexes.get("C" + internalName);
+		if (index != null) {
+			return index;
+		}
+		final int name = utf8Constant(internalName);
+		constants.writeByte(7);
+		constants.writeShort(name);
+		return newConstant("C" + internalName, 1);
+	}
+
+	/**
+	 * Return the index of a Fieldref (tag 9) or Methodref (tag 10) constant
+	 */
+	private int memberConstant(int tag, String owner, String name, String descriptor) throws IOException {
+		final String key = tag + owner + "." + name + ":" + descriptor;
+		final Integer index = constantIndexes.get(key);
+		if (index != null) {
+			return index;
+		}
+		final int ownerClass = classConstant(owner);
+		final int nameAndType = nameAndTypeConstant(name, descriptor);
+		constants.writeByte(tag);
+		constants.writeShort(ownerClass);
+		constants.writeShort(nameAndType);
+		return newConstant(key, 1);
+	}
+
+	private int nameAndTypeConstant(String name, String descriptor) throws IOException {
+		final String key = "N" + name + ":" + descriptor;
+		final Integer index = constantIndexes.get(key);
+		if (index != null) {
+			return index;
+		}
+		final int nameIndex = utf8Constant(name);
+		final int descriptorIndex = utf8Constant(descriptor);
+		constants.writeByte(12);
+		constants.writeShort(nameIndex);
+		constants.writeShort(descriptorIndex);
+		return newConstant(key, 1);
+	}
+
+	private int newConstant(String key, int slots) {
+		final int index = constantCount;
+		constantCount += slots;
+		constantIndexes.put(key, index);
+		return index;
+	}
+
+	private static String field(int index) {
+		return "value" + index;
+	}
+
+	private static String descriptor(Class<?> type) {
+		return MethodType.methodType(type).toMethodDescriptorString().substring(2);
+	}
+
+	private static int returnOpcode(Class<?> type) {
+		if (!type.isPrimitive()) {
+			return ARETURN;
+		}
+		if (type == long.class) {
+			return LRETURN;
+		}
+		if (type == float.class) {
+			return FRETURN;
+		}
+		if (type == double.class) {
+			return DRETURN;
+		}
+		return IRETURN;
+	}
+
+}
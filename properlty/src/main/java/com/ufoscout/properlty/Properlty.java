@@ -17,27 +17,127 @@ package com.ufoscout.properlty;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
-import com.ufoscout.properlty.reader.PropertyValue;
+import com.ufoscout.properlty.convert.ConverterRegistry;
+import com.ufoscout.properlty.convert.Converters;
+import com.ufoscout.properlty.exception.MissingPropertyException;
+import com.ufoscout.properlty.exception.UnresolvablePlaceholdersException;
+import com.ufoscout.properlty.store.BloomFilterStore;
+import com.ufoscout.properlty.store.Derivation;
+import com.ufoscout.properlty.store.HamtStore;
+import com.ufoscout.properlty.store.OpenAddressingStore;
+import com.ufoscout.properlty.store.OverlayStore;
+import com.ufoscout.properlty.store.PrefixIndex;
+import com.ufoscout.properlty.store.Store;
+import com.ufoscout.properlty.template.TemplateCache;
+import com.ufoscout.properlty.util.KeyPath;
+import com.ufoscout.properlty.util.StringUtils;
+import com.ufoscout.properlty.util.Utf8Key;
 
 public class Properlty {
 
-	private final Map<String, PropertyValue> properties;
+	private static final ThreadLocal<Utf8Key> UTF8_KEYS = ThreadLocal.withInitial(Utf8Key::new);
+	private static final ThreadLocal<KeyPath> KEY_PATHS = ThreadLocal.withInitial(KeyPath::new);
+
+	private final Store store;
+	private final PrefixIndex prefixIndex;
 	private final boolean caseSensitive;
+	private final boolean ignoreUnresolvablePlaceholders;
+	private final BuildStatistics buildStatistics;
+	private final TemplateCache templateCache;
+	private final String prefix;
+	private final Map<Class<?>, Map<String, Constant<?>>> constants;
+	private final ConverterRegistry converters;
+	private final Memo memo;
+	private final HamtStore templates;
+	private final AtomicReference<HamtStore> persistentStore;
+	private final AtomicReference<Map<String, Set<String>>> dependents;
 
 	public static ProperltyBuilder builder() {
 		return new ProperltyBuilder();
 	}
 
-	Properlty(boolean caseSensitive, Map<String, PropertyValue> properties) {
-		this.properties = properties;
+	Properlty(boolean caseSensitive, boolean ignoreUnresolvablePlaceholders, Store store, PrefixIndex prefixIndex,
+			BuildStatistics buildStatistics, TemplateCache templateCache, ConverterRegistry converters, HamtStore templates) {
+		this.store = store;
+		this.prefixIndex = prefixIndex;
 		this.caseSensitive = caseSensitive;
+		this.ignoreUnresolvablePlaceholders = ignoreUnresolvablePlaceholders;
+		this.buildStatistics = buildStatistics;
+		this.templateCache = templateCache;
+		this.prefix = "";
+		this.constants = new ConcurrentHashMap<>();
+		this.converters = converters;
+		this.memo = new Memo();
+		this.templates = templates;
+		this.persistentStore = new AtomicReference<>(store instanceof HamtStore ? (HamtStore) store : null);
+		this.dependents = new AtomicReference<>();
+	}
+
+	private Properlty(Properlty parent, String prefix) {
+		this.store = parent.store;
+		this.prefixIndex = parent.prefixIndex;
+		this.caseSensitive = parent.caseSensitive;
+		this.ignoreUnresolvablePlaceholders = parent.ignoreUnresolvablePlaceholders;
+		this.buildStatistics = parent.buildStatistics;
+		this.templateCache = parent.templateCache;
+		this.prefix = parent.prefix + prefix;
+		this.constants = parent.constants;
+		this.converters = parent.converters;
+		this.memo = parent.memo;
+		this.templates = parent.templates;
+		this.persistentStore = parent.persistentStore;
+		this.dependents = parent.dependents;
+	}
+
+	private Properlty(Properlty parent, Store store, PrefixIndex prefixIndex, HamtStore templates) {
+		this.store = store;
+		this.prefixIndex = prefixIndex;
+		this.caseSensitive = parent.caseSensitive;
+		this.ignoreUnresolvablePlaceholders = parent.ignoreUnresolvablePlaceholders;
+		this.buildStatistics = parent.buildStatistics;
+		this.templateCache = parent.templateCache;
+		this.prefix = parent.prefix;
+		this.constants = new ConcurrentHashMap<>();
+		this.converters = parent.converters;
+		this.memo = new Memo();
+		this.templates = templates;
+		this.persistentStore = new AtomicReference<>(store instanceof HamtStore ? (HamtStore) store : null);
+		this.dependents = new AtomicReference<>();
+	}
+
+	/**
+	 * Return the statistics collected when this instance was built.
+	 *
+	 * @return
+	 */
+	public BuildStatistics getBuildStatistics() {
+		return buildStatistics;
+	}
+
+	/**
+	 * Return the Bloom filter checked before reading the properties, if enabled with {@link ProperltyBuilder#bloomFilter(boolean)}.
+	 * It reports the rejected lookups and the measured false positive rate.
+	 * Instances created by {@link #withOverrides(Map)} do not use the filter.
+	 *
+	 * @return
+	 */
+	public Optional<BloomFilterStore> getBloomFilter() {
+		final Store base = store instanceof OverlayStore ? ((OverlayStore) store).getBase() : store;
+		return base instanceof BloomFilterStore ? Optional.of((BloomFilterStore) base) : Optional.empty();
 	}
 
 	/**
@@ -47,14 +147,7 @@ public class Properlty {
 	 * @return
 	 */
 	public Optional<String> get(String key) {
-		if (!caseSensitive) {
-			key = key.toLowerCase();
-		}
-		final PropertyValue value = properties.get(key);
-		if (value != null) {
-			return Optional.ofNullable(value.getValue());
-		}
-		return Optional.empty();
+		return Optional.ofNullable(lookup(key));
 	}
 
 	/**
@@ -68,6 +161,106 @@ public class Properlty {
 		return get(key).orElse(defaultValue);
 	}
 
+	/**
+	 * Return the property value associated with the key made of the given chars or the defaultValue if the key cannot be resolved.
+	 * If this instance is case sensitive, the chars are hashed and compared with the stored keys directly, so no String is created.
+	 *
+	 * @param key
+	 * @param defaultValue
+	 * @return
+	 */
+	public String get(CharSequence key, String defaultValue) {
+		final String value;
+		if (!caseSensitive) {
+			value = lookup(key.toString());
+		} else if (prefix.isEmpty()) {
+			value = store.get(key);
+		} else {
+			value = store.get(KEY_PATHS.get().clear().append(prefix).append(key));
+		}
+		return value != null ? value : defaultValue;
+	}
+
+	/**
+	 * Return the property value associated with the key encoded in UTF-8 in the given slice of the array
+	 * or the defaultValue if the key cannot be resolved.
+	 * The slice is decoded in a buffer reused by the calling thread, see {@link #get(CharSequence, String)}.
+	 *
+	 * @param key
+	 * @param offset
+	 * @param length
+	 * @param defaultValue
+	 * @return
+	 */
+	public String get(byte[] key, int offset, int length, String defaultValue) {
+		return get(UTF8_KEYS.get().set(key, offset, length), defaultValue);
+	}
+
+	/**
+	 * Return the property value associated with the key encoded in UTF-8 between the position and the limit of the buffer
+	 * or the defaultValue if the key cannot be resolved. The position of the buffer is not changed.
+	 * The key is decoded in a buffer reused by the calling thread, see {@link #get(CharSequence, String)}.
+	 *
+	 * @param key
+	 * @param defaultValue
+	 * @return
+	 */
+	public String get(ByteBuffer key, String defaultValue) {
+		return get(UTF8_KEYS.get().set(key), defaultValue);
+	}
+
+	/**
+	 * Return the property value associated with the key made of the given segments joined by dots,
+	 * so getPath("tenant", "42", "db", "url") returns the value of "tenant.42.db.url".
+	 * The segments are joined in a {@link KeyPath} reused by the calling thread and looked up as in
+	 * {@link #get(CharSequence, String)}, so no String is created for the key.
+	 *
+	 * @param segments
+	 * @return
+	 */
+	public Optional<String> getPath(CharSequence... segments) {
+		final KeyPath path = KEY_PATHS.get().clear().append(prefix);
+		for (final CharSequence segment : segments) {
+			path.segment(segment);
+		}
+		return lookupPath(path);
+	}
+
+	/**
+	 * Return the property value associated with the key made of the first segment, the decimal digits of the id
+	 * and the other segments joined by dots, so getPath("tenant", 42, "db", "url") returns the value of "tenant.42.db.url".
+	 * The id is written in the {@link KeyPath} reused by the calling thread, so neither the id nor the key become a String.
+	 *
+	 * @param first
+	 * @param id
+	 * @param segments
+	 * @return
+	 */
+	public Optional<String> getPath(CharSequence first, long id, CharSequence... segments) {
+		final KeyPath path = KEY_PATHS.get().clear().append(prefix).segment(first).segment(id);
+		for (final CharSequence segment : segments) {
+			path.segment(segment);
+		}
+		return lookupPath(path);
+	}
+
+	/**
+	 * Return the property value associated with the key built by the caller in a {@link KeyPath}.
+	 * A caller that reads many composite keys can keep its own KeyPath and rebuild it for each key,
+	 * e.g. path.clear().segment("tenant").segment(id).segment("db").segment("url"), so the lookup allocates nothing.
+	 * The key is relative to the prefix of this instance, as the keys of {@link #get(String)}.
+	 *
+	 * @param path
+	 * @return
+	 */
+	public Optional<String> getPath(KeyPath path) {
+		return lookupPath(prefix.isEmpty() ? path : KEY_PATHS.get().clear().append(prefix).append(path));
+	}
+
+	private Optional<String> lookupPath(KeyPath path) {
+		return Optional.ofNullable(caseSensitive ? store.get(path) : store.get(normalize(path.toString())));
+	}
+
 	/**
 	 * Return the property value associated with the given key and apply the map function to it.
 	 *
@@ -92,6 +285,37 @@ public class Properlty {
 		return get(key).map(map).orElse(defaultValue);
 	}
 
+	/**
+	 * Return the property value associated with the given key converted to the given type
+	 * by the converter registered in the {@link ProperltyBuilder}.
+	 * The converted value is computed once per key and type and then reused,
+	 * except a null value returned by the converter, which is returned as an empty Optional.
+	 *
+	 * @param key
+	 * @param type
+	 * @return
+	 * @throws IllegalArgumentException if there is no converter for the type
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Optional<T> get(String key, Class<T> type) {
+		final String storeKey = key(key);
+		// the values are grouped by type, so a value already converted is found without building a composite key
+		final Map<String, Object> typeValues = Memo.group(memo.values, type);
+		final Object value = typeValues.get(storeKey);
+		if (value != null) {
+			return Optional.of((T) value);
+		}
+		final String raw = store.get(storeKey);
+		if (raw == null) {
+			return Optional.empty();
+		}
+		final T convertedValue = converter(type).apply(raw);
+		if (convertedValue != null) {
+			typeValues.putIfAbsent(storeKey, convertedValue);
+		}
+		return Optional.ofNullable(convertedValue);
+	}
+
 	/**
 	 * Return the property value associated with the given key.
 	 *
@@ -123,14 +347,7 @@ public class Properlty {
 	 * @return
 	 */
 	public Optional<Boolean> getBoolean(String key) {
-		return get(key).map(value -> {
-			if ( "true".equalsIgnoreCase(value) )
-				return true;
-			else if ( "false".equalsIgnoreCase(value) )
-				return false;
-			else
-				throw new RuntimeException("Cannot parse boolean value: [" + value+ "]");
-		});
+		return get(key).map(Converters::toBoolean);
 	}
 
 	/**
@@ -310,7 +527,7 @@ public class Properlty {
 	 * @return
 	 */
 	public String[] getArray(String key, String separator) {
-		return get(key).map(value -> value.split(separator)).orElse(new String[0]);
+		return getList(key, separator).toArray(new String[0]);
 	}
 
 	/**
@@ -321,18 +538,31 @@ public class Properlty {
 	 * @return
 	 */
 	public List<String> getList(String key) {
-		return Arrays.asList(getArray(key));
+		return getList(key, Default.LIST_SEPARATOR);
 	}
 
 	/**
 	 * Return the property value associated with the given key split with the specific separator.
+	 * The separator is a regex only if it contains regex meta characters, otherwise it is matched literally.
+	 * The returned list is immutable, it is computed once per key and separator and then reused.
 	 *
 	 * @param key
 	 * @param separator
 	 * @return
 	 */
 	public List<String> getList(String key, String separator) {
-		return Arrays.asList(getArray(key, separator));
+		final String storeKey = key(key);
+		final Map<String, List<String>> lists = Memo.group(memo.lists, separator);
+		List<String> list = lists.get(storeKey);
+		if (list == null) {
+			final String value = store.get(storeKey);
+			if (value == null) {
+				return Collections.emptyList();
+			}
+			list = Collections.unmodifiableList(Arrays.asList(StringUtils.split(value, separator)));
+			lists.putIfAbsent(storeKey, list);
+		}
+		return list;
 	}
 
 	/**
@@ -358,4 +588,385 @@ public class Properlty {
 	public <T> List<T> getList(String key, String separator, Function<String, T> map) {
 		return getList(key, separator).stream().map(map).collect(Collectors.toList());
 	}
+
+	/**
+	 * Return the property value associated with the given key split with the default separator
+	 * and convert each element to the given type with the converter registered in the {@link ProperltyBuilder}.
+	 * The default separator is {@value Default#LIST_SEPARATOR}}
+	 *
+	 * @param key
+	 * @param type
+	 * @return
+	 */
+	public <T> List<T> getList(String key, Class<T> type) {
+		return getList(key, Default.LIST_SEPARATOR, type);
+	}
+
+	/**
+	 * Return the property value associated with the given key split with the specific separator
+	 * and convert each element to the given type with the converter registered in the {@link ProperltyBuilder}.
+	 * The returned list is immutable, it is computed once per key, separator and type and then reused.
+	 *
+	 * @param key
+	 * @param separator
+	 * @param type
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> List<T> getList(String key, String separator, Class<T> type) {
+		final String storeKey = key(key);
+		final Map<String, List<?>> lists = Memo.group(Memo.group(memo.convertedLists, type), separator);
+		List<T> list = (List<T>) lists.get(storeKey);
+		if (list == null) {
+			final List<String> tokens = getList(key, separator);
+			if (tokens.isEmpty()) {
+				return Collections.emptyList();
+			}
+			list = Collections.unmodifiableList(tokens.stream().map(converter(type)).collect(Collectors.toList()));
+			lists.putIfAbsent(storeKey, list);
+		}
+		return list;
+	}
+
+	/**
+	 * Return the values of the keys name[0], name[1] and so on, in the order of their indexes.
+	 * Missing indexes are skipped, as well as the indexes that only have sub keys, like name[2].host.
+	 * The indexes are read from the prefix index, the returned list is immutable and it is computed once per name.
+	 *
+	 * @param name
+	 * @return
+	 */
+	public List<String> getIndexedValues(String name) {
+		final String storeKey = key(name);
+		List<String> values = memo.indexedValues.get(storeKey);
+		if (values == null) {
+			final int[] indexes = prefixIndex.families().indexes(storeKey);
+			final List<String> found = new ArrayList<>(indexes.length);
+			for (final int index : indexes) {
+				final String value = store.get(storeKey + "[" + index + "]");
+				if (value != null) {
+					found.add(value);
+				}
+			}
+			values = Collections.unmodifiableList(found);
+			memo.indexedValues.putIfAbsent(storeKey, values);
+		}
+		return values;
+	}
+
+	/**
+	 * Return a view for each index of the keys like name[index].key, in the order of the indexes,
+	 * so getIndexedList("servers").get(0).get("host") returns the value of "servers[0].host".
+	 * The indexes are read from the prefix index, the returned list is immutable and it is computed once per name.
+	 *
+	 * @param name
+	 * @return
+	 */
+	public List<Properlty> getIndexedList(String name) {
+		final String storeKey = key(name);
+		List<Properlty> list = memo.indexedLists.get(storeKey);
+		if (list == null) {
+			final int[] indexes = prefixIndex.families().indexes(storeKey);
+			final List<Properlty> views = new ArrayList<>(indexes.length);
+			for (final int index : indexes) {
+				views.add(subset(name + "[" + index + "]."));
+			}
+			list = Collections.unmodifiableList(views);
+			memo.indexedLists.putIfAbsent(storeKey, list);
+		}
+		return list;
+	}
+
+	/**
+	 * Return a view for each segment that follows name in the keys like name.segment.key, in lexicographic order of the segments,
+	 * so getMap("routes").get("a").get("target") returns the value of "routes.a.target".
+	 * The segments are read from the prefix index, the returned map is immutable and it is computed once per name.
+	 *
+	 * @param name
+	 * @return
+	 */
+	public Map<String, Properlty> getMap(String name) {
+		final String storeKey = key(name);
+		Map<String, Properlty> map = memo.maps.get(storeKey);
+		if (map == null) {
+			final Map<String, Properlty> views = new LinkedHashMap<>();
+			for (final String segment : prefixIndex.families().children(storeKey)) {
+				views.put(segment, subset(name + "." + segment + "."));
+			}
+			map = Collections.unmodifiableMap(views);
+			memo.maps.putIfAbsent(storeKey, map);
+		}
+		return map;
+	}
+
+	/**
+	 * Return a read-only view of the keys that start with the given prefix, in lexicographic order.
+	 * The view is created in a time proportional to the prefix length.
+	 *
+	 * @param prefix
+	 * @return
+	 */
+	public Set<String> keysWithPrefix(String prefix) {
+		return prefixIndex.keysWithPrefix(this.prefix, normalize(prefix));
+	}
+
+	/**
+	 * Return a view of the properties whose keys start with the given prefix.
+	 * The view shares the properties of this instance and strips the prefix from the keys,
+	 * so subset("db.").get("url") returns the value of "db.url". Creating a view does not copy any property.
+	 *
+	 * @param prefix
+	 * @return
+	 */
+	public Properlty subset(String prefix) {
+		return new Properlty(this, normalize(prefix));
+	}
+
+	/**
+	 * Return a new instance with the given values in place of the values of this instance.
+	 * The properties whose placeholders refer to an overridden key are rendered again, and the overridden
+	 * values can contain placeholders too. This instance is not modified.
+	 *
+	 * The new instance is backed by a {@link HamtStore} that shares all the unchanged properties with this instance,
+	 * so deriving it costs O(k log n) for k overridden keys, plus the rendering of the properties that depend on them;
+	 * the keys read by each property that contains placeholders are indexed on the first call.
+	 * If this instance is not backed by a {@link HamtStore}, one is built in bulk on the first call and reused afterwards.
+	 * The prefix index of the new instance shares the tree of this instance and only adds the new keys.
+	 *
+	 * @param overrides
+	 * @return
+	 * @throws UnresolvablePlaceholdersException if a placeholder cannot be resolved and unresolvable placeholders are not ignored
+	 */
+	public Properlty withOverrides(Map<String, String> overrides) {
+		HamtStore base = persistentStore.get();
+		if (base == null) {
+			persistentStore.compareAndSet(null, HamtStore.of(store));
+			base = persistentStore.get();
+		}
+		final Derivation derivation = derive(overrides);
+		final HamtStore derived = base.withAll(derivation.getChanges());
+		final PrefixIndex derivedIndex = prefixIndex.withKeys(derived, addedKeys(derivation));
+		return new Properlty(this, derived, derivedIndex, derivation.getTemplates());
+	}
+
+	/**
+	 * Return a new instance made of a small delta over the properties of this instance.
+	 * The delta holds the given values and the properties whose placeholders refer to an overridden key, rendered again.
+	 * Lookups check the delta first and then the properties of this instance, which are shared and never copied;
+	 * this fits many tenants, each one with a few overrides over the same large base configuration.
+	 * This instance is not modified.
+	 *
+	 * @param overrides
+	 * @return
+	 * @throws UnresolvablePlaceholdersException if a placeholder cannot be resolved and unresolvable placeholders are not ignored
+	 */
+	public Properlty overlay(Map<String, String> overrides) {
+		final Derivation derivation = derive(overrides);
+		final OverlayStore overlay = OverlayStore.of(store, derivation.getChanges());
+		final PrefixIndex overlayIndex = prefixIndex.withKeys(overlay, addedKeys(derivation));
+		return new Properlty(this, overlay, overlayIndex, derivation.getTemplates());
+	}
+
+	/**
+	 * Return the keys added, removed and changed from the properties of this instance to the properties of the given one.
+	 * When one instance is derived from the other or both are derived from the same instance through
+	 * {@link #withOverrides(Map)} or {@link #overlay(Map)}, only the properties they do not share are compared,
+	 * so the cost is proportional to the number of changes; the properties of unrelated instances are all compared.
+	 * The keys of views are compared without their prefix.
+	 *
+	 * @param other
+	 * @return
+	 */
+	public PropertiesDiff diff(Properlty other) {
+		if (!prefix.equals(other.prefix)) {
+			return PropertiesDiff.of(OpenAddressingStore.build(asMap()), OpenAddressingStore.build(other.asMap()));
+		}
+		return PropertiesDiff.of(lineageStore(other.store), other.lineageStore(store)).subset(prefix);
+	}
+
+	/**
+	 * Return the store to compare with the given one: when the given one derives from a {@link HamtStore}
+	 * and this instance is not backed by one, the {@link HamtStore} built by {@link #withOverrides(Map)}
+	 * shares its structure with the given one.
+	 */
+	private Store lineageStore(Store other) {
+		final HamtStore persistent = persistentStore.get();
+		return persistent != null && !(root(store) instanceof HamtStore) && root(other) instanceof HamtStore ? persistent : store;
+	}
+
+	private static Store root(Store store) {
+		if (store instanceof BloomFilterStore) {
+			return root(((BloomFilterStore) store).getStore());
+		}
+		return store instanceof OverlayStore ? root(((OverlayStore) store).getBase()) : store;
+	}
+
+	/**
+	 * Return the keys of the changes that are not in the store of this instance
+	 */
+	private List<String> addedKeys(Derivation derivation) {
+		final List<String> addedKeys = new ArrayList<>();
+		derivation.getChanges().keySet().forEach(key -> {
+			if (store.get(key) == null) {
+				addedKeys.add(key);
+			}
+		});
+		return addedKeys;
+	}
+
+	private Derivation derive(Map<String, String> overrides) {
+		Map<String, Set<String>> templateDependents = dependents.get();
+		if (templateDependents == null) {
+			dependents.compareAndSet(null, Derivation.dependents(store, templates, templateCache, this::normalize, ignoreUnresolvablePlaceholders));
+			templateDependents = dependents.get();
+		}
+		final Map<String, String> storeOverrides = new LinkedHashMap<>();
+		overrides.forEach((key, value) -> storeOverrides.put(key(key), value));
+		return Derivation.derive(store, templates, templateDependents, storeOverrides, templateCache, this::normalize, ignoreUnresolvablePlaceholders);
+	}
+
+	/**
+	 * Return a read-only view of the properties of this instance, in lexicographic order of the keys.
+	 *
+	 * @return
+	 */
+	public Map<String, String> asMap() {
+		return prefixIndex.entriesWithPrefix(prefix, "");
+	}
+
+	/**
+	 * Return a {@link Constant} that holds the value of the given key converted to the given type.
+	 * The same {@link Constant} is returned for the same key and type.
+	 * The value is converted by the converter registered in the {@link ProperltyBuilder}.
+	 *
+	 * Only the MethodHandle returned by {@link Constant#handle()} is inlined by the JIT compiler, and only if it is kept
+	 * in a static final field and invoked with invokeExact and the unboxed return type:
+	 *
+	 * <pre>
+	 * static final MethodHandle LIMIT = properlty.constant("limit", Integer.class).handle();
+	 * ...
+	 * int limit = (int) LIMIT.invokeExact();
+	 * </pre>
+	 *
+	 * {@link Constant#get()} reads the value through the call site on each call, even if the Constant is kept in a static final field.
+	 *
+	 * @param key
+	 * @param type
+	 * @return
+	 * @throws MissingPropertyException if the key is not present
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Constant<T> constant(String key, Class<T> type) {
+		final String storeKey = key(key);
+		// the constants are grouped by type, so a constant already created is found without building a composite key
+		final Map<String, Constant<?>> typeConstants = Memo.group(constants, type);
+		final Constant<?> constant = typeConstants.get(storeKey);
+		if (constant != null) {
+			return (Constant<T>) constant;
+		}
+		return (Constant<T>) typeConstants.computeIfAbsent(storeKey, constantKey -> {
+			final String value = store.get(storeKey);
+			if (value == null) {
+				throw new MissingPropertyException("Property [" + storeKey + "] not found");
+			}
+			return new Constant<>(storeKey, type, converter(type).apply(value));
+		});
+	}
+
+	/**
+	 * Bind the properties to a new instance of the given interface, POJO or record.
+	 * The keys are derived from the methods, setters or record components and can be customized
+	 * with the {@link com.ufoscout.properlty.annotation.Config} and {@link com.ufoscout.properlty.annotation.Key} annotations.
+	 * The binding plan of each type is computed once and reused by the following binds.
+	 *
+	 * @param type
+	 * @return
+	 * @throws com.ufoscout.properlty.exception.MissingPropertyException if a required key is not present
+	 */
+	public <T> T bind(Class<T> type) {
+		return ConfigBinder.bind(this, type);
+	}
+
+	/**
+	 * Render a template replacing its placeholders with the properties values.
+	 * The template uses the same placeholders syntax, delimiters and default value separator of the properties.
+	 *
+	 * @param template
+	 * @return
+	 * @throws UnresolvablePlaceholdersException if a placeholder cannot be resolved and unresolvable placeholders are not ignored
+	 */
+	public String render(String template) {
+		return render(template, Collections.emptyMap());
+	}
+
+	/**
+	 * Render a template replacing its placeholders with the given variables or, if not found there, with the properties values.
+	 * The template uses the same placeholders syntax, delimiters and default value separator of the properties.
+	 * Compiled templates are cached, so rendering the same template again does not tokenize it again.
+	 *
+	 * @param template
+	 * @param extraVars variables that override the properties values
+	 * @return
+	 * @throws UnresolvablePlaceholdersException if a placeholder cannot be resolved and unresolvable placeholders are not ignored
+	 */
+	public String render(String template, Map<String, String> extraVars) {
+		return templateCache.get(template).render(key -> {
+			final String value = extraVars.get(key);
+			if (value != null) {
+				return value;
+			}
+			return get(key).orElse(null);
+		}, ignoreUnresolvablePlaceholders);
+	}
+
+	<T> Function<String, T> converter(Class<T> type) {
+		final Function<String, T> converter = converters.get(type);
+		if (converter == null) {
+			throw new IllegalArgumentException("No converter registered for type " + type.getName());
+		}
+		return converter;
+	}
+
+	/**
+	 * Return the value of the given key. The key of a view is joined to the prefix in a {@link KeyPath}
+	 * reused by the calling thread, so no String is created for it.
+	 */
+	private String lookup(String key) {
+		final String normalized = normalize(key);
+		return prefix.isEmpty() ? store.get(normalized) : store.get(KEY_PATHS.get().clear().append(prefix).append(normalized));
+	}
+
+	/**
+	 * Return the key of the store that corresponds to the given key of this instance.
+	 */
+	String key(String key) {
+		key = normalize(key);
+		return prefix.isEmpty() ? key : prefix + key;
+	}
+
+	String normalize(String key) {
+		return caseSensitive ? key : key.toLowerCase();
+	}
+
+	/**
+	 * The values computed from the properties and reused by the getters, shared by an instance and its views.
+	 * Each kind of value has its own maps, keyed by store key, so a memoized value is found without building a composite key.
+	 */
+	private static final class Memo {
+		private final Map<Class<?>, Map<String, Object>> values = new ConcurrentHashMap<>();
+		private final Map<String, Map<String, List<String>>> lists = new ConcurrentHashMap<>();
+		private final Map<Class<?>, Map<String, Map<String, List<?>>>> convertedLists = new ConcurrentHashMap<>();
+		private final Map<String, List<String>> indexedValues = new ConcurrentHashMap<>();
+		private final Map<String, List<Properlty>> indexedLists = new ConcurrentHashMap<>();
+		private final Map<String, Map<String, Properlty>> maps = new ConcurrentHashMap<>();
+
+		/**
+		 * Return the map of the given group, creating it on the first call
+		 */
+		static <K, V> Map<String, V> group(Map<K, Map<String, V>> groups, K group) {
+			final Map<String, V> values = groups.get(group);
+			return values != null ? values : groups.computeIfAbsent(group, key -> new ConcurrentHashMap<>());
+		}
+	}
+
 }
@@ -15,19 +15,43 @@
  ******************************************************************************/
 package com.ufoscout.properlty;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import com.ufoscout.properlty.convert.ConverterRegistry;
+import com.ufoscout.properlty.reader.PlaceholderResolver;
 import com.ufoscout.properlty.reader.PropertiesResourceReader;
 import com.ufoscout.properlty.reader.Reader;
 import com.ufoscout.properlty.reader.decorator.PriorityQueueDecoratorReader;
 import com.ufoscout.properlty.reader.decorator.ReplacerDecoratorReader;
+import com.ufoscout.properlty.store.BloomFilterStore;
+import com.ufoscout.properlty.store.HamtStore;
+import com.ufoscout.properlty.store.OpenAddressingStore;
+import com.ufoscout.properlty.store.PrefixIndex;
+import com.ufoscout.properlty.store.Store;
+import com.ufoscout.properlty.store.StoreFactory;
+import com.ufoscout.properlty.template.TemplateCache;
+import com.ufoscout.properlty.util.StringTable;
+import com.ufoscout.properlty.util.TokenScanner;
 
 public class ProperltyBuilder {
 
 	private final PriorityQueueDecoratorReader reader = new PriorityQueueDecoratorReader();
 	private String startDelimiter = Default.START_DELIMITER;
 	private String endDelimiter = Default.END_DELIMITER;
+	private TokenScanner tokenScanner = TokenScanner.of(startDelimiter, endDelimiter);
 	private String defaultValueSeparator = Default.DEFAULT_DEFAULT_VALUE_SEPARATOR;
 	private boolean ignoreUnresolvablePlaceholders = false;
 	private boolean caseSensitive = true;
+	private boolean deduplicate = false;
+	private boolean bloomFilter = false;
+	private int templateCacheSize = Default.TEMPLATE_CACHE_SIZE;
+	private PlaceholderResolver resolver;
+	private StoreFactory storeFactory = OpenAddressingStore::build;
+	private final ConverterRegistry converters = new ConverterRegistry();
 
 	ProperltyBuilder() {
 		/*
@@ -102,7 +126,46 @@ public class ProperltyBuilder {
 	 * @return
 	 */
 	public Properlty build() {
-		return new Properlty( caseSensitive, new ReplacerDecoratorReader(reader, startDelimiter, endDelimiter, defaultValueSeparator, ignoreUnresolvablePlaceholders, caseSensitive).read() );
+		final BuildStatistics statistics = new BuildStatistics();
+		final Map<String, String> templates = new HashMap<>();
+		final ReplacerDecoratorReader replacer = new ReplacerDecoratorReader(reader, tokenScanner, defaultValueSeparator, ignoreUnresolvablePlaceholders, caseSensitive)
+				.statistics(statistics)
+				.resolver(resolver)
+				.templates(templates);
+		final TemplateCache templateCache = new TemplateCache(tokenScanner, defaultValueSeparator, templateCacheSize);
+		final StringTable table = deduplicate ? new StringTable() : StringTable.NONE;
+		final Map<String, String> properties = new LinkedHashMap<>();
+		// resolved values and normalized keys are new Strings, so they pass through the table again
+		replacer.read(table).forEach((key, value) -> properties.put(table.retain(key), table.retain(value.getValue())));
+		statistics.deduplicatedStrings(table.getDuplicates()).deduplicatedBytes(table.getSavedBytes());
+		final Store builtStore = storeFactory.build(properties);
+		final Store store = bloomFilter ? BloomFilterStore.of(builtStore) : builtStore;
+		return new Properlty( caseSensitive, ignoreUnresolvablePlaceholders, store, new PrefixIndex(store), statistics, templateCache, converters.copy(), HamtStore.build(templates) );
+	}
+
+	/**
+	 * Build a {@link ReloadableProperlty} whose snapshots are built by this builder,
+	 * so each {@link ReloadableProperlty#reload()} reads all the {@link Reader}s again.
+	 * The change listeners run on the {@link java.util.concurrent.ForkJoinPool#commonPool()}.
+	 * The builder should not be modified afterwards.
+	 *
+	 * @return
+	 */
+	public ReloadableProperlty buildReloadable() {
+		return ReloadableProperlty.of(this::build);
+	}
+
+	/**
+	 * Build a {@link ReloadableProperlty} whose snapshots are built by this builder,
+	 * so each {@link ReloadableProperlty#reload()} reads all the {@link Reader}s again.
+	 * The change listeners run on the given executor.
+	 * The builder should not be modified afterwards.
+	 *
+	 * @param executor
+	 * @return
+	 */
+	public ReloadableProperlty buildReloadable(Executor executor) {
+		return ReloadableProperlty.of(this::build, executor);
 	}
 
 	/**
@@ -135,6 +198,7 @@ public class ProperltyBuilder {
 	public ProperltyBuilder delimiters(String startDelimiter, String endDelimiter) {
 		this.startDelimiter = startDelimiter;
 		this.endDelimiter = endDelimiter;
+		this.tokenScanner = TokenScanner.of(startDelimiter, endDelimiter);
 		return this;
 	}
 
@@ -173,4 +237,83 @@ public class ProperltyBuilder {
 		return this;
 	}
 
+	/**
+	 * Whether equal keys and values read from the different readers should share a single String instance.
+	 * The number of replaced instances and the saved bytes are reported in the {@link BuildStatistics}.
+	 * Default is false.
+	 *
+	 * @param deduplicate
+	 * @return
+	 */
+	public ProperltyBuilder deduplicate(boolean deduplicate) {
+		this.deduplicate = deduplicate;
+		return this;
+	}
+
+	/**
+	 * Whether the lookups should check a Bloom filter of the keys before reading the {@link Store},
+	 * so most lookups of missing keys return after a few bit probes.
+	 * The filter and its false positive rate are available through {@link Properlty#getBloomFilter()}.
+	 * Default is false.
+	 *
+	 * @param bloomFilter
+	 * @return
+	 */
+	public ProperltyBuilder bloomFilter(boolean bloomFilter) {
+		this.bloomFilter = bloomFilter;
+		return this;
+	}
+
+	/**
+	 * The maximum number of compiled templates cached by {@link Properlty#render(String, java.util.Map)}.
+	 * Default is {@value Default#TEMPLATE_CACHE_SIZE}
+	 *
+	 * @param templateCacheSize
+	 * @return
+	 */
+	public ProperltyBuilder templateCacheSize(int templateCacheSize) {
+		this.templateCacheSize = templateCacheSize;
+		return this;
+	}
+
+	/**
+	 * Register the converter used by {@link Properlty#get(String, Class)} to convert the values to the given type.
+	 * Converters for String, the primitive types, BigDecimal, BigInteger, enums, {@link java.time.Duration},
+	 * {@link java.net.InetSocketAddress}, {@link java.net.URI}, {@link java.nio.file.Path} and
+	 * {@link com.ufoscout.properlty.convert.DataSize} are already available and can be overridden.
+	 *
+	 * @param type
+	 * @param converter
+	 * @return
+	 */
+	public <T> ProperltyBuilder converter(Class<T> type, Function<String, ? extends T> converter) {
+		converters.register(type, converter);
+		return this;
+	}
+
+	/**
+	 * Set a {@link PlaceholderResolver} that provides the placeholders not defined by any {@link Reader}.
+	 * It is called once per resolution round with all the missing keys.
+	 * The resolved values replace the placeholders only, they are not added to the properties.
+	 *
+	 * @param resolver
+	 * @return
+	 */
+	public ProperltyBuilder resolver(PlaceholderResolver resolver) {
+		this.resolver = resolver;
+		return this;
+	}
+
+	/**
+	 * Set the {@link StoreFactory} that builds the {@link Store} holding the resolved properties.
+	 * Default is {@link OpenAddressingStore#build(Map)}
+	 *
+	 * @param storeFactory
+	 * @return
+	 */
+	public ProperltyBuilder store(StoreFactory storeFactory) {
+		this.storeFactory = storeFactory;
+		return this;
+	}
+
 }
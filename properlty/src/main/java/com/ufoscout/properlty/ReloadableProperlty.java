@@ -0,0 +1,281 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import com.ufoscout.properlty.exception.MissingPropertyException;
+
+/**
+ * Holds the current snapshot of a {@link Properlty} that can be reloaded.
+ *
+ * Each snapshot is an immutable {@link Properlty}; reading the current one is a single volatile read and never locks,
+ * so readers that keep a snapshot see a consistent set of properties even while a new one is published.
+ * Writers publish a new snapshot with {@link #compareAndSet(Properlty, Properlty)} or {@link #reload()};
+ * then the {@link Constant}s returned by {@link #constant(String, Class)} are updated and the registered
+ * {@link ChangeListener}s are notified with the {@link PropertiesDiff} of the two snapshots.
+ * The new values of the constants are converted before publishing, so a snapshot whose values cannot be converted
+ * is never published.
+ *
+ * The listeners run on the executor, one change at a time and in publication order,
+ * so a slow listener never delays the publication or the reads.
+ *
+ * @author Francesco Cina
+ *
+ */
+public class ReloadableProperlty {
+
+	private final Supplier<Properlty> loader;
+	private final Executor executor;
+	private final AtomicReference<Properlty> current;
+	private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+	private final Map<Class<?>, Map<String, TypedConstant<?>>> constants = new ConcurrentHashMap<>();
+	private final Queue<PropertiesDiff> pendingChanges = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean dispatching = new AtomicBoolean();
+	private final Object publishLock = new Object();
+
+	/**
+	 * Create a {@link ReloadableProperlty} whose snapshots are created by the loader.
+	 * The listeners run on the {@link ForkJoinPool#commonPool()}.
+	 *
+	 * @param loader
+	 * @return
+	 */
+	public static ReloadableProperlty of(Supplier<Properlty> loader) {
+		return of(loader, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Create a {@link ReloadableProperlty} whose snapshots are created by the loader.
+	 * The listeners run on the given executor.
+	 *
+	 * @param loader
+	 * @param executor
+	 * @return
+	 */
+	public static ReloadableProperlty of(Supplier<Properlty> loader, Executor executor) {
+		return new ReloadableProperlty(loader, executor);
+	}
+
+	private ReloadableProperlty(Supplier<Properlty> loader, Executor executor) {
+		this.loader = loader;
+		this.executor = executor;
+		current = new AtomicReference<>(loader.get());
+	}
+
+	/**
+	 * Return the current snapshot.
+	 *
+	 * @return
+	 */
+	public Properlty current() {
+		return current.get();
+	}
+
+	/**
+	 * Load a new snapshot and publish it if no other snapshot was published while it was loaded.
+	 *
+	 * @return true if the new snapshot was published
+	 */
+	public boolean reload() {
+		final Properlty expected = current.get();
+		return compareAndSet(expected, loader.get());
+	}
+
+	/**
+	 * Publish the next snapshot if the current one is the expected one.
+	 * E.g. compareAndSet(current, current.withOverrides(overrides)) publishes some overridden values.
+	 *
+	 * @param expected
+	 * @param next
+	 * @return true if the next snapshot was published
+	 * @throws RuntimeException the exception of the converter, if a changed value of a {@link Constant} cannot be converted,
+	 * or an {@link IllegalStateException} if the converter returns null; the snapshot is not published
+	 */
+	public boolean compareAndSet(Properlty expected, Properlty next) {
+		if (current.get() != expected) {
+			return false;
+		}
+		// the diff is computed before publishing, so the lock is held only to keep the listeners in publication order
+		final PropertiesDiff diff = expected.diff(next);
+		try {
+			synchronized (publishLock) {
+				if (current.get() != expected) {
+					return false;
+				}
+				// a conversion failure throws here, before the snapshot is published
+				final List<Runnable> constantUpdates = convertConstants(next, diff);
+				current.set(next);
+				if (!diff.isEmpty()) {
+					pendingChanges.add(diff);
+				}
+				constantUpdates.forEach(Runnable::run);
+			}
+		} finally {
+			dispatch();
+		}
+		return true;
+	}
+
+	/**
+	 * Register a listener notified after each published snapshot that changes at least one property.
+	 *
+	 * @param listener
+	 * @return
+	 */
+	public ReloadableProperlty addListener(ChangeListener listener) {
+		listeners.add(listener);
+		return this;
+	}
+
+	/**
+	 * Remove a registered listener.
+	 *
+	 * @param listener
+	 * @return
+	 */
+	public ReloadableProperlty removeListener(ChangeListener listener) {
+		listeners.remove(listener);
+		return this;
+	}
+
+	/**
+	 * Return a {@link Constant} that holds the value of the given key in the current snapshot, converted to the given type.
+	 * It is updated when a new snapshot changes the value of the key; when a new snapshot removes the key, it keeps its last value.
+	 * The same {@link Constant} is returned for the same key and type.
+	 *
+	 * @param key
+	 * @param type
+	 * @return
+	 * @throws MissingPropertyException if the key is not present
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Constant<T> constant(String key, Class<T> type) {
+		synchronized (publishLock) {
+			final Properlty snapshot = current.get();
+			// the store key identifies the constant, while the snapshot is read with the key of the view
+			final String storeKey = snapshot.key(key);
+			final String viewKey = snapshot.normalize(key);
+			final Map<String, TypedConstant<?>> typeConstants = constants.computeIfAbsent(type, constantType -> new ConcurrentHashMap<>());
+			return (Constant<T>) typeConstants.computeIfAbsent(storeKey, constantKey -> {
+				final T value = snapshot.get(viewKey, type)
+						.orElseThrow(() -> new MissingPropertyException("Property [" + storeKey + "] not found"));
+				return new TypedConstant<>(new Constant<>(storeKey, type, value), viewKey, type);
+			}).constant;
+		}
+	}
+
+	/**
+	 * Convert the new values of the constants whose keys are changed or added by the diff
+	 * and return the updates that set them.
+	 */
+	private List<Runnable> convertConstants(Properlty next, PropertiesDiff diff) {
+		final List<Runnable> updates = new ArrayList<>();
+		if (diff.isEmpty()) {
+			return updates;
+		}
+		for (final Map<String, TypedConstant<?>> typeConstants : constants.values()) {
+			for (final TypedConstant<?> typedConstant : typeConstants.values()) {
+				// the keys of the diff of two views are the keys of the views
+				final String key = typedConstant.key;
+				if (diff.getChanged().containsKey(key) || diff.getAdded().containsKey(key)) {
+					updates.add(typedConstant.update(next));
+				}
+			}
+		}
+		return updates;
+	}
+
+	/**
+	 * Run the listeners on the executor with the pending changes, unless they are already running.
+	 */
+	private void dispatch() {
+		if (pendingChanges.isEmpty() || !dispatching.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			executor.execute(this::notifyListeners);
+		} catch (final RejectedExecutionException e) {
+			// the changes stay pending and are notified by the next dispatch
+			dispatching.set(false);
+			final Thread thread = Thread.currentThread();
+			thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+		}
+	}
+
+	/**
+	 * Notify the listeners of the pending changes, then dispatch the changes added meanwhile.
+	 */
+	private void notifyListeners() {
+		try {
+			PropertiesDiff diff;
+			while ((diff = pendingChanges.poll()) != null) {
+				for (final ChangeListener listener : listeners) {
+					try {
+						listener.onChange(diff);
+					} catch (final RuntimeException e) {
+						// a failing listener does not prevent the others from being notified
+						final Thread thread = Thread.currentThread();
+						thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+					}
+				}
+			}
+		} finally {
+			dispatching.set(false);
+		}
+		// a change added after the last poll and before the flag was reset is not lost
+		dispatch();
+	}
+
+	/**
+	 * A {@link Constant} with the type used to convert its new values
+	 */
+	private static final class TypedConstant<T> {
+		private final Constant<T> constant;
+		private final String key;
+		private final Class<T> type;
+
+		TypedConstant(Constant<T> constant, String key, Class<T> type) {
+			this.constant = constant;
+			this.key = key;
+			this.type = type;
+		}
+
+		/**
+		 * Convert the value of the key in the snapshot and return the update that sets it
+		 *
+		 * @throws IllegalStateException if the converter returns null
+		 */
+		Runnable update(Properlty snapshot) {
+			final T value = snapshot.get(key, type).orElseThrow(() -> new IllegalStateException(
+					"Property [" + constant.getKey() + "] cannot be converted to " + type.getName() + ": the converter returned null"));
+			return () -> constant.set(value);
+		}
+	}
+
+}
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.reader.Properties;
+
+public class ConfigBinderBenchmark extends ProperltyBaseTest {
+
+	@Test
+	public void bindBenchmark() {
+		final Properlty prop = Properlty.builder()
+				.add(Properties
+						.add("server.host", "localhost")
+						.add("server.port.number", "8080")
+						.add("server.secure", "true"))
+				.build();
+		final ConfigBinderTest.ServerConfig config = prop.bind(ConfigBinderTest.ServerConfig.class);
+
+		final int loops = 10_000_000;
+
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < loops; i++) {
+			assertEquals(8080, Integer.parseInt(prop.get("server.port.number").get()));
+		}
+		final long lookupTime = System.currentTimeMillis() - start;
+
+		start = System.currentTimeMillis();
+		for (int i = 0; i < loops; i++) {
+			assertEquals(8080, config.getPort());
+		}
+		final long boundTime = System.currentTimeMillis() - start;
+
+		start = System.currentTimeMillis();
+		for (int i = 0; i < 100_000; i++) {
+			assertNotNull(prop.bind(ConfigBinderTest.PoolConfig.class));
+		}
+		final long pojoBindTime = System.currentTimeMillis() - start;
+
+		System.out.println("Lookup and parse time : " + lookupTime + "ms");
+		System.out.println("Bound interface time : " + boundTime + "ms");
+		System.out.println("100_000 POJO binds time : " + pojoBindTime + "ms");
+	}
+
+}
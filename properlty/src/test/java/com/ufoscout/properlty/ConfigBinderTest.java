@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNotNull;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.annotation.Config;
+import com.ufoscout.properlty.annotation.Key;
+import com.ufoscout.properlty.convert.DataSize;
+import com.ufoscout.properlty.exception.MissingPropertyException;
+import com.ufoscout.properlty.reader.Properties;
+
+public class ConfigBinderTest extends ProperltyBaseTest {
+
+	@Config(prefix = "server.")
+	public interface ServerConfig {
+		String host();
+		@Key("port.number") int getPort();
+		@Key(defaultValue = "30") long timeout();
+		boolean isSecure();
+		Optional<String> name();
+		List<Integer> ports();
+		default String url() {
+			return host() + ":" + getPort();
+		}
+	}
+
+	interface PrimitivesConfig {
+		int i();
+		float f();
+		double d();
+		long l();
+		boolean z();
+	}
+
+	public interface ClientConfig {
+		Duration timeout();
+		@Key(defaultValue = "1KB") DataSize buffer();
+		Optional<URI> endpoint();
+		Level level();
+	}
+
+	public enum Level { LOW, HIGH }
+
+	public static class PoolConfig {
+		private int max = 5;
+		private String name;
+		public int getMax() { return max; }
+		public void setMax(int max) { this.max = max; }
+		public String getName() { return name; }
+		@Key("pool.name") public void setName(String name) { this.name = name; }
+	}
+
+	private final Properlty prop = Properlty.builder()
+			.add(Properties
+					.add("server.host", "localhost")
+					.add("server.port.number", "8080")
+					.add("server.secure", "true")
+					.add("server.ports", "1,2,3")
+					.add("pool.name", "main"))
+			.build();
+
+	@Test
+	public void shouldBindInterfaces() {
+		final ServerConfig config = prop.bind(ServerConfig.class);
+
+		assertEquals("localhost", config.host());
+		assertEquals(8080, config.getPort());
+		assertEquals(30L, config.timeout());
+		assertTrue(config.isSecure());
+		assertFalse(config.name().isPresent());
+		assertEquals(Arrays.asList(1, 2, 3), config.ports());
+		assertEquals("localhost:8080", config.url());
+		assertNotNull(config.toString());
+		assertFalse(Proxy.isProxyClass(config.getClass()));
+		assertNotSame(config, prop.bind(ServerConfig.class));
+		assertSame(config.getClass(), prop.bind(ServerConfig.class).getClass());
+	}
+
+	@Test
+	public void shouldBindPrimitivesOfPackagePrivateInterfaces() {
+		final PrimitivesConfig config = Properlty.builder()
+				.add(Properties
+						.add("i", "1")
+						.add("f", "3.5")
+						.add("d", "4.5")
+						.add("l", "5")
+						.add("z", "true"))
+				.build()
+				.bind(PrimitivesConfig.class);
+
+		assertEquals(1, config.i());
+		assertEquals(3.5f, config.f(), 0);
+		assertEquals(4.5d, config.d(), 0);
+		assertEquals(5L, config.l());
+		assertTrue(config.z());
+		assertTrue(config.toString().startsWith("PrimitivesConfig["));
+		assertFalse(Proxy.isProxyClass(config.getClass()));
+	}
+
+	@Test
+	public void shouldBindWithTheConvertersOfTheInstance() {
+		final ClientConfig config = Properlty.builder()
+				.add(Properties
+						.add("timeout", "30s")
+						.add("endpoint", "http://localhost:8080")
+						.add("level", "high"))
+				.converter(Level.class, value -> Level.valueOf(value.toUpperCase()))
+				.build()
+				.bind(ClientConfig.class);
+
+		assertEquals(Duration.ofSeconds(30), config.timeout());
+		assertEquals(DataSize.parse("1KB"), config.buffer());
+		assertEquals(URI.create("http://localhost:8080"), config.endpoint().get());
+		assertEquals(Level.HIGH, config.level());
+	}
+
+	@Test
+	public void shouldBindPojos() {
+		final PoolConfig config = prop.bind(PoolConfig.class);
+		assertEquals(5, config.getMax());
+		assertEquals("main", config.getName());
+
+		final PoolConfig other = prop.subset("server.").bind(PoolConfig.class);
+		assertNotSame(config, other);
+		assertNull(other.getName());
+	}
+
+	@Test(expected = MissingPropertyException.class)
+	public void shouldFailIfARequiredKeyIsMissing() {
+		Properlty.builder().build().bind(ServerConfig.class);
+	}
+
+	@Test
+	public void shouldBindRecords() throws Exception {
+		final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assumeNotNull(compiler);
+		assumeTrue(!System.getProperty("java.specification.version").startsWith("1."));
+		assumeTrue(Integer.parseInt(System.getProperty("java.specification.version")) >= 16);
+
+		final File directory = Files.createTempDirectory("properlty").toFile();
+		final File source = new File(directory, "DbConfig.java");
+		Files.write(source.toPath(), ("public record DbConfig(String url, @com.ufoscout.properlty.annotation.Key(\"db.port\") int port, "
+				+ "java.util.Optional<String> user) {}").getBytes(StandardCharsets.UTF_8));
+		assertEquals(0, compiler.run(null, null, null, "-classpath", System.getProperty("java.class.path"), source.getPath()));
+
+		try (URLClassLoader classLoader = new URLClassLoader(new URL[] {directory.toURI().toURL()}, getClass().getClassLoader())) {
+			final Class<?> type = classLoader.loadClass("DbConfig");
+			final Object config = Properlty.builder()
+					.add(Properties.add("url", "jdbc").add("db.port", "5432"))
+					.build()
+					.bind(type);
+			assertEquals("DbConfig[url=jdbc, port=5432, user=Optional.empty]", config.toString());
+		}
+	}
+
+}
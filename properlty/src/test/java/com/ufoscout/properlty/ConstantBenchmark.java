@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.invoke.MethodHandle;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.reader.Properties;
+
+public class ConstantBenchmark extends ProperltyBaseTest {
+
+	private static final Properlty PROPERLTY = Properlty.builder()
+			.add(Properties.add("flag.x", "true"))
+			.build();
+	private static final Constant<Boolean> FLAG = PROPERLTY.constant("flag.x", Boolean.class);
+	private static final MethodHandle FLAG_HANDLE = FLAG.handle();
+	private static final boolean STATIC_FLAG = true;
+
+	@Test
+	public void constantBenchmark() {
+		final int loops = 100_000_000;
+
+		// warm up
+		staticLoop(100_000);
+		constantLoop(100_000);
+		handleLoop(100_000);
+		lookupLoop(100_000);
+
+		final long staticTime = staticLoop(loops);
+		final long constantTime = constantLoop(loops);
+		final long handleTime = handleLoop(loops);
+		final long lookupTime = lookupLoop(loops / 10);
+
+		System.out.println("static final time : " + staticTime + "ms");
+		System.out.println("Constant time : " + constantTime + "ms");
+		System.out.println("Constant static final handle time : " + handleTime + "ms");
+		System.out.println("Properlty lookup time, 1/10 of the loops : " + lookupTime + "ms");
+	}
+
+	private long staticLoop(int loops) {
+		final long start = System.currentTimeMillis();
+		int count = 0;
+		for (int i = 0; i < loops; i++) {
+			if (STATIC_FLAG) {
+				count += i & 1;
+			}
+		}
+		final long end = System.currentTimeMillis();
+		assertEquals(loops / 2, count);
+		return end - start;
+	}
+
+	private long constantLoop(int loops) {
+		final long start = System.currentTimeMillis();
+		int count = 0;
+		for (int i = 0; i < loops; i++) {
+			if (FLAG.get()) {
+				count += i & 1;
+			}
+		}
+		final long end = System.currentTimeMillis();
+		assertEquals(loops / 2, count);
+		return end - start;
+	}
+
+	private long handleLoop(int loops) {
+		final long start = System.currentTimeMillis();
+		int count = 0;
+		try {
+			for (int i = 0; i < loops; i++) {
+				if ((boolean) FLAG_HANDLE.invokeExact()) {
+					count += i & 1;
+				}
+			}
+		} catch (final Throwable e) {
+			throw new RuntimeException(e);
+		}
+		final long end = System.currentTimeMillis();
+		assertEquals(loops / 2, count);
+		return end - start;
+	}
+
+	private long lookupLoop(int loops) {
+		final long start = System.currentTimeMillis();
+		int count = 0;
+		for (int i = 0; i < loops; i++) {
+			if (PROPERLTY.getBoolean("flag.x").get()) {
+				count += i & 1;
+			}
+		}
+		final long end = System.currentTimeMillis();
+		assertEquals(loops / 2, count);
+		return end - start;
+	}
+
+}
@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.invoke.MethodHandle;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.exception.MissingPropertyException;
+import com.ufoscout.properlty.reader.Properties;
+
+public class ConstantTest extends ProperltyBaseTest {
+
+	private static final Properlty PROPERLTY = Properlty.builder()
+			.add(Properties.add("flag.x", "true").add("limit", "100"))
+			.build();
+	private static final Constant<Boolean> FLAG = PROPERLTY.constant("flag.x", Boolean.class);
+
+	@Test
+	public void shouldReturnConvertedValues() {
+		assertTrue(FLAG.get());
+		assertEquals(100, PROPERLTY.constant("limit", Integer.class).get().intValue());
+		assertEquals("100", PROPERLTY.constant("limit", String.class).get());
+		assertEquals("flag.x", FLAG.getKey());
+	}
+
+	@Test
+	public void shouldReturnTheSameConstantForTheSameKeyAndType() {
+		assertSame(FLAG, PROPERLTY.constant("flag.x", Boolean.class));
+		assertSame(FLAG, PROPERLTY.subset("flag.").constant("x", Boolean.class));
+	}
+
+	@Test
+	public void shouldUpdateTheValue() throws Throwable {
+		final Constant<Integer> constant = Properlty.builder()
+				.add(Properties.add("limit", "100"))
+				.build()
+				.constant("limit", Integer.class);
+		final MethodHandle handle = constant.handle();
+		constant.set(200);
+		assertEquals(200, constant.get().intValue());
+		assertEquals(200, (int) handle.invokeExact());
+	}
+
+	@Test(expected = MissingPropertyException.class)
+	public void shouldFailIfTheKeyIsMissing() {
+		PROPERLTY.constant("missing", String.class);
+	}
+
+}
@@ -18,11 +18,15 @@ package com.ufoscout.properlty;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.FileNotFoundException;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.UUID;
@@ -35,6 +39,8 @@ import org.junit.Test;
 import com.ufoscout.properlty.exception.UnresolvablePlaceholdersException;
 import com.ufoscout.properlty.reader.Properties;
 import com.ufoscout.properlty.reader.PropertiesResourceReader;
+import com.ufoscout.properlty.store.BloomFilterStore;
+import com.ufoscout.properlty.store.PerfectHashStore;
 
 public class ProperltyBuilderTest extends ProperltyBaseTest {
 
@@ -245,6 +251,90 @@ public class ProperltyBuilderTest extends ProperltyBaseTest {
 	}
 
 
+	@Test
+	public void shouldExposeBuildStatistics() {
+		final Properlty prop = Properlty.builder()
+				.add(Properties.add("key1", "value1").add("key2", "${key1}").add("key3", "8080"))
+				.build();
+
+		assertEquals(2, prop.getBuildStatistics().getLiteralValues());
+		assertEquals(1, prop.getBuildStatistics().getTemplatedValues());
+	}
+
+	@Test
+	public void shouldDeduplicateKeysAndValues() {
+		final Map<String, String> env = new HashMap<>();
+		env.put(new String("db.host"), new String("localhost"));
+		env.put(new String("cache.host"), new String("localhost"));
+		final Properlty prop = Properlty.builder()
+				.add(new EnvironmentVariablesReader(() -> env))
+				.add(Properties.add(new String("db.host"), new String("localhost")).add("api.host", "${db.host}"))
+				.deduplicate(true)
+				.build();
+
+		assertSame(prop.get("db.host").get(), prop.get("cache.host").get());
+		assertSame(prop.get("db.host").get(), prop.get("api.host").get());
+		// the three final values share one instance, the shadowed db.host of the environment is not counted
+		assertEquals(2, prop.getBuildStatistics().getDeduplicatedStrings());
+		assertTrue(prop.getBuildStatistics().getDeduplicatedBytes() > 0);
+	}
+
+	@Test
+	public void shouldNotDeduplicateByDefault() {
+		final Properlty prop = Properlty.builder()
+				.add(Properties.add("db.host", new String("localhost")).add("cache.host", new String("localhost")))
+				.build();
+
+		assertNotSame(prop.get("db.host").get(), prop.get("cache.host").get());
+		assertEquals(0, prop.getBuildStatistics().getDeduplicatedStrings());
+	}
+
+	@Test
+	public void shouldCheckTheBloomFilterBeforeTheStore() {
+		final Properlty prop = Properlty.builder()
+				.add(Properties.add("db.host", "localhost").add("db.port", "5432"))
+				.bloomFilter(true)
+				.build();
+
+		assertEquals("localhost", prop.get("db.host").get());
+		assertEquals("default", prop.get("feature.enabled", "default"));
+
+		final BloomFilterStore bloomFilter = prop.getBloomFilter().get();
+		assertEquals(1, bloomFilter.getRejectedLookups() + bloomFilter.getFalsePositives());
+		assertSame(bloomFilter, prop.overlay(Collections.singletonMap("db.port", "6432")).getBloomFilter().get());
+		assertFalse(Properlty.builder().build().getBloomFilter().isPresent());
+	}
+
+	@Test
+	public void shouldResolveMissingPlaceholdersWithTheResolver() {
+		final Properlty prop = Properlty.builder()
+				.add(Properties.add("user", "${secret.user}").add("password", "${secret.password}"))
+				.resolver(keys -> {
+					final Map<String, String> values = new HashMap<>();
+					keys.forEach(key -> values.put(key, key.toUpperCase()));
+					return values;
+				})
+				.build();
+
+		assertEquals("SECRET.USER", prop.get("user").get());
+		assertEquals("SECRET.PASSWORD", prop.get("password").get());
+		assertEquals(1, prop.getBuildStatistics().getResolverCalls());
+		assertFalse(prop.get("secret.password").isPresent());
+		assertEquals(2, prop.asMap().size());
+	}
+
+	@Test
+	public void shouldUseTheConfiguredStore() {
+		final Properlty prop = Properlty.builder()
+				.add(Properties.add("key1", "value1").add("key2", "${key1}"))
+				.store(PerfectHashStore::build)
+				.build();
+
+		assertEquals("value1", prop.get("key1").get());
+		assertEquals("value1", prop.get("key2").get());
+		assertFalse(prop.get("key3").isPresent());
+	}
+
 	private String[] getKeysWithUppercase(Map<String, ?> map, int howMany) {
 		final String[] keys = new String[howMany];
 
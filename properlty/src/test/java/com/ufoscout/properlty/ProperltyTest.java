@@ -17,9 +17,19 @@ package com.ufoscout.properlty;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import com.ufoscout.properlty.reader.ProgrammaticPropertiesReader;
@@ -29,6 +39,7 @@ import com.ufoscout.properlty.reader.decorator.ReplacerDecoratorReader;
 import org.junit.Test;
 
 import com.ufoscout.properlty.reader.PropertyValue;
+import com.ufoscout.properlty.util.KeyPath;
 
 import static org.junit.Assert.*;
 
@@ -508,6 +519,36 @@ public class ProperltyTest extends ProperltyBaseTest {
 		assertEquals(0, prop.getList("key.three", Integer::valueOf).size());
 	}
 
+	@Test
+	public void shouldCacheSplitLists() {
+		final Map<String, String> properties = new HashMap<>();
+		properties.put("key.one", "111, 222, 333");
+		properties.put("key.two", "a.b|c");
+
+		final Properlty prop = buildProperlty(properties);
+
+		final List<String> values = prop.getList("key.one", ", ");
+		assertEquals(Arrays.asList("111", "222", "333"), values);
+		assertSame(values, prop.getList("key.one", ", "));
+		assertSame(values, prop.subset("key.").getList("one", ", "));
+
+		final List<Integer> integers = prop.getList("key.one", ", ", Integer.class);
+		assertEquals(Arrays.asList(111, 222, 333), integers);
+		assertSame(integers, prop.getList("key.one", ", ", Integer.class));
+		assertEquals(0, prop.getList("key.three", Integer.class).size());
+
+		assertArrayEquals(new String[] {"a.b", "c"}, prop.getArray("key.two", "\\|"));
+		assertArrayEquals(new String[] {"a", "b|c"}, prop.getArray("key.two", "\\."));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void shouldReturnImmutableLists() {
+		final Map<String, String> properties = new HashMap<>();
+		properties.put("key.one", "111,222,333");
+
+		buildProperlty(properties).getList("key.one").set(0, "444");
+	}
+
 	@Test
 	public void shouldMatchPlaceholdersNotSensitiveCase() {
 		final Map<String, String> properties = new HashMap<>();
@@ -540,6 +581,282 @@ public class ProperltyTest extends ProperltyBaseTest {
 
 	}
 
+	@Test
+	public void shouldRenderTemplates() {
+		final Map<String, String> properties = new HashMap<>();
+		properties.put("db.host", "10.10.10.10");
+		properties.put("db.port", "5432");
+
+		final Properlty prop = buildProperlty(properties);
+
+		final Map<String, String> extraVars = new HashMap<>();
+		extraVars.put("tenant", "acme");
+
+		assertEquals("jdbc:10.10.10.10:5432/acme", prop.render("jdbc:${db.host}:${db.port}/${tenant}", extraVars));
+		assertEquals("jdbc:10.10.10.10:5432/public", prop.render("jdbc:${db.host}:${db.port}/${tenant:public}"));
+
+		extraVars.put("db.port", "6543");
+		assertEquals("jdbc:10.10.10.10:6543/acme", prop.render("jdbc:${db.host}:${db.port}/${tenant}", extraVars));
+	}
+
+	@Test
+	public void shouldReturnKeysWithPrefix() {
+		final Map<String, String> properties = new HashMap<>();
+		properties.put("service.payments.db.url", "jdbc");
+		properties.put("service.payments.db.user", "admin");
+		properties.put("service.orders.db.url", "jdbc2");
+
+		final Properlty prop = buildProperlty(properties, false);
+
+		assertEquals(2, prop.keysWithPrefix("service.payments.").size());
+		assertTrue(prop.keysWithPrefix("SERVICE.PAYMENTS.").contains("service.payments.db.user"));
+		assertEquals(3, prop.asMap().size());
+		assertEquals("jdbc2", prop.asMap().get("service.orders.db.url"));
+	}
+
+	@Test
+	public void shouldReturnSubsetViews() {
+		final Map<String, String> properties = new HashMap<>();
+		properties.put("service.payments.db.url", "jdbc");
+		properties.put("service.payments.db.port", "5432");
+		properties.put("service.payments.db.pool.max", "10");
+		properties.put("service.orders.db.url", "jdbc2");
+
+		final Properlty prop = buildProperlty(properties, false);
+		final Properlty payments = prop.subset("service.payments.");
+		final Properlty db = payments.subset("DB.");
+
+		assertEquals("jdbc", payments.get("db.url").get());
+		assertFalse(payments.get("service.payments.db.url").isPresent());
+		assertEquals(5432, db.getInt("port", 0));
+		assertEquals(10, db.subset("pool.").getInt("max").get().intValue());
+		assertEquals("jdbc:5432", db.render("${url}:${port}"));
+
+		assertEquals(Arrays.asList("pool.max", "port", "url"), new ArrayList<>(db.keysWithPrefix("")));
+		assertEquals(Arrays.asList("port"), new ArrayList<>(db.keysWithPrefix("por")));
+		assertEquals(3, db.asMap().size());
+		assertEquals("5432", db.asMap().get("port"));
+		assertTrue(prop.subset("service.billing.").asMap().isEmpty());
+		assertSame(prop.getBuildStatistics(), db.getBuildStatistics());
+
+		assertEquals("jdbc", payments.get(new StringBuilder("DB.URL"), null));
+		final Properlty caseSensitivePayments = buildProperlty(properties).subset("service.payments.");
+		assertEquals("jdbc", caseSensitivePayments.get("db.url").get());
+		assertEquals("jdbc", caseSensitivePayments.get(new StringBuilder("db.url"), null));
+		assertNull(caseSensitivePayments.get(new StringBuilder("DB.URL"), null));
+		assertEquals("10", caseSensitivePayments.subset("db.").subset("pool.").get(new StringBuilder("max"), null));
+	}
+
+	@Test
+	public void shouldConvertAndMemoizeTypedValues() {
+		final AtomicInteger conversions = new AtomicInteger();
+		final Properlty prop = Properlty.builder()
+				.add(Properties.add("timeout", "30s").add("point", "1;2").add("db.address", "db.local:5432"))
+				.converter(int[].class, value -> {
+					conversions.incrementAndGet();
+					return Arrays.stream(value.split(";")).mapToInt(Integer::parseInt).toArray();
+				})
+				.build();
+
+		assertEquals(Duration.ofSeconds(30), prop.get("timeout", Duration.class).get());
+		assertEquals(5432, prop.subset("db.").get("address", InetSocketAddress.class).get().getPort());
+		assertFalse(prop.get("missing", Duration.class).isPresent());
+
+		final int[] point = prop.get("point", int[].class).get();
+		assertArrayEquals(new int[] {1, 2}, point);
+		assertSame(point, prop.get("point", int[].class).get());
+		assertEquals(1, conversions.get());
+	}
+
+	@Test
+	public void shouldNotMemoizeNullConvertedValues() {
+		final AtomicInteger conversions = new AtomicInteger();
+		final Properlty prop = Properlty.builder()
+				.add(Properties.add("mode", "none"))
+				.converter(TimeUnit.class, value -> {
+					conversions.incrementAndGet();
+					return "none".equals(value) ? null : TimeUnit.valueOf(value);
+				})
+				.build();
+
+		assertFalse(prop.get("mode", TimeUnit.class).isPresent());
+		assertFalse(prop.get("mode", TimeUnit.class).isPresent());
+		assertEquals(2, conversions.get());
+	}
+
+	@Test
+	public void shouldDeriveInstancesWithOverrides() {
+		final Properlty base = Properlty.builder()
+				.add(Properties.add("db.host", "localhost").add("db.port", "5432")
+						.add("db.url", "jdbc:${db.host}:${db.port}").add("app.url", "${db.url}/app")
+						.add("log.level", "INFO"))
+				.build();
+
+		final Properlty derived = base.withOverrides(Collections.singletonMap("db.host", "db.tenant1"));
+
+		assertEquals("db.tenant1", derived.get("db.host").get());
+		assertEquals("jdbc:db.tenant1:5432", derived.get("db.url").get());
+		assertEquals("jdbc:db.tenant1:5432/app", derived.get("app.url").get());
+		assertEquals("INFO", derived.get("log.level").get());
+		assertEquals("jdbc:localhost:5432", base.get("db.url").get());
+
+		final Properlty twice = derived.subset("db.").withOverrides(Collections.singletonMap("port", "${log.level}"));
+		assertEquals("INFO", twice.get("port").get());
+		assertEquals("jdbc:db.tenant1:INFO", twice.get("url").get());
+		assertEquals("jdbc:db.tenant1:5432", derived.get("db.url").get());
+
+		final Properlty added = base.withOverrides(Collections.singletonMap("db.user", "admin"));
+		assertEquals("admin", added.get("db.user").get());
+		assertEquals(4, added.keysWithPrefix("db.").size());
+		assertEquals(3, base.keysWithPrefix("db.").size());
+	}
+
+	@Test
+	public void derivedInstancesShouldHaveTheValuesOfAFreshBuild() {
+		final Map<String, String> properties = new HashMap<>();
+		properties.put("db.scheme", "jdbc");
+		properties.put("db.url", "${db.scheme}:${db.host:localhost}");
+		final Properlty base = buildProperlty(properties);
+
+		for (final Map<String, String> overrides : Arrays.asList(Collections.singletonMap("db.scheme", "jdbc2"), Collections.singletonMap("db.host", "db.tenant1"))) {
+			final Map<String, String> overridden = new HashMap<>(properties);
+			overridden.putAll(overrides);
+			// a placeholder replaced by its default value replaces the whole value, both when built and when derived
+			assertEquals(buildProperlty(overridden).get("db.url"), base.withOverrides(overrides).get("db.url"));
+		}
+		assertEquals("localhost", base.withOverrides(Collections.singletonMap("db.scheme", "jdbc2")).get("db.url").get());
+		assertEquals("jdbc:db.tenant1", base.withOverrides(Collections.singletonMap("db.host", "db.tenant1")).get("db.url").get());
+	}
+
+	@Test
+	public void shouldCreateTenantOverlays() {
+		final Properlty base = Properlty.builder()
+				.add(Properties.add("db.host", "localhost").add("db.port", "5432")
+						.add("db.url", "jdbc:${db.host}:${db.port}").add("app.url", "${db.url}/app")
+						.add("log.level", "INFO").add("log.file", "${log.level}.log"))
+				.build();
+
+		final Properlty tenant = base.overlay(Collections.singletonMap("db.host", "db.tenant1"));
+
+		assertEquals("db.tenant1", tenant.get("db.host").get());
+		assertEquals("jdbc:db.tenant1:5432", tenant.get("db.url").get());
+		assertEquals("jdbc:db.tenant1:5432/app", tenant.get("app.url").get());
+		assertEquals("INFO.log", tenant.get("log.file").get());
+		assertEquals("jdbc:localhost:5432", base.get("db.url").get());
+		assertEquals(3, tenant.keysWithPrefix("db.").size());
+
+		final Properlty nested = tenant.subset("db.").overlay(Collections.singletonMap("port", "${log.level}"));
+		assertEquals("jdbc:db.tenant1:INFO", nested.get("url").get());
+		assertEquals("jdbc:db.tenant1:5432", tenant.get("db.url").get());
+
+		final Properlty added = base.overlay(Collections.singletonMap("db.user", "admin"));
+		assertEquals("admin", added.get("db.user").get());
+		assertEquals(4, added.keysWithPrefix("db.").size());
+		assertEquals(3, base.keysWithPrefix("db.").size());
+	}
+
+	@Test
+	public void shouldDiffSnapshots() {
+		final Properlty base = Properlty.builder()
+				.add(Properties.add("db.host", "localhost").add("db.port", "5432")
+						.add("db.url", "jdbc:${db.host}:${db.port}").add("log.level", "INFO"))
+				.build();
+
+		final Properlty derived = base.withOverrides(Collections.singletonMap("db.host", "db.example.com"));
+		final PropertiesDiff diff = base.diff(derived);
+		assertEquals(new HashSet<>(Arrays.asList("db.host", "db.url")), diff.getChanged().keySet());
+		assertEquals("jdbc:db.example.com:5432", diff.getChanged().get("db.url").getValue());
+		assertTrue(diff.getAdded().isEmpty());
+		assertTrue(diff.getRemoved().isEmpty());
+		assertTrue(derived.diff(derived).isEmpty());
+
+		final Properlty overlay = base.overlay(Collections.singletonMap("db.user", "admin"));
+		assertEquals(Collections.singletonMap("db.user", "admin"), derived.diff(overlay).getAdded());
+		assertEquals(2, derived.diff(overlay).getChanged().size());
+
+		final Properlty unrelated = Properlty.builder().add(Properties.add("db.host", "localhost").add("log.level", "DEBUG")).build();
+		final PropertiesDiff unrelatedDiff = base.diff(unrelated);
+		assertEquals(new HashSet<>(Arrays.asList("db.port", "db.url")), unrelatedDiff.getRemoved().keySet());
+		assertEquals("DEBUG", unrelatedDiff.getChanged().get("log.level").getValue());
+
+		final PropertiesDiff viewDiff = base.subset("db.").diff(derived.subset("db."));
+		assertEquals(new HashSet<>(Arrays.asList("host", "url")), viewDiff.getChanged().keySet());
+		assertEquals(Collections.singletonMap("user", "admin"), base.subset("db.").diff(overlay.subset("db.")).getAdded());
+		assertEquals("localhost", base.subset("db.").diff(base).getAdded().get("db.host"));
+	}
+
+	@Test
+	public void shouldGetValuesByCharSequenceAndBytes() {
+		final Map<String, String> properties = new HashMap<>();
+		properties.put("db.url", "jdbc");
+		properties.put("città", "Torino");
+		final Properlty prop = buildProperlty(properties);
+		final byte[] bytes = "__città__".getBytes(StandardCharsets.UTF_8);
+
+		assertEquals("jdbc", prop.get(new StringBuilder("db.").append("url"), "default"));
+		assertEquals("default", prop.get(new StringBuilder("db.user"), "default"));
+		assertEquals("Torino", prop.get(bytes, 2, bytes.length - 4, null));
+		assertEquals("Torino", prop.get(ByteBuffer.wrap(bytes, 2, bytes.length - 4), null));
+		assertNull(prop.get(bytes, 0, bytes.length, null));
+
+		assertEquals("jdbc", prop.subset("db.").get(new StringBuilder("url"), null));
+		assertEquals("jdbc", buildProperlty(properties, false).get(new StringBuilder("DB.URL"), null));
+	}
+
+	@Test
+	public void shouldGetValuesBySegments() {
+		final Map<String, String> properties = new HashMap<>();
+		properties.put("tenant.42.db.url", "jdbc:tenant42");
+		final Properlty prop = buildProperlty(properties);
+		final String id = "42";
+
+		assertEquals("jdbc:tenant42", prop.getPath("tenant", id, "db", "url").get());
+		assertFalse(prop.getPath("tenant", "43", "db", "url").isPresent());
+		assertEquals("jdbc:tenant42", prop.subset("tenant.").getPath(id, "db", "url").get());
+		assertEquals("jdbc:tenant42", buildProperlty(properties, false).getPath("TENANT", id, "DB", "URL").get());
+
+		final int numericId = 42;
+		assertEquals("jdbc:tenant42", prop.getPath("tenant", numericId, "db", "url").get());
+		assertFalse(prop.getPath("tenant", 43, "db", "url").isPresent());
+		assertEquals("jdbc:tenant42", prop.subset("tenant.").subset("42.").getPath("db", "url").get());
+
+		final KeyPath path = new KeyPath();
+		assertEquals("jdbc:tenant42", prop.getPath(path.clear().segment("tenant").segment(numericId).segment("db").segment("url")).get());
+		assertEquals("jdbc:tenant42", prop.subset("tenant.").getPath(path.clear().segment(numericId).segment("db").segment("url")).get());
+		assertEquals("jdbc:tenant42", buildProperlty(properties, false).getPath(path.set("TENANT", "42", "DB", "URL")).get());
+	}
+
+	@Test
+	public void shouldReadIndexedListsAndMaps() {
+		final Properlty prop = Properlty.builder()
+				.add(Properties.add("servers[0].host", "alpha").add("servers[0].port", "8080")
+						.add("servers[10].host", "gamma").add("servers[2].host", "beta")
+						.add("hosts[1]", "b").add("hosts[0]", "a").add("hosts[2].name", "c")
+						.add("routes.b.target", "/b").add("routes.a.target", "/a").add("routes.a.weight", "3"))
+				.build();
+
+		assertEquals(Arrays.asList("a", "b"), prop.getIndexedValues("hosts"));
+		assertSame(prop.getIndexedValues("hosts"), prop.getIndexedValues("hosts"));
+		assertTrue(prop.getIndexedValues("missing").isEmpty());
+
+		final List<Properlty> servers = prop.getIndexedList("servers");
+		assertEquals(3, servers.size());
+		assertEquals("alpha", servers.get(0).get("host").get());
+		assertEquals(8080, servers.get(0).getInt("port", 0));
+		assertEquals("beta", servers.get(1).get("host").get());
+		assertEquals("gamma", servers.get(2).get("host").get());
+		assertSame(servers, prop.getIndexedList("servers"));
+
+		final Map<String, Properlty> routes = prop.getMap("routes");
+		assertEquals(Arrays.asList("a", "b"), new ArrayList<>(routes.keySet()));
+		assertEquals("/a", routes.get("a").get("target").get());
+		assertEquals(3, routes.get("a").getInt("weight", 0));
+		assertEquals("/b", routes.get("b").get("target").get());
+		assertSame(routes, prop.getMap("routes"));
+
+		assertEquals(Arrays.asList("target", "weight"), new ArrayList<>(prop.subset("routes.").getMap("a").keySet()));
+	}
+
 	private Properlty buildProperlty(Map<String, String> properties) {
 		return buildProperlty(properties, true);
 	}
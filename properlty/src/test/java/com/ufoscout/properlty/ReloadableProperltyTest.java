@@ -0,0 +1,339 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.reader.ProgrammaticPropertiesReader;
+import com.ufoscout.properlty.reader.Properties;
+
+public class ReloadableProperltyTest extends ProperltyBaseTest {
+
+	@Test
+	public void shouldPublishTheReloadedSnapshot() {
+		final Map<String, String> source = new HashMap<>();
+		source.put("db.host", "localhost");
+		source.put("db.port", "5432");
+		source.put("db.user", "admin");
+		final List<PropertiesDiff> changes = new ArrayList<>();
+		final ReloadableProperlty reloadable = ReloadableProperlty.of(() -> Properlty.builder().add(reader(source)).build(), Runnable::run)
+				.addListener(changes::add);
+		final Properlty first = reloadable.current();
+
+		source.put("db.host", "db.example.com");
+		source.remove("db.user");
+		source.put("db.password", "secret");
+		assertTrue(reloadable.reload());
+
+		assertEquals("localhost", first.get("db.host").get());
+		assertEquals("db.example.com", reloadable.current().get("db.host").get());
+		assertEquals(1, changes.size());
+		final PropertiesDiff diff = changes.get(0);
+		assertEquals(Collections.singletonMap("db.password", "secret"), diff.getAdded());
+		assertEquals(Collections.singletonMap("db.user", "admin"), diff.getRemoved());
+		assertEquals("localhost", diff.getChanged().get("db.host").getPreviousValue());
+		assertEquals("db.example.com", diff.getChanged().get("db.host").getValue());
+		assertEquals(1, diff.getChanged().size());
+
+		// a snapshot without changes is published but not notified
+		assertTrue(reloadable.reload());
+		assertEquals(1, changes.size());
+	}
+
+	@Test
+	public void shouldNotPublishOverAnUnexpectedSnapshot() {
+		final ReloadableProperlty reloadable = Properlty.builder().add(Properties.add("key", "value")).buildReloadable(Runnable::run);
+		final Properlty first = reloadable.current();
+		final Properlty second = first.withOverrides(Collections.singletonMap("key", "second"));
+		final Properlty third = first.withOverrides(Collections.singletonMap("key", "third"));
+
+		assertTrue(reloadable.compareAndSet(first, second));
+		assertFalse(reloadable.compareAndSet(first, third));
+		assertSame(second, reloadable.current());
+	}
+
+	@Test
+	public void shouldUpdateTheConstants() {
+		final AtomicInteger version = new AtomicInteger(1);
+		final ReloadableProperlty reloadable = ReloadableProperlty.of(
+				() -> Properlty.builder().add(Properties.add("limit", "" + version.get() * 100).add("other", "" + version.get())).build(),
+				Runnable::run);
+		final Constant<Integer> limit = reloadable.constant("limit", Integer.class);
+
+		version.set(2);
+		reloadable.reload();
+
+		assertEquals(200, limit.get().intValue());
+		assertSame(limit, reloadable.constant("limit", Integer.class));
+	}
+
+	@Test
+	public void shouldUpdateTheConstantsOfAView() {
+		final AtomicInteger version = new AtomicInteger(1);
+		final ReloadableProperlty reloadable = ReloadableProperlty.of(
+				() -> Properlty.builder().add(Properties.add("pool.limit", "" + version.get() * 100).add("limit", "0")).build().subset("pool."),
+				Runnable::run);
+		final Constant<Integer> limit = reloadable.constant("limit", Integer.class);
+		assertEquals(100, limit.get().intValue());
+
+		version.set(2);
+		assertTrue(reloadable.reload());
+
+		assertEquals(200, limit.get().intValue());
+		assertSame(limit, reloadable.constant("limit", Integer.class));
+	}
+
+	@Test
+	public void shouldNotPublishASnapshotWhoseConstantsAreConvertedToNull() {
+		final ReloadableProperlty reloadable = Properlty.builder()
+				.add(Properties.add("limit", "100"))
+				.converter(Integer.class, value -> value.equals("none") ? null : Integer.valueOf(value))
+				.buildReloadable(Runnable::run);
+		final Properlty first = reloadable.current();
+		final Constant<Integer> limit = reloadable.constant("limit", Integer.class);
+
+		try {
+			reloadable.compareAndSet(first, first.withOverrides(Collections.singletonMap("limit", "none")));
+			fail("Should throw an exception");
+		} catch (final IllegalStateException e) {
+			assertTrue(e.getMessage().contains("[limit]"));
+		}
+
+		assertSame(first, reloadable.current());
+		assertEquals(100, limit.get().intValue());
+	}
+
+	@Test
+	public void shouldNotPublishASnapshotWhoseConstantsCannotBeConverted() {
+		final List<PropertiesDiff> changes = new ArrayList<>();
+		final ReloadableProperlty reloadable = Properlty.builder().add(Properties.add("limit", "100")).buildReloadable(Runnable::run)
+				.addListener(changes::add);
+		final Properlty first = reloadable.current();
+		final Constant<Integer> limit = reloadable.constant("limit", Integer.class);
+
+		try {
+			reloadable.compareAndSet(first, first.withOverrides(Collections.singletonMap("limit", "unlimited")));
+			fail("Should throw an exception");
+		} catch (final RuntimeException e) {
+			// expected
+		}
+
+		assertSame(first, reloadable.current());
+		assertEquals(100, limit.get().intValue());
+		assertTrue(changes.isEmpty());
+	}
+
+	@Test
+	public void shouldDispatchAgainAfterARejectedExecution() {
+		final AtomicBoolean reject = new AtomicBoolean(true);
+		final List<Throwable> reported = new ArrayList<>();
+		final List<PropertiesDiff> changes = new ArrayList<>();
+		final ReloadableProperlty reloadable = Properlty.builder().add(Properties.add("key", "0")).buildReloadable(command -> {
+			if (reject.get()) {
+				throw new RejectedExecutionException();
+			}
+			command.run();
+		}).addListener(changes::add);
+
+		final Thread thread = Thread.currentThread();
+		final Thread.UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+		thread.setUncaughtExceptionHandler((t, e) -> reported.add(e));
+		try {
+			assertTrue(reloadable.compareAndSet(reloadable.current(), reloadable.current().withOverrides(Collections.singletonMap("key", "1"))));
+		} finally {
+			thread.setUncaughtExceptionHandler(handler);
+		}
+		assertEquals("1", reloadable.current().get("key").get());
+		assertEquals(1, reported.size());
+		assertTrue(reported.get(0) instanceof RejectedExecutionException);
+		assertTrue(changes.isEmpty());
+
+		reject.set(false);
+		assertTrue(reloadable.compareAndSet(reloadable.current(), reloadable.current().withOverrides(Collections.singletonMap("key", "2"))));
+		assertEquals(2, changes.size());
+		assertEquals("1", changes.get(0).getChanged().get("key").getValue());
+		assertEquals("2", changes.get(1).getChanged().get("key").getValue());
+	}
+
+	@Test
+	public void shouldNotifyTheListenersAfterAFailingOne() {
+		final AtomicReference<PropertiesDiff> notified = new AtomicReference<>();
+		final ReloadableProperlty reloadable = Properlty.builder().add(Properties.add("key", "value")).buildReloadable(command -> {
+			final Thread thread = new Thread(command);
+			thread.setUncaughtExceptionHandler((t, e) -> {});
+			thread.start();
+			try {
+				thread.join();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		reloadable.addListener(diff -> {
+			throw new RuntimeException("listener failure");
+		}).addListener(notified::set);
+
+		reloadable.compareAndSet(reloadable.current(), reloadable.current().withOverrides(Collections.singletonMap("key", "new")));
+
+		assertEquals("new", notified.get().getChanged().get("key").getValue());
+	}
+
+	@Test
+	public void aSlowListenerShouldNotDelayThePublication() throws InterruptedException {
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final CountDownLatch release = new CountDownLatch(1);
+			final List<String> values = Collections.synchronizedList(new ArrayList<>());
+			final CountDownLatch notified = new CountDownLatch(3);
+			final ReloadableProperlty reloadable = Properlty.builder().add(Properties.add("key", "0")).buildReloadable(executor);
+			reloadable.addListener(diff -> {
+				try {
+					release.await();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				values.add(diff.getChanged().get("key").getValue());
+				notified.countDown();
+			});
+
+			for (int i = 1; i <= 3; i++) {
+				final Properlty current = reloadable.current();
+				assertTrue(reloadable.compareAndSet(current, current.withOverrides(Collections.singletonMap("key", "" + i))));
+				assertEquals("" + i, reloadable.current().get("key").get());
+			}
+			assertTrue(values.isEmpty());
+
+			release.countDown();
+			assertTrue(notified.await(10, TimeUnit.SECONDS));
+			assertEquals(Arrays.asList("1", "2", "3"), values);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Readers check that each snapshot is consistent and never older than the previous one they read,
+	 * while writers race to publish new versions; the listener checks that the diffs form a single chain.
+	 */
+	@Test
+	public void concurrentReadersAndWritersStressTest() throws InterruptedException {
+		final int readers = 4;
+		final int writers = 4;
+		final int versionsPerWriter = 2_000;
+		final ExecutorService listenerExecutor = Executors.newSingleThreadExecutor();
+		try {
+			final ReloadableProperlty reloadable = Properlty.builder()
+					.add(Properties.add("version", "0").add("copy", "0").add("label", "v${version}"))
+					.buildReloadable(listenerExecutor);
+			final AtomicInteger published = new AtomicInteger();
+			final AtomicInteger lastNotified = new AtomicInteger();
+			final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+			reloadable.addListener(diff -> {
+				final int previous = Integer.parseInt(diff.getChanged().get("version").getPreviousValue());
+				final int value = Integer.parseInt(diff.getChanged().get("version").getValue());
+				if (previous != lastNotified.get() || value != previous + 1) {
+					errors.add("Unexpected diff " + diff + " after version " + lastNotified.get());
+				}
+				lastNotified.set(value);
+			});
+
+			final AtomicInteger finishedWriters = new AtomicInteger();
+			final List<Thread> threads = new ArrayList<>();
+			for (int i = 0; i < readers; i++) {
+				threads.add(new Thread(() -> {
+					int lastVersion = 0;
+					while (finishedWriters.get() < writers) {
+						final Properlty snapshot = reloadable.current();
+						final int version = Integer.parseInt(snapshot.get("version").get());
+						if (version != Integer.parseInt(snapshot.get("copy").get()) || !snapshot.get("label").get().equals("v" + version)) {
+							errors.add("Inconsistent snapshot " + snapshot.asMap());
+						}
+						if (version < lastVersion) {
+							errors.add("Version " + version + " read after version " + lastVersion);
+						}
+						lastVersion = version;
+					}
+				}));
+			}
+			for (int i = 0; i < writers; i++) {
+				threads.add(new Thread(() -> {
+					int written = 0;
+					while (written < versionsPerWriter) {
+						final Properlty current = reloadable.current();
+						final String next = "" + (Integer.parseInt(current.get("version").get()) + 1);
+						final Map<String, String> overrides = new HashMap<>();
+						overrides.put("version", next);
+						overrides.put("copy", next);
+						if (reloadable.compareAndSet(current, current.withOverrides(overrides))) {
+							published.incrementAndGet();
+							written++;
+						}
+					}
+					finishedWriters.incrementAndGet();
+				}));
+			}
+			threads.forEach(Thread::start);
+			for (final Thread thread : threads) {
+				thread.join();
+			}
+
+			final int expectedVersion = writers * versionsPerWriter;
+			final long deadline = System.currentTimeMillis() + 10_000;
+			while (lastNotified.get() < expectedVersion && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+
+			assertEquals(Collections.emptyList(), errors);
+			assertEquals(expectedVersion, published.get());
+			assertEquals("" + expectedVersion, reloadable.current().get("version").get());
+			assertEquals("v" + expectedVersion, reloadable.current().get("label").get());
+			assertEquals(expectedVersion, lastNotified.get());
+			assertNull(reloadable.current().get("missing").orElse(null));
+		} finally {
+			listenerExecutor.shutdownNow();
+		}
+	}
+
+	private ProgrammaticPropertiesReader reader(Map<String, String> properties) {
+		ProgrammaticPropertiesReader reader = null;
+		for (final Map.Entry<String, String> entry : properties.entrySet()) {
+			reader = reader == null ? Properties.add(entry.getKey(), entry.getValue()) : reader.add(entry.getKey(), entry.getValue());
+		}
+		return reader;
+	}
+
+}
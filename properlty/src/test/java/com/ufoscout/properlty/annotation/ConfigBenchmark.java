@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.annotation;
+
+import static org.junit.Assert.assertNotNull;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.Properlty;
+import com.ufoscout.properlty.ProperltyBaseTest;
+import com.ufoscout.properlty.reader.Properties;
+
+public class ConfigBenchmark extends ProperltyBaseTest {
+
+	@Test
+	public void configBenchmark() {
+		final Properlty prop = Properlty.builder()
+				.add(Properties.add("required", "value"))
+				.build();
+		final ConfigTest.RequiredConfig config = new Properlty_ConfigTest_RequiredConfig(prop);
+
+		final int loops = 10_000_000;
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < loops; i++) {
+			assertNotNull(prop.get("required").get());
+		}
+		final long lookupTime = System.currentTimeMillis() - start;
+
+		start = System.currentTimeMillis();
+		for (int i = 0; i < loops; i++) {
+			assertNotNull(config.required());
+		}
+		final long generatedTime = System.currentTimeMillis() - start;
+
+		System.out.println("Properlty lookup time : " + lookupTime + "ms");
+		System.out.println("Generated config time : " + generatedTime + "ms");
+	}
+
+}
@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright 2017 Francesco Cina'
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.ufoscout.properlty.annotation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Test;
+
+import com.ufoscout.properlty.Properlty;
+import com.ufoscout.properlty.ProperltyBaseTest;
+import com.ufoscout.properlty.exception.MissingPropertyException;
+import com.ufoscout.properlty.reader.Properties;
+
+public class ConfigTest extends ProperltyBaseTest {
+
+	enum Mode {
+		FAST, SAFE
+	}
+
+	@Config(prefix = "server.")
+	interface ServerConfig {
+		String host();
+		@Key("port.number") int getPort();
+		@Key(defaultValue = "30") long timeout();
+		boolean isSecure();
+		Optional<String> name();
+		List<Integer> ports();
+		@Key(defaultValue = "a,b") List<String> tags();
+		Mode mode();
+		BigDecimal ratio();
+		Double weight();
+		default String url() {
+			return host() + ":" + getPort();
+		}
+	}
+
+	@Config(prefix = "client.")
+	interface ClientConfig {
+		Duration timeout();
+		Optional<URI> endpoint();
+		List<Duration> retries();
+	}
+
+	@Config
+	interface RequiredConfig {
+		String required();
+	}
+
+	@Config
+	interface NamingConfig {
+		String URL();
+		boolean isEnabled();
+		String settings();
+	}
+
+	@Test
+	public void generatedAndRuntimeBindingShouldUseTheSameKeys() {
+		final Properlty prop = Properlty.builder()
+				.add(Properties.add("URL", "http://localhost").add("enabled", "true").add("settings", "all"))
+				.build();
+
+		for (final NamingConfig config : new NamingConfig[] {new Properlty_ConfigTest_NamingConfig(prop), prop.bind(NamingConfig.class)}) {
+			assertEquals("http://localhost", config.URL());
+			assertTrue(config.isEnabled());
+			assertEquals("all", config.settings());
+		}
+	}
+
+	@Test
+	public void shouldGenerateConfigImplementation() {
+		final Properlty prop = Properlty.builder()
+				.add(Properties
+						.add("server.host", "localhost")
+						.add("server.port.number", "8080")
+						.add("server.secure", "TRUE")
+						.add("server.ports", "1,2,3")
+						.add("server.mode", "SAFE")
+						.add("server.ratio", "0.75")
+						.add("server.weight", "1.5"))
+				.build();
+
+		final ServerConfig config = new Properlty_ConfigTest_ServerConfig(prop);
+
+		assertEquals("localhost", config.host());
+		assertEquals(8080, config.getPort());
+		assertEquals(30L, config.timeout());
+		assertTrue(config.isSecure());
+		assertFalse(config.name().isPresent());
+		assertEquals(Arrays.asList(1, 2, 3), config.ports());
+		assertEquals(Arrays.asList("a", "b"), config.tags());
+		assertEquals(Mode.SAFE, config.mode());
+		assertEquals(new BigDecimal("0.75"), config.ratio());
+		assertEquals(1.5, config.weight(), 0.0001);
+		assertEquals("localhost:8080", config.url());
+	}
+
+	@Test
+	public void generatedAndRuntimeBindingShouldUseTheConvertersOfTheInstance() {
+		final Properlty prop = Properlty.builder()
+				.add(Properties.add("client.timeout", "30s").add("client.endpoint", "http://localhost").add("client.retries", "1s,5s"))
+				.build();
+
+		for (final ClientConfig config : new ClientConfig[] {new Properlty_ConfigTest_ClientConfig(prop), prop.bind(ClientConfig.class)}) {
+			assertEquals(Duration.ofSeconds(30), config.timeout());
+			assertEquals(URI.create("http://localhost"), config.endpoint().get());
+			assertEquals(Arrays.asList(Duration.ofSeconds(1), Duration.ofSeconds(5)), config.retries());
+		}
+	}
+
+	@Test
+	public void shouldFailIfARequiredKeyIsMissing() {
+		try {
+			new Properlty_ConfigTest_RequiredConfig(Properlty.builder().build());
+		} catch (final MissingPropertyException e) {
+			assertNotNull(e.getMessage());
+			assertTrue(e.getMessage().contains("required"));
+			return;
+		}
+		throw new RuntimeException("A MissingPropertyException should have been thrown");
+	}
+
+}